@@ -16,8 +16,12 @@
  */
 package jakarta.el;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -36,6 +40,10 @@ public class BeanELResolver extends ELResolver {
         CACHE_SIZE = Integer.getInteger(CACHE_SIZE_PROP, 1000).intValue();
     }
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType READ_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType WRITE_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
     private final boolean readOnly;
 
     private final ConcurrentCache<String,BeanProperties> cache = new ConcurrentCache<>(CACHE_SIZE);
@@ -81,16 +89,13 @@ public class BeanELResolver extends ELResolver {
         }
 
         context.setPropertyResolved(base, property);
-        Method m = this.property(context, base, property).read(context, base);
+        MethodHandle mh = this.property(context, base, property).readHandle(context, base);
         try {
-            return m.invoke(base, (Object[]) null);
-        } catch (InvocationTargetException e) {
-            Throwable cause = e.getCause();
-            Util.handleThrowable(cause);
+            return mh.invokeExact(base);
+        } catch (Throwable t) {
+            Util.handleThrowable(t);
             throw new ELException(
-                    Util.message(context, "propertyReadError", base.getClass().getName(), property.toString()), cause);
-        } catch (Exception e) {
-            throw new ELException(e);
+                    Util.message(context, "propertyReadError", base.getClass().getName(), property.toString()), t);
         }
     }
 
@@ -108,7 +113,21 @@ public class BeanELResolver extends ELResolver {
                     Util.message(context, "resolverNotWritable", base.getClass().getName()));
         }
 
-        Method m = this.property(context, base, property).write(context, base);
+        BeanProperty beanProperty = this.property(context, base, property);
+        MethodHandle mh = beanProperty.writeHandle(context, base);
+        if (beanProperty.isAssignable(value)) {
+            try {
+                mh.invokeExact(base, value);
+            } catch (Throwable t) {
+                Util.handleThrowable(t);
+                throw new ELException(Util.message(context, "propertyWriteError", base.getClass().getName(),
+                        property.toString()), t);
+            }
+            return;
+        }
+
+        // Let reflection report the invalid argument
+        Method m = beanProperty.write(context, base);
         try {
             m.invoke(base, value);
         } catch (InvocationTargetException e) {
@@ -204,6 +223,13 @@ public class BeanELResolver extends ELResolver {
 
         private Method write;
 
+        private MethodHandle readHandle;
+
+        // Volatile so writeParameterType is visible once writeHandle is
+        private volatile MethodHandle writeHandle;
+
+        private Class<?> writeParameterType;
+
         BeanProperty(Class<?> owner, Class<?> type) {
             this.owner = owner;
             this.type = type;
@@ -239,6 +265,32 @@ public class BeanELResolver extends ELResolver {
             return this.read;
         }
 
+        private MethodHandle readHandle(ELContext ctx, Object base) {
+            if (this.readHandle == null) {
+                this.readHandle = toMethodHandle(read(ctx, base), READ_TYPE);
+            }
+            return this.readHandle;
+        }
+
+        private MethodHandle writeHandle(ELContext ctx, Object base) {
+            if (this.writeHandle == null) {
+                Method m = write(ctx, base);
+                this.writeParameterType = m.getParameterTypes()[0];
+                this.writeHandle = toMethodHandle(m, WRITE_TYPE);
+            }
+            return this.writeHandle;
+        }
+
+        /*
+         * Can the value be passed to the write method without triggering an argument conversion error?
+         */
+        private boolean isAssignable(Object value) {
+            if (value == null) {
+                return !this.writeParameterType.isPrimitive();
+            }
+            return Util.isAssignableFrom(value.getClass(), this.writeParameterType);
+        }
+
         abstract Method getWriteMethod();
 
         abstract Method getReadMethod();
@@ -250,15 +302,32 @@ public class BeanELResolver extends ELResolver {
         Class<?> type = base.getClass();
         String prop = property.toString();
 
-        BeanProperties props = this.cache.get(type.getName());
-        if (props == null || type != props.getType()) {
-            props = BeanSupport.getInstance().getBeanProperties(type);
-            this.cache.put(type.getName(), props);
+        BeanSupport beanSupport = BeanSupport.getInstance();
+        BeanProperties props = beanSupport.getCachedBeanProperties(type);
+        if (props == null) {
+            props = this.cache.get(type.getName());
+            if (props == null || type != props.getType()) {
+                props = beanSupport.getBeanProperties(type);
+                this.cache.put(type.getName(), props);
+            }
         }
 
         return props.get(ctx, prop);
     }
 
+    private static MethodHandle toMethodHandle(Method m, MethodType type) {
+        MethodHandle mh;
+        try {
+            mh = LOOKUP.unreflect(m);
+        } catch (IllegalAccessException e) {
+            throw new ELException(e);
+        }
+        if (Modifier.isStatic(m.getModifiers())) {
+            mh = MethodHandles.dropArguments(mh, 0, Object.class);
+        }
+        return mh.asType(type);
+    }
+
     private static final class ConcurrentCache<K, V> {
 
         private final int size;
@@ -26,6 +26,23 @@ abstract class BeanSupport {
 
     private static final BeanSupport beanSupport;
 
+    /*
+     * Lock-free cache shared by all resolvers using this implementation. The values are attached to the Class they
+     * describe so they are released when that Class is unloaded. Values are only attached to types loaded by the class
+     * loader that loaded this class or by one of its children. Attaching values to any other type (e.g. a JDK type)
+     * could pin the class loader that loaded this class if that class loader is a web application class loader. Other
+     * types use the per resolver cache.
+     */
+    private final ClassValue<BeanProperties> properties = new ClassValue<>() {
+        @Override
+        protected BeanProperties computeValue(Class<?> type) {
+            if (isVisible(type)) {
+                return getBeanProperties(type);
+            }
+            return null;
+        }
+    };
+
     static {
         // Only intended for unit tests. Not intended to be part of public API.
         boolean doNotCacheInstance = Boolean.getBoolean("jakarta.el.BeanSupport.doNotCacheInstance");
@@ -66,4 +83,26 @@ abstract class BeanSupport {
     }
 
     abstract BeanProperties getBeanProperties(Class<?> type);
+
+    /*
+     * Returns null if the properties of the given type may not be cached by this implementation.
+     */
+    final BeanProperties getCachedBeanProperties(Class<?> type) {
+        return properties.get(type);
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        ClassLoader cl = BeanSupport.class.getClassLoader();
+        if (cl == null) {
+            return true;
+        }
+        ClassLoader typeLoader = type.getClassLoader();
+        while (typeLoader != null) {
+            if (typeLoader == cl) {
+                return true;
+            }
+            typeLoader = typeLoader.getParent();
+        }
+        return false;
+    }
 }
@@ -210,6 +210,16 @@ public final class Globals {
     public static final String JASPER_XML_BLOCK_EXTERNAL_INIT_PARAM = "org.apache.jasper.XML_BLOCK_EXTERNAL";
 
 
+    /**
+     * Name of the ServletContext init-param that determines the number of threads the JSP engine will use to compile
+     * all the JSPs in a web application in the background when the web application starts.
+     * <p>
+     * This must be kept in sync with org.apache.jasper.Constants
+     */
+    public static final String JASPER_BACKGROUND_COMPILE_THREADS_INIT_PARAM =
+            "org.apache.jasper.BACKGROUND_COMPILE_THREADS";
+
+
     // --------------------------------------------------- System property names
 
     /**
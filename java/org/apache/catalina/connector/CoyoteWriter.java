@@ -18,11 +18,14 @@ package org.apache.catalina.connector;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+import org.apache.tomcat.util.buf.PreEncodedWriter;
 
 /**
  * Coyote implementation of the servlet writer.
  */
-public class CoyoteWriter extends PrintWriter {
+public class CoyoteWriter extends PrintWriter implements PreEncodedWriter {
 
 
     // -------------------------------------------------------------- Constants
@@ -189,6 +192,43 @@ public class CoyoteWriter extends PrintWriter {
     }
 
 
+    // ----------------------------------------------- PreEncodedWriter Methods
+
+
+    @Override
+    public Charset getCharset() {
+
+        if (error) {
+            return null;
+        }
+
+        try {
+            return ob.getCharset();
+        } catch (IOException ioe) {
+            setErrorException(ioe);
+            return null;
+        }
+
+    }
+
+
+    @Override
+    public boolean writePreEncoded(byte[] b, int off, int len, Charset charset) {
+
+        if (error) {
+            return true;
+        }
+
+        try {
+            return ob.writePreEncoded(b, off, len, charset);
+        } catch (IOException ioe) {
+            setErrorException(ioe);
+            return true;
+        }
+
+    }
+
+
     // ---------------------------------------------------- PrintWriter Methods
 
 
@@ -569,6 +569,55 @@ public class OutputBuffer extends Writer {
     }
 
 
+    /**
+     * Returns the character set used to convert characters written to this buffer to bytes.
+     *
+     * @return the character set
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public Charset getCharset() throws IOException {
+        checkConverter();
+        return conv.getCharset();
+    }
+
+
+    /**
+     * Writes characters that have already been encoded using the character set returned by {@link #getCharset()}.
+     * Characters previously written to this buffer are converted first so the output remains in order.
+     *
+     * @param b       The encoded characters
+     * @param off     The offset in the array
+     * @param len     The number of bytes to write
+     * @param charset The character set used to encode the characters
+     *
+     * @return {@code true} if the bytes were written, {@code false} if the caller should write the characters instead
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public boolean writePreEncoded(byte[] b, int off, int len, Charset charset) throws IOException {
+
+        if (suspended) {
+            return true;
+        }
+
+        checkConverter();
+        if (!conv.getCharset().equals(charset)) {
+            return false;
+        }
+        if (cb.remaining() > 0) {
+            flushCharBuffer();
+        }
+        if (conv.isUnderflow()) {
+            // The converter is holding the first half of a surrogate pair
+            return false;
+        }
+
+        writeBytes(b, off, len);
+        return true;
+    }
+
+
     /**
      * Checks and initializes the character-to-byte converter if needed.
      *
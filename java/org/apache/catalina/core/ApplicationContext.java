@@ -268,6 +268,10 @@ public class ApplicationContext implements ServletContext {
                 return "false";
             }
         }
+        if (Globals.JASPER_BACKGROUND_COMPILE_THREADS_INIT_PARAM.equals(name) &&
+                context.getJspBackgroundCompileThreads() > 0) {
+            return Integer.toString(context.getJspBackgroundCompileThreads());
+        }
         return parameters.get(name);
     }
 
@@ -283,6 +287,9 @@ public class ApplicationContext implements ServletContext {
         if (!context.getXmlBlockExternal()) {
             names.add(Globals.JASPER_XML_BLOCK_EXTERNAL_INIT_PARAM);
         }
+        if (context.getJspBackgroundCompileThreads() > 0) {
+            names.add(Globals.JASPER_BACKGROUND_COMPILE_THREADS_INIT_PARAM);
+        }
         return Collections.enumeration(names);
     }
 
@@ -629,6 +629,12 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     private boolean tldValidation = Globals.STRICT_SERVLET_COMPLIANCE;
 
 
+    /**
+     * The number of threads used to compile JSPs in the background when the web application starts.
+     */
+    private int jspBackgroundCompileThreads = 0;
+
+
     /**
      * The name to use for session cookies. <code>null</code> indicates that the name is controlled by the application.
      */
@@ -5667,6 +5673,26 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     }
 
 
+    /**
+     * Set the number of threads the JSP engine will use to compile all the JSPs in this web application in the
+     * background when the web application starts. Zero or less disables background compilation.
+     *
+     * @param jspBackgroundCompileThreads The number of threads to use
+     */
+    public void setJspBackgroundCompileThreads(int jspBackgroundCompileThreads) {
+        this.jspBackgroundCompileThreads = jspBackgroundCompileThreads;
+    }
+
+
+    /**
+     * @return the number of threads the JSP engine will use to compile all the JSPs in this web application in the
+     *             background when the web application starts.
+     */
+    public int getJspBackgroundCompileThreads() {
+        return jspBackgroundCompileThreads;
+    }
+
+
     /**
      * The J2EE Server ObjectName this module is deployed on.
      */
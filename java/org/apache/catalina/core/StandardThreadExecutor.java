@@ -21,6 +21,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -34,9 +35,11 @@ import org.apache.tomcat.util.threads.ResizableExecutor;
 import org.apache.tomcat.util.threads.TaskQueue;
 import org.apache.tomcat.util.threads.TaskThreadFactory;
 import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.apache.tomcat.util.threads.WorkStealingThreadPoolExecutor;
 
 /**
- * Standard implementation of an {@link Executor} based on a Java thread pool.
+ * Standard implementation of an {@link Executor} based on a Java thread pool. Optionally, each thread has its own task
+ * queue and idle threads steal tasks from busy threads.
  */
 public class StandardThreadExecutor extends LifecycleMBeanBase implements Executor, ResizableExecutor {
 
@@ -97,8 +100,18 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
      */
     protected long threadRenewalDelay = org.apache.tomcat.util.threads.Constants.DEFAULT_THREAD_RENEWAL_DELAY;
 
+    /**
+     * Use a thread pool where each thread has its own task queue and idle threads steal tasks from busy threads.
+     */
+    protected boolean workStealing = false;
+
     private TaskQueue taskqueue = null;
 
+    /**
+     * The executor used instead of {@link #executor} when work stealing is enabled.
+     */
+    private WorkStealingThreadPoolExecutor workStealingExecutor = null;
+
     // ---------------------------------------------- Constructors
     /**
      * Default constructor required for the Digester.
@@ -120,12 +133,18 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
     @Override
     protected void startInternal() throws LifecycleException {
 
-        taskqueue = new TaskQueue(maxQueueSize);
         TaskThreadFactory tf = new TaskThreadFactory(namePrefix, daemon, getThreadPriority());
-        executor = new ThreadPoolExecutor(getMinSpareThreads(), getMaxThreads(), maxIdleTime, TimeUnit.MILLISECONDS,
-                taskqueue, tf);
-        executor.setThreadRenewalDelay(threadRenewalDelay);
-        taskqueue.setParent(executor);
+        if (workStealing) {
+            workStealingExecutor = new WorkStealingThreadPoolExecutor(getMinSpareThreads(), getMaxThreads(),
+                    maxIdleTime, TimeUnit.MILLISECONDS, maxQueueSize, tf);
+            workStealingExecutor.setThreadRenewalDelay(threadRenewalDelay);
+        } else {
+            taskqueue = new TaskQueue(maxQueueSize);
+            executor = new ThreadPoolExecutor(getMinSpareThreads(), getMaxThreads(), maxIdleTime,
+                    TimeUnit.MILLISECONDS, taskqueue, tf);
+            executor.setThreadRenewalDelay(threadRenewalDelay);
+            taskqueue.setParent(executor);
+        }
 
         setState(LifecycleState.STARTING);
     }
@@ -144,8 +163,12 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         if (executor != null) {
             executor.shutdownNow();
         }
+        if (workStealingExecutor != null) {
+            workStealingExecutor.shutdownNow();
+        }
         executor = null;
         taskqueue = null;
+        workStealingExecutor = null;
     }
 
 
@@ -155,6 +178,8 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
             // Note any RejectedExecutionException due to the use of TaskQueue
             // will be handled by the o.a.t.u.threads.ThreadPoolExecutor
             executor.execute(command);
+        } else if (workStealingExecutor != null) {
+            workStealingExecutor.execute(command);
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
@@ -167,6 +192,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         if (executor != null) {
             executor.contextStopping();
         }
+        if (workStealingExecutor != null) {
+            workStealingExecutor.contextStopping();
+        }
     }
 
     /**
@@ -188,6 +216,15 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         return daemon;
     }
 
+    /**
+     * Return whether idle threads steal tasks from the queues of busy threads.
+     *
+     * @return true if work stealing is enabled
+     */
+    public boolean isWorkStealing() {
+        return workStealing;
+    }
+
     /**
      * Return the name prefix for new threads.
      *
@@ -243,6 +280,16 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         this.daemon = daemon;
     }
 
+    /**
+     * Set whether each thread has its own task queue and idle threads steal tasks from busy threads. Takes effect
+     * when the executor is next started.
+     *
+     * @param workStealing true to enable work stealing
+     */
+    public void setWorkStealing(boolean workStealing) {
+        this.workStealing = workStealing;
+    }
+
     /**
      * Set the name prefix for new threads.
      *
@@ -262,6 +309,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         if (executor != null) {
             executor.setKeepAliveTime(maxIdleTime, TimeUnit.MILLISECONDS);
         }
+        if (workStealingExecutor != null) {
+            workStealingExecutor.setKeepAliveTime(maxIdleTime, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
@@ -274,6 +324,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         if (executor != null) {
             executor.setMaximumPoolSize(maxThreads);
         }
+        if (workStealingExecutor != null) {
+            workStealingExecutor.resizePool(Math.min(minSpareThreads, maxThreads), maxThreads);
+        }
     }
 
     /**
@@ -286,6 +339,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         if (executor != null) {
             executor.setCorePoolSize(minSpareThreads);
         }
+        if (workStealingExecutor != null) {
+            workStealingExecutor.resizePool(Math.min(minSpareThreads, maxThreads), maxThreads);
+        }
     }
 
     /**
@@ -304,6 +360,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
      */
     public void setMaxQueueSize(int size) {
         this.maxQueueSize = size;
+        if (workStealingExecutor != null) {
+            workStealingExecutor.resizeQueue(size);
+        }
     }
 
     /**
@@ -334,11 +393,17 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         if (executor != null) {
             executor.setThreadRenewalDelay(threadRenewalDelay);
         }
+        if (workStealingExecutor != null) {
+            workStealingExecutor.setThreadRenewalDelay(threadRenewalDelay);
+        }
     }
 
     // Statistics from the thread pool
     @Override
     public int getActiveCount() {
+        if (workStealingExecutor != null) {
+            return workStealingExecutor.getActiveCount();
+        }
         return (executor != null) ? executor.getActiveCount() : 0;
     }
 
@@ -348,6 +413,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
      * @return the completed task count
      */
     public long getCompletedTaskCount() {
+        if (workStealingExecutor != null) {
+            return workStealingExecutor.getCompletedTaskCount();
+        }
         return (executor != null) ? executor.getCompletedTaskCount() : 0;
     }
 
@@ -357,6 +425,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
      * @return the core pool size
      */
     public int getCorePoolSize() {
+        if (workStealingExecutor != null) {
+            return workStealingExecutor.getCorePoolSize();
+        }
         return (executor != null) ? executor.getCorePoolSize() : 0;
     }
 
@@ -366,11 +437,17 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
      * @return the largest pool size
      */
     public int getLargestPoolSize() {
+        if (workStealingExecutor != null) {
+            return workStealingExecutor.getLargestPoolSize();
+        }
         return (executor != null) ? executor.getLargestPoolSize() : 0;
     }
 
     @Override
     public int getPoolSize() {
+        if (workStealingExecutor != null) {
+            return workStealingExecutor.getPoolSize();
+        }
         return (executor != null) ? executor.getPoolSize() : 0;
     }
 
@@ -380,12 +457,18 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
      * @return the queue size, or -1 if not available
      */
     public int getQueueSize() {
+        if (workStealingExecutor != null) {
+            return workStealingExecutor.getQueueSize();
+        }
         return (executor != null) ? executor.getQueue().size() : -1;
     }
 
 
     @Override
     public boolean resizePool(int corePoolSize, int maximumPoolSize) {
+        if (workStealingExecutor != null) {
+            return workStealingExecutor.resizePool(corePoolSize, maximumPoolSize);
+        }
         if (executor == null) {
             return false;
         }
@@ -398,6 +481,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
 
     @Override
     public boolean resizeQueue(int capacity) {
+        if (workStealingExecutor != null) {
+            return workStealingExecutor.resizeQueue(capacity);
+        }
         return false;
     }
 
@@ -414,6 +500,19 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
     }
 
 
+    /**
+     * Return the thread pool in use, if the executor has been started.
+     *
+     * @return the thread pool or {@code null}
+     */
+    private ExecutorService getExecutorService() {
+        if (workStealingExecutor != null) {
+            return workStealingExecutor;
+        }
+        return executor;
+    }
+
+
     @Override
     public void shutdown() {
         // Controlled by Lifecycle instead
@@ -429,8 +528,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
 
     @Override
     public boolean isShutdown() {
-        if (executor != null) {
-            return executor.isShutdown();
+        ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+            return executorService.isShutdown();
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
@@ -439,8 +539,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
 
     @Override
     public boolean isTerminated() {
-        if (executor != null) {
-            return executor.isTerminated();
+        ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+            return executorService.isTerminated();
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
@@ -455,8 +556,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
 
     @Override
     public <T> Future<T> submit(Callable<T> task) {
-        if (executor != null) {
-            return executor.submit(task);
+        ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+            return executorService.submit(task);
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
@@ -465,8 +567,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
 
     @Override
     public <T> Future<T> submit(Runnable task, T result) {
-        if (executor != null) {
-            return executor.submit(task, result);
+        ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+            return executorService.submit(task, result);
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
@@ -475,8 +578,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
 
     @Override
     public Future<?> submit(Runnable task) {
-        if (executor != null) {
-            return executor.submit(task);
+        ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+            return executorService.submit(task);
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
@@ -485,8 +589,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
 
     @Override
     public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
-        if (executor != null) {
-            return executor.invokeAll(tasks);
+        ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+            return executorService.invokeAll(tasks);
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
@@ -496,8 +601,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
     @Override
     public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
             throws InterruptedException {
-        if (executor != null) {
-            return executor.invokeAll(tasks, timeout, unit);
+        ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+            return executorService.invokeAll(tasks, timeout, unit);
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
@@ -506,8 +612,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
 
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
-        if (executor != null) {
-            return executor.invokeAny(tasks);
+        ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+            return executorService.invokeAny(tasks);
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
@@ -517,8 +624,9 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
     @Override
     public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
             throws InterruptedException, ExecutionException, TimeoutException {
-        if (executor != null) {
-            return executor.invokeAny(tasks, timeout, unit);
+        ExecutorService executorService = getExecutorService();
+        if (executorService != null) {
+            return executorService.invokeAny(tasks, timeout, unit);
         } else {
             throw new IllegalStateException(sm.getString("standardThreadExecutor.notStarted"));
         }
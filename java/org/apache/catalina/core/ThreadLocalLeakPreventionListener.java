@@ -32,6 +32,7 @@ import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.res.StringManager;
 import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.apache.tomcat.util.threads.WorkStealingThreadPoolExecutor;
 
 /**
  * A {@link LifecycleListener} that triggers the renewal of threads in Executor pools when a {@link Context} is being
@@ -128,6 +129,8 @@ public class ThreadLocalLeakPreventionListener extends FrameworkListener {
                     threadPoolExecutor.contextStopping();
                 } else if (executor instanceof StandardThreadExecutor stdThreadExecutor) {
                     stdThreadExecutor.contextStopping();
+                } else if (executor instanceof WorkStealingThreadPoolExecutor workStealingExecutor) {
+                    workStealingExecutor.contextStopping();
                 }
 
             }
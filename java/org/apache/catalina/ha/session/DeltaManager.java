@@ -21,8 +21,15 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -81,6 +88,7 @@ public class DeltaManager extends ClusterManagerBase {
     private int stateTransferTimeout = 60;
     private boolean sendAllSessions = true;
     private int sendAllSessionsSize = 1000;
+    private int stateTransferMembers = 1;
     private boolean enableStatistics = true;
 
     /**
@@ -92,6 +100,19 @@ public class DeltaManager extends ClusterManagerBase {
     private boolean stateTimestampDrop = true;
     private volatile long stateTransferCreateSendTime;
 
+    /*
+     * State of the current session state transfer, guarded by stateTransferPending. The map holds the partitions
+     * requested from each member that have not been completely received yet. The orphans are partitions that a member
+     * without this context could not provide. They are requested from the last member that completed a partition, as
+     * that member is known to have this context.
+     */
+    private final Map<Member,Deque<Integer>> stateTransferPending = new HashMap<>();
+    private final Deque<Integer> stateTransferOrphans = new ArrayDeque<>();
+    private int stateTransferPartitions = 1;
+    private int stateTransferCompleted = 0;
+    private Member stateTransferSource = null;
+    private final AtomicLong stateTransferSessionsReceived = new AtomicLong(0);
+
     // -------------------------------------------------------- stats attributes
 
     private final AtomicLong sessionReplaceCounter = new AtomicLong(0);
@@ -450,6 +471,57 @@ public class DeltaManager extends ClusterManagerBase {
         this.sendAllSessionsSize = sendAllSessionsSize;
     }
 
+    /**
+     * Get the maximum number of members that are asked to provide a partition of the session state when this node
+     * starts.
+     *
+     * @return the stateTransferMembers value
+     */
+    public int getStateTransferMembers() {
+        return stateTransferMembers;
+    }
+
+    /**
+     * Set the maximum number of members that are asked to provide a partition of the session state when this node
+     * starts. Each member sends a disjoint subset of the sessions in parallel.
+     *
+     * @param stateTransferMembers The number of members. Must be a positive integer.
+     *
+     * @throws IllegalArgumentException if the number of members is not a positive integer
+     */
+    public void setStateTransferMembers(int stateTransferMembers) {
+        if (stateTransferMembers <= 0) {
+            throw new IllegalArgumentException(
+                    sm.getString("deltaManager.stateTransferMembers.invalid", Integer.valueOf(stateTransferMembers)));
+        }
+        this.stateTransferMembers = stateTransferMembers;
+    }
+
+    /**
+     * Get the number of sessions received so far during the current (or last) session state transfer.
+     *
+     * @return the number of sessions received
+     */
+    public long getStateTransferSessionsReceived() {
+        return stateTransferSessionsReceived.get();
+    }
+
+    /**
+     * Get the number of session state partitions that have not yet been completely received during the current
+     * session state transfer.
+     *
+     * @return the number of outstanding partitions
+     */
+    public int getStateTransferPendingPartitions() {
+        synchronized (stateTransferPending) {
+            int result = stateTransferOrphans.size();
+            for (Deque<Integer> partitions : stateTransferPending.values()) {
+                result += partitions.size();
+            }
+            return result;
+        }
+    }
+
     /**
      * Check if session listeners are notified on replication.
      *
@@ -714,6 +786,7 @@ public class DeltaManager extends ClusterManagerBase {
             for (int i = 0; i < n; i++) {
                 DeltaSession session = (DeltaSession) createEmptySession();
                 session.readObjectData(ois);
+                stateTransferSessionsReceived.incrementAndGet();
                 session.setManager(this);
                 session.setValid(true);
                 session.setPrimarySession(false);
@@ -820,35 +893,45 @@ public class DeltaManager extends ClusterManagerBase {
     }
 
     /**
-     * get from first session master the backup from all clustered sessions
+     * get from first session master the backup from all clustered sessions. If {@link #getStateTransferMembers()} is
+     * greater than one, the session state is split into partitions which are requested from several members in
+     * parallel.
      *
      * @see #findSessionMasterMember()
+     * @see #findSessionStateMembers()
      */
     public synchronized void getAllClusterSessions() {
         if (cluster != null && cluster.getMembers().length > 0) {
             long beforeSendTime = System.currentTimeMillis();
-            Member mbr = findSessionMasterMember();
-            if (mbr == null) { // No domain member found
+            Member[] mbrs = findSessionStateMembers();
+            if (mbrs.length == 0) { // No domain member found
                 return;
             }
-            SessionMessage msg = new SessionMessageImpl(this.getName(), SessionMessage.EVT_GET_ALL_SESSIONS, null,
-                    "GET-ALL", "GET-ALL-" + getName());
-            msg.setTimestamp(beforeSendTime);
             // set reference time
             stateTransferCreateSendTime = beforeSendTime;
-            // request session state
-            if (enableStatistics) {
-                counterSend_EVT_GET_ALL_SESSIONS.incrementAndGet();
-            }
             stateTransferred = false;
+            stateTransferSessionsReceived.set(0);
+            synchronized (stateTransferPending) {
+                stateTransferPending.clear();
+                stateTransferOrphans.clear();
+                stateTransferPartitions = mbrs.length;
+                stateTransferCompleted = 0;
+                stateTransferSource = null;
+                for (int i = 0; i < mbrs.length; i++) {
+                    stateTransferPending.computeIfAbsent(mbrs[i], k -> new ArrayDeque<>()).add(Integer.valueOf(i));
+                }
+            }
             // FIXME This send call block the deploy thread, when sender waitForAck is enabled
             try {
                 synchronized (receivedMessageQueue) {
                     receiverQueue = true;
                 }
-                cluster.send(msg, mbr, Channel.SEND_OPTIONS_ASYNCHRONOUS);
+                for (int i = 0; i < mbrs.length; i++) {
+                    requestSessionState(mbrs[i], i, mbrs.length, beforeSendTime);
+                }
                 if (log.isInfoEnabled()) {
-                    log.info(sm.getString("deltaManager.waitForSessionState", getName(), mbr,
+                    log.info(sm.getString("deltaManager.waitForSessionState", getName(),
+                            mbrs.length == 1 ? mbrs[0] : Arrays.toString(mbrs),
                             Integer.valueOf(getStateTransferTimeout())));
                 }
                 // FIXME At sender ack mode this method check only the state
@@ -884,6 +967,54 @@ public class DeltaManager extends ClusterManagerBase {
         }
     }
 
+    /**
+     * Ask a member for a partition of the session state.
+     *
+     * @param mbr        The member that should send the sessions
+     * @param partition  The partition to send
+     * @param partitions The total number of partitions
+     * @param timestamp  Start instant of the state transfer
+     */
+    protected void requestSessionState(Member mbr, int partition, int partitions, long timestamp) {
+        byte[] data = null;
+        if (partitions > 1) {
+            data = ByteBuffer.allocate(8).putInt(partition).putInt(partitions).array();
+        }
+        SessionMessage msg = new SessionMessageImpl(this.getName(), SessionMessage.EVT_GET_ALL_SESSIONS, data,
+                "GET-ALL", "GET-ALL-" + getName());
+        msg.setTimestamp(timestamp);
+        // request session state
+        if (enableStatistics) {
+            counterSend_EVT_GET_ALL_SESSIONS.incrementAndGet();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("deltaManager.createMessage.getAllSessions", getName(), mbr,
+                    Integer.valueOf(partition), Integer.valueOf(partitions)));
+        }
+        cluster.send(msg, mbr, Channel.SEND_OPTIONS_ASYNCHRONOUS);
+    }
+
+    /**
+     * Find the members that will provide the session state. Unless {@link #getStateTransferMembers()} is greater than
+     * one, this is the master returned by {@link #findSessionMasterMember()}.
+     *
+     * @return the members to request session state from, an empty array if there are none
+     */
+    protected Member[] findSessionStateMembers() {
+        if (stateTransferMembers <= 1) {
+            Member mbr = findSessionMasterMember();
+            return mbr == null ? new Member[0] : new Member[] { mbr };
+        }
+        Member[] mbrs = cluster.getMembers();
+        if (mbrs.length > stateTransferMembers) {
+            mbrs = Arrays.copyOf(mbrs, stateTransferMembers);
+        }
+        if (mbrs.length == 0 && log.isWarnEnabled()) {
+            log.warn(sm.getString("deltaManager.noMasterMember", getName(), ""));
+        }
+        return mbrs;
+    }
+
     /**
      * Find the master of the session state
      *
@@ -1280,8 +1411,34 @@ public class DeltaManager extends ClusterManagerBase {
             log.debug(sm.getString("deltaManager.receiveMessage.transfercomplete", getName(), sender.getHost(),
                     Integer.valueOf(sender.getPort())));
         }
-        stateTransferCreateSendTime = msg.getTimestamp();
-        stateTransferred = true;
+        Deque<Integer> orphans = null;
+        synchronized (stateTransferPending) {
+            // With several senders, use the oldest snapshot so no message that may be missing from it is dropped
+            if (stateTransferCompleted++ == 0 || msg.getTimestamp() < stateTransferCreateSendTime) {
+                stateTransferCreateSendTime = msg.getTimestamp();
+            }
+            stateTransferSource = sender;
+            Deque<Integer> partitions = stateTransferPending.get(sender);
+            if (partitions != null) {
+                partitions.poll();
+                if (partitions.isEmpty()) {
+                    stateTransferPending.remove(sender);
+                }
+            }
+            if (!stateTransferOrphans.isEmpty()) {
+                orphans = new ArrayDeque<>(stateTransferOrphans);
+                stateTransferOrphans.clear();
+                stateTransferPending.computeIfAbsent(sender, k -> new ArrayDeque<>()).addAll(orphans);
+            } else if (stateTransferPending.isEmpty()) {
+                stateTransferred = true;
+            }
+        }
+        if (orphans != null) {
+            for (Integer partition : orphans) {
+                requestSessionState(sender, partition.intValue(), stateTransferPartitions,
+                        stateTransferCreateSendTime);
+            }
+        }
     }
 
     /**
@@ -1427,6 +1584,16 @@ public class DeltaManager extends ClusterManagerBase {
         // get all sessions and serialize without sync
         Session[] currentSessions = findSessions();
         long findSessionTimestamp = System.currentTimeMillis();
+        byte[] partitionData = msg == null ? null : msg.getSession();
+        if (partitionData != null && partitionData.length == 8) {
+            // Only send the partition of the sessions requested from this member
+            ByteBuffer bb = ByteBuffer.wrap(partitionData);
+            int partition = bb.getInt();
+            int partitions = bb.getInt();
+            currentSessions = Arrays.stream(currentSessions).filter(
+                    session -> Math.floorMod(Objects.hashCode(session.getIdInternal()), partitions) == partition)
+                    .toArray(Session[]::new);
+        }
         if (isSendAllSessions()) {
             sendSessions(sender, currentSessions, findSessionTimestamp);
         } else {
@@ -1497,7 +1664,29 @@ public class DeltaManager extends ClusterManagerBase {
             log.debug(sm.getString("deltaManager.receiveMessage.noContextManager", getName(), sender.getHost(),
                     Integer.valueOf(sender.getPort())));
         }
-        noContextManagerReceived = true;
+        Member source = null;
+        Deque<Integer> partitions;
+        synchronized (stateTransferPending) {
+            partitions = stateTransferPending.remove(sender);
+            if (partitions != null) {
+                if (stateTransferSource != null) {
+                    // Another member has already shown it has this context so it can provide the missing partitions
+                    source = stateTransferSource;
+                    stateTransferPending.computeIfAbsent(source, k -> new ArrayDeque<>()).addAll(partitions);
+                } else {
+                    stateTransferOrphans.addAll(partitions);
+                }
+            }
+            if (stateTransferPending.isEmpty() && !stateTransferred) {
+                noContextManagerReceived = true;
+            }
+        }
+        if (source != null) {
+            for (Integer partition : partitions) {
+                requestSessionState(source, partition.intValue(), stateTransferPartitions,
+                        stateTransferCreateSendTime);
+            }
+        }
     }
 
     /**
@@ -1539,6 +1728,7 @@ public class DeltaManager extends ClusterManagerBase {
         result.sendAllSessions = sendAllSessions;
         result.sendAllSessionsSize = sendAllSessionsSize;
         result.sendAllSessionsWaitTime = sendAllSessionsWaitTime;
+        result.stateTransferMembers = stateTransferMembers;
         result.stateTimestampDrop = stateTimestampDrop;
         return result;
     }
@@ -0,0 +1,481 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.group.interceptors;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.catalina.tribes.Channel;
+import org.apache.catalina.tribes.ChannelException;
+import org.apache.catalina.tribes.ChannelMessage;
+import org.apache.catalina.tribes.ErrorHandler;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.UniqueId;
+import org.apache.catalina.tribes.group.ChannelInterceptorBase;
+import org.apache.catalina.tribes.group.InterceptorPayload;
+import org.apache.catalina.tribes.io.ChannelData;
+import org.apache.catalina.tribes.io.XByteBuffer;
+import org.apache.catalina.tribes.util.StringManager;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+/**
+ * The batch interceptor groups small outgoing messages per destination member into a single message and splits them
+ * again on the other end. This reduces the number of network writes and acknowledgements when many small messages,
+ * such as session deltas, are sent. <br>
+ * Only messages that match the option flag, by default <code>Channel.SEND_OPTIONS_ASYNCHRONOUS</code>, are batched as
+ * the sender of such a message does not wait for it to be delivered. A batch is sent when it reaches
+ * <code>maxSize</code> bytes or when its oldest message has waited <code>maxDelay</code> milliseconds. A message that
+ * is not batched causes the pending batch for its destination to be sent first, so the order of the messages sent to
+ * a member is preserved. <br>
+ * Batches are sent synchronously by the interceptor's flush task, which runs on the channel's utility executor, and
+ * the outcome of each batched message is reported to the <code>ErrorHandler</code> it was sent with. Messages still
+ * waiting for a member that disappears are reported as failed. <br>
+ * The interceptor must be present on every member and must be placed above the
+ * <code>MessageDispatchInterceptor</code>, which does not pass the error handlers of the messages it dispatches to the
+ * interceptors below it. <br>
+ * <b>Configuration Options</b><br>
+ * BatchInterceptor.maxSize=&lt;bytes&gt; - batch size that triggers an immediate send <b>default=65536</b><br>
+ * BatchInterceptor.maxDelay=&lt;milliseconds&gt; - maximum time a message waits in a batch <b>default=10</b><br>
+ */
+public class BatchInterceptor extends ChannelInterceptorBase implements BatchInterceptorMBean {
+
+    private static final Log log = LogFactory.getLog(BatchInterceptor.class);
+    /**
+     * String manager for internationalization support.
+     */
+    protected static final StringManager sm = StringManager.getManager(BatchInterceptor.class);
+
+    /**
+     * The pending batch for each destination member.
+     */
+    protected final Map<Member,Batch> batches = new ConcurrentHashMap<>();
+
+    private int maxSize = 64 * 1024;
+    private long maxDelay = 10;
+    private final AtomicLong messagesBatched = new AtomicLong(0);
+    private final AtomicLong batchesSent = new AtomicLong(0);
+    private ScheduledFuture<?> flushFuture = null;
+
+
+    /**
+     * Creates a new BatchInterceptor instance.
+     */
+    public BatchInterceptor() {
+        setOptionFlag(Channel.SEND_OPTIONS_ASYNCHRONOUS);
+    }
+
+
+    @Override
+    public void sendMessage(Member[] destination, ChannelMessage msg, InterceptorPayload payload)
+            throws ChannelException {
+        boolean batch = destination != null && okToProcess(msg.getOptions()) &&
+                msg.getMessage().getLength() < maxSize;
+        if (batch) {
+            ErrorHandler handler = payload == null ? null : payload.getErrorHandler();
+            PendingMessage pending =
+                    handler == null ? null : new PendingMessage(msg.getUniqueId(), handler, destination.length);
+            for (Member member : destination) {
+                batches.computeIfAbsent(member, Batch::new).add(msg, pending);
+            }
+        } else {
+            // Anything already waiting for these members has to be sent first to preserve the order
+            if (destination != null) {
+                for (Member member : destination) {
+                    Batch pending = batches.get(member);
+                    if (pending != null) {
+                        pending.send();
+                    }
+                }
+            }
+            msg.getMessage().append(false);
+            super.sendMessage(destination, msg, payload);
+        }
+    }
+
+
+    @Override
+    public void messageReceived(ChannelMessage msg) {
+        XByteBuffer buf = msg.getMessage();
+        boolean batch = XByteBuffer.toBoolean(buf.getBytesDirect(), buf.getLength() - 1);
+        buf.trim(1);
+        if (!batch) {
+            super.messageReceived(msg);
+            return;
+        }
+        byte[] data = buf.getBytesDirect();
+        int length = buf.getLength();
+        int offset = 0;
+        while (offset < length) {
+            int options = XByteBuffer.toInt(data, offset);
+            offset += 4;
+            long timestamp = XByteBuffer.toLong(data, offset);
+            offset += 8;
+            int idLength = XByteBuffer.toInt(data, offset);
+            offset += 4;
+            byte[] uniqueId = Arrays.copyOfRange(data, offset, offset + idLength);
+            offset += idLength;
+            int size = XByteBuffer.toInt(data, offset);
+            offset += 4;
+            XByteBuffer body = new XByteBuffer(size, false);
+            body.append(data, offset, size);
+            offset += size;
+            ChannelData message = new ChannelData(uniqueId, body, timestamp);
+            message.setOptions(options);
+            message.setAddress(msg.getAddress());
+            super.messageReceived(message);
+        }
+    }
+
+
+    @Override
+    public void flush() {
+        for (Batch batch : batches.values()) {
+            batch.send();
+        }
+    }
+
+
+    @Override
+    public void start(int svc) throws ChannelException {
+        if ((svc & Channel.SND_TX_SEQ) == Channel.SND_TX_SEQ) {
+            synchronized (this) {
+                ScheduledExecutorService executor = getChannel() == null ? null : getChannel().getUtilityExecutor();
+                if (flushFuture == null && executor != null) {
+                    flushFuture = executor.scheduleWithFixedDelay(this::flush, maxDelay, maxDelay,
+                            TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+        super.start(svc);
+    }
+
+
+    @Override
+    public void stop(int svc) throws ChannelException {
+        if ((svc & Channel.SND_TX_SEQ) == Channel.SND_TX_SEQ) {
+            synchronized (this) {
+                if (flushFuture != null) {
+                    flushFuture.cancel(false);
+                    flushFuture = null;
+                }
+            }
+            flush();
+        }
+        super.stop(svc);
+    }
+
+
+    @Override
+    public void heartbeat() {
+        // Only needed if there is no utility executor but harmless otherwise
+        flush();
+        super.heartbeat();
+    }
+
+
+    @Override
+    public void memberDisappeared(Member member) {
+        Batch batch = batches.remove(member);
+        if (batch != null) {
+            batch.discard();
+        }
+        super.memberDisappeared(member);
+    }
+
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+
+    @Override
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+
+    @Override
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+
+    @Override
+    public void setMaxDelay(long maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+
+    @Override
+    public long getMessagesBatched() {
+        return messagesBatched.get();
+    }
+
+
+    @Override
+    public long getBatchesSent() {
+        return batchesSent.get();
+    }
+
+
+    /**
+     * A batched message that has an error handler. A message sent to several members is held in one batch per member
+     * and is complete once all of those batches have been sent.
+     */
+    protected static class PendingMessage {
+        private final UniqueId id;
+        private final ErrorHandler handler;
+        private final AtomicInteger remaining;
+        private final AtomicBoolean failed = new AtomicBoolean(false);
+
+        /**
+         * Creates a new pending message.
+         *
+         * @param uniqueId     The unique ID of the message
+         * @param handler      The error handler the message was sent with
+         * @param destinations The number of members the message is sent to
+         */
+        public PendingMessage(byte[] uniqueId, ErrorHandler handler, int destinations) {
+            this.id = new UniqueId(uniqueId);
+            this.handler = handler;
+            this.remaining = new AtomicInteger(destinations);
+        }
+
+        /**
+         * Called when a batch containing the message has been sent.
+         */
+        public void sent() {
+            if (remaining.decrementAndGet() == 0 && !failed.get()) {
+                try {
+                    handler.handleCompletion(id);
+                } catch (Exception e) {
+                    log.error(sm.getString("batchInterceptor.completeMessage.failed"), e);
+                }
+            }
+        }
+
+        /**
+         * Called when a batch containing the message could not be sent. The error handler is only notified of the
+         * first failure.
+         *
+         * @param x The cause of the failure
+         */
+        public void failed(ChannelException x) {
+            if (failed.compareAndSet(false, true)) {
+                try {
+                    handler.handleError(x, id);
+                } catch (Exception e) {
+                    log.error(sm.getString("batchInterceptor.errorMessage.failed"), e);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * The messages waiting to be sent to a single member. Each message is framed as its options, timestamp, unique ID
+     * and body so that the receiving interceptor can restore it.
+     * <p>
+     * The batch's monitor only guards the buffer. A batch that is ready to be sent is moved to a queue and the queue is
+     * sent, in order, while holding a separate send lock. Adding a message therefore never waits for a network write
+     * while the order of the messages sent to the member is preserved.
+     */
+    protected class Batch {
+        private final Member member;
+        private final Object sendLock = new Object();
+        private final Deque<ReadyBatch> ready = new ArrayDeque<>();
+        private XByteBuffer buffer;
+        private Member address;
+        private int options;
+        private int count = 0;
+        private List<PendingMessage> pending = new ArrayList<>();
+        private boolean sendScheduled = false;
+
+        /**
+         * Creates a new, empty batch.
+         *
+         * @param member The member the batch will be sent to
+         */
+        public Batch(Member member) {
+            this.member = member;
+        }
+
+        /**
+         * Adds a message to the batch. If the batch is now full it is sent by the channel's utility executor or, if
+         * there is no executor, before this method returns.
+         *
+         * @param msg     The message to add
+         * @param message The message to notify once the batch has been sent or {@code null} if the message was sent
+         *                    without an error handler
+         */
+        public void add(ChannelMessage msg, PendingMessage message) {
+            boolean full;
+            synchronized (this) {
+                if (count > 0 && options != msg.getOptions()) {
+                    seal();
+                }
+                if (count == 0) {
+                    options = msg.getOptions();
+                    address = msg.getAddress();
+                    buffer = new XByteBuffer(Math.max(maxSize, msg.getMessage().getLength() + 64), false);
+                }
+                byte[] uniqueId = msg.getUniqueId();
+                buffer.append(msg.getOptions());
+                buffer.append(msg.getTimestamp());
+                buffer.append(uniqueId.length);
+                buffer.append(uniqueId, 0, uniqueId.length);
+                buffer.append(msg.getMessage().getLength());
+                buffer.append(msg.getMessage().getBytesDirect(), 0, msg.getMessage().getLength());
+                count++;
+                if (message != null) {
+                    pending.add(message);
+                }
+                messagesBatched.incrementAndGet();
+                full = (buffer.getLength() >= maxSize || !ready.isEmpty()) && !sendScheduled;
+                if (full) {
+                    sendScheduled = true;
+                }
+            }
+            if (full) {
+                ScheduledExecutorService executor = getChannel() == null ? null : getChannel().getUtilityExecutor();
+                if (executor != null) {
+                    // Don't make the sender of an asynchronous message wait for the network write
+                    executor.execute(this::send);
+                } else {
+                    send();
+                }
+            }
+        }
+
+        /**
+         * Sends the messages currently in the batch, if any, as a single message and reports the outcome to the error
+         * handlers of the messages. Returns once all the messages added before this method was called have been sent.
+         */
+        public void send() {
+            List<ReadyBatch> done = new ArrayList<>();
+            synchronized (sendLock) {
+                synchronized (this) {
+                    sendScheduled = false;
+                    if (count > 0) {
+                        seal();
+                    }
+                }
+                while (true) {
+                    ReadyBatch batch;
+                    synchronized (this) {
+                        batch = ready.poll();
+                    }
+                    if (batch == null) {
+                        break;
+                    }
+                    try {
+                        BatchInterceptor.super.sendMessage(new Member[] { member }, batch.data(), null);
+                    } catch (ChannelException x) {
+                        log.error(sm.getString("batchInterceptor.send.failed", member), x);
+                        batch = new ReadyBatch(null, batch.messages(), x, batch.count());
+                    }
+                    done.add(batch);
+                }
+            }
+            for (ReadyBatch batch : done) {
+                for (PendingMessage message : batch.messages()) {
+                    if (batch.failure() == null) {
+                        message.sent();
+                    } else {
+                        message.failed(batch.failure());
+                    }
+                }
+            }
+        }
+
+        /**
+         * Discards the messages currently in the batch and reports them as failed.
+         */
+        public void discard() {
+            List<PendingMessage> messages;
+            int discarded;
+            synchronized (this) {
+                if (count > 0) {
+                    seal();
+                }
+                if (ready.isEmpty()) {
+                    return;
+                }
+                messages = new ArrayList<>();
+                discarded = 0;
+                for (ReadyBatch batch : ready) {
+                    messages.addAll(batch.messages());
+                    discarded += batch.count();
+                }
+                ready.clear();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("batchInterceptor.discard", Integer.valueOf(discarded), member));
+            }
+            ChannelException x = new ChannelException(sm.getString("batchInterceptor.discard",
+                    Integer.valueOf(discarded), member));
+            x.addFaultyMember(member, null);
+            for (PendingMessage message : messages) {
+                message.failed(x);
+            }
+        }
+
+        /*
+         * Moves the current content of the batch to the queue of batches that are ready to be sent. Must be called
+         * while holding the batch's monitor.
+         */
+        private void seal() {
+            ChannelData data = new ChannelData(true);
+            // The batch is sent synchronously so the outcome of the batched messages is known when the send returns
+            data.setOptions(options & ~Channel.SEND_OPTIONS_ASYNCHRONOUS);
+            data.setAddress(address);
+            data.setTimestamp(System.currentTimeMillis());
+            buffer.append(true);
+            data.setMessage(buffer);
+            ready.add(new ReadyBatch(data, pending, null, count));
+            buffer = null;
+            count = 0;
+            pending = new ArrayList<>();
+            batchesSent.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * A batch that is ready to be sent, or has been sent, and the messages that need to be notified of the outcome.
+     *
+     * @param data     The batch to send
+     * @param messages The messages with an error handler in the batch
+     * @param failure  The reason sending the batch failed or {@code null}
+     * @param count    The number of messages in the batch
+     */
+    private record ReadyBatch(ChannelData data, List<PendingMessage> messages, ChannelException failure, int count) {
+    }
+}
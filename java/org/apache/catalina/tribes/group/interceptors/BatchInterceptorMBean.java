@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.group.interceptors;
+
+/**
+ * MBean interface for managing the batch interceptor.
+ */
+public interface BatchInterceptorMBean {
+
+    // Config
+    /**
+     * Returns the option flag used by this interceptor.
+     *
+     * @return The option flag value
+     */
+    int getOptionFlag();
+
+    /**
+     * Sets the option flag used by this interceptor.
+     *
+     * @param optionFlag The new option flag value
+     */
+    void setOptionFlag(int optionFlag);
+
+    /**
+     * Returns the size in bytes at which a batch is sent without waiting for the delay to expire.
+     *
+     * @return The maximum batch size
+     */
+    int getMaxSize();
+
+    /**
+     * Sets the size in bytes at which a batch is sent without waiting for the delay to expire. Messages larger than
+     * this are never batched.
+     *
+     * @param maxSize The maximum batch size
+     */
+    void setMaxSize(int maxSize);
+
+    /**
+     * Returns the maximum time in milliseconds a message may wait in a batch before it is sent.
+     *
+     * @return The maximum delay
+     */
+    long getMaxDelay();
+
+    /**
+     * Sets the maximum time in milliseconds a message may wait in a batch before it is sent.
+     *
+     * @param maxDelay The maximum delay
+     */
+    void setMaxDelay(long maxDelay);
+
+    // Stats
+    /**
+     * Returns the number of messages that have been added to a batch.
+     *
+     * @return The number of batched messages
+     */
+    long getMessagesBatched();
+
+    /**
+     * Returns the number of batches that have been sent.
+     *
+     * @return The number of batches
+     */
+    long getBatchesSent();
+
+    /**
+     * Sends all the pending batches immediately.
+     */
+    void flush();
+}
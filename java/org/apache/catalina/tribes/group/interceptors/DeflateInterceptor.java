@@ -0,0 +1,456 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.group.interceptors;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.catalina.tribes.ChannelException;
+import org.apache.catalina.tribes.ChannelMessage;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.group.ChannelInterceptorBase;
+import org.apache.catalina.tribes.group.InterceptorPayload;
+import org.apache.catalina.tribes.io.XByteBuffer;
+import org.apache.catalina.tribes.util.StringManager;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+/**
+ * Channel interceptor that compresses messages using the deflate algorithm before transmission and decompresses
+ * received messages. Compared to the {@link GzipInterceptor}, this interceptor re-uses its {@link Deflater} and
+ * {@link Inflater} instances, does not compress messages smaller than <code>compressionMinSize</code>, sends a message
+ * uncompressed if compression would not make it smaller and may use a preset dictionary. A dictionary made of data
+ * that is typical for the messages being sent, such as a serialized session, considerably improves the compression of
+ * small and repetitive messages. <br>
+ * The interceptor must be configured with the same dictionary on every member. <br>
+ * <b>Configuration Options</b><br>
+ * DeflateInterceptor.compressionMinSize=&lt;bytes&gt; - smallest message that is compressed <b>default=256</b><br>
+ * DeflateInterceptor.compressionLevel=&lt;0-9&gt; - the deflate compression level <b>default=1</b><br>
+ * DeflateInterceptor.dictionary=&lt;path&gt; - file containing the preset dictionary <b>default=none</b><br>
+ * DeflateInterceptor.maxDecompressedSize=&lt;bytes&gt; - largest message that will be decompressed
+ * <b>default=67108864</b><br>
+ */
+public class DeflateInterceptor extends ChannelInterceptorBase implements DeflateInterceptorMBean {
+
+    private static final Log log = LogFactory.getLog(DeflateInterceptor.class);
+    /**
+     * StringManager for this class.
+     */
+    protected static final StringManager sm = StringManager.getManager(DeflateInterceptor.class);
+
+    /**
+     * Default option flag that marks a message as compressed.
+     */
+    public static final int DEFAULT_OPTION_COMPRESSION_ENABLE = 0x0100;
+
+    /*
+     * The deflate format cannot represent more than 258 bytes in less than two bits so no valid message expands by
+     * more than this factor when decompressed.
+     */
+    private static final int MAX_DEFLATE_RATIO = 1032;
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private int compressionMinSize = 256;
+    private int compressionLevel = Deflater.BEST_SPEED;
+    private int maxDecompressedSize = 64 * 1024 * 1024;
+    private String dictionaryFile = null;
+    private volatile byte[] dictionary = null;
+    private volatile long dictionaryId = 0;
+
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    // Stats
+    private final AtomicLong countCompressedTX = new AtomicLong();
+    private final AtomicLong countUncompressedTX = new AtomicLong();
+    private final AtomicLong countCompressedRX = new AtomicLong();
+    private final AtomicLong countUncompressedRX = new AtomicLong();
+    private final AtomicLong bytesBeforeCompressionTX = new AtomicLong();
+    private final AtomicLong bytesAfterCompressionTX = new AtomicLong();
+    private final AtomicLong compressionTime = new AtomicLong();
+    private final AtomicLong decompressionTime = new AtomicLong();
+
+
+    /**
+     * Default constructor for DeflateInterceptor.
+     */
+    public DeflateInterceptor() {
+        setOptionFlag(DEFAULT_OPTION_COMPRESSION_ENABLE);
+    }
+
+
+    @Override
+    public void start(int svc) throws ChannelException {
+        if (dictionaryFile != null && dictionary == null) {
+            try {
+                setDictionaryBytes(Files.readAllBytes(Path.of(dictionaryFile)));
+            } catch (IOException ioe) {
+                throw new ChannelException(sm.getString("deflateInterceptor.dictionary.failed", dictionaryFile), ioe);
+            }
+        }
+        super.start(svc);
+    }
+
+
+    @Override
+    public void stop(int svc) throws ChannelException {
+        super.stop(svc);
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+        Inflater inflater;
+        while ((inflater = inflaters.poll()) != null) {
+            inflater.end();
+        }
+    }
+
+
+    @Override
+    public void sendMessage(Member[] destination, ChannelMessage msg, InterceptorPayload payload)
+            throws ChannelException {
+        XByteBuffer buf = msg.getMessage();
+        int length = buf.getLength();
+        // The compressed message also needs four bytes for the original length
+        if (length >= compressionMinSize && length > 4) {
+            long start = cpuTime();
+            XByteBuffer compressed = compress(buf.getBytesDirect(), length);
+            compressionTime.addAndGet(cpuTime() - start);
+            if (compressed != null) {
+                msg.setMessage(compressed);
+                // Set the flag that indicates that the message is compressed
+                msg.setOptions(msg.getOptions() | getOptionFlag());
+                countCompressedTX.incrementAndGet();
+                bytesBeforeCompressionTX.addAndGet(length);
+                bytesAfterCompressionTX.addAndGet(compressed.getLength());
+            } else {
+                countUncompressedTX.incrementAndGet();
+            }
+        } else {
+            countUncompressedTX.incrementAndGet();
+        }
+        super.sendMessage(destination, msg, payload);
+    }
+
+
+    @Override
+    public void messageReceived(ChannelMessage msg) {
+        if ((msg.getOptions() & getOptionFlag()) > 0) {
+            XByteBuffer buf = msg.getMessage();
+            long start = cpuTime();
+            try {
+                msg.setMessage(decompress(buf.getBytesDirect(), buf.getLength()));
+            } catch (DataFormatException | RuntimeException e) {
+                log.error(sm.getString("deflateInterceptor.decompress.failed", msg.getAddress()), e);
+                return;
+            } finally {
+                decompressionTime.addAndGet(cpuTime() - start);
+            }
+            // Clear the flag so interceptors further up see the message as it was sent
+            msg.setOptions(msg.getOptions() & ~getOptionFlag());
+            countCompressedRX.incrementAndGet();
+        } else {
+            countUncompressedRX.incrementAndGet();
+        }
+        super.messageReceived(msg);
+    }
+
+
+    /**
+     * Compresses the given data. The compressed data is followed by the length of the original data.
+     *
+     * @param data   The data to compress
+     * @param length The number of bytes of data to compress
+     *
+     * @return The compressed data or <code>null</code> if compressing would not make the data smaller
+     */
+    protected XByteBuffer compress(byte[] data, int length) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(compressionLevel);
+        } else {
+            deflater.setLevel(compressionLevel);
+        }
+        try {
+            byte[] dict = dictionary;
+            if (dict != null) {
+                deflater.setDictionary(dict);
+            }
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            // Only accept output that is smaller than the input, including the trailing length
+            XByteBuffer result = new XByteBuffer(length, false);
+            byte[] out = result.getBytesDirect();
+            int limit = length - 4;
+            int count = 0;
+            while (!deflater.finished() && count < limit) {
+                count += deflater.deflate(out, count, limit - count);
+            }
+            if (!deflater.finished()) {
+                return null;
+            }
+            result.setLength(count);
+            result.append(length);
+            return result;
+        } finally {
+            deflater.reset();
+            deflaters.offer(deflater);
+        }
+    }
+
+
+    /**
+     * Decompresses data that was compressed with {@link #compress(byte[], int)}.
+     *
+     * @param data   The compressed data
+     * @param length The number of bytes of compressed data, including the trailing original length
+     *
+     * @return The decompressed data
+     *
+     * @throws DataFormatException If the data is not valid or needs a dictionary that is not configured
+     */
+    protected XByteBuffer decompress(byte[] data, int length) throws DataFormatException {
+        int originalLength = XByteBuffer.toInt(data, length - 4);
+        if (originalLength < 0 || originalLength > (long) (length - 4) * MAX_DEFLATE_RATIO) {
+            throw new DataFormatException(
+                    sm.getString("deflateInterceptor.invalidLength", Integer.valueOf(originalLength)));
+        }
+        // The length is read from the message so check it before allocating the buffer
+        if (originalLength > maxDecompressedSize) {
+            throw new DataFormatException(sm.getString("deflateInterceptor.tooLarge", Integer.valueOf(originalLength),
+                    Integer.valueOf(maxDecompressedSize)));
+        }
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(data, 0, length - 4);
+            XByteBuffer result = new XByteBuffer(originalLength, false);
+            byte[] out = result.getBytesDirect();
+            int count = 0;
+            while (!inflater.finished()) {
+                int n = inflater.inflate(out, count, originalLength - count);
+                count += n;
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        byte[] dict = dictionary;
+                        // getAdler() returns the unsigned checksum as an int
+                        long id = inflater.getAdler() & 0xFFFFFFFFL;
+                        if (dict == null || id != dictionaryId) {
+                            throw new DataFormatException(
+                                    sm.getString("deflateInterceptor.dictionary.mismatch", Long.toHexString(id)));
+                        }
+                        inflater.setDictionary(dict);
+                    } else {
+                        break;
+                    }
+                }
+            }
+            if (!inflater.finished() || count != originalLength) {
+                throw new DataFormatException(sm.getString("deflateInterceptor.invalidLength",
+                        Integer.valueOf(originalLength)));
+            }
+            result.setLength(count);
+            return result;
+        } finally {
+            inflater.reset();
+            inflaters.offer(inflater);
+        }
+    }
+
+
+    @Override
+    public int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+
+    @Override
+    public void setCompressionMinSize(int compressionMinSize) {
+        this.compressionMinSize = compressionMinSize;
+    }
+
+
+    @Override
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+
+    @Override
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION &&
+                (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException(
+                    sm.getString("deflateInterceptor.compressionLevel.invalid", Integer.valueOf(compressionLevel)));
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+
+    @Override
+    public int getMaxDecompressedSize() {
+        return maxDecompressedSize;
+    }
+
+
+    @Override
+    public void setMaxDecompressedSize(int maxDecompressedSize) {
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+
+    @Override
+    public String getDictionary() {
+        return dictionaryFile;
+    }
+
+
+    /**
+     * Sets the file that contains the preset dictionary. The file is read when the interceptor is started. Only the
+     * last 32k bytes of the file are used by the deflate algorithm.
+     *
+     * @param dictionaryFile The path of the dictionary file
+     */
+    public void setDictionary(String dictionaryFile) {
+        this.dictionaryFile = dictionaryFile;
+        this.dictionary = null;
+    }
+
+
+    /**
+     * Sets the preset dictionary directly rather than reading it from a file.
+     *
+     * @param dictionary The dictionary or <code>null</code> to compress without a dictionary
+     */
+    public void setDictionaryBytes(byte[] dictionary) {
+        if (dictionary == null || dictionary.length == 0) {
+            this.dictionary = null;
+            this.dictionaryId = 0;
+        } else {
+            Adler32 adler = new Adler32();
+            adler.update(dictionary);
+            this.dictionaryId = adler.getValue();
+            this.dictionary = dictionary.clone();
+        }
+    }
+
+
+    @Override
+    public long getDictionaryId() {
+        return dictionaryId;
+    }
+
+
+    @Override
+    public long getCountCompressedTX() {
+        return countCompressedTX.get();
+    }
+
+
+    @Override
+    public long getCountUncompressedTX() {
+        return countUncompressedTX.get();
+    }
+
+
+    @Override
+    public long getCountCompressedRX() {
+        return countCompressedRX.get();
+    }
+
+
+    @Override
+    public long getCountUncompressedRX() {
+        return countUncompressedRX.get();
+    }
+
+
+    @Override
+    public long getBytesBeforeCompressionTX() {
+        return bytesBeforeCompressionTX.get();
+    }
+
+
+    @Override
+    public long getBytesAfterCompressionTX() {
+        return bytesAfterCompressionTX.get();
+    }
+
+
+    @Override
+    public double getCompressionRatio() {
+        long after = bytesAfterCompressionTX.get();
+        if (after == 0) {
+            return 0;
+        }
+        return (double) bytesBeforeCompressionTX.get() / after;
+    }
+
+
+    @Override
+    public long getCompressionTime() {
+        return compressionTime.get() / 1_000_000;
+    }
+
+
+    @Override
+    public long getDecompressionTime() {
+        return decompressionTime.get() / 1_000_000;
+    }
+
+
+    /*
+     * Compression is CPU bound so the time spent by the current thread is used rather than the elapsed time, which
+     * would include any time the thread was descheduled. Falls back to the elapsed time if the JVM does not measure
+     * thread CPU time.
+     */
+    private static long cpuTime() {
+        if (threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            long time = threadMXBean.getCurrentThreadCpuTime();
+            if (time != -1) {
+                return time;
+            }
+        }
+        return System.nanoTime();
+    }
+
+
+    @Override
+    public void reset() {
+        countCompressedTX.set(0);
+        countUncompressedTX.set(0);
+        countCompressedRX.set(0);
+        countUncompressedRX.set(0);
+        bytesBeforeCompressionTX.set(0);
+        bytesAfterCompressionTX.set(0);
+        compressionTime.set(0);
+        decompressionTime.set(0);
+    }
+}
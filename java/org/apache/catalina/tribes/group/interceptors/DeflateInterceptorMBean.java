@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.group.interceptors;
+
+/**
+ * MBean interface for managing the deflate interceptor.
+ */
+public interface DeflateInterceptorMBean {
+
+    // Config
+    /**
+     * Returns the option flag used by this interceptor.
+     *
+     * @return The option flag value
+     */
+    int getOptionFlag();
+
+    /**
+     * Sets the option flag used by this interceptor.
+     *
+     * @param optionFlag The new option flag value
+     */
+    void setOptionFlag(int optionFlag);
+
+    /**
+     * Returns the size in bytes of the smallest message that is compressed.
+     *
+     * @return The minimum message size for compression
+     */
+    int getCompressionMinSize();
+
+    /**
+     * Sets the size in bytes of the smallest message that is compressed.
+     *
+     * @param compressionMinSize The minimum message size for compression
+     */
+    void setCompressionMinSize(int compressionMinSize);
+
+    /**
+     * Returns the deflate compression level.
+     *
+     * @return The compression level
+     */
+    int getCompressionLevel();
+
+    /**
+     * Sets the deflate compression level, from 0 (no compression) to 9 (best compression) or -1 for the default
+     * level.
+     *
+     * @param compressionLevel The compression level
+     */
+    void setCompressionLevel(int compressionLevel);
+
+    /**
+     * Returns the path of the file that contains the preset dictionary.
+     *
+     * @return The dictionary file or <code>null</code> if no dictionary is used
+     */
+    String getDictionary();
+
+    /**
+     * Returns the Adler-32 checksum of the preset dictionary. All the members of the cluster must use a dictionary
+     * with the same checksum.
+     *
+     * @return The dictionary checksum or zero if no dictionary is used
+     */
+    long getDictionaryId();
+
+    // Stats
+    /**
+     * Returns the number of sent messages that were compressed.
+     *
+     * @return The number of compressed sent messages
+     */
+    long getCountCompressedTX();
+
+    /**
+     * Returns the number of sent messages that were not compressed, either because they were too small or because
+     * compression would not have made them smaller.
+     *
+     * @return The number of uncompressed sent messages
+     */
+    long getCountUncompressedTX();
+
+    /**
+     * Returns the number of received messages that were decompressed.
+     *
+     * @return The number of compressed received messages
+     */
+    long getCountCompressedRX();
+
+    /**
+     * Returns the number of received messages that were not compressed.
+     *
+     * @return The number of uncompressed received messages
+     */
+    long getCountUncompressedRX();
+
+    /**
+     * Returns the total size in bytes of the compressed sent messages before compression.
+     *
+     * @return The number of bytes before compression
+     */
+    long getBytesBeforeCompressionTX();
+
+    /**
+     * Returns the total size in bytes of the compressed sent messages after compression.
+     *
+     * @return The number of bytes after compression
+     */
+    long getBytesAfterCompressionTX();
+
+    /**
+     * Returns the ratio of the size of the compressed sent messages before compression to their size after
+     * compression.
+     *
+     * @return The compression ratio or zero if no message has been compressed
+     */
+    double getCompressionRatio();
+
+    /**
+     * Returns the size in bytes of the largest message that will be decompressed. Larger messages are rejected
+     * before any memory is allocated for them.
+     *
+     * @return The maximum decompressed message size
+     */
+    int getMaxDecompressedSize();
+
+    /**
+     * Sets the size in bytes of the largest message that will be decompressed.
+     *
+     * @param maxDecompressedSize The maximum decompressed message size
+     */
+    void setMaxDecompressedSize(int maxDecompressedSize);
+
+    /**
+     * Returns the total CPU time in milliseconds spent compressing messages. The elapsed time is used if the JVM
+     * does not support measuring thread CPU time.
+     *
+     * @return The compression time
+     */
+    long getCompressionTime();
+
+    /**
+     * Returns the total CPU time in milliseconds spent decompressing messages. The elapsed time is used if the JVM
+     * does not support measuring thread CPU time.
+     *
+     * @return The decompression time
+     */
+    long getDecompressionTime();
+
+    /**
+     * Resets the statistics.
+     */
+    void reset();
+}
@@ -36,6 +36,8 @@ import org.apache.juli.logging.LogFactory;
 /**
  * Channel interceptor that compresses messages using GZIP before transmission and decompresses
  * received messages. This reduces bandwidth usage for cluster communication.
+ *
+ * @see DeflateInterceptor for an interceptor that re-uses its compressors and supports a preset dictionary
  */
 public class GzipInterceptor extends ChannelInterceptorBase implements GzipInterceptorMBean {
 
@@ -17,6 +17,7 @@
 package org.apache.catalina.tribes.io;
 
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -33,6 +34,9 @@ public class BufferPool {
             .getInteger("org.apache.catalina.tribes.io.BufferPool.DEFAULT_POOL_SIZE", 100 * 1024 * 1024).intValue(); // 100
                                                                                                                       // MiB
 
+    /** Smallest capacity of a newly allocated direct buffer. */
+    private static final int MIN_DIRECT_BUFFER_SIZE = 8 * 1024;
+
     /** String manager for internationalized messages. */
     protected static final StringManager sm = StringManager.getManager(BufferPool.class);
 
@@ -96,10 +100,47 @@ public class BufferPool {
         }
     }
 
+    /**
+     * Retrieves a direct buffer from the pool. Direct buffers can't be expanded so a pooled buffer that is too small is
+     * discarded and a new one, with a capacity rounded up to the next power of two, is allocated instead.
+     *
+     * @param minSize minimum buffer capacity
+     * @return the buffer, cleared
+     */
+    public ByteBuffer getDirectBuffer(int minSize) {
+        ByteBuffer buffer = directQueue.poll();
+        if (buffer != null) {
+            directSize.addAndGet(-buffer.capacity());
+            if (buffer.capacity() < minSize) {
+                buffer = null;
+            }
+        }
+        if (buffer == null) {
+            int capacity = Math.max(MIN_DIRECT_BUFFER_SIZE, Integer.highestOneBit(Math.max(minSize - 1, 1)) << 1);
+            buffer = ByteBuffer.allocateDirect(capacity < minSize ? minSize : capacity);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a direct buffer to the pool for reuse.
+     *
+     * @param buffer the buffer to return
+     */
+    public void returnDirectBuffer(ByteBuffer buffer) {
+        if ((directSize.get() + buffer.capacity()) <= maxSize) {
+            directSize.addAndGet(buffer.capacity());
+            directQueue.offer(buffer);
+        }
+    }
+
     /** Clears all buffers from the pool. */
     public void clear() {
         queue.clear();
         size.set(0);
+        directQueue.clear();
+        directSize.set(0);
     }
 
     /** Maximum pool size in bytes. */
@@ -108,6 +149,10 @@ public class BufferPool {
     protected final AtomicInteger size = new AtomicInteger(0);
     /** Queue of available buffers. */
     protected final ConcurrentLinkedQueue<XByteBuffer> queue = new ConcurrentLinkedQueue<>();
+    /** Current total size of pooled direct buffers in bytes. */
+    protected final AtomicInteger directSize = new AtomicInteger(0);
+    /** Queue of available direct buffers. */
+    protected final ConcurrentLinkedQueue<ByteBuffer> directQueue = new ConcurrentLinkedQueue<>();
 
     /**
      * Sets the maximum pool size.
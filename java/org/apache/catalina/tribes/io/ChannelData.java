@@ -200,6 +200,33 @@ public class ChannelData implements ChannelMessage {
      * @return the byte array
      */
     public byte[] getDataPackage(byte[] data, int offset) {
+        offset = getDataPackageHeader(data, offset);
+        int msgLen = (message != null) ? message.getLength() : 0;
+        if (msgLen > 0) {
+            System.arraycopy(message.getBytesDirect(), 0, data, offset, msgLen);
+        }
+        return data;
+    }
+
+    /**
+     * Returns the length of the data package when serialized, excluding the message bytes.
+     *
+     * @return the data package header length
+     */
+    public int getDataPackageHeaderLength() {
+        return getDataPackageLength() - ((message != null) ? message.getLength() : 0);
+    }
+
+    /**
+     * Serializes everything apart from the message bytes into the specified byte array at the given offset. The
+     * message bytes are expected to follow immediately after the header.
+     *
+     * @param data The byte array to serialize into
+     * @param offset The offset in the byte array
+     *
+     * @return the offset at which the message bytes start
+     */
+    public int getDataPackageHeader(byte[] data, int offset) {
         byte[] addr = (address != null) ? address.getData(false) : new byte[0];
         int msgLen = (message != null) ? message.getLength() : 0;
         XByteBuffer.toBytes(options, data, offset);
@@ -216,10 +243,7 @@ public class ChannelData implements ChannelMessage {
         offset += addr.length; // addr data
         XByteBuffer.toBytes(msgLen, data, offset);
         offset += 4; // message.length
-        if (msgLen > 0) {
-            System.arraycopy(message.getBytesDirect(), 0, data, offset, msgLen);
-        }
-        return data;
+        return offset;
     }
 
     /**
@@ -264,8 +288,20 @@ public class ChannelData implements ChannelMessage {
      * @return the ChannelData object
      */
     public static ChannelData getDataFromPackage(byte[] b) {
+        return getDataFromPackage(b, 0);
+    }
+
+    /**
+     * Deserializes a ChannelData object from a byte array, starting at the given offset. The header fields are read
+     * in place and the message bytes are copied once, into a buffer obtained from the {@link BufferPool}.
+     *
+     * @param b The byte array to deserialize from
+     * @param offset The offset in the byte array at which the serialized ChannelData starts
+     *
+     * @return the ChannelData object
+     */
+    public static ChannelData getDataFromPackage(byte[] b, int offset) {
         ChannelData data = new ChannelData(false);
-        int offset = 0;
         data.setOptions(XByteBuffer.toInt(b, offset));
         offset += 4; // options
         data.setTimestamp(XByteBuffer.toLong(b, offset));
@@ -274,17 +310,14 @@ public class ChannelData implements ChannelMessage {
         offset += 4; // uniqueId length
         System.arraycopy(b, offset, data.uniqueId, 0, data.uniqueId.length);
         offset += data.uniqueId.length; // uniqueId data
-        byte[] addr = new byte[XByteBuffer.toInt(b, offset)];
+        int addrlen = XByteBuffer.toInt(b, offset);
         offset += 4; // addr length
-        System.arraycopy(b, offset, addr, 0, addr.length);
-        data.setAddress(MemberImpl.getMember(addr));
-        offset += addr.length; // addr data
+        data.setAddress(MemberImpl.getMember(b, offset, addrlen));
+        offset += addrlen; // addr data
         int xsize = XByteBuffer.toInt(b, offset);
-        // data.message = new XByteBuffer(new byte[xsize],false);
         data.message = BufferPool.getBufferPool().getBuffer(xsize, false);
         offset += 4; // message length
         data.message.append(b, offset, xsize);
-        offset += xsize; // message data
         return data;
     }
 
@@ -156,18 +156,12 @@ public class ObjectReader {
      *
      * @see org.apache.catalina.tribes.transport.ReceiverBase#messageDataReceived(ChannelMessage)
      * @see XByteBuffer#doesPackageExist()
-     * @see XByteBuffer#extractPackage(boolean)
+     * @see XByteBuffer#extractPackages()
      *
      * @return array of received packages/messages
      */
     public ChannelMessage[] execute() {
-        int pkgCnt = buffer.countPackages();
-        ChannelMessage[] result = new ChannelMessage[pkgCnt];
-        for (int i = 0; i < pkgCnt; i++) {
-            ChannelMessage data = buffer.extractPackage(true);
-            result[i] = data;
-        }
-        return result;
+        return buffer.extractPackages();
     }
 
     /**
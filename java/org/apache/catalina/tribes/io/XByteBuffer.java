@@ -437,8 +437,43 @@ public class XByteBuffer implements Serializable {
      * @return the deserialized ChannelData object
      */
     public ChannelData extractPackage(boolean clearFromBuffer) {
-        XByteBuffer xbuf = extractDataPackage(clearFromBuffer);
-        return ChannelData.getDataFromPackage(xbuf);
+        int psize = countPackages(true);
+        if (psize == 0) {
+            throw new IllegalStateException(sm.getString("xByteBuffer.no.package"));
+        }
+        // Read the package in place so the message bytes are only copied once
+        ChannelData cdata = ChannelData.getDataFromPackage(buf, START_DATA.length + 4);
+        if (clearFromBuffer) {
+            int size = toInt(buf, START_DATA.length);
+            int totalsize = START_DATA.length + 4 + size + END_DATA.length;
+            bufSize = bufSize - totalsize;
+            System.arraycopy(buf, totalsize, buf, 0, bufSize);
+        }
+        return cdata;
+    }
+
+    /**
+     * Extracts all the complete packages from the buffer and deserializes them into ChannelData objects. The packages
+     * are removed from the buffer and any remaining bytes are moved to the start of the buffer once, rather than once
+     * per package.
+     *
+     * @return the deserialized ChannelData objects, in the order they were received
+     */
+    public ChannelData[] extractPackages() {
+        int psize = countPackages();
+        if (psize == 0) {
+            return ChannelData.EMPTY_DATA_ARRAY;
+        }
+        ChannelData[] result = new ChannelData[psize];
+        int start = 0;
+        for (int i = 0; i < psize; i++) {
+            int size = toInt(buf, start + START_DATA.length);
+            result[i] = ChannelData.getDataFromPackage(buf, start + START_DATA.length + 4);
+            start += START_DATA.length + 4 + size + END_DATA.length;
+        }
+        bufSize = bufSize - start;
+        System.arraycopy(buf, start, buf, 0, bufSize);
+        return result;
     }
 
     /**
@@ -466,6 +501,36 @@ public class XByteBuffer implements Serializable {
         return data;
     }
 
+    /**
+     * Creates a complete data package as a sequence of buffers for use with a gathering write. The first buffer
+     * contains the header, size and the serialized fields of the message, the second the message bytes and the last
+     * one the footer. The message bytes are not copied: either the provided buffer is used or the bytes of the message
+     * are wrapped.
+     *
+     * @param cdata   - the message data to be contained within the package
+     * @param payload - a buffer, ready to be read, that contains the message bytes or <code>null</code> to use the
+     *                    bytes of the message directly
+     *
+     * @return - a full package (header,size,data,footer) as read-only buffers
+     */
+    public static ByteBuffer[] createDataPackage(ChannelData cdata, ByteBuffer payload) {
+        int dlength = cdata.getDataPackageLength();
+        byte[] header = new byte[START_DATA.length + 4 + cdata.getDataPackageHeaderLength()];
+        System.arraycopy(START_DATA, 0, header, 0, START_DATA.length);
+        toBytes(dlength, header, START_DATA.length);
+        cdata.getDataPackageHeader(header, START_DATA.length + 4);
+        if (payload == null) {
+            XByteBuffer message = cdata.getMessage();
+            if (message == null) {
+                payload = ByteBuffer.allocate(0);
+            } else {
+                payload = ByteBuffer.wrap(message.getBytesDirect(), 0, message.getLength());
+            }
+        }
+        return new ByteBuffer[] { ByteBuffer.wrap(header).asReadOnlyBuffer(), payload.asReadOnlyBuffer(),
+                ByteBuffer.wrap(END_DATA).asReadOnlyBuffer() };
+    }
+
     /**
      * Creates a complete data package with header, size, data, and footer, writing to a provided buffer.
      *
@@ -563,20 +563,31 @@ public abstract class AbstractReplicatedMap<K, V>
             }
             // check to see if the message is diffable
             MapMessage msg = null;
+            boolean diffFailed = false;
             if (rentry != null && rentry.isDiffable() && (isDirty || complete)) {
                 rentry.lock();
                 try {
-                    // construct a diff message
-                    msg = new MapMessage(mapContextName, getReplicateMessageType(), true, (Serializable) entry.getKey(),
-                            null, rentry.getDiff(), entry.getPrimary(), entry.getBackupNodes());
-                    rentry.resetDiff();
+                    synchronized (entry) {
+                        // construct a diff message
+                        msg = new MapMessage(mapContextName, getReplicateMessageType(), true,
+                                (Serializable) entry.getKey(), null, rentry.getDiff(), entry.getPrimary(),
+                                entry.getBackupNodes());
+                        rentry.resetDiff();
+                        // Versioned entries let the backup detect a lost or re-ordered diff
+                        long version = rentry.getVersion();
+                        if (version >= 0) {
+                            rentry.setVersion(++version);
+                            msg.setVersion(version);
+                        }
+                    }
                 } catch (IOException ioe) {
                     log.error(sm.getString("abstractReplicatedMap.unable.diffObject"), ioe);
+                    diffFailed = true;
                 } finally {
                     rentry.unlock();
                 }
             }
-            if (msg == null && complete) {
+            if (msg == null && (complete || diffFailed)) {
                 // construct a complete
                 msg = new MapMessage(mapContextName, getReplicateMessageType(), false, (Serializable) entry.getKey(),
                         (Serializable) entry.getValue(), null, entry.getPrimary(), entry.getBackupNodes());
@@ -612,6 +623,64 @@ public abstract class AbstractReplicatedMap<K, V>
         }
     }
 
+    /**
+     * Sends a complete copy of a primary entry to the given members. This is used to resynchronise a backup that has
+     * detected a gap in the sequence of diffs it has received.
+     *
+     * @param key  The key of the entry to send
+     * @param dest The members that should receive the complete copy
+     */
+    protected void replicateComplete(Object key, Member[] dest) {
+        MapEntry<K,V> entry = innerMap.get(key);
+        if (entry == null || !entry.isPrimary() || !entry.isSerializable()) {
+            return;
+        }
+        MapMessage msg;
+        if (entry.getValue() instanceof ReplicatedMapEntry rentry) {
+            rentry.lock();
+            try {
+                synchronized (entry) {
+                    // Serialize the value under the same locks as a diff so the copy matches the version it carries
+                    msg = new MapMessage(mapContextName, getReplicateMessageType(), false,
+                            (Serializable) entry.getKey(), rentry, null, entry.getPrimary(), entry.getBackupNodes());
+                    msg.setVersion(rentry.getVersion());
+                }
+            } finally {
+                rentry.unlock();
+            }
+        } else {
+            msg = new MapMessage(mapContextName, getReplicateMessageType(), false, (Serializable) entry.getKey(),
+                    (Serializable) entry.getValue(), null, entry.getPrimary(), entry.getBackupNodes());
+        }
+        try {
+            if (channel != null && dest != null && dest.length > 0) {
+                channel.send(dest, msg, channelSendOptions);
+            }
+        } catch (ChannelException x) {
+            log.error(sm.getString("abstractReplicatedMap.unable.replicate"), x);
+        }
+    }
+
+    /**
+     * Asks the primary of an entry for a complete copy because the diff that has just been received cannot be applied
+     * to the local copy.
+     *
+     * @param key     The key of the entry
+     * @param primary The member that sent the diff
+     */
+    protected void requestComplete(Serializable key, Member primary) {
+        if (channel == null || primary == null) {
+            return;
+        }
+        MapMessage msg = new MapMessage(mapContextName, MapMessage.MSG_RESEND, false, key, null, null,
+                channel.getLocalMember(false), null);
+        try {
+            channel.send(new Member[] { primary }, msg, channelSendOptions);
+        } catch (ChannelException x) {
+            log.error(sm.getString("abstractReplicatedMap.unable.requestComplete", key), x);
+        }
+    }
+
     /**
      * Transfers the current state from another map in the cluster.
      */
@@ -806,8 +875,20 @@ public abstract class AbstractReplicatedMap<K, V>
             innerMap.remove(mapmsg.getKey());
         }
 
+        if (mapmsg.getMsgType() == MapMessage.MSG_RESEND) {
+            replicateComplete(mapmsg.getKey(), new Member[] { sender });
+        }
+
         if (mapmsg.getMsgType() == MapMessage.MSG_BACKUP || mapmsg.getMsgType() == MapMessage.MSG_COPY) {
             MapEntry<K,V> entry = innerMap.get(mapmsg.getKey());
+            if (entry == null && mapmsg.isDiff()) {
+                // A diff is meaningless without the object it applies to
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("abstractReplicatedMap.diff.noEntry", mapmsg.getKey()));
+                }
+                requestComplete(mapmsg.getKey(), sender);
+                return;
+            }
             if (entry == null) {
                 entry = new MapEntry<>((K) mapmsg.getKey(), (V) mapmsg.getValue());
                 entry.setBackup(mapmsg.getMsgType() == MapMessage.MSG_BACKUP);
@@ -826,9 +907,27 @@ public abstract class AbstractReplicatedMap<K, V>
                 entry.setPrimary(mapmsg.getPrimary());
                 if (entry.getValue() instanceof ReplicatedMapEntry diff) {
                     if (mapmsg.isDiff()) {
+                        long version = mapmsg.getVersion();
+                        long current = diff.getVersion();
+                        if (version > 0 && current >= 0 && version != current + 1) {
+                            if (version <= current) {
+                                // Duplicate or stale diff, already applied
+                                return;
+                            }
+                            // One or more diffs were lost, the local copy can no longer be trusted
+                            if (log.isDebugEnabled()) {
+                                log.debug(sm.getString("abstractReplicatedMap.diff.versionGap", entry.getKey(),
+                                        Long.valueOf(current), Long.valueOf(version)));
+                            }
+                            requestComplete(mapmsg.getKey(), sender);
+                            return;
+                        }
                         diff.lock();
                         try {
                             diff.applyDiff(mapmsg.getDiffValue(), 0, mapmsg.getDiffValue().length);
+                            if (version > 0) {
+                                diff.setVersion(version);
+                            }
                         } catch (Exception e) {
                             log.error(sm.getString("abstractReplicatedMap.unableApply.diff", entry.getKey()), e);
                         } finally {
@@ -1854,6 +1953,8 @@ public abstract class AbstractReplicatedMap<K, V>
         public static final int MSG_NOTIFY_MAPMEMBER = 12;
         /** Message type: ping. */
         public static final int MSG_PING = 13;
+        /** Message type: request a complete copy of an entry from its primary. */
+        public static final int MSG_RESEND = 14;
 
         /** The map identifier. */
         private final byte[] mapId;
@@ -1875,6 +1976,12 @@ public abstract class AbstractReplicatedMap<K, V>
         private final Member[] nodes;
         /** The primary member. */
         private Member primary;
+        /*
+         * The version of the entry after a diff has been applied or 0 if the entry is not versioned. Versions start at 1
+         * so that messages from members that do not version diffs, which deserialize with the default value, are
+         * treated as unversioned.
+         */
+        private long version;
 
         /**
          * Returns a string representation of this map message.
@@ -1907,6 +2014,7 @@ public abstract class AbstractReplicatedMap<K, V>
                 case MSG_ACCESS -> "MSG_ACCESS";
                 case MSG_NOTIFY_MAPMEMBER -> "MSG_NOTIFY_MAPMEMBER";
                 case MSG_PING -> "MSG_PING";
+                case MSG_RESEND -> "MSG_RESEND";
                 default -> "UNKNOWN";
             };
         }
@@ -2065,6 +2173,24 @@ public abstract class AbstractReplicatedMap<K, V>
             return diffvalue;
         }
 
+        /**
+         * Gets the version the entry will have once the diff carried by this message has been applied.
+         *
+         * @return the version or 0 if the entry is not versioned
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Sets the version the entry will have once the diff carried by this message has been applied.
+         *
+         * @param version The version or 0 if the entry is not versioned
+         */
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
         /**
          * Gets the backup nodes.
          *
@@ -104,7 +104,8 @@ public interface ReplicatedMapEntry extends Serializable {
 
     /**
      * For accuracy checking, a serialized attribute can contain a version number This number increases as modifications
-     * are made to the data. The replicated map can use this to ensure accuracy on a periodic basis
+     * are made to the data. The replicated map increments the version each time a diff is replicated and a receiving map
+     * that detects a gap in the versions requests a complete copy of the object from the primary.
      *
      * @return long - the version number or -1 if the data is not versioned
      */
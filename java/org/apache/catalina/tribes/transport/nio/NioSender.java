@@ -77,14 +77,15 @@ public class NioSender extends AbstractSender {
     protected ByteBuffer readbuf = null;
 
     /**
-     * Buffer for writing to the channel.
+     * Buffers for writing to the channel. These are views of the buffers of the current message so that the message can
+     * be written to several members without being copied.
      */
-    protected ByteBuffer writebuf = null;
+    protected ByteBuffer[] writebufs = null;
 
     /**
      * Current message being processed.
      */
-    protected volatile byte[] current = null;
+    protected volatile ByteBuffer[] current = null;
 
     /**
      * Acknowledgment buffer.
@@ -94,7 +95,7 @@ public class NioSender extends AbstractSender {
     /**
      * Number of remaining bytes to send.
      */
-    protected int remaining = 0;
+    protected long remaining = 0;
 
     /**
      * Flag indicating send completion.
@@ -262,7 +263,7 @@ public class NioSender extends AbstractSender {
             if (remaining > 0) {
                 // we have written everything, or we are starting a new package
                 // protect against buffer overwrite
-                int byteswritten = isUdpBased() ? dataChannel.write(writebuf) : socketChannel.write(writebuf);
+                long byteswritten = isUdpBased() ? dataChannel.write(writebufs) : socketChannel.write(writebufs);
                 remaining -= byteswritten;
                 // if the entire message was written from the buffer
                 // reset the position counter
@@ -290,11 +291,6 @@ public class NioSender extends AbstractSender {
         } else {
             readbuf.clear();
         }
-        if (writebuf == null) {
-            writebuf = getWriteBuffer();
-        } else {
-            writebuf.clear();
-        }
 
         if (isUdpBased()) {
             InetSocketAddress daddr = new InetSocketAddress(getAddress(), getUdpPort());
@@ -381,9 +377,7 @@ public class NioSender extends AbstractSender {
         if (readbuf != null) {
             readbuf.clear();
         }
-        if (writebuf != null) {
-            writebuf.clear();
-        }
+        writebufs = null;
         current = null;
         ackbuf.clear();
         remaining = 0;
@@ -396,10 +390,6 @@ public class NioSender extends AbstractSender {
         return getBuffer(getRxBufSize());
     }
 
-    private ByteBuffer getWriteBuffer() {
-        return getBuffer(getTxBufSize());
-    }
-
     private ByteBuffer getBuffer(int size) {
         return getDirectBuffer() ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
     }
@@ -426,23 +416,28 @@ public class NioSender extends AbstractSender {
      */
     public void setMessage(byte[] data, int offset, int length) throws IOException {
         if (data != null) {
-            if (offset == 0 && length == data.length) {
-                current = data;
-            } else {
-                current = Arrays.copyOfRange(data, offset, offset + length);
+            setMessage(new ByteBuffer[] { ByteBuffer.wrap(data, offset, length) });
+        }
+    }
+
+    /**
+     * Sets the message to be sent as a sequence of buffers that will be written with a gathering write. The buffers
+     * are not modified and may be shared with other senders.
+     *
+     * @param data The buffers that make up the message
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    public void setMessage(ByteBuffer[] data) throws IOException {
+        if (data != null) {
+            current = data;
+            writebufs = new ByteBuffer[data.length];
+            remaining = 0;
+            for (int i = 0; i < data.length; i++) {
+                writebufs[i] = data[i].duplicate();
+                remaining += writebufs[i].remaining();
             }
-            remaining = length;
             ackbuf.clear();
-            if (writebuf != null) {
-                writebuf.clear();
-            } else {
-                writebuf = getBuffer(length);
-            }
-            if (writebuf.capacity() < length) {
-                writebuf = getBuffer(length);
-            }
-            writebuf.put(data, offset, length);
-            writebuf.flip();
             if (isConnected()) {
                 if (isUdpBased()) {
                     dataChannel.register(getSelector(), SelectionKey.OP_WRITE, this);
@@ -454,11 +449,32 @@ public class NioSender extends AbstractSender {
     }
 
     /**
-     * Returns the current message being sent.
+     * Returns a copy of the current message being sent.
      *
      * @return the current message byte array
      */
     public byte[] getMessage() {
+        ByteBuffer[] buffers = current;
+        if (buffers == null) {
+            return null;
+        }
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+        ByteBuffer result = ByteBuffer.allocate(length);
+        for (ByteBuffer buffer : buffers) {
+            result.put(buffer.duplicate());
+        }
+        return result.array();
+    }
+
+    /**
+     * Returns the buffers of the current message being sent.
+     *
+     * @return the current message buffers
+     */
+    public ByteBuffer[] getMessageBuffers() {
         return current;
     }
 
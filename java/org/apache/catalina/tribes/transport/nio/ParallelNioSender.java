@@ -19,6 +19,7 @@ package org.apache.catalina.tribes.transport.nio;
 import java.io.IOException;
 import java.lang.ref.Cleaner;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.ArrayList;
@@ -33,6 +34,7 @@ import org.apache.catalina.tribes.ChannelException;
 import org.apache.catalina.tribes.ChannelMessage;
 import org.apache.catalina.tribes.Member;
 import org.apache.catalina.tribes.UniqueId;
+import org.apache.catalina.tribes.io.BufferPool;
 import org.apache.catalina.tribes.io.ChannelData;
 import org.apache.catalina.tribes.io.XByteBuffer;
 import org.apache.catalina.tribes.transport.AbstractSender;
@@ -79,11 +81,28 @@ public class ParallelNioSender extends AbstractSender implements MultiPointSende
     public synchronized void sendMessage(Member[] destination, ChannelMessage msg) throws ChannelException {
         long start = System.currentTimeMillis();
         this.setUdpBased((msg.getOptions() & Channel.SEND_OPTIONS_UDP) == Channel.SEND_OPTIONS_UDP);
-        byte[] data = XByteBuffer.createDataPackage((ChannelData) msg);
-        NioSender[] senders = setupForSend(destination);
-        connect(senders);
-        setData(senders, data);
+        // The message bytes are copied at most once, into a pooled direct buffer, and are then shared by all senders
+        ByteBuffer payload = null;
+        XByteBuffer message = msg.getMessage();
+        if (getDirectBuffer() && message != null && message.getLength() > 0) {
+            payload = BufferPool.getBufferPool().getDirectBuffer(message.getLength());
+            payload.put(message.getBytesDirect(), 0, message.getLength());
+            payload.flip();
+        }
+        try {
+            ByteBuffer[] data = XByteBuffer.createDataPackage((ChannelData) msg, payload);
+            NioSender[] senders = setupForSend(destination);
+            connect(senders);
+            setData(senders, data);
+            sendData(senders, start, msg);
+        } finally {
+            if (payload != null) {
+                BufferPool.getBufferPool().returnDirectBuffer(payload);
+            }
+        }
+    }
 
+    private void sendData(NioSender[] senders, long start, ChannelMessage msg) throws ChannelException {
         int remaining = senders.length;
         ChannelException cx = null;
         try {
@@ -220,7 +239,7 @@ public class ParallelNioSender extends AbstractSender implements MultiPointSende
                     break;
                 }
 
-                byte[] data = sender.getMessage();
+                ByteBuffer[] data = sender.getMessageBuffers();
                 if (retry) {
                     try {
                         sender.disconnect();
@@ -284,7 +303,7 @@ public class ParallelNioSender extends AbstractSender implements MultiPointSende
         }
     }
 
-    private void setData(NioSender[] senders, byte[] data) throws ChannelException {
+    private void setData(NioSender[] senders, ByteBuffer[] data) throws ChannelException {
         ChannelException x = null;
         for (NioSender sender : senders) {
             try {
@@ -0,0 +1,879 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+
+
+/**
+ * <p>
+ * Implementation of a Valve that limits concurrency with a limit that adapts to the observed latency.
+ * </p>
+ * <p>
+ * Requests are processed in windows of {@link #getSampleWindowTime()} milliseconds. At the end of each window the
+ * average processing time of the requests in the window is compared to the minimum average processing time observed,
+ * which is the estimate of the processing time when there is no queueing anywhere between this Valve and the
+ * resources the application depends on. When processing times increase, for example because a database has slowed
+ * down, the limit is reduced. When processing times are close to the minimum, the limit grows. Two algorithms are
+ * available:
+ * </p>
+ * <ul>
+ * <li><b>gradient</b> multiplies the limit by the ratio of the tolerated processing time to the current processing
+ * time, bounded between 0.5 and 1, and adds the square root of the limit to allow for some queueing.</li>
+ * <li><b>vegas</b> estimates the number of queued requests from the ratio of the minimum to the current processing
+ * time and grows the limit while that estimate is small and reduces it when it is large.</li>
+ * </ul>
+ * <p>
+ * Requests over the limit either wait up to {@link #getMaxQueueTime()} milliseconds in a bounded queue or are rejected
+ * immediately with {@link #getHighConcurrencyStatus()}. The permit for an asynchronous request is held until
+ * asynchronous processing is complete.
+ * </p>
+ * <p>
+ * Separate limits may be kept for each web application, when the Valve is used with a Host or an Engine, and for
+ * groups of URLs defined by regular expressions.
+ * </p>
+ */
+public class AdaptiveConcurrencyValve extends ValveBase {
+
+    /**
+     * The name of the gradient algorithm.
+     */
+    public static final String ALGORITHM_GRADIENT = "gradient";
+
+    /**
+     * The name of the Vegas algorithm.
+     */
+    public static final String ALGORITHM_VEGAS = "vegas";
+
+    private static final String DEFAULT_PARTITION = "";
+
+
+    // ------------------------------------------------------ Constructor
+
+    /**
+     * Construct a new {@link AdaptiveConcurrencyValve} with async support enabled.
+     */
+    public AdaptiveConcurrencyValve() {
+        super(true);
+    }
+
+
+    // ----------------------------------------------------- Instance Variables
+
+    private final Map<String,Limiter> limiters = new ConcurrentHashMap<>();
+
+    private volatile Pattern[] patterns = null;
+
+    /**
+     * Will be set to true if the valve is associated with a context.
+     */
+    private boolean context = false;
+
+
+    // ------------------------------------------------------------- Properties
+
+    private volatile String algorithm = ALGORITHM_GRADIENT;
+
+    /**
+     * Return the name of the algorithm used to adapt the limit.
+     *
+     * @return {@code gradient} or {@code vegas}
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Set the name of the algorithm used to adapt the limit.
+     *
+     * @param algorithm {@code gradient} or {@code vegas}
+     */
+    public void setAlgorithm(String algorithm) {
+        if (!ALGORITHM_GRADIENT.equals(algorithm) && !ALGORITHM_VEGAS.equals(algorithm)) {
+            throw new IllegalArgumentException(sm.getString("adaptiveConcurrencyValve.invalidAlgorithm", algorithm));
+        }
+        this.algorithm = algorithm;
+    }
+
+
+    private volatile int initialLimit = 20;
+
+    /**
+     * Return the limit used for a partition before any processing times have been observed.
+     *
+     * @return the initial limit
+     */
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    /**
+     * Set the limit used for a partition before any processing times have been observed.
+     *
+     * @param initialLimit the initial limit
+     */
+    public void setInitialLimit(int initialLimit) {
+        if (initialLimit < 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("adaptiveConcurrencyValve.invalidLimit", Integer.valueOf(initialLimit)));
+        }
+        this.initialLimit = initialLimit;
+    }
+
+
+    private volatile int minLimit = 1;
+
+    /**
+     * Return the lowest value the limit may take.
+     *
+     * @return the minimum limit
+     */
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * Set the lowest value the limit may take.
+     *
+     * @param minLimit the minimum limit
+     */
+    public void setMinLimit(int minLimit) {
+        if (minLimit < 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("adaptiveConcurrencyValve.invalidLimit", Integer.valueOf(minLimit)));
+        }
+        this.minLimit = minLimit;
+    }
+
+
+    private volatile int maxLimit = 1000;
+
+    /**
+     * Return the highest value the limit may take.
+     *
+     * @return the maximum limit
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Set the highest value the limit may take.
+     *
+     * @param maxLimit the maximum limit
+     */
+    public void setMaxLimit(int maxLimit) {
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("adaptiveConcurrencyValve.invalidLimit", Integer.valueOf(maxLimit)));
+        }
+        this.maxLimit = maxLimit;
+    }
+
+
+    private volatile double smoothing = 0.2;
+
+    /**
+     * Return the weight given to a newly calculated limit when it is combined with the previous limit.
+     *
+     * @return the smoothing factor between 0 (exclusive) and 1 (inclusive)
+     */
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    /**
+     * Set the weight given to a newly calculated limit when it is combined with the previous limit. A value of 1 means
+     * the new limit is used as is.
+     *
+     * @param smoothing the smoothing factor between 0 (exclusive) and 1 (inclusive)
+     */
+    public void setSmoothing(double smoothing) {
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("adaptiveConcurrencyValve.invalidSmoothing", Double.valueOf(smoothing)));
+        }
+        this.smoothing = smoothing;
+    }
+
+
+    private volatile double rttTolerance = 2.0;
+
+    /**
+     * Return the multiple of the minimum processing time that the gradient algorithm tolerates before reducing the
+     * limit.
+     *
+     * @return the tolerance
+     */
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+
+    /**
+     * Set the multiple of the minimum processing time that the gradient algorithm tolerates before reducing the limit.
+     *
+     * @param rttTolerance the tolerance, at least 1
+     */
+    public void setRttTolerance(double rttTolerance) {
+        if (rttTolerance < 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("adaptiveConcurrencyValve.invalidTolerance", Double.valueOf(rttTolerance)));
+        }
+        this.rttTolerance = rttTolerance;
+    }
+
+
+    private volatile int sampleWindowTime = 1000;
+
+    /**
+     * Return the minimum duration of a sample window in milliseconds.
+     *
+     * @return the sample window duration
+     */
+    public int getSampleWindowTime() {
+        return sampleWindowTime;
+    }
+
+    /**
+     * Set the minimum duration of a sample window in milliseconds.
+     *
+     * @param sampleWindowTime the sample window duration
+     */
+    public void setSampleWindowTime(int sampleWindowTime) {
+        this.sampleWindowTime = sampleWindowTime;
+    }
+
+
+    private volatile int sampleWindowSize = 10;
+
+    /**
+     * Return the minimum number of completed requests in a sample window.
+     *
+     * @return the minimum number of requests
+     */
+    public int getSampleWindowSize() {
+        return sampleWindowSize;
+    }
+
+    /**
+     * Set the minimum number of completed requests in a sample window.
+     *
+     * @param sampleWindowSize the minimum number of requests
+     */
+    public void setSampleWindowSize(int sampleWindowSize) {
+        this.sampleWindowSize = sampleWindowSize;
+    }
+
+
+    private volatile int minRttResetInterval = 600000;
+
+    /**
+     * Return the interval in milliseconds after which the minimum processing time is measured again. This allows the
+     * Valve to adapt when the minimum processing time increases permanently, for example after a deployment. A value
+     * of zero or less disables the reset.
+     *
+     * @return the reset interval
+     */
+    public int getMinRttResetInterval() {
+        return minRttResetInterval;
+    }
+
+    /**
+     * Set the interval in milliseconds after which the minimum processing time is measured again.
+     *
+     * @param minRttResetInterval the reset interval
+     */
+    public void setMinRttResetInterval(int minRttResetInterval) {
+        this.minRttResetInterval = minRttResetInterval;
+    }
+
+
+    private volatile int maxQueueSize = 0;
+
+    /**
+     * Return the maximum number of requests that may wait for a permit for each partition.
+     *
+     * @return the maximum queue size
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Set the maximum number of requests that may wait for a permit for each partition. If zero, requests over the
+     * limit are rejected immediately.
+     *
+     * @param maxQueueSize the maximum queue size
+     */
+    public void setMaxQueueSize(int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+
+    private volatile int maxQueueTime = 100;
+
+    /**
+     * Return the maximum time in milliseconds a request may wait for a permit.
+     *
+     * @return the maximum wait time
+     */
+    public int getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    /**
+     * Set the maximum time in milliseconds a request may wait for a permit.
+     *
+     * @param maxQueueTime the maximum wait time
+     */
+    public void setMaxQueueTime(int maxQueueTime) {
+        this.maxQueueTime = maxQueueTime;
+    }
+
+
+    private int highConcurrencyStatus = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+
+    /**
+     * Return the HTTP status code returned when a request is rejected.
+     *
+     * @return the status code
+     */
+    public int getHighConcurrencyStatus() {
+        return this.highConcurrencyStatus;
+    }
+
+    /**
+     * Set the HTTP status code returned when a request is rejected.
+     *
+     * @param highConcurrencyStatus the status code to return
+     */
+    public void setHighConcurrencyStatus(int highConcurrencyStatus) {
+        if (highConcurrencyStatus < 100 || highConcurrencyStatus >= 600) {
+            throw new IllegalArgumentException(
+                    sm.getString("adaptiveConcurrencyValve.invalidStatus", Integer.valueOf(highConcurrencyStatus)));
+        }
+        this.highConcurrencyStatus = highConcurrencyStatus;
+    }
+
+
+    private boolean perContext = false;
+
+    /**
+     * Return whether a separate limit is kept for each web application.
+     *
+     * @return {@code true} if there is a limit for each web application
+     */
+    public boolean getPerContext() {
+        return perContext;
+    }
+
+    /**
+     * Set whether a separate limit is kept for each web application. This has no effect if the Valve is associated
+     * with a Context.
+     *
+     * @param perContext {@code true} if there should be a limit for each web application
+     */
+    public void setPerContext(boolean perContext) {
+        this.perContext = perContext;
+    }
+
+
+    private String urlPatterns = null;
+
+    /**
+     * Return the regular expressions that define the groups of URLs that have their own limit.
+     *
+     * @return the comma separated regular expressions
+     */
+    public String getUrlPatterns() {
+        return urlPatterns;
+    }
+
+    /**
+     * Set the regular expressions that define the groups of URLs that have their own limit. A request uses the limit
+     * of the first expression that matches its URL. Requests that match no expression share a single limit. If the
+     * Valve is associated with a Context, the URL is relative to the context path.
+     *
+     * @param urlPatterns the comma separated regular expressions
+     */
+    public void setUrlPatterns(String urlPatterns) {
+        this.urlPatterns = urlPatterns;
+        if (urlPatterns == null || urlPatterns.isBlank()) {
+            patterns = null;
+        } else {
+            List<Pattern> list = new ArrayList<>();
+            for (String pattern : urlPatterns.split(",")) {
+                pattern = pattern.trim();
+                if (!pattern.isEmpty()) {
+                    list.add(Pattern.compile(pattern));
+                }
+            }
+            patterns = list.toArray(new Pattern[0]);
+        }
+        limiters.clear();
+    }
+
+
+    // ------------------------------------------------------------- Statistics
+
+    /**
+     * Return the current limit of the partition used by requests that are not associated with a specific web
+     * application or URL pattern.
+     *
+     * @return the current limit
+     */
+    public int getLimit() {
+        return getDefaultLimiter().limit;
+    }
+
+    /**
+     * Return the number of requests currently being processed, across all partitions.
+     *
+     * @return the number of requests
+     */
+    public int getInFlight() {
+        int n = 0;
+        for (Limiter limiter : limiters.values()) {
+            n += limiter.inFlight.get();
+        }
+        return n;
+    }
+
+    /**
+     * Return the number of requests currently waiting for a permit, across all partitions.
+     *
+     * @return the number of requests
+     */
+    public int getQueued() {
+        int n = 0;
+        for (Limiter limiter : limiters.values()) {
+            n += limiter.queued;
+        }
+        return n;
+    }
+
+    /**
+     * Return the number of requests that have been rejected, across all partitions.
+     *
+     * @return the number of requests
+     */
+    public long getRejectedCount() {
+        long n = 0;
+        for (Limiter limiter : limiters.values()) {
+            n += limiter.rejectedCount.get();
+        }
+        return n;
+    }
+
+    /**
+     * Return a description of the state of each partition.
+     *
+     * @return one entry per partition with its limit, in flight and queued requests, rejected requests and the minimum
+     *             processing time in milliseconds
+     */
+    public String[] getPartitionLimits() {
+        List<String> result = new ArrayList<>();
+        for (Limiter limiter : limiters.values()) {
+            result.add(limiter.toString());
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Discard the limits and statistics of all partitions so they are measured again from the initial limit.
+     */
+    public void resetLimits() {
+        limiters.clear();
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    @Override
+    protected void startInternal() throws LifecycleException {
+        context = getContainer() instanceof Context;
+        limiters.clear();
+        super.startInternal();
+    }
+
+
+    @Override
+    protected void stopInternal() throws LifecycleException {
+        super.stopInternal();
+        limiters.clear();
+    }
+
+
+    /**
+     * Do concurrency control on the request using the limit of the partition of the request.
+     *
+     * @param request  The servlet request to be processed
+     * @param response The servlet response to be created
+     *
+     * @exception IOException      if an input/output error occurs
+     * @exception ServletException if a servlet error occurs
+     */
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+
+        // The permit for an asynchronous request was acquired by the original request
+        if (request.isAsync() || !controlConcurrency(request, response)) {
+            getNext().invoke(request, response);
+            return;
+        }
+
+        Limiter limiter = getLimiter(getPartition(request));
+        int inFlight = limiter.acquire();
+        if (inFlight < 0) {
+            limiter.rejectedCount.incrementAndGet();
+            permitDenied(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            getNext().invoke(request, response);
+            error = false;
+        } finally {
+            if (request.isAsync()) {
+                request.getAsyncContext().addListener(new ReleaseAsyncListener(limiter, start, inFlight));
+            } else {
+                limiter.release(System.nanoTime() - start, inFlight, error || response.getStatus() >= 500);
+            }
+        }
+    }
+
+
+    /**
+     * Subclass friendly method to add conditions.
+     *
+     * @param request  The Servlet request
+     * @param response The Servlet response
+     *
+     * @return <code>true</code> if the concurrency control should occur on this request
+     */
+    public boolean controlConcurrency(Request request, Response response) {
+        return true;
+    }
+
+
+    /**
+     * Subclass friendly method to add error handling when a permit isn't granted.
+     *
+     * @param request  The Servlet request
+     * @param response The Servlet response
+     *
+     * @throws IOException      Error writing output
+     * @throws ServletException Other error
+     */
+    public void permitDenied(Request request, Response response) throws IOException, ServletException {
+        response.sendError(highConcurrencyStatus);
+    }
+
+
+    /**
+     * Return the name of the partition, and therefore the limit, used for the request.
+     *
+     * @param request The Servlet request
+     *
+     * @return the name of the partition
+     */
+    protected String getPartition(Request request) {
+        String partition = DEFAULT_PARTITION;
+        if (perContext && !context) {
+            Context requestContext = request.getContext();
+            if (requestContext != null) {
+                partition = requestContext.getName();
+            }
+        }
+        Pattern[] patterns = this.patterns;
+        if (patterns != null) {
+            String requestURI = context ? request.getRequestPathMB().toString() : request.getDecodedRequestURI();
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(requestURI).matches()) {
+                    return partition + " " + pattern.pattern();
+                }
+            }
+        }
+        return partition;
+    }
+
+
+    private Limiter getLimiter(String partition) {
+        Limiter limiter = limiters.get(partition);
+        if (limiter == null) {
+            limiter = limiters.computeIfAbsent(partition, Limiter::new);
+        }
+        return limiter;
+    }
+
+
+    private Limiter getDefaultLimiter() {
+        return getLimiter(DEFAULT_PARTITION);
+    }
+
+
+    /*
+     * The limit and the statistics used to adapt it for one partition.
+     */
+    private class Limiter {
+
+        private final String name;
+
+        private final AtomicInteger inFlight = new AtomicInteger(0);
+        private final AtomicLong rejectedCount = new AtomicLong(0);
+        private volatile int limit;
+        private volatile int queued = 0;
+
+        private final ReentrantLock queueLock = new ReentrantLock();
+        private final Condition permitAvailable = queueLock.newCondition();
+
+        // Guarded by sampleLock
+        private final ReentrantLock sampleLock = new ReentrantLock();
+        private double estimatedLimit;
+        private long windowStart = System.nanoTime();
+        private int windowCount = 0;
+        private long windowRttSum = 0;
+        private int windowMaxInFlight = 0;
+        private boolean windowDropped = false;
+        private volatile long minRtt = Long.MAX_VALUE;
+        private long minRttResetTime = 0;
+
+        Limiter(String name) {
+            this.name = name;
+            this.estimatedLimit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+            this.limit = (int) estimatedLimit;
+        }
+
+        /*
+         * Returns the number of requests in flight including this one or -1 if no permit was granted.
+         */
+        int acquire() {
+            int n = tryAcquire();
+            if (n > 0 || maxQueueSize <= 0 || maxQueueTime <= 0) {
+                return n;
+            }
+            queueLock.lock();
+            try {
+                if (queued >= maxQueueSize) {
+                    return -1;
+                }
+                queued++;
+                try {
+                    long nanos = TimeUnit.MILLISECONDS.toNanos(maxQueueTime);
+                    while ((n = tryAcquire()) < 0) {
+                        if (nanos <= 0) {
+                            return -1;
+                        }
+                        nanos = permitAvailable.awaitNanos(nanos);
+                    }
+                    return n;
+                } finally {
+                    queued--;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            } finally {
+                queueLock.unlock();
+            }
+        }
+
+        private int tryAcquire() {
+            int n;
+            do {
+                n = inFlight.get();
+                if (n >= limit) {
+                    return -1;
+                }
+            } while (!inFlight.compareAndSet(n, n + 1));
+            return n + 1;
+        }
+
+        void release(long rtt, int inFlightAtStart, boolean dropped) {
+            inFlight.decrementAndGet();
+            sample(rtt, inFlightAtStart, dropped);
+            signalWaiters();
+        }
+
+        private void signalWaiters() {
+            if (queued > 0) {
+                queueLock.lock();
+                try {
+                    permitAvailable.signalAll();
+                } finally {
+                    queueLock.unlock();
+                }
+            }
+        }
+
+        private void sample(long rtt, int inFlightAtStart, boolean dropped) {
+            sampleLock.lock();
+            try {
+                windowCount++;
+                windowRttSum += rtt;
+                if (inFlightAtStart > windowMaxInFlight) {
+                    windowMaxInFlight = inFlightAtStart;
+                }
+                windowDropped |= dropped;
+
+                long now = System.nanoTime();
+                if (windowCount < sampleWindowSize ||
+                        now - windowStart < TimeUnit.MILLISECONDS.toNanos(sampleWindowTime)) {
+                    return;
+                }
+
+                long avgRtt = Math.max(1, windowRttSum / windowCount);
+                int resetInterval = minRttResetInterval;
+                if (minRtt == Long.MAX_VALUE || resetInterval > 0 && now - minRttResetTime > 0) {
+                    // First window or time to measure the minimum again from this window onwards
+                    minRtt = avgRtt;
+                    minRttResetTime = now + TimeUnit.MILLISECONDS.toNanos(resetInterval);
+                } else if (avgRtt < minRtt) {
+                    minRtt = avgRtt;
+                }
+
+                int oldLimit = limit;
+                update(avgRtt);
+
+                windowStart = now;
+                windowCount = 0;
+                windowRttSum = 0;
+                windowMaxInFlight = 0;
+                windowDropped = false;
+
+                if (limit != oldLimit && containerLog.isDebugEnabled()) {
+                    containerLog.debug(sm.getString("adaptiveConcurrencyValve.limitChanged", name,
+                            Integer.valueOf(oldLimit), Integer.valueOf(limit), Long.valueOf(avgRtt / 1000),
+                            Long.valueOf(minRtt / 1000)));
+                }
+            } finally {
+                sampleLock.unlock();
+            }
+            if (limit > inFlight.get()) {
+                signalWaiters();
+            }
+        }
+
+        private void update(long avgRtt) {
+            double current = estimatedLimit;
+            double target;
+            if (ALGORITHM_VEGAS.equals(algorithm)) {
+                double log = Math.max(1, Math.log10(current));
+                if (windowDropped) {
+                    target = current - log;
+                } else if (windowMaxInFlight * 2 < current) {
+                    // Not enough load to tell if a higher limit is safe
+                    return;
+                } else {
+                    double queue = Math.ceil(current * (1 - (double) minRtt / avgRtt));
+                    if (queue <= log) {
+                        target = current + 6 * log;
+                    } else if (queue < 3 * log) {
+                        target = current + log;
+                    } else if (queue > 6 * log) {
+                        target = current - log;
+                    } else {
+                        return;
+                    }
+                }
+            } else {
+                if (windowDropped) {
+                    target = current * 0.9;
+                } else {
+                    double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * minRtt / avgRtt));
+                    target = current * gradient + Math.sqrt(current);
+                    if (target > current && windowMaxInFlight * 2 < current) {
+                        // Not enough load to tell if a higher limit is safe
+                        return;
+                    }
+                }
+            }
+            double smoothed = current * (1 - smoothing) + target * smoothing;
+            estimatedLimit = Math.min(Math.max(smoothed, minLimit), maxLimit);
+            limit = (int) estimatedLimit;
+        }
+
+        @Override
+        public String toString() {
+            long min = minRtt;
+            return (name.isEmpty() ? "default" : name) + ": limit=" + limit + ", inFlight=" + inFlight.get() +
+                    ", queued=" + queued + ", rejected=" + rejectedCount.get() + ", minRtt=" +
+                    (min == Long.MAX_VALUE ? "-" : Double.toString(min / 1000000.0)) + "ms";
+        }
+    }
+
+
+    private static class ReleaseAsyncListener implements AsyncListener {
+
+        private final Limiter limiter;
+        private final long start;
+        private final int inFlight;
+        private volatile boolean error = false;
+
+        ReleaseAsyncListener(Limiter limiter, long start, int inFlight) {
+            this.limiter = limiter;
+            this.start = start;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            boolean dropped = error;
+            if (event.getSuppliedResponse() instanceof HttpServletResponse response && response.getStatus() >= 500) {
+                dropped = true;
+            }
+            limiter.release(System.nanoTime() - start, inFlight, dropped);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            error = true;
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            error = true;
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
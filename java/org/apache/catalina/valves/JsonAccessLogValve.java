@@ -246,7 +246,11 @@ public class JsonAccessLogValve extends AccessLogValve {
 
     private static class JsonWrappedElement implements AccessLogElement, CachedElement {
 
-        private final CharSequence attributeName;
+        /*
+         * The escaped attribute name, the separator and, if required, the opening quote of the value are written for
+         * every entry so they are prepared once.
+         */
+        private final char[] prefix;
         private final boolean quoteValue;
         private final AccessLogElement delegate;
 
@@ -257,19 +261,21 @@ public class JsonAccessLogValve extends AccessLogValve {
         JsonWrappedElement(char pattern, String key, boolean quoteValue, AccessLogElement delegate) {
             this.quoteValue = quoteValue;
             this.delegate = delegate;
+            CharSequence attributeName;
             String patternAttribute = PATTERNS.get(Character.valueOf(pattern));
             if (patternAttribute == null) {
                 patternAttribute = "other-" + Character.toString(pattern);
             }
             if (key != null && !key.isEmpty()) {
                 if (SUB_OBJECT_PATTERNS.containsKey(Character.valueOf(pattern))) {
-                    this.attributeName = escapeJsonString(key);
+                    attributeName = escapeJsonString(key);
                 } else {
-                    this.attributeName = escapeJsonString(patternAttribute + "-" + key);
+                    attributeName = escapeJsonString(patternAttribute + "-" + key);
                 }
             } else {
-                this.attributeName = escapeJsonString(patternAttribute);
+                attributeName = escapeJsonString(patternAttribute);
             }
+            prefix = ("\"" + attributeName + "\":" + (quoteValue ? "\"" : "")).toCharArray();
         }
 
         JsonWrappedElement(char pattern, boolean quoteValue, AccessLogElement delegate) {
@@ -282,10 +288,7 @@ public class JsonAccessLogValve extends AccessLogValve {
 
         @Override
         public void addElement(CharArrayWriter buf, Request request, Response response, long time) {
-            buf.append('"').append(attributeName).append('"').append(':');
-            if (quoteValue) {
-                buf.append('"');
-            }
+            buf.write(prefix, 0, prefix.length);
             // The value will already be log escaped
             delegate.addElement(buf, request, response, time);
             if (quoteValue) {
@@ -17,14 +17,17 @@
 package org.apache.catalina.valves;
 
 import java.io.IOException;
-import java.io.Writer;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.catalina.connector.Request;
 import org.apache.catalina.connector.Response;
 import org.apache.coyote.ActionCode;
 import org.apache.tomcat.util.ExceptionUtils;
-import org.apache.tomcat.util.json.JSONFilter;
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.PreEncodedWriter;
+import org.apache.tomcat.util.json.JSONWriter;
 import org.apache.tomcat.util.res.StringManager;
 
 /**
@@ -61,89 +64,88 @@ public class JsonErrorReportValve extends ErrorReportValve {
             return;
         }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\n");
-        sb.append("  \"status\": ").append(statusCode);
-
-        if (isShowReport()) {
-            StringManager smClient = StringManager.getManager(Constants.Package, request.getLocales());
-            response.setLocale(smClient.getLocale());
-            String type;
-            if (throwable != null) {
-                type = smClient.getString("errorReportValve.exceptionReport");
-            } else {
-                type = smClient.getString("errorReportValve.statusReport");
-            }
-            String message = response.getMessage();
-            if (message == null && throwable != null) {
-                message = throwable.getMessage();
-            }
-            if (message == null) {
-                message = "";
-            }
-            String reason = null;
-            String description = null;
-            try {
-                reason = smClient.getString("http." + statusCode + ".reason");
-                description = smClient.getString("http." + statusCode + ".desc");
-            } catch (Throwable t) {
-                ExceptionUtils.handleThrowable(t);
-            }
-            if (reason == null || description == null) {
-                if (message.isEmpty()) {
-                    return;
+        ByteChunk body = new ByteChunk();
+        JSONWriter json = new JSONWriter(body, true);
+        try {
+            json.startObject();
+            json.name("status");
+            json.value(statusCode);
+
+            if (isShowReport()) {
+                StringManager smClient = StringManager.getManager(Constants.Package, request.getLocales());
+                response.setLocale(smClient.getLocale());
+                String type;
+                if (throwable != null) {
+                    type = smClient.getString("errorReportValve.exceptionReport");
                 } else {
-                    reason = smClient.getString("errorReportValve.unknownReason");
-                    description = smClient.getString("errorReportValve.noDescription");
+                    type = smClient.getString("errorReportValve.statusReport");
                 }
-            }
-            sb.append(",\n");
-            sb.append("  \"type\": \"").append(JSONFilter.escape(type)).append("\",\n");
-            sb.append("  \"message\": \"").append(JSONFilter.escape(message)).append("\",\n");
-            sb.append("  \"reason\": \"").append(JSONFilter.escape(reason)).append("\",\n");
-            sb.append("  \"description\": \"").append(JSONFilter.escape(description));
-
-            if (throwable != null) {
-                sb.append("\",\n");
-
-                // Stack trace
-                sb.append("  \"throwable\": [");
-                int loops = 0;
-                boolean first = true;
-                do {
-                    if (!first) {
-                        sb.append(',');
+                String message = response.getMessage();
+                if (message == null && throwable != null) {
+                    message = throwable.getMessage();
+                }
+                if (message == null) {
+                    message = "";
+                }
+                String reason = null;
+                String description = null;
+                try {
+                    reason = smClient.getString("http." + statusCode + ".reason");
+                    description = smClient.getString("http." + statusCode + ".desc");
+                } catch (Throwable t) {
+                    ExceptionUtils.handleThrowable(t);
+                }
+                if (reason == null || description == null) {
+                    if (message.isEmpty()) {
+                        return;
                     } else {
-                        first = false;
+                        reason = smClient.getString("errorReportValve.unknownReason");
+                        description = smClient.getString("errorReportValve.noDescription");
                     }
-                    sb.append('\"').append(JSONFilter.escape(throwable.toString())).append('\"');
-
-                    StackTraceElement[] elements = throwable.getStackTrace();
-                    int pos = elements.length;
-                    for (int i = elements.length - 1; i >= 0; i--) {
-                        if (elements[i].getClassName().startsWith("org.apache.catalina.core.ApplicationFilterChain") &&
-                                elements[i].getMethodName().equals("doFilter")) {
-                            pos = i;
-                            break;
+                }
+                json.name("type");
+                json.value(type);
+                json.name("message");
+                json.value(message);
+                json.name("reason");
+                json.value(reason);
+                json.name("description");
+                json.value(description);
+
+                if (throwable != null) {
+                    // Stack trace
+                    json.name("throwable");
+                    json.startArray();
+                    int loops = 0;
+                    do {
+                        json.value(throwable.toString());
+
+                        StackTraceElement[] elements = throwable.getStackTrace();
+                        int pos = elements.length;
+                        for (int i = elements.length - 1; i >= 0; i--) {
+                            if (elements[i].getClassName()
+                                    .startsWith("org.apache.catalina.core.ApplicationFilterChain") &&
+                                    elements[i].getMethodName().equals("doFilter")) {
+                                pos = i;
+                                break;
+                            }
                         }
-                    }
-                    for (int i = 0; i < pos; i++) {
-                        if (!elements[i].getClassName().startsWith("org.apache.catalina.core.")) {
-                            sb.append(',').append('\"').append(' ').append(JSONFilter.escape(elements[i].toString()))
-                                    .append('\"');
+                        for (int i = 0; i < pos; i++) {
+                            if (!elements[i].getClassName().startsWith("org.apache.catalina.core.")) {
+                                json.value(" " + elements[i].toString());
+                            }
                         }
-                    }
-
-                    throwable = throwable.getCause();
-                    loops++;
-                } while (throwable != null && loops < 10);
-                sb.append("]\n}");
 
-            } else {
-                sb.append("\"\n}");
+                        throwable = throwable.getCause();
+                        loops++;
+                    } while (throwable != null && loops < 10);
+                    json.endArray();
+                }
             }
-        } else {
-            sb.append("\n}");
+            json.endObject();
+        } catch (IOException ioe) {
+            // Can't happen as the chunk has no limit
+            return;
         }
 
         try {
@@ -156,9 +158,15 @@ public class JsonErrorReportValve extends ErrorReportValve {
                     container.getLogger().debug(sm.getString("errorReportValve.contentTypeFail"), t);
                 }
             }
-            Writer writer = response.getReporter();
+            PrintWriter writer = response.getReporter();
             if (writer != null) {
-                writer.write(sb.toString());
+                // The body is already UTF-8 encoded so write the bytes directly if the writer allows it
+                if (!(writer instanceof PreEncodedWriter preEncodedWriter) ||
+                        !preEncodedWriter.writePreEncoded(body.getBuffer(), body.getStart(), body.getLength(),
+                                StandardCharsets.UTF_8)) {
+                    writer.write(new String(body.getBuffer(), body.getStart(), body.getLength(),
+                            StandardCharsets.UTF_8));
+                }
                 response.finishResponse();
             }
         } catch (IOException | IllegalStateException e) {
@@ -92,6 +92,24 @@ public class Http11NioProtocol extends AbstractHttp11Protocol<NioChannel> {
         return ((NioEndpoint) getEndpoint()).getPollerThreadPriority();
     }
 
+    /**
+     * Sets whether each connection is served by a dedicated virtual thread using blocking I/O instead of the poller.
+     *
+     * @param useVirtualThreadPerConnection {@code true} to use a virtual thread per connection
+     */
+    public void setUseVirtualThreadPerConnection(boolean useVirtualThreadPerConnection) {
+        ((NioEndpoint) getEndpoint()).setUseVirtualThreadPerConnection(useVirtualThreadPerConnection);
+    }
+
+    /**
+     * Gets whether each connection is served by a dedicated virtual thread.
+     *
+     * @return {@code true} if a virtual thread per connection has been requested
+     */
+    public boolean getUseVirtualThreadPerConnection() {
+        return ((NioEndpoint) getEndpoint()).getUseVirtualThreadPerConnection();
+    }
+
 
     @Override
     protected String getNamePrefix() {
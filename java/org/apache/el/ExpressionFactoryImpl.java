@@ -24,6 +24,7 @@ import jakarta.el.ValueExpression;
 
 import org.apache.el.lang.ELSupport;
 import org.apache.el.lang.ExpressionBuilder;
+import org.apache.el.lang.ExpressionCompiler;
 import org.apache.el.stream.StreamELResolverImpl;
 import org.apache.el.util.ExceptionUtils;
 import org.apache.el.util.MessageFactory;
@@ -34,6 +35,12 @@ import org.apache.el.util.MessageFactory;
 @aQute.bnd.annotation.spi.ServiceProvider(value = ExpressionFactory.class)
 public class ExpressionFactoryImpl extends ExpressionFactory {
 
+    /*
+     * Each application has its own factory so the compiled expressions of an application are not retained once the
+     * application stops.
+     */
+    private final ExpressionCompiler.TieringCache tieringCache = ExpressionCompiler.createTieringCache();
+
     /**
      * Creates a new ExpressionFactoryImpl instance.
      */
@@ -62,7 +69,7 @@ public class ExpressionFactoryImpl extends ExpressionFactory {
             throw new NullPointerException(MessageFactory.get("error.value.expectedType"));
         }
         ExpressionBuilder builder = new ExpressionBuilder(expression, context);
-        return builder.createValueExpression(expectedType);
+        return builder.createValueExpression(expectedType, tieringCache);
     }
 
     @Override
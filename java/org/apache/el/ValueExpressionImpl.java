@@ -32,6 +32,7 @@ import jakarta.el.VariableMapper;
 
 import org.apache.el.lang.EvaluationContext;
 import org.apache.el.lang.ExpressionBuilder;
+import org.apache.el.lang.ExpressionCompiler;
 import org.apache.el.parser.AstLiteralExpression;
 import org.apache.el.parser.Node;
 import org.apache.el.util.ReflectionUtil;
@@ -83,11 +84,14 @@ public final class ValueExpressionImpl extends ValueExpression implements Extern
 
     private transient Node node;
 
+    private final transient ExpressionCompiler.Tiering tiering;
+
     /**
      * Constructs a new ValueExpressionImpl.
      */
     public ValueExpressionImpl() {
         super();
+        this.tiering = ExpressionCompiler.createTiering();
     }
 
     /**
@@ -101,11 +105,27 @@ public final class ValueExpressionImpl extends ValueExpression implements Extern
      */
     public ValueExpressionImpl(String expr, Node node, FunctionMapper fnMapper, VariableMapper varMapper,
             Class<?> expectedType) {
+        this(expr, node, fnMapper, varMapper, expectedType, ExpressionCompiler.createTiering());
+    }
+
+    /**
+     * Constructs a new ValueExpressionImpl that records its evaluations in the given tracking object.
+     *
+     * @param expr         The expression string
+     * @param node         The AST node
+     * @param fnMapper     The function mapper
+     * @param varMapper    The variable mapper
+     * @param expectedType The expected return type
+     * @param tiering      The evaluations of the expression, or {@code null} to always interpret the expression
+     */
+    public ValueExpressionImpl(String expr, Node node, FunctionMapper fnMapper, VariableMapper varMapper,
+            Class<?> expectedType, ExpressionCompiler.Tiering tiering) {
         this.expr = expr;
         this.node = node;
         this.fnMapper = fnMapper;
         this.varMapper = varMapper;
         this.expectedType = expectedType;
+        this.tiering = tiering;
     }
 
     @Override
@@ -159,7 +179,7 @@ public final class ValueExpressionImpl extends ValueExpression implements Extern
     public <T> T getValue(ELContext context) throws PropertyNotFoundException, ELException {
         EvaluationContext ctx = new EvaluationContext(context, this.fnMapper, this.varMapper);
         context.notifyBeforeEvaluation(getExpressionString());
-        Object value = this.getNode().getValue(ctx);
+        Object value = ExpressionCompiler.getValue(this.getNode(), this.tiering, ctx);
         if (this.expectedType != null) {
             value = context.convertToType(value, this.expectedType);
         }
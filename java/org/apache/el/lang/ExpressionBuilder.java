@@ -49,7 +49,7 @@ public final class ExpressionBuilder implements NodeVisitor {
 
     private static final SynchronizedStack<ELParser> parserCache = new SynchronizedStack<>();
 
-    private static final int CACHE_SIZE;
+    static final int CACHE_SIZE;
     private static final String CACHE_SIZE_PROP = "org.apache.el.ExpressionBuilder.CACHE_SIZE";
 
     static {
@@ -228,8 +228,25 @@ public final class ExpressionBuilder implements NodeVisitor {
      * @throws ELException if expression building fails
      */
     public ValueExpression createValueExpression(Class<?> expectedType) throws ELException {
+        return createValueExpression(expectedType, null);
+    }
+
+    /**
+     * Creates a ValueExpression from the parsed expression that shares the count of evaluations and the compiled form
+     * with the other expressions with the same text and expected type created via the given cache.
+     *
+     * @param expectedType the expected type of the expression result
+     * @param tieringCache the cache of the evaluations of expressions, or {@code null} to track the evaluations of the
+     *                         new expression separately
+     * @return the value expression
+     * @throws ELException if expression building fails
+     */
+    public ValueExpression createValueExpression(Class<?> expectedType, ExpressionCompiler.TieringCache tieringCache)
+            throws ELException {
         Node n = this.build();
-        return new ValueExpressionImpl(this.expression, n, this.fnMapper, this.varMapper, expectedType);
+        ExpressionCompiler.Tiering tiering = tieringCache == null ? ExpressionCompiler.createTiering() :
+                tieringCache.getTiering(this.expression, expectedType);
+        return new ValueExpressionImpl(this.expression, n, this.fnMapper, this.varMapper, expectedType, tiering);
     }
 
     /**
@@ -0,0 +1,868 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.el.lang;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jakarta.el.ELException;
+import jakarta.el.ELResolver;
+import jakarta.el.PropertyNotFoundException;
+
+import org.apache.el.parser.AstAnd;
+import org.apache.el.parser.AstBracketSuffix;
+import org.apache.el.parser.AstChoice;
+import org.apache.el.parser.AstCompositeExpression;
+import org.apache.el.parser.AstDeferredExpression;
+import org.apache.el.parser.AstDiv;
+import org.apache.el.parser.AstDotSuffix;
+import org.apache.el.parser.AstDynamicExpression;
+import org.apache.el.parser.AstElvis;
+import org.apache.el.parser.AstEmpty;
+import org.apache.el.parser.AstEqual;
+import org.apache.el.parser.AstFalse;
+import org.apache.el.parser.AstFloatingPoint;
+import org.apache.el.parser.AstGreaterThan;
+import org.apache.el.parser.AstGreaterThanEqual;
+import org.apache.el.parser.AstInteger;
+import org.apache.el.parser.AstLambdaExpression;
+import org.apache.el.parser.AstLessThan;
+import org.apache.el.parser.AstLessThanEqual;
+import org.apache.el.parser.AstLiteralExpression;
+import org.apache.el.parser.AstMethodParameters;
+import org.apache.el.parser.AstMinus;
+import org.apache.el.parser.AstMod;
+import org.apache.el.parser.AstMult;
+import org.apache.el.parser.AstNegative;
+import org.apache.el.parser.AstNot;
+import org.apache.el.parser.AstNotEmpty;
+import org.apache.el.parser.AstNotEqual;
+import org.apache.el.parser.AstNull;
+import org.apache.el.parser.AstNullCoalescing;
+import org.apache.el.parser.AstOr;
+import org.apache.el.parser.AstPlus;
+import org.apache.el.parser.AstString;
+import org.apache.el.parser.AstTrue;
+import org.apache.el.parser.AstValue;
+import org.apache.el.parser.Node;
+import org.apache.el.util.ConcurrentCache;
+import org.apache.el.util.MessageFactory;
+
+/**
+ * Compiles the abstract syntax tree of a parsed expression into a tree of evaluators that is specialised for that
+ * expression. Compilation is tiered: an expression is interpreted until it has been evaluated
+ * {@link #THRESHOLD} times and is then compiled. The count and the compiled form are held by a {@link Tiering} rather
+ * than by the parsed expression, which is cached and shared by all applications. Each expression factory keeps the
+ * {@link Tiering} of its expressions in a {@link TieringCache} so that expressions that are created for each
+ * evaluation, such as those in JSP template text, are still compiled.
+ * <p>
+ * The compiled form removes the per evaluation decisions the interpreter makes about the structure of the expression,
+ * folds operations on literals into constants and speculates on the types of the operands of arithmetic operators.
+ * Speculative evaluators check their assumption on each evaluation and use the generic implementation when the check
+ * fails. If the check fails repeatedly, the evaluator is deoptimised and always uses the generic implementation.
+ * <p>
+ * Variables, functions and properties are always resolved via the {@link ELResolver} and the other mechanisms defined
+ * by the specification so the result of evaluating a compiled expression is always the same as interpreting it.
+ * Node types that are not compiled are interpreted by the compiled form of their parent.
+ */
+public final class ExpressionCompiler {
+
+    private static final String THRESHOLD_PROP = "org.apache.el.ExpressionCompiler.THRESHOLD";
+
+    /**
+     * The number of times an expression is interpreted before it is compiled. A value of zero or less disables the
+     * compilation of expressions.
+     */
+    public static final int THRESHOLD;
+
+    static {
+        String thresholdStr = System.getProperty(THRESHOLD_PROP, "0");
+        THRESHOLD = Integer.parseInt(thresholdStr);
+    }
+
+    /*
+     * The number of times the guard of a speculative evaluator may fail before the evaluator is deoptimised.
+     */
+    private static final int MAX_GUARD_FAILURES = 16;
+
+    private static final Object[] EMPTY_OBJECT_ARRAY = new Object[0];
+
+
+    private ExpressionCompiler() {
+        // Utility class. Hide default constructor.
+    }
+
+
+    /**
+     * A compiled expression or sub-expression.
+     */
+    public abstract static class Evaluator {
+
+        /*
+         * An abstract class rather than an interface as calls to the evaluators are megamorphic and virtual calls are
+         * cheaper than interface calls.
+         */
+        Evaluator() {
+        }
+
+        /**
+         * Evaluate the expression.
+         *
+         * @param ctx The context in which to evaluate the expression
+         *
+         * @return The result of evaluating the expression
+         *
+         * @throws ELException If an error occurs evaluating the expression
+         */
+        public abstract Object getValue(EvaluationContext ctx) throws ELException;
+    }
+
+
+    /**
+     * The number of times an expression has been interpreted and its compiled form, once it has been compiled.
+     */
+    public static final class Tiering {
+
+        private volatile Evaluator evaluator;
+
+        /*
+         * Not thread-safe. The count is only used to decide when to compile the expression so lost updates are
+         * acceptable.
+         */
+        private int evaluationCount;
+
+        Tiering() {
+        }
+
+        Evaluator getEvaluator() {
+            return evaluator;
+        }
+    }
+
+
+    /**
+     * The {@link Tiering} of the expressions created by an expression factory, keyed by the expression text and the
+     * expected type.
+     */
+    public static final class TieringCache {
+
+        private final ConcurrentCache<String,Map<Class<?>,Tiering>> cache =
+                new ConcurrentCache<>(ExpressionBuilder.CACHE_SIZE);
+
+        TieringCache() {
+        }
+
+        /**
+         * Obtain the object that tracks the evaluations of the given expression.
+         *
+         * @param expression   The expression text
+         * @param expectedType The type the result of the expression is coerced to
+         *
+         * @return The tracking object for the expression
+         */
+        public Tiering getTiering(String expression, Class<?> expectedType) {
+            Map<Class<?>,Tiering> tierings = cache.get(expression);
+            if (tierings == null) {
+                // Concurrent creation may lose some evaluations. That only delays the compilation of the expression.
+                tierings = new ConcurrentHashMap<>(4);
+                cache.put(expression, tierings);
+            }
+            return tierings.computeIfAbsent(expectedType, k -> new Tiering());
+        }
+    }
+
+
+    /**
+     * Create the object that tracks the evaluations of an expression.
+     *
+     * @return The new tracking object or {@code null} if the compilation of expressions is disabled
+     */
+    public static Tiering createTiering() {
+        return THRESHOLD > 0 ? new Tiering() : null;
+    }
+
+
+    /**
+     * Create the object that tracks the evaluations of the expressions created by an expression factory.
+     *
+     * @return The new tracking object or {@code null} if the compilation of expressions is disabled
+     */
+    public static TieringCache createTieringCache() {
+        return THRESHOLD > 0 ? new TieringCache() : null;
+    }
+
+
+    /**
+     * Evaluate the given expression, compiling it first if it has been interpreted at least {@link #THRESHOLD} times.
+     *
+     * @param node    The root node of the expression
+     * @param tiering The evaluations of the expression, or {@code null} to interpret the expression
+     * @param ctx     The context in which to evaluate the expression
+     *
+     * @return The result of evaluating the expression
+     *
+     * @throws ELException If an error occurs evaluating the expression
+     */
+    public static Object getValue(Node node, Tiering tiering, EvaluationContext ctx) throws ELException {
+        return getValue(node, tiering, ctx, THRESHOLD);
+    }
+
+
+    static Object getValue(Node node, Tiering tiering, EvaluationContext ctx, int threshold) throws ELException {
+        if (threshold > 0 && tiering != null) {
+            Evaluator evaluator = tiering.evaluator;
+            if (evaluator == null) {
+                // Multiple threads may compile the expression. That is harmless as the compiled forms are equivalent.
+                if (++tiering.evaluationCount < threshold) {
+                    return node.getValue(ctx);
+                }
+                evaluator = compile(node);
+                tiering.evaluator = evaluator;
+            }
+            return evaluator.getValue(ctx);
+        }
+        return node.getValue(ctx);
+    }
+
+
+    /**
+     * Compile the given expression.
+     *
+     * @param node The root node of the expression to compile
+     *
+     * @return The compiled form of the expression
+     */
+    public static Evaluator compile(Node node) {
+        return switch (node) {
+            case AstLiteralExpression n -> new Constant(n.getImage());
+            case AstString n -> new Constant(n.getString());
+            case AstTrue n -> new Constant(Boolean.TRUE);
+            case AstFalse n -> new Constant(Boolean.FALSE);
+            case AstNull n -> new Constant(null);
+            case AstInteger n -> compileNumber(n);
+            case AstFloatingPoint n -> compileNumber(n);
+            case AstDotSuffix n -> new Constant(n.getImage());
+            case AstBracketSuffix n -> compile(n.jjtGetChild(0));
+            case AstDeferredExpression n -> compile(n.jjtGetChild(0));
+            case AstDynamicExpression n -> compile(n.jjtGetChild(0));
+            case AstCompositeExpression n -> new Composite(compileChildren(n));
+            case AstValue n -> compileValue(n);
+            case AstPlus n -> compileArithmetic(n, Arithmetic.ADD);
+            case AstMinus n -> compileArithmetic(n, Arithmetic.SUBTRACT);
+            case AstMult n -> compileArithmetic(n, Arithmetic.MULTIPLY);
+            case AstDiv n -> compileArithmetic(n, Arithmetic.DIVIDE);
+            case AstMod n -> compileArithmetic(n, Arithmetic.MOD);
+            case AstNegative n -> compileNegative(n);
+            case AstNot n -> new Not(compile(n.jjtGetChild(0)));
+            case AstAnd n -> new Logical(compileChildren(n), false);
+            case AstOr n -> new Logical(compileChildren(n), true);
+            case AstChoice n -> new Choice(compileChildren(n));
+            case AstElvis n -> new Elvis(compileChildren(n));
+            case AstNullCoalescing n -> new NullCoalescing(compileChildren(n));
+            case AstEmpty n -> new Empty(compile(n.jjtGetChild(0)), false);
+            case AstNotEmpty n -> new Empty(compile(n.jjtGetChild(0)), true);
+            case AstEqual n -> new Equal(compileChildren(n), false);
+            case AstNotEqual n -> new Equal(compileChildren(n), true);
+            case AstLessThan n -> new Compare(compileChildren(n), Comparison.LESS_THAN);
+            case AstLessThanEqual n -> new Compare(compileChildren(n), Comparison.LESS_THAN_EQUAL);
+            case AstGreaterThan n -> new Compare(compileChildren(n), Comparison.GREATER_THAN);
+            case AstGreaterThanEqual n -> new Compare(compileChildren(n), Comparison.GREATER_THAN_EQUAL);
+            default -> new Interpreted(node);
+        };
+    }
+
+
+    private static Evaluator compileNumber(Node node) {
+        try {
+            // Literals do not use the context
+            return new Constant(node.getValue(null));
+        } catch (ELException e) {
+            // The literal is invalid. Report the error when the expression is evaluated.
+            return new Interpreted(node);
+        }
+    }
+
+
+    private static Evaluator compileValue(AstValue node) {
+        int count = node.jjtGetNumChildren();
+        int stepCount = 0;
+        Step[] steps = new Step[count - 1];
+        int i = 1;
+        while (i < count) {
+            Node suffix = node.jjtGetChild(i);
+            if (i + 1 < count && node.jjtGetChild(i + 1) instanceof AstMethodParameters parameters) {
+                boolean lambdaParameter = parameters.jjtGetNumChildren() == 1 &&
+                        parameters.jjtGetChild(0) instanceof AstLambdaExpression;
+                steps[stepCount++] = new Step(compile(suffix), compileChildren(parameters), lambdaParameter);
+                i += 2;
+            } else {
+                steps[stepCount++] = new Step(compile(suffix), null, false);
+                i++;
+            }
+        }
+        Step[] compiledSteps = new Step[stepCount];
+        System.arraycopy(steps, 0, compiledSteps, 0, stepCount);
+        return new Value(compile(node.jjtGetChild(0)), compiledSteps);
+    }
+
+
+    private static Evaluator compileArithmetic(Node node, Arithmetic operation) {
+        Evaluator left = compile(node.jjtGetChild(0));
+        Evaluator right = compile(node.jjtGetChild(1));
+        if (left instanceof Constant c0 && right instanceof Constant c1) {
+            try {
+                // Arithmetic does not use the context
+                return new Constant(operation.generic(c0.value, c1.value));
+            } catch (RuntimeException e) {
+                // Report the error when the expression is evaluated
+            }
+        }
+        return new SpeculativeArithmetic(operation, left, right);
+    }
+
+
+    private static Evaluator compileNegative(Node node) {
+        if (compile(node.jjtGetChild(0)) instanceof Constant c && (c.value == null || c.value instanceof Number)) {
+            // Negation of numeric literals does not use the context
+            return new Constant(node.getValue(null));
+        }
+        return new Interpreted(node);
+    }
+
+
+    private static Evaluator[] compileChildren(Node node) {
+        int count = node.jjtGetNumChildren();
+        if (count == 0) {
+            return new Evaluator[0];
+        }
+        Evaluator[] result = new Evaluator[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = compile(node.jjtGetChild(i));
+        }
+        return result;
+    }
+
+
+    /*
+     * Returns true if the given object will be treated as a long by the generic arithmetic implementation.
+     */
+    private static boolean isLong(Object obj) {
+        return obj instanceof Long || obj instanceof Integer || obj instanceof Short || obj instanceof Byte;
+    }
+
+
+    private static final class Constant extends Evaluator {
+
+        private final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) {
+            return value;
+        }
+    }
+
+
+    /*
+     * A node that is not compiled.
+     */
+    private static final class Interpreted extends Evaluator {
+
+        private final Node node;
+
+        Interpreted(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            return node.getValue(ctx);
+        }
+    }
+
+
+    private static final class Composite extends Evaluator {
+
+        private final Evaluator[] parts;
+
+        Composite(Evaluator[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            StringBuilder sb = new StringBuilder(16);
+            for (Evaluator part : parts) {
+                Object obj = part.getValue(ctx);
+                if (obj != null) {
+                    sb.append(ELSupport.coerceToString(ctx, obj));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+
+    private static final class Not extends Evaluator {
+
+        private final Evaluator child;
+
+        Not(Evaluator child) {
+            this.child = child;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Boolean b = ELSupport.coerceToBoolean(ctx, child.getValue(ctx), true);
+            return Boolean.valueOf(!b.booleanValue());
+        }
+    }
+
+
+    private static final class Logical extends Evaluator {
+
+        private final Evaluator[] operands;
+        private final boolean or;
+
+        Logical(Evaluator[] operands, boolean or) {
+            this.operands = operands;
+            this.or = or;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            int last = operands.length - 1;
+            for (int i = 0; i < last; i++) {
+                Boolean b = ELSupport.coerceToBoolean(ctx, operands[i].getValue(ctx), true);
+                if (b.booleanValue() == or) {
+                    return b;
+                }
+            }
+            return ELSupport.coerceToBoolean(ctx, operands[last].getValue(ctx), true);
+        }
+    }
+
+
+    private static final class Choice extends Evaluator {
+
+        private final Evaluator condition;
+        private final Evaluator ifTrue;
+        private final Evaluator ifFalse;
+
+        Choice(Evaluator[] children) {
+            condition = children[0];
+            ifTrue = children[1];
+            ifFalse = children[2];
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            if (ELSupport.coerceToBoolean(ctx, condition.getValue(ctx), true).booleanValue()) {
+                return ifTrue.getValue(ctx);
+            }
+            return ifFalse.getValue(ctx);
+        }
+    }
+
+
+    private static final class Elvis extends Evaluator {
+
+        private final Evaluator first;
+        private final Evaluator second;
+
+        Elvis(Evaluator[] children) {
+            first = children[0];
+            second = children[1];
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Object obj0 = first.getValue(ctx);
+            if (ELSupport.coerceToBoolean(ctx, obj0, true).booleanValue()) {
+                return obj0;
+            }
+            return second.getValue(ctx);
+        }
+    }
+
+
+    private static final class NullCoalescing extends Evaluator {
+
+        private final Evaluator first;
+        private final Evaluator second;
+
+        NullCoalescing(Evaluator[] children) {
+            first = children[0];
+            second = children[1];
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Object obj0 = first.getValue(ctx);
+            if (obj0 == null) {
+                return second.getValue(ctx);
+            }
+            return obj0;
+        }
+    }
+
+
+    private static final class Empty extends Evaluator {
+
+        private final Evaluator child;
+        private final boolean invert;
+
+        Empty(Evaluator child, boolean invert) {
+            this.child = child;
+            this.invert = invert;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Object obj = child.getValue(ctx);
+            boolean empty = obj == null || obj instanceof String s && s.isEmpty() ||
+                    obj instanceof Object[] a && a.length == 0 || obj instanceof Collection<?> c && c.isEmpty() ||
+                    obj instanceof Map<?,?> m && m.isEmpty() || obj instanceof Optional<?> o && o.isEmpty();
+            return Boolean.valueOf(empty != invert);
+        }
+    }
+
+
+    private static final class Equal extends Evaluator {
+
+        private final Evaluator left;
+        private final Evaluator right;
+        private final boolean invert;
+
+        Equal(Evaluator[] children, boolean invert) {
+            left = children[0];
+            right = children[1];
+            this.invert = invert;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Object obj0 = left.getValue(ctx);
+            Object obj1 = right.getValue(ctx);
+            return Boolean.valueOf(ELSupport.equals(ctx, obj0, obj1) != invert);
+        }
+    }
+
+
+    private static final class Compare extends Evaluator {
+
+        private final Evaluator left;
+        private final Evaluator right;
+        private final Comparison comparison;
+
+        Compare(Evaluator[] children, Comparison comparison) {
+            left = children[0];
+            right = children[1];
+            this.comparison = comparison;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Object obj0 = left.getValue(ctx);
+            if (comparison.inclusive) {
+                Object obj1 = right.getValue(ctx);
+                if (obj0 == obj1) {
+                    return Boolean.TRUE;
+                }
+                if (obj0 == null || obj1 == null) {
+                    return Boolean.FALSE;
+                }
+                return Boolean.valueOf(comparison.test(ELSupport.compare(ctx, obj0, obj1)));
+            }
+            // Exclusive comparisons do not evaluate the second operand if the first is null
+            if (obj0 == null) {
+                return Boolean.FALSE;
+            }
+            Object obj1 = right.getValue(ctx);
+            if (obj1 == null) {
+                return Boolean.FALSE;
+            }
+            return Boolean.valueOf(comparison.test(ELSupport.compare(ctx, obj0, obj1)));
+        }
+    }
+
+
+    /*
+     * A property or method suffix of a value.
+     */
+    private record Step(Evaluator suffix, Evaluator[] parameters, boolean lambdaParameter) {
+    }
+
+
+    private static final class Value extends Evaluator {
+
+        private final Evaluator base;
+        private final Step[] steps;
+
+        Value(Evaluator base, Step[] steps) {
+            this.base = base;
+            this.steps = steps;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Object value = base.getValue(ctx);
+            Object suffix = null;
+            ELResolver resolver = ctx.getELResolver();
+            for (int i = 0; value != null && i < steps.length; i++) {
+                Step step = steps[i];
+                suffix = step.suffix.getValue(ctx);
+                if (step.parameters != null) {
+                    if (value instanceof org.apache.el.stream.Optional && !step.lambdaParameter &&
+                            step.parameters.length == 1 && "orElseGet".equals(suffix)) {
+                        throw new ELException(MessageFactory.get("stream.optional.paramNotLambda", suffix));
+                    }
+                    Object[] paramValues = getParameters(ctx, step.parameters);
+                    value = resolver.invoke(ctx, value, suffix, getTypesFromValues(paramValues), paramValues);
+                } else {
+                    if (suffix == null) {
+                        return null;
+                    }
+                    ctx.setPropertyResolved(false);
+                    value = resolver.getValue(ctx, value, suffix);
+                }
+            }
+            if (!ctx.isPropertyResolved()) {
+                throw new PropertyNotFoundException(MessageFactory.get("error.resolver.unhandled", value, suffix));
+            }
+            return value;
+        }
+
+        private static Object[] getParameters(EvaluationContext ctx, Evaluator[] parameters) {
+            if (parameters.length == 0) {
+                return EMPTY_OBJECT_ARRAY;
+            }
+            Object[] result = new Object[parameters.length];
+            for (int i = 0; i < parameters.length; i++) {
+                result[i] = parameters[i].getValue(ctx);
+            }
+            return result;
+        }
+
+        private static Class<?>[] getTypesFromValues(Object[] values) {
+            Class<?>[] result = new Class<?>[values.length];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    result[i] = values[i].getClass();
+                }
+            }
+            return result;
+        }
+    }
+
+
+    private enum Arithmetic {
+        ADD {
+            @Override
+            Number generic(Object obj0, Object obj1) {
+                return ELArithmetic.add(obj0, obj1);
+            }
+
+            @Override
+            Number longs(long l0, long l1) {
+                return Long.valueOf(l0 + l1);
+            }
+
+            @Override
+            Number doubles(double d0, double d1) {
+                return Double.valueOf(d0 + d1);
+            }
+        },
+        SUBTRACT {
+            @Override
+            Number generic(Object obj0, Object obj1) {
+                return ELArithmetic.subtract(obj0, obj1);
+            }
+
+            @Override
+            Number longs(long l0, long l1) {
+                return Long.valueOf(l0 - l1);
+            }
+
+            @Override
+            Number doubles(double d0, double d1) {
+                return Double.valueOf(d0 - d1);
+            }
+        },
+        MULTIPLY {
+            @Override
+            Number generic(Object obj0, Object obj1) {
+                return ELArithmetic.multiply(obj0, obj1);
+            }
+
+            @Override
+            Number longs(long l0, long l1) {
+                return Long.valueOf(l0 * l1);
+            }
+
+            @Override
+            Number doubles(double d0, double d1) {
+                return Double.valueOf(d0 * d1);
+            }
+        },
+        DIVIDE {
+            @Override
+            Number generic(Object obj0, Object obj1) {
+                return ELArithmetic.divide(obj0, obj1);
+            }
+
+            @Override
+            Number longs(long l0, long l1) {
+                // Division of integers uses double arithmetic
+                return Double.valueOf((double) l0 / (double) l1);
+            }
+
+            @Override
+            Number doubles(double d0, double d1) {
+                return Double.valueOf(d0 / d1);
+            }
+        },
+        MOD {
+            @Override
+            Number generic(Object obj0, Object obj1) {
+                return ELArithmetic.mod(obj0, obj1);
+            }
+
+            @Override
+            Number longs(long l0, long l1) {
+                // Throws ArithmeticException for zero, the same as the generic implementation
+                return Long.valueOf(l0 % l1);
+            }
+
+            @Override
+            Number doubles(double d0, double d1) {
+                return Double.valueOf(d0 % d1);
+            }
+        };
+
+        abstract Number generic(Object obj0, Object obj1);
+
+        abstract Number longs(long l0, long l1);
+
+        abstract Number doubles(double d0, double d1);
+    }
+
+
+    /*
+     * Speculates that both operands are instances of the boxed primitive types and performs the operation on the
+     * primitive values. This is the same as the generic implementation for these types but avoids the search for the
+     * delegate that performs the operation and the coercion of the operands to the type of that delegate.
+     */
+    private static final class SpeculativeArithmetic extends Evaluator {
+
+        private final Arithmetic operation;
+        private final Evaluator left;
+        private final Evaluator right;
+
+        // Not volatile. A thread that does not see the latest value will perform some unnecessary checks.
+        private int guardFailures;
+
+        SpeculativeArithmetic(Arithmetic operation, Evaluator left, Evaluator right) {
+            this.operation = operation;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public Object getValue(EvaluationContext ctx) throws ELException {
+            Object obj0 = left.getValue(ctx);
+            Object obj1 = right.getValue(ctx);
+            if (guardFailures < MAX_GUARD_FAILURES) {
+                if (isLong(obj0)) {
+                    if (isLong(obj1)) {
+                        return operation.longs(((Number) obj0).longValue(), ((Number) obj1).longValue());
+                    }
+                    if (obj1 instanceof Double || obj1 instanceof Float) {
+                        return operation.doubles(((Number) obj0).doubleValue(), ((Number) obj1).doubleValue());
+                    }
+                } else if (obj0 instanceof Double || obj0 instanceof Float) {
+                    if (isLong(obj1) || obj1 instanceof Double || obj1 instanceof Float) {
+                        return operation.doubles(((Number) obj0).doubleValue(), ((Number) obj1).doubleValue());
+                    }
+                }
+                guardFailures++;
+            }
+            return operation.generic(obj0, obj1);
+        }
+
+        boolean isDeoptimised() {
+            return guardFailures >= MAX_GUARD_FAILURES;
+        }
+    }
+
+
+    private enum Comparison {
+        LESS_THAN(false) {
+            @Override
+            boolean test(int result) {
+                return result < 0;
+            }
+        },
+        LESS_THAN_EQUAL(true) {
+            @Override
+            boolean test(int result) {
+                return result <= 0;
+            }
+        },
+        GREATER_THAN(false) {
+            @Override
+            boolean test(int result) {
+                return result > 0;
+            }
+        },
+        GREATER_THAN_EQUAL(true) {
+            @Override
+            boolean test(int result) {
+                return result >= 0;
+            }
+        };
+
+        private final boolean inclusive;
+
+        Comparison(boolean inclusive) {
+            this.inclusive = inclusive;
+        }
+
+        abstract boolean test(int result);
+    }
+
+
+    /*
+     * For testing.
+     */
+    static boolean isDeoptimised(Evaluator evaluator) {
+        return evaluator instanceof SpeculativeArithmetic arithmetic && arithmetic.isDeoptimised();
+    }
+
+
+    /*
+     * For testing.
+     */
+    static boolean isConstant(Evaluator evaluator) {
+        return evaluator instanceof Constant;
+    }
+}
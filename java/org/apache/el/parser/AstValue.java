@@ -20,6 +20,9 @@ package org.apache.el.parser;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jakarta.el.ELException;
 import jakarta.el.ELResolver;
@@ -45,6 +48,34 @@ public final class AstValue extends SimpleNode {
         protected Object property;
     }
 
+    /*
+     * Cache of the methods found by invoke(), held by the class of the base object. Parsed expressions are shared by
+     * all applications so the cache must not be part of them, else it would prevent the class loader of an application
+     * from being garbage collected. Only methods that are an exact match for the parameter types are cached, as the
+     * method selected for other matches may depend on the parameter values. Those parameter types are visible to the
+     * base class so the cache does not reference classes from any other class loader.
+     */
+    private static final ClassValue<Map<MethodKey,Method>> METHOD_CACHE = new ClassValue<>() {
+        @Override
+        protected Map<MethodKey,Method> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private record MethodKey(String name, Class<?>[] types, int valueCount) {
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof MethodKey other && name.equals(other.name) && Arrays.equals(types, other.types) &&
+                    valueCount == other.valueCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Arrays.hashCode(types) + valueCount;
+        }
+    }
+
     public AstValue(int id) {
         super(id);
     }
@@ -215,7 +246,7 @@ public final class AstValue extends SimpleNode {
             values = paramValues;
             types = paramTypes;
         }
-        m = ReflectionUtil.getMethod(ctx, t.base, t.property, types, values);
+        m = getMethod(ctx, t, types, values);
 
         // Handle varArgs and any coercion required
         values = convertArgs(ctx, values, m);
@@ -253,6 +284,35 @@ public final class AstValue extends SimpleNode {
         return new MethodReference(t.base, getMethodInfo(ctx, types), m.getAnnotations(), values);
     }
 
+    private static Method getMethod(EvaluationContext ctx, Target t, Class<?>[] types, Object[] values) {
+        if (!(t.property instanceof String name)) {
+            return ReflectionUtil.getMethod(ctx, t.base, t.property, types, values);
+        }
+        Map<MethodKey,Method> cache = METHOD_CACHE.get(t.base.getClass());
+        Method m = cache.get(new MethodKey(name, types, getValueCount(values)));
+        if (m == null) {
+            m = ReflectionUtil.getMethod(ctx, t.base, t.property, types, values);
+            if (!m.isVarArgs() && isExactMatch(m, types)) {
+                cache.put(new MethodKey(name, types == null ? null : types.clone(), getValueCount(values)), m);
+            }
+        }
+        return m;
+    }
+
+    /*
+     * The number of parameter values provided may change which method is found.
+     */
+    private static int getValueCount(Object[] values) {
+        return values == null ? -1 : values.length;
+    }
+
+    private static boolean isExactMatch(Method m, Class<?>[] types) {
+        if (types == null || types.length == 0) {
+            return m.getParameterCount() == 0;
+        }
+        return Arrays.equals(m.getParameterTypes(), types);
+    }
+
     private Object[] convertArgs(EvaluationContext ctx, Object[] src, Method m) {
         Class<?>[] types = m.getParameterTypes();
         if (types.length == 0) {
@@ -16,17 +16,28 @@
  */
 package org.apache.el.stream;
 
+import java.io.Serial;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
+import jakarta.el.ELContext;
 import jakarta.el.ELException;
+import jakarta.el.ImportHandler;
 import jakarta.el.LambdaExpression;
+import jakarta.el.StandardELContext;
 
 import org.apache.el.lang.ELArithmetic;
 import org.apache.el.lang.ELSupport;
@@ -35,10 +46,37 @@ import org.apache.el.util.MessageFactory;
 /**
  * A stream of elements supporting sequential operations such as filter, map,
  * reduce, and various terminal operations.
+ * <p>
+ * Intermediate operations are lazy. They are recorded and only evaluated
+ * when a terminal operation is invoked. All the operations are then fused
+ * into a single pass over the source that pushes each element through the
+ * operations in turn. Only {@code sorted} needs to hold all the elements
+ * and operations such as {@code findFirst}, {@code anyMatch} and
+ * {@code limit} stop the pass as soon as the result is known.
+ * <p>
+ * A stream may be marked as {@link #parallel() parallel}. If the source is a
+ * large list or array, the leading stateless operations ({@code filter},
+ * {@code map}, {@code flatMap} and {@code peek}) are then evaluated
+ * concurrently on the common fork-join pool. The remaining operations are
+ * evaluated sequentially, in encounter order, so the result is the same as
+ * for a sequential stream provided that the lambda expressions have no side
+ * effects.
  */
 public class Stream {
 
+    /*
+     * The minimum number of elements in the source for parallel evaluation to
+     * be used.
+     */
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    private static final Op[] NO_OPS = new Op[0];
+
     private final Iterator<Object> iterator;
+    private final List<?> list;
+    private final ELContext context;
+    private final Op[] ops;
+    private final boolean parallel;
 
 
     /**
@@ -47,7 +85,58 @@ public class Stream {
      * @param iterator the iterator providing the stream elements
      */
     public Stream(Iterator<Object> iterator) {
+        this(iterator, null, null, NO_OPS, false);
+    }
+
+
+    /**
+     * Constructs a new Stream from a list that supports fast random access.
+     * Such streams may be evaluated in parallel.
+     *
+     * @param context the context used to evaluate the expressions that
+     *                    created the stream
+     * @param list    the list providing the stream elements
+     */
+    Stream(ELContext context, List<?> list) {
+        this(null, list, context, NO_OPS, false);
+    }
+
+
+    private Stream(Iterator<Object> iterator, List<?> list, ELContext context, Op[] ops, boolean parallel) {
         this.iterator = iterator;
+        this.list = list;
+        this.context = context;
+        this.ops = ops;
+        this.parallel = parallel;
+    }
+
+
+    private Stream append(Op op) {
+        Op[] newOps = Arrays.copyOf(ops, ops.length + 1);
+        newOps[ops.length] = op;
+        return new Stream(iterator, list, context, newOps, parallel);
+    }
+
+
+    /**
+     * Returns an equivalent stream that may be evaluated in parallel.
+     * Parallel evaluation is only used for large lists and arrays and the
+     * lambda expressions used by the stream must not have side effects.
+     *
+     * @return the parallel stream
+     */
+    public Stream parallel() {
+        return new Stream(iterator, list, context, ops, true);
+    }
+
+
+    /**
+     * Returns an equivalent stream that is evaluated sequentially.
+     *
+     * @return the sequential stream
+     */
+    public Stream sequential() {
+        return new Stream(iterator, list, context, ops, false);
     }
 
 
@@ -58,20 +147,19 @@ public class Stream {
      * @return the new filtered stream
      */
     public Stream filter(final LambdaExpression le) {
-        Iterator<Object> downStream = new OpIterator() {
+        return append(new Op(true) {
             @Override
-            protected void findNext() {
-                while (iterator.hasNext()) {
-                    Object obj = iterator.next();
-                    if (ELSupport.coerceToBoolean(null, le.invoke(obj), true).booleanValue()) {
-                        next = obj;
-                        foundNext = true;
-                        break;
+            Sink wrap(Sink downstream, ELContext ctx) {
+                return new ChainedSink(downstream) {
+                    @Override
+                    public void accept(Object obj) {
+                        if (ELSupport.coerceToBoolean(null, invoke(le, ctx, obj), true).booleanValue()) {
+                            downstream.accept(obj);
+                        }
                     }
-                }
+                };
             }
-        };
-        return new Stream(downStream);
+        });
     }
 
 
@@ -83,17 +171,17 @@ public class Stream {
      * @return the new mapped stream
      */
     public Stream map(final LambdaExpression le) {
-        Iterator<Object> downStream = new OpIterator() {
+        return append(new Op(true) {
             @Override
-            protected void findNext() {
-                if (iterator.hasNext()) {
-                    Object obj = iterator.next();
-                    next = le.invoke(obj);
-                    foundNext = true;
-                }
+            Sink wrap(Sink downstream, ELContext ctx) {
+                return new ChainedSink(downstream) {
+                    @Override
+                    public void accept(Object obj) {
+                        downstream.accept(invoke(le, ctx, obj));
+                    }
+                };
             }
-        };
-        return new Stream(downStream);
+        });
     }
 
 
@@ -106,29 +194,30 @@ public class Stream {
      * @return the new flattened stream
      */
     public Stream flatMap(final LambdaExpression le) {
-        Iterator<Object> downStream = new OpIterator() {
-
-            private Iterator<?> inner;
-
+        return append(new Op(true) {
             @Override
-            protected void findNext() {
-                while (iterator.hasNext() || (inner != null && inner.hasNext())) {
-                    if (inner == null || !inner.hasNext()) {
-                        Object obj = le.invoke(iterator.next());
-                        if (obj instanceof Stream) {
-                            inner = ((Stream) obj).iterator;
+            Sink wrap(Sink downstream, ELContext ctx) {
+                return new ChainedSink(downstream) {
+                    @Override
+                    public void accept(Object obj) {
+                        if (invoke(le, ctx, obj) instanceof Stream inner) {
+                            // The downstream operations continue after the inner stream ends
+                            inner.evaluate(new Sink() {
+                                @Override
+                                public void accept(Object innerObj) {
+                                    downstream.accept(innerObj);
+                                }
+
+                                @Override
+                                public boolean isDone() {
+                                    return downstream.isDone();
+                                }
+                            }, false);
                         }
                     }
-
-                    if (inner != null && inner.hasNext()) {
-                        next = inner.next();
-                        foundNext = true;
-                        break;
-                    }
-                }
+                };
             }
-        };
-        return new Stream(downStream);
+        });
     }
 
 
@@ -138,23 +227,22 @@ public class Stream {
      * @return the new stream with distinct elements
      */
     public Stream distinct() {
-        Iterator<Object> downStream = new OpIterator() {
+        return append(new Op(false) {
+            @Override
+            Sink wrap(Sink downstream, ELContext ctx) {
+                return new ChainedSink(downstream) {
 
-            private final Set<Object> values = new HashSet<>();
+                    private final Set<Object> values = new HashSet<>();
 
-            @Override
-            protected void findNext() {
-                while (iterator.hasNext()) {
-                    Object obj = iterator.next();
-                    if (values.add(obj)) {
-                        next = obj;
-                        foundNext = true;
-                        break;
+                    @Override
+                    public void accept(Object obj) {
+                        if (values.add(obj)) {
+                            downstream.accept(obj);
+                        }
                     }
-                }
+                };
             }
-        };
-        return new Stream(downStream);
+        });
     }
 
 
@@ -165,32 +253,12 @@ public class Stream {
      * @return the new sorted stream
      */
     public Stream sorted() {
-        Iterator<Object> downStream = new OpIterator() {
-
-            private Iterator<Object> sorted = null;
-
+        return append(new Op(false) {
             @Override
-            protected void findNext() {
-                if (sorted == null) {
-                    sort();
-                }
-                if (sorted.hasNext()) {
-                    next = sorted.next();
-                    foundNext = true;
-                }
-            }
-
-            @SuppressWarnings({ "rawtypes", "unchecked" })
-            private void sort() {
-                List list = new ArrayList<>();
-                while (iterator.hasNext()) {
-                    list.add(iterator.next());
-                }
-                Collections.sort(list);
-                sorted = list.iterator();
+            Sink wrap(Sink downstream, ELContext ctx) {
+                return new SortingSink(downstream, null);
             }
-        };
-        return new Stream(downStream);
+        });
     }
 
 
@@ -202,33 +270,12 @@ public class Stream {
      * @return the new sorted stream
      */
     public Stream sorted(final LambdaExpression le) {
-        Iterator<Object> downStream = new OpIterator() {
-
-            private Iterator<Object> sorted = null;
-
+        return append(new Op(false) {
             @Override
-            protected void findNext() {
-                if (sorted == null) {
-                    sort(le);
-                }
-                if (sorted.hasNext()) {
-                    next = sorted.next();
-                    foundNext = true;
-                }
+            Sink wrap(Sink downstream, ELContext ctx) {
+                return new SortingSink(downstream, new LambdaExpressionComparator(le));
             }
-
-            @SuppressWarnings({ "rawtypes", "unchecked" })
-            private void sort(LambdaExpression le) {
-                List list = new ArrayList<>();
-                Comparator<Object> c = new LambdaExpressionComparator(le);
-                while (iterator.hasNext()) {
-                    list.add(iterator.next());
-                }
-                list.sort(c);
-                sorted = list.iterator();
-            }
-        };
-        return new Stream(downStream);
+        });
     }
 
 
@@ -239,9 +286,7 @@ public class Stream {
      * @return null
      */
     public Object forEach(final LambdaExpression le) {
-        while (iterator.hasNext()) {
-            le.invoke(iterator.next());
-        }
+        evaluate(obj -> le.invoke(obj));
         return null;
     }
 
@@ -254,18 +299,18 @@ public class Stream {
      * @return the new stream
      */
     public Stream peek(final LambdaExpression le) {
-        Iterator<Object> downStream = new OpIterator() {
+        return append(new Op(true) {
             @Override
-            protected void findNext() {
-                if (iterator.hasNext()) {
-                    Object obj = iterator.next();
-                    le.invoke(obj);
-                    next = obj;
-                    foundNext = true;
-                }
+            Sink wrap(Sink downstream, ELContext ctx) {
+                return new ChainedSink(downstream) {
+                    @Override
+                    public void accept(Object obj) {
+                        invoke(le, ctx, obj);
+                        downstream.accept(obj);
+                    }
+                };
             }
-        };
-        return new Stream(downStream);
+        });
     }
 
 
@@ -275,7 +320,11 @@ public class Stream {
      * @return the underlying iterator
      */
     public Iterator<?> iterator() {
-        return iterator;
+        Iterator<?> source = (list == null) ? iterator : list.iterator();
+        if (ops.length == 0) {
+            return source;
+        }
+        return new PipelineIterator(source);
     }
 
 
@@ -310,27 +359,30 @@ public class Stream {
      * @return the new substream
      */
     public Stream substream(final Number start, final Number end) {
+        final int startPos = start.intValue();
+        final int endPos = end.intValue();
+        return append(new Op(false) {
+            @Override
+            Sink wrap(Sink downstream, ELContext ctx) {
+                return new ChainedSink(downstream) {
 
-        Iterator<Object> downStream = new OpIterator() {
+                    private int itemCount = 0;
 
-            private final int startPos = start.intValue();
-            private final int endPos = end.intValue();
-            private int itemCount = 0;
+                    @Override
+                    public void accept(Object obj) {
+                        int pos = itemCount++;
+                        if (pos >= startPos && pos < endPos) {
+                            downstream.accept(obj);
+                        }
+                    }
 
-            @Override
-            protected void findNext() {
-                while (itemCount < startPos && iterator.hasNext()) {
-                    iterator.next();
-                    itemCount++;
-                }
-                if (itemCount < endPos && iterator.hasNext()) {
-                    itemCount++;
-                    next = iterator.next();
-                    foundNext = true;
-                }
+                    @Override
+                    public boolean isDone() {
+                        return itemCount >= endPos || downstream.isDone();
+                    }
+                };
             }
-        };
-        return new Stream(downStream);
+        });
     }
 
 
@@ -341,9 +393,7 @@ public class Stream {
      */
     public List<Object> toList() {
         List<Object> result = new ArrayList<>();
-        while (iterator.hasNext()) {
-            result.add(iterator.next());
-        }
+        evaluate(result::add);
         return result;
     }
 
@@ -354,11 +404,7 @@ public class Stream {
      * @return the array of elements
      */
     public Object[] toArray() {
-        List<Object> result = new ArrayList<>();
-        while (iterator.hasNext()) {
-            result.add(iterator.next());
-        }
-        return result.toArray(new Object[0]);
+        return toList().toArray(new Object[0]);
     }
 
 
@@ -370,15 +416,13 @@ public class Stream {
      * @return an Optional describing the reduced value, or empty if this stream is empty
      */
     public Optional reduce(LambdaExpression le) {
-        Object seed = null;
+        ReducingSink sink = new ReducingSink(le, null, false);
+        evaluate(sink);
 
-        if (iterator.hasNext()) {
-            seed = iterator.next();
-        } else {
+        if (!sink.seeded) {
             return Optional.EMPTY;
         }
-
-        return new Optional(reduce(seed, le));
+        return new Optional(sink.result);
     }
 
 
@@ -391,13 +435,9 @@ public class Stream {
      * @return the result of the reduction
      */
     public Object reduce(Object seed, LambdaExpression le) {
-        Object result = seed;
-
-        while (iterator.hasNext()) {
-            result = le.invoke(result, iterator.next());
-        }
-
-        return result;
+        ReducingSink sink = new ReducingSink(le, seed, true);
+        evaluate(sink);
+        return sink.result;
     }
 
 
@@ -449,18 +489,13 @@ public class Stream {
      * @return an Optional containing the average, or empty if the stream is empty
      */
     public Optional average() {
-        long count = 0;
-        Number sum = Long.valueOf(0);
+        SummingSink sink = new SummingSink();
+        evaluate(sink);
 
-        while (iterator.hasNext()) {
-            count++;
-            sum = ELArithmetic.add(sum, iterator.next());
-        }
-
-        if (count == 0) {
+        if (sink.count == 0) {
             return Optional.EMPTY;
         } else {
-            return new Optional(ELArithmetic.divide(sum, Long.valueOf(count)));
+            return new Optional(ELArithmetic.divide(sink.sum, Long.valueOf(sink.count)));
         }
     }
 
@@ -471,13 +506,9 @@ public class Stream {
      * @return the sum of all elements
      */
     public Number sum() {
-        Number sum = Long.valueOf(0);
-
-        while (iterator.hasNext()) {
-            sum = ELArithmetic.add(sum, iterator.next());
-        }
-
-        return sum;
+        SummingSink sink = new SummingSink();
+        evaluate(sink);
+        return sink.sum;
     }
 
 
@@ -487,14 +518,9 @@ public class Stream {
      * @return the number of elements
      */
     public Long count() {
-        long count = 0;
-
-        while (iterator.hasNext()) {
-            iterator.next();
-            count++;
-        }
-
-        return Long.valueOf(count);
+        long[] count = new long[1];
+        evaluate(obj -> count[0]++);
+        return Long.valueOf(count[0]);
     }
 
 
@@ -505,17 +531,13 @@ public class Stream {
      * @return an Optional containing true if any element matches, or empty if the stream is empty
      */
     public Optional anyMatch(LambdaExpression le) {
-        if (!iterator.hasNext()) {
-            return Optional.EMPTY;
-        }
+        MatchingSink sink = new MatchingSink(le, Boolean.TRUE);
+        evaluate(sink);
 
-        Boolean match = Boolean.FALSE;
-
-        while (!match.booleanValue() && iterator.hasNext()) {
-            match = (Boolean) le.invoke(iterator.next());
+        if (!sink.seen) {
+            return Optional.EMPTY;
         }
-
-        return new Optional(match);
+        return new Optional(sink.match);
     }
 
 
@@ -526,17 +548,13 @@ public class Stream {
      * @return an Optional containing true if all elements match, or empty if the stream is empty
      */
     public Optional allMatch(LambdaExpression le) {
-        if (!iterator.hasNext()) {
-            return Optional.EMPTY;
-        }
-
-        Boolean match = Boolean.TRUE;
+        MatchingSink sink = new MatchingSink(le, Boolean.FALSE);
+        evaluate(sink);
 
-        while (match.booleanValue() && iterator.hasNext()) {
-            match = (Boolean) le.invoke(iterator.next());
+        if (!sink.seen) {
+            return Optional.EMPTY;
         }
-
-        return new Optional(match);
+        return new Optional(sink.match);
     }
 
 
@@ -547,17 +565,13 @@ public class Stream {
      * @return an Optional containing true if no elements match, or empty if the stream is empty
      */
     public Optional noneMatch(LambdaExpression le) {
-        if (!iterator.hasNext()) {
-            return Optional.EMPTY;
-        }
+        MatchingSink sink = new MatchingSink(le, Boolean.TRUE);
+        evaluate(sink);
 
-        Boolean match = Boolean.FALSE;
-
-        while (!match.booleanValue() && iterator.hasNext()) {
-            match = (Boolean) le.invoke(iterator.next());
+        if (!sink.seen) {
+            return Optional.EMPTY;
         }
-
-        return new Optional(Boolean.valueOf(!match.booleanValue()));
+        return new Optional(Boolean.valueOf(!sink.match.booleanValue()));
     }
 
 
@@ -568,8 +582,23 @@ public class Stream {
      * @return an Optional describing the first element of this stream
      */
     public Optional findFirst() {
-        if (iterator.hasNext()) {
-            return new Optional(iterator.next());
+        Object[] first = new Object[1];
+        boolean[] found = new boolean[1];
+        evaluate(new Sink() {
+            @Override
+            public void accept(Object obj) {
+                first[0] = obj;
+                found[0] = true;
+            }
+
+            @Override
+            public boolean isDone() {
+                return found[0];
+            }
+        });
+
+        if (found[0]) {
+            return new Optional(first[0]);
         } else {
             return Optional.EMPTY;
         }
@@ -578,59 +607,110 @@ public class Stream {
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     private Optional compare(boolean isMax) {
-        Comparable result = null;
+        Comparable[] result = new Comparable[1];
 
-        if (iterator.hasNext()) {
-            Object obj = iterator.next();
-            if ((obj instanceof Comparable)) {
-                result = (Comparable) obj;
-            } else {
+        evaluate(obj -> {
+            if (!(obj instanceof Comparable)) {
                 throw new ELException(MessageFactory.get("stream.compare.notComparable"));
             }
-        }
-
-        while (iterator.hasNext()) {
-            Object obj = iterator.next();
-            if ((obj instanceof Comparable)) {
-                if (isMax && ((Comparable) obj).compareTo(result) > 0) {
-                    result = (Comparable) obj;
-                } else if (!isMax && ((Comparable) obj).compareTo(result) < 0) {
-                    result = (Comparable) obj;
-                }
-            } else {
-                throw new ELException(MessageFactory.get("stream.compare.notComparable"));
+            if (result[0] == null) {
+                result[0] = (Comparable) obj;
+            } else if (isMax && ((Comparable) obj).compareTo(result[0]) > 0) {
+                result[0] = (Comparable) obj;
+            } else if (!isMax && ((Comparable) obj).compareTo(result[0]) < 0) {
+                result[0] = (Comparable) obj;
             }
-        }
+        });
 
-        if (result == null) {
+        if (result[0] == null) {
             return Optional.EMPTY;
         } else {
-            return new Optional(result);
+            return new Optional(result[0]);
         }
     }
 
 
     private Optional compare(boolean isMax, LambdaExpression le) {
-        Object result = null;
+        Object[] result = new Object[1];
+        boolean[] first = new boolean[] { true };
+
+        evaluate(obj -> {
+            if (first[0]) {
+                result[0] = obj;
+                first[0] = false;
+            } else if (isMax &&
+                    ELSupport.coerceToNumber(null, le.invoke(obj, result[0]), Integer.class).intValue() > 0) {
+                result[0] = obj;
+            } else if (!isMax &&
+                    ELSupport.coerceToNumber(null, le.invoke(obj, result[0]), Integer.class).intValue() < 0) {
+                result[0] = obj;
+            }
+        });
 
-        if (iterator.hasNext()) {
-            result = iterator.next();
+        if (result[0] == null) {
+            return Optional.EMPTY;
+        } else {
+            return new Optional(result[0]);
         }
+    }
 
-        while (iterator.hasNext()) {
-            Object obj = iterator.next();
-            if (isMax && ELSupport.coerceToNumber(null, le.invoke(obj, result), Integer.class).intValue() > 0) {
-                result = obj;
-            } else if (!isMax && ELSupport.coerceToNumber(null, le.invoke(obj, result), Integer.class).intValue() < 0) {
-                result = obj;
+
+    /*
+     * Pushes the elements of the source through the operations of this stream
+     * to the given terminal sink.
+     */
+    private void evaluate(Sink terminal) {
+        evaluate(terminal, true);
+    }
+
+
+    private void evaluate(Sink terminal, boolean allowParallel) {
+        int start = 0;
+        List<?> source = list;
+        if (allowParallel && parallel && list != null && context != null && list.size() >= PARALLEL_THRESHOLD &&
+                ForkJoinPool.getCommonPoolParallelism() > 1) {
+            while (start < ops.length && ops[start].stateless) {
+                start++;
+            }
+            if (start > 0) {
+                // Make sure the shared import handler exists before it is used concurrently
+                context.getImportHandler();
+                source = ForkJoinPool.commonPool().invoke(new ParallelTask(this, start, 0, list.size(),
+                        Math.max(list.size() / (ForkJoinPool.getCommonPoolParallelism() * 4), 64),
+                        Thread.currentThread().getContextClassLoader()));
             }
         }
 
-        if (result == null) {
-            return Optional.EMPTY;
+        Sink sink = wrap(start, ops.length, terminal, null);
+        sink.begin();
+        if (source != null) {
+            int size = source.size();
+            for (int i = 0; i < size && !sink.isDone(); i++) {
+                sink.accept(source.get(i));
+            }
         } else {
-            return new Optional(result);
+            while (!sink.isDone() && iterator.hasNext()) {
+                sink.accept(iterator.next());
+            }
+        }
+        sink.end();
+    }
+
+
+    private Sink wrap(int start, int end, Sink terminal, ELContext ctx) {
+        Sink sink = terminal;
+        for (int i = end - 1; i >= start; i--) {
+            sink = ops[i].wrap(sink, ctx);
+        }
+        return sink;
+    }
+
+
+    private static Object invoke(LambdaExpression le, ELContext ctx, Object obj) {
+        if (ctx == null) {
+            return le.invoke(obj);
         }
+        return le.invoke(ctx, obj);
     }
 
 
@@ -642,39 +722,344 @@ public class Stream {
     }
 
 
-    private abstract static class OpIterator implements Iterator<Object> {
-        protected boolean foundNext = false;
-        protected Object next;
+    /*
+     * An intermediate operation. Operations are stateless if each element can
+     * be processed independently of all the other elements.
+     */
+    private abstract static class Op {
+
+        private final boolean stateless;
+
+        Op(boolean stateless) {
+            this.stateless = stateless;
+        }
+
+        /*
+         * The context is used to invoke lambda expressions. If null, the
+         * context of the lambda expression is used.
+         */
+        abstract Sink wrap(Sink downstream, ELContext ctx);
+    }
+
+
+    /*
+     * Receives the elements of a stream.
+     */
+    private interface Sink {
+
+        default void begin() {
+        }
+
+        void accept(Object obj);
+
+        default void end() {
+        }
+
+        /*
+         * Returns true if no more elements are required.
+         */
+        default boolean isDone() {
+            return false;
+        }
+    }
+
+
+    private abstract static class ChainedSink implements Sink {
+
+        protected final Sink downstream;
+
+        ChainedSink(Sink downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void begin() {
+            downstream.begin();
+        }
+
+        @Override
+        public void end() {
+            downstream.end();
+        }
+
+        @Override
+        public boolean isDone() {
+            return downstream.isDone();
+        }
+    }
+
+
+    private static final class SortingSink extends ChainedSink {
+
+        private final Comparator<Object> comparator;
+        private List<Object> elements;
+
+        SortingSink(Sink downstream, Comparator<Object> comparator) {
+            super(downstream);
+            this.comparator = comparator;
+        }
+
+        @Override
+        public void begin() {
+            elements = new ArrayList<>();
+            downstream.begin();
+        }
+
+        @Override
+        public void accept(Object obj) {
+            elements.add(obj);
+        }
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        @Override
+        public void end() {
+            if (comparator == null) {
+                Collections.sort((List) elements);
+            } else {
+                elements.sort(comparator);
+            }
+            for (Object obj : elements) {
+                if (downstream.isDone()) {
+                    break;
+                }
+                downstream.accept(obj);
+            }
+            elements = null;
+            downstream.end();
+        }
+    }
+
+
+    private static final class ReducingSink implements Sink {
+
+        private final LambdaExpression le;
+        private boolean seeded;
+        private Object result;
+
+        ReducingSink(LambdaExpression le, Object seed, boolean seeded) {
+            this.le = le;
+            this.result = seed;
+            this.seeded = seeded;
+        }
+
+        @Override
+        public void accept(Object obj) {
+            if (seeded) {
+                result = le.invoke(result, obj);
+            } else {
+                result = obj;
+                seeded = true;
+            }
+        }
+    }
+
+
+    private static final class SummingSink implements Sink {
+
+        private long count = 0;
+        private Number sum = Long.valueOf(0);
+
+        @Override
+        public void accept(Object obj) {
+            count++;
+            sum = ELArithmetic.add(sum, obj);
+        }
+    }
+
+
+    /*
+     * Evaluates the predicate for each element until it returns the given
+     * value.
+     */
+    private static final class MatchingSink implements Sink {
+
+        private final LambdaExpression le;
+        private final Boolean stopValue;
+        private boolean seen = false;
+        private Boolean match;
+
+        MatchingSink(LambdaExpression le, Boolean stopValue) {
+            this.le = le;
+            this.stopValue = stopValue;
+            this.match = Boolean.valueOf(!stopValue.booleanValue());
+        }
+
+        @Override
+        public void accept(Object obj) {
+            seen = true;
+            match = (Boolean) le.invoke(obj);
+        }
+
+        @Override
+        public boolean isDone() {
+            return match.booleanValue() == stopValue.booleanValue();
+        }
+    }
+
+
+    /*
+     * Pulls elements from the source through the operations one at a time.
+     */
+    private final class PipelineIterator implements Iterator<Object> {
+
+        private final Iterator<?> source;
+        private final List<Object> buffer = new ArrayList<>();
+        private final Sink sink;
+        private int pos = 0;
+        private boolean ended = false;
+
+        PipelineIterator(Iterator<?> source) {
+            this.source = source;
+            sink = wrap(0, ops.length, buffer::add, null);
+            sink.begin();
+        }
 
         @Override
         public boolean hasNext() {
-            if (foundNext) {
-                return true;
+            while (pos == buffer.size()) {
+                buffer.clear();
+                pos = 0;
+                if (ended) {
+                    return false;
+                }
+                if (!sink.isDone() && source.hasNext()) {
+                    sink.accept(source.next());
+                } else {
+                    sink.end();
+                    ended = true;
+                }
             }
-            findNext();
-            return foundNext;
+            return true;
         }
 
         @Override
         public Object next() {
-            if (foundNext) {
-                foundNext = false;
-                return next;
-            }
-            findNext();
-            if (foundNext) {
-                foundNext = false;
-                return next;
-            } else {
+            if (!hasNext()) {
                 throw new NoSuchElementException();
             }
+            return buffer.get(pos++);
         }
 
         @Override
         public void remove() {
             throw new UnsupportedOperationException();
         }
+    }
+
+
+    /*
+     * Evaluates the leading stateless operations for a range of the source
+     * list, splitting the range between tasks until it is small enough.
+     */
+    private static final class ParallelTask extends RecursiveTask<List<Object>> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient Stream stream;
+        private final int opCount;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final transient ClassLoader classLoader;
+
+        ParallelTask(Stream stream, int opCount, int from, int to, int leafSize, ClassLoader classLoader) {
+            this.stream = stream;
+            this.opCount = opCount;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected List<Object> compute() {
+            if (to - from > leafSize) {
+                int mid = (from + to) >>> 1;
+                ParallelTask left = new ParallelTask(stream, opCount, from, mid, leafSize, classLoader);
+                ParallelTask right = new ParallelTask(stream, opCount, mid, to, leafSize, classLoader);
+                left.fork();
+                List<Object> rightResult = right.compute();
+                List<Object> result = left.join();
+                result.addAll(rightResult);
+                return result;
+            }
+
+            Thread currentThread = Thread.currentThread();
+            ClassLoader originalClassLoader = currentThread.getContextClassLoader();
+            currentThread.setContextClassLoader(classLoader);
+            try {
+                List<Object> result = new ArrayList<>();
+                // Lambda scopes are held by the context so each task needs its own
+                Sink sink = stream.wrap(0, opCount, result::add, new ParallelELContext(stream.context));
+                sink.begin();
+                for (int i = from; i < to; i++) {
+                    sink.accept(stream.list.get(i));
+                }
+                sink.end();
+                return result;
+            } finally {
+                currentThread.setContextClassLoader(originalClassLoader);
+            }
+        }
+    }
+
+
+    /*
+     * Context used to invoke lambda expressions in parallel. Lambda arguments
+     * of the enclosing lambda expressions and context objects are read from
+     * the original context. Context objects put by a task, such as the marker
+     * used to resolve identifiers, are held by the task's own context so the
+     * original context is not modified while the parallel tasks run.
+     */
+    private static final class ParallelELContext extends StandardELContext {
+
+        private final ELContext parent;
+
+        private final Map<Class<?>,Object> contextObjects = new HashMap<>();
+
+        ParallelELContext(ELContext parent) {
+            super(parent);
+            this.parent = parent;
+        }
+
+        @Override
+        public boolean isLambdaArgument(String name) {
+            return super.isLambdaArgument(name) || parent.isLambdaArgument(name);
+        }
 
-        protected abstract void findNext();
+        @Override
+        public Object getLambdaArgument(String name) {
+            if (super.isLambdaArgument(name)) {
+                return super.getLambdaArgument(name);
+            }
+            return parent.getLambdaArgument(name);
+        }
+
+        @Override
+        public void putContext(Class<?> key, Object contextObject) {
+            Objects.requireNonNull(key);
+            Objects.requireNonNull(contextObject);
+            contextObjects.put(key, contextObject);
+        }
+
+        @Override
+        public Object getContext(Class<?> key) {
+            Object contextObject = contextObjects.get(Objects.requireNonNull(key));
+            if (contextObject == null) {
+                contextObject = parent.getContext(key);
+            }
+            return contextObject;
+        }
+
+        @Override
+        public ImportHandler getImportHandler() {
+            return parent.getImportHandler();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return parent.getLocale();
+        }
     }
 }
@@ -17,9 +17,10 @@
 package org.apache.el.stream;
 
 import java.lang.reflect.Array;
+import java.util.AbstractList;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
+import java.util.List;
+import java.util.RandomAccess;
 
 import jakarta.el.ELContext;
 import jakarta.el.ELResolver;
@@ -67,7 +68,10 @@ public class StreamELResolverImpl extends ELResolver {
         if ("stream".equals(method) && params.length == 0) {
             if (base.getClass().isArray()) {
                 context.setPropertyResolved(true);
-                return new Stream(new ArrayIterator(base));
+                return new Stream(context, new ArrayView(base));
+            } else if (base instanceof List<?> list && base instanceof RandomAccess) {
+                context.setPropertyResolved(true);
+                return new Stream(context, list);
             } else if (base instanceof Collection) {
                 context.setPropertyResolved(true);
                 @SuppressWarnings("unchecked")
@@ -81,34 +85,27 @@ public class StreamELResolverImpl extends ELResolver {
     }
 
 
-    private static class ArrayIterator implements Iterator<Object> {
+    /*
+     * Fixed size list view of an array of objects or primitives.
+     */
+    private static class ArrayView extends AbstractList<Object> implements RandomAccess {
 
         private final Object base;
         private final int size;
-        private int index = 0;
 
-        ArrayIterator(Object base) {
+        ArrayView(Object base) {
             this.base = base;
             size = Array.getLength(base);
         }
 
         @Override
-        public boolean hasNext() {
-            return size > index;
-        }
-
-        @Override
-        public Object next() {
-            try {
-                return Array.get(base, index++);
-            } catch (ArrayIndexOutOfBoundsException e) {
-                throw new NoSuchElementException();
-            }
+        public Object get(int index) {
+            return Array.get(base, index);
         }
 
         @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+        public int size() {
+            return size;
         }
     }
 }
@@ -71,6 +71,14 @@ public class Constants {
      */
     public static final String XML_BLOCK_EXTERNAL_INIT_PARAM = "org.apache.jasper.XML_BLOCK_EXTERNAL";
 
+    /**
+     * Name of the ServletContext init-param that determines the number of threads used to compile all the JSPs in the
+     * web application in the background when the JSP engine starts. Zero or less disables background compilation.
+     * <p>
+     * This must be kept in sync with org.apache.catalina.Globals
+     */
+    public static final String BACKGROUND_COMPILE_THREADS_INIT_PARAM = "org.apache.jasper.BACKGROUND_COMPILE_THREADS";
+
     /**
      * Name of the ServletContext init-param that determines the JSP factory pool size. Set the value to a positive
      * integer to enable it. The default value is <code>8</code> per thread.
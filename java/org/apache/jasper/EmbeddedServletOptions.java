@@ -221,6 +221,21 @@ public final class EmbeddedServletOptions implements Options {
 
     private String useNonstandardTagOptimizations;
 
+    /**
+     * Directory used to persist compiled JSP pages and tag files.
+     */
+    private File compilationCacheDir = null;
+
+    /**
+     * Should a WatchService be used to detect modifications of JSPs and their dependants?
+     */
+    private boolean useWatchService = false;
+
+    /**
+     * Should text strings be generated as pre-encoded byte arrays?
+     */
+    private boolean genStringAsByteArray = false;
+
     /**
      * Gets the value of the named property from the underlying settings.
      *
@@ -500,6 +515,21 @@ public final class EmbeddedServletOptions implements Options {
         return useNonstandardTagOptimizations;
     }
 
+    @Override
+    public File getCompilationCacheDir() {
+        return compilationCacheDir;
+    }
+
+    @Override
+    public boolean getUseWatchService() {
+        return useWatchService;
+    }
+
+    @Override
+    public boolean genStringAsByteArray() {
+        return genStringAsByteArray;
+    }
+
     /**
      * Create an EmbeddedServletOptions object using data available from ServletConfig and ServletContext.
      *
@@ -664,6 +694,19 @@ public final class EmbeddedServletOptions implements Options {
             }
         }
 
+        String genByteArray = config.getInitParameter("genStringAsByteArray");
+        if (genByteArray != null) {
+            if (genByteArray.equalsIgnoreCase("true")) {
+                genStringAsByteArray = true;
+            } else if (genByteArray.equalsIgnoreCase("false")) {
+                genStringAsByteArray = false;
+            } else {
+                if (log.isWarnEnabled()) {
+                    log.warn(Localizer.getMessage("jsp.warning.genbytearray"));
+                }
+            }
+        }
+
         String errBeanClass = config.getInitParameter("errorOnUseBeanInvalidClassAttribute");
         if (errBeanClass != null) {
             if (errBeanClass.equalsIgnoreCase("true")) {
@@ -687,6 +730,18 @@ public final class EmbeddedServletOptions implements Options {
             this.useNonstandardTagOptimizations = useNonstandardTagOptimizations;
         }
 
+        String compilationCacheDir = config.getInitParameter("compilationCacheDir");
+        if (compilationCacheDir != null) {
+            File dir = new File(compilationCacheDir);
+            if ((dir.isDirectory() || dir.mkdirs()) && dir.canWrite()) {
+                this.compilationCacheDir = dir;
+            } else {
+                if (log.isWarnEnabled()) {
+                    log.warn(Localizer.getMessage("jsp.warning.compilationCacheDir", dir.getAbsolutePath()));
+                }
+            }
+        }
+
         /*
          * scratchdir
          */
@@ -910,6 +965,19 @@ public final class EmbeddedServletOptions implements Options {
             }
         }
 
+        String useWatchService = config.getInitParameter("useWatchService");
+        if (useWatchService != null) {
+            if (useWatchService.equalsIgnoreCase("true")) {
+                this.useWatchService = true;
+            } else if (useWatchService.equalsIgnoreCase("false")) {
+                this.useWatchService = false;
+            } else {
+                if (log.isWarnEnabled()) {
+                    log.warn(Localizer.getMessage("jsp.warning.useWatchService"));
+                }
+            }
+        }
+
         // Set up the global Tag Libraries location cache for this
         // web-application.
         tldCache = TldCache.getInstance(context);
@@ -218,6 +218,8 @@ public class JspC extends Task implements Options {
     protected TrimSpacesOption trimSpaces = TrimSpacesOption.FALSE;
     /** Flag to generate string literals as char arrays. */
     protected boolean genStringAsCharArray = false;
+    /** Flag to generate string literals as pre-encoded byte arrays. */
+    protected boolean genStringAsByteArray = false;
     /** Flag to validate TLD files. */
     protected boolean validateTld;
     /** Flag to validate XML files. */
@@ -756,6 +758,22 @@ public class JspC extends Task implements Options {
         return genStringAsCharArray;
     }
 
+
+    /**
+     * Determines whether text strings are to be generated as text that is encoded to bytes once, for the character set
+     * of the page, rather than every time it is written.
+     *
+     * @param genStringAsByteArray true if text strings are to be pre-encoded, false otherwise
+     */
+    public void setGenStringAsByteArray(boolean genStringAsByteArray) {
+        this.genStringAsByteArray = genStringAsByteArray;
+    }
+
+    @Override
+    public boolean genStringAsByteArray() {
+        return genStringAsByteArray;
+    }
+
     @Override
     public File getScratchDir() {
         return scratchDir;
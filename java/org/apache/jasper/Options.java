@@ -410,6 +410,37 @@ public interface Options {
         return true;
     }
 
+    /**
+     * The directory used to persist compiled JSP pages and tag files so they can be reused after the work directory
+     * has been cleaned, for example on redeployment. The directory may be shared between web applications.
+     *
+     * @return the compilation cache directory or {@code null} if the compilation cache is disabled
+     */
+    default File getCompilationCacheDir() {
+        return null;
+    }
+
+    /**
+     * Should a {@link java.nio.file.WatchService} be used to detect modifications of JSPs and their dependants rather
+     * than checking the last modified time of every file? Dependants that are not available as files, such as TLDs in
+     * JARs, are still checked by last modified time.
+     *
+     * @return {@code true} to use a WatchService, otherwise {@code false}
+     */
+    default boolean getUseWatchService() {
+        return false;
+    }
+
+    /**
+     * Indicates whether text strings are to be generated as text that is encoded to bytes once, for the character set
+     * of the page, rather than every time it is written.
+     *
+     * @return {@code true} if text strings are to be pre-encoded, otherwise {@code false}
+     */
+    default boolean genStringAsByteArray() {
+        return false;
+    }
+
     /**
      * A string containing a comma-separated list of names to which custom tag implementations should be applied.
      * Unknown or unused tag entries are harmless. Generally defined via an init parameter on the JspServlet.
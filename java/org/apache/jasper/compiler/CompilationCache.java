@@ -0,0 +1,446 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.apache.jasper.JspCompilationContext;
+import org.apache.jasper.Options;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.buf.HexUtils;
+
+/**
+ * Persistent cache of the classes generated from JSP pages and tag files. Entries are keyed by a hash of the source of
+ * the JSP page or tag file, the compilation options, the applicable JSP property group, the JVM version and the
+ * server version. Each entry also records the content hash and last modified time of every file the generated code
+ * depends on (included files, tag files and TLDs) and the content hash of every class the compiler loaded while
+ * compiling the generated source. An entry is only used if all of those are unchanged.
+ * <p>
+ * Since entries do not depend on the location of the work directory, they survive the work directory being cleaned
+ * (e.g. on redeployment) and the cache directory may be shared between multiple web applications or multiple Tomcat
+ * instances that deploy the same application.
+ * <p>
+ * Tracking of the classes loaded during compilation is only supported by the JDT compiler. Pages and tag files
+ * compiled with other compilers are not cached.
+ */
+public class CompilationCache {
+
+    private static final String FORMAT_VERSION = "1";
+    private static final String ENTRY_FILE = "entry.properties";
+    private static final String CLASSES_DIR = "classes";
+
+    private static final String DEPENDANT_PREFIX = "dependant.";
+    private static final String CLASS_PREFIX = "class.";
+    private static final String FILE_PREFIX = "file.";
+
+    private static final String MISSING = "-";
+    private static final String SOURCE_LAST_MODIFIED = "-";
+
+    private final Log log = LogFactory.getLog(CompilationCache.class); // must not be static
+
+    private final File cacheDir;
+
+
+    /**
+     * Creates a compilation cache that uses the given directory.
+     *
+     * @param cacheDir The directory in which to store the cache entries
+     */
+    public CompilationCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+
+    /**
+     * Returns the directory used to store the cache entries.
+     *
+     * @return the cache directory
+     */
+    public File getCacheDir() {
+        return cacheDir;
+    }
+
+
+    /**
+     * Calculate the cache key for the JSP page or tag file currently being compiled.
+     *
+     * @param ctxt The compilation context
+     *
+     * @return the cache key or {@code null} if the page or tag file cannot be cached
+     */
+    String getKey(JspCompilationContext ctxt) {
+        if (ctxt.isTagFile() && ctxt.getTagFileJar() != null) {
+            // Tag files packaged in JARs are not cached
+            return null;
+        }
+
+        byte[] source;
+        try (InputStream is = ctxt.getResourceAsStream(ctxt.getJspFile())) {
+            if (is == null) {
+                return null;
+            }
+            source = is.readAllBytes();
+        } catch (IOException ioe) {
+            return null;
+        }
+
+        MessageDigest md = newDigest();
+        update(md, FORMAT_VERSION);
+        update(md, Runtime.version().toString());
+        update(md, ctxt.getServletContext().getServerInfo());
+        update(md, ctxt.getFQCN());
+        update(md, ctxt.getJspFile());
+
+        Options options = ctxt.getOptions();
+        update(md, Boolean.toString(options.getErrorOnUseBeanInvalidClassAttribute()));
+        update(md, Boolean.toString(options.isPoolingEnabled()));
+        update(md, Boolean.toString(options.getMappedFile()));
+        update(md, Boolean.toString(options.getClassDebugInfo()));
+        update(md, Boolean.toString(options.isSmapSuppressed()));
+        update(md, String.valueOf(options.getTrimSpaces()));
+        update(md, options.getCompiler());
+        update(md, options.getCompilerTargetVM());
+        update(md, options.getCompilerSourceVM());
+        update(md, options.getCompilerClassName());
+        update(md, options.getJavaEncoding());
+        update(md, Boolean.toString(options.isXpoweredBy()));
+        update(md, Boolean.toString(options.genStringAsCharArray()));
+        update(md, Boolean.toString(options.genStringAsByteArray()));
+        update(md, Boolean.toString(options.getStrictQuoteEscaping()));
+        update(md, Boolean.toString(options.getQuoteAttributeEL()));
+        update(md, options.getVariableForExpressionFactory());
+        update(md, options.getVariableForInstanceManager());
+        update(md, Boolean.toString(options.getPoolTagsWithExtends()));
+        update(md, Boolean.toString(options.getStrictGetProperty()));
+        update(md, Boolean.toString(options.getStrictWhitespace()));
+        update(md, options.getJspServletBase());
+        update(md, options.getServiceMethodName());
+        update(md, options.getTempVariableNamePrefix());
+        update(md, Boolean.toString(options.getUseInstanceManagerForTags()));
+        update(md, Boolean.toString(options.getGeneratedJavaAddTimestamp()));
+        update(md, options.getUseNonstandardTagOptimizations());
+
+        JspConfig.JspProperty jspProperty = options.getJspConfig().findJspProperty(ctxt.getJspFile());
+        update(md, jspProperty.isXml());
+        update(md, jspProperty.isELIgnored());
+        update(md, jspProperty.getErrorOnELNotFound());
+        update(md, jspProperty.isScriptingInvalid());
+        update(md, jspProperty.getPageEncoding());
+        update(md, String.valueOf(jspProperty.getIncludePrelude()));
+        update(md, String.valueOf(jspProperty.getIncludeCoda()));
+        update(md, jspProperty.isDeferedSyntaxAllowedAsLiteral());
+        update(md, jspProperty.isTrimDirectiveWhitespaces());
+        update(md, jspProperty.getDefaultContentType());
+        update(md, jspProperty.getBuffer());
+        update(md, jspProperty.isErrorOnUndeclaredNamespace());
+
+        md.update(source);
+        return HexUtils.toHexString(md.digest());
+    }
+
+
+    /**
+     * Restore the classes for the JSP page or tag file currently being compiled from the cache entry with the given
+     * key, if such an entry exists and is still valid.
+     *
+     * @param key             The cache key
+     * @param compiler        The compiler for the page or tag file
+     * @param jspLastModified The last modified time of the JSP page or tag file
+     *
+     * @return {@code true} if the classes were restored, otherwise {@code false}
+     */
+    boolean restore(String key, Compiler compiler, long jspLastModified) {
+        File entryDir = getEntryDir(key);
+        File entryFile = new File(entryDir, ENTRY_FILE);
+        if (!entryFile.isFile()) {
+            return false;
+        }
+
+        JspCompilationContext ctxt = compiler.getCompilationContext();
+        try {
+            Properties entry = new Properties();
+            try (InputStream is = Files.newInputStream(entryFile.toPath())) {
+                entry.load(is);
+            }
+
+            Path scratchDir = ctxt.getOptions().getScratchDir().toPath().toAbsolutePath().normalize();
+            Path classesDir = new File(entryDir, CLASSES_DIR).toPath().toAbsolutePath().normalize();
+            List<String> files = new ArrayList<>();
+            for (String name : entry.stringPropertyNames()) {
+                String value = entry.getProperty(name);
+                if (name.startsWith(DEPENDANT_PREFIX)) {
+                    if (!isDependantValid(compiler, name.substring(DEPENDANT_PREFIX.length()), value)) {
+                        return false;
+                    }
+                } else if (name.startsWith(CLASS_PREFIX)) {
+                    String className = name.substring(CLASS_PREFIX.length());
+                    if (!value.equals(hashClass(ctxt.getJspLoader(), className))) {
+                        if (log.isDebugEnabled()) {
+                            log.debug(Localizer.getMessage("jsp.message.compilationCache.changed", key, className));
+                        }
+                        return false;
+                    }
+                } else if (name.startsWith(FILE_PREFIX)) {
+                    String file = name.substring(FILE_PREFIX.length());
+                    // The entry may have been modified. Never write outside of the scratch directory.
+                    if (!isContained(scratchDir, file) || !isContained(classesDir, file)) {
+                        log.warn(Localizer.getMessage("jsp.warning.compilationCache.invalidFile", key, file));
+                        return false;
+                    }
+                    files.add(file);
+                }
+            }
+
+            ctxt.checkOutputDir();
+            for (String file : files) {
+                File source = classesDir.resolve(file).normalize().toFile();
+                File target = scratchDir.resolve(file).normalize().toFile();
+                File targetDir = target.getParentFile();
+                if (!targetDir.isDirectory() && !targetDir.mkdirs() && !targetDir.isDirectory()) {
+                    throw new IOException(Localizer.getMessage("jsp.error.compilationCache.mkdir", targetDir));
+                }
+                Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                String lastModified = entry.getProperty(FILE_PREFIX + file);
+                long targetLastModified =
+                        SOURCE_LAST_MODIFIED.equals(lastModified) ? jspLastModified : Long.parseLong(lastModified);
+                if (!target.setLastModified(targetLastModified)) {
+                    throw new IOException(Localizer.getMessage("jsp.error.setLastModified", target));
+                }
+            }
+        } catch (Exception e) {
+            // The entry may have been replaced concurrently. The page will be compiled.
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.message.compilationCache.restoreFail", key, ctxt.getJspFile()), e);
+            }
+            return false;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug(Localizer.getMessage("jsp.message.compilationCache.hit", key, ctxt.getJspFile()));
+        }
+        return true;
+    }
+
+
+    /**
+     * Store the classes generated for the JSP page or tag file that has just been compiled.
+     *
+     * @param key               The cache key
+     * @param compiler          The compiler for the page or tag file
+     * @param dependants        The files the generated code depends on and their last modified times
+     * @param classDependencies The classes loaded by the compiler and the hashes of their content or {@code null} if
+     *                              the class was not found
+     */
+    void store(String key, Compiler compiler, Map<String,Long> dependants, Map<String,String> classDependencies) {
+        JspCompilationContext ctxt = compiler.getCompilationContext();
+        File tempDir = new File(cacheDir, key + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Map<String,String> entry = new TreeMap<>();
+            for (Map.Entry<String,Long> dependant : dependants.entrySet()) {
+                byte[] content = compiler.readDependant(dependant.getKey());
+                String value = dependant.getValue().toString();
+                if (content != null) {
+                    value = value + ":" + hash(content);
+                }
+                entry.put(DEPENDANT_PREFIX + dependant.getKey(), value);
+            }
+
+            File scratchDir = ctxt.getOptions().getScratchDir();
+            File classesDir = new File(tempDir, CLASSES_DIR);
+            addClassFiles(entry, scratchDir, classesDir, ctxt.getFQCN(), true);
+
+            String generatedPackagePrefix = ctxt.getBasePackageName() + '.';
+            for (Map.Entry<String,String> classDependency : classDependencies.entrySet()) {
+                String className = classDependency.getKey();
+                if (className.startsWith(generatedPackagePrefix) && classDependency.getValue() != null) {
+                    // Generated classes (e.g. from tag files) are stored with the entry
+                    addClassFiles(entry, scratchDir, classesDir, className, false);
+                } else {
+                    entry.put(CLASS_PREFIX + className,
+                            classDependency.getValue() == null ? MISSING : classDependency.getValue());
+                }
+            }
+
+            Properties properties = new Properties();
+            properties.putAll(entry);
+            try (OutputStream os = Files.newOutputStream(new File(tempDir, ENTRY_FILE).toPath())) {
+                properties.store(os, ctxt.getJspFile());
+            }
+
+            File entryDir = getEntryDir(key);
+            File parentDir = entryDir.getParentFile();
+            if (!parentDir.isDirectory() && !parentDir.mkdirs() && !parentDir.isDirectory()) {
+                throw new IOException(Localizer.getMessage("jsp.error.compilationCache.mkdir", parentDir));
+            }
+            if (entryDir.exists()) {
+                // The existing entry is no longer valid
+                deleteDirectory(entryDir);
+            }
+            try {
+                Files.move(tempDir.toPath(), entryDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempDir.toPath(), entryDir.toPath());
+            }
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Another thread or process stored the same entry concurrently
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.warning.compilationCache.store", key, ctxt.getJspFile()), e);
+            }
+        } catch (Exception e) {
+            log.warn(Localizer.getMessage("jsp.warning.compilationCache.store", key, ctxt.getJspFile()), e);
+        } finally {
+            if (tempDir.exists()) {
+                try {
+                    deleteDirectory(tempDir);
+                } catch (IOException ioe) {
+                    log.warn(Localizer.getMessage("jsp.warning.compilationCache.delete", tempDir), ioe);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Calculate the hash of the given class as seen by the compiler.
+     *
+     * @param loader    The class loader used by the compiler
+     * @param className The fully qualified class name
+     *
+     * @return the hash of the class file or {@code null} if the class was not found
+     *
+     * @throws IOException If the class cannot be read
+     */
+    static String hashClass(ClassLoader loader, String className) throws IOException {
+        try (InputStream is = loader.getResourceAsStream(className.replace('.', '/') + ".class")) {
+            if (is == null) {
+                return MISSING;
+            }
+            return hash(is.readAllBytes());
+        }
+    }
+
+
+    static String hash(byte[] content) {
+        return HexUtils.toHexString(newDigest().digest(content));
+    }
+
+
+    private boolean isDependantValid(Compiler compiler, String dependant, String value) throws Exception {
+        int colon = value.indexOf(':');
+        long lastModified = Long.parseLong(colon < 0 ? value : value.substring(0, colon));
+        // The last modified time is included in the generated code so it must not change
+        Long currentLastModified = compiler.getDependantLastModified(dependant);
+        if (currentLastModified == null || currentLastModified.longValue() != lastModified) {
+            return false;
+        }
+        if (colon > -1) {
+            byte[] content = compiler.readDependant(dependant);
+            return content != null && value.substring(colon + 1).equals(hash(content));
+        }
+        return true;
+    }
+
+
+    /*
+     * Copies the class file for the given class and any nested classes to the cache entry.
+     */
+    private void addClassFiles(Map<String,String> entry, File scratchDir, File classesDir, String className,
+            boolean useSourceLastModified) throws IOException {
+        String path = className.replace('.', '/');
+        int slash = path.lastIndexOf('/');
+        String dir = slash < 0 ? "" : path.substring(0, slash + 1);
+        String simpleName = path.substring(slash + 1);
+
+        File[] classFiles = new File(scratchDir, dir).listFiles((d, name) -> name.endsWith(".class") &&
+                (name.equals(simpleName + ".class") || name.startsWith(simpleName + "$")));
+        if (classFiles == null || classFiles.length == 0) {
+            throw new IOException(Localizer.getMessage("jsp.error.compilationCache.noClass", className));
+        }
+        for (File classFile : classFiles) {
+            String file = dir + classFile.getName();
+            File target = new File(classesDir, file);
+            File targetDir = target.getParentFile();
+            if (!targetDir.isDirectory() && !targetDir.mkdirs() && !targetDir.isDirectory()) {
+                throw new IOException(Localizer.getMessage("jsp.error.compilationCache.mkdir", targetDir));
+            }
+            Files.copy(classFile.toPath(), target.toPath());
+            entry.put(FILE_PREFIX + file,
+                    useSourceLastModified ? SOURCE_LAST_MODIFIED : Long.toString(classFile.lastModified()));
+        }
+    }
+
+
+    private static boolean isContained(Path dir, String file) {
+        Path path = dir.resolve(file).normalize();
+        return path.startsWith(dir) && !path.equals(dir);
+    }
+
+
+    private static void deleteDirectory(File dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir.toPath())) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+
+    private File getEntryDir(String key) {
+        // Spread the entries over sub-directories to avoid very large directories
+        return new File(new File(cacheDir, key.substring(0, 2)), key);
+    }
+
+
+    private static void update(MessageDigest md, String value) {
+        if (value != null) {
+            md.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separator so adjacent values cannot be confused
+        md.update((byte) 0);
+    }
+
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -19,12 +19,19 @@ package org.apache.jasper.compiler;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.JarURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -90,6 +97,12 @@ public abstract class Compiler {
      */
     protected Node.Nodes pageNodes;
 
+    /*
+     * The classes loaded while compiling the generated source and the hashes of their content. Only populated when the
+     * compilation cache is enabled.
+     */
+    private Map<String,String> classDependencies;
+
 
     // ------------------------------------------------------------ Constructor
 
@@ -397,14 +410,35 @@ public abstract class Compiler {
             this.errDispatcher = new ErrorDispatcher(jspcMode);
         }
 
+        if (jsw != null) {
+            // The dependants may change so they need to be watched again
+            jsw.compiling();
+        }
+
         try {
             final Long jspLastModified = ctxt.getLastModified(ctxt.getJspFile());
+
+            CompilationCache compilationCache = ctxt.getRuntimeContext().getCompilationCache();
+            String cacheKey = null;
+            if (compileClass && compilationCache != null && isClassDependencyTrackingSupported()) {
+                cacheKey = compilationCache.getKey(ctxt);
+                if (cacheKey != null && compilationCache.restore(cacheKey, this, jspLastModified.longValue())) {
+                    if (jsw != null) {
+                        jsw.setServletClassLastModifiedTime(jspLastModified.longValue());
+                    }
+                    return;
+                }
+            }
+
             Map<String,SmapStratum> smaps = generateJava();
             File javaFile = new File(ctxt.getServletJavaFileName());
             if (!javaFile.setLastModified(jspLastModified.longValue())) {
                 throw new JasperException(Localizer.getMessage("jsp.error.setLastModified", javaFile));
             }
             if (compileClass) {
+                if (cacheKey != null) {
+                    classDependencies = new HashMap<>();
+                }
                 generateClass(smaps);
                 // Fix for bugzilla 41606
                 // Set JspServletWrapper.servletClassLastModifiedTime after successful compile
@@ -416,6 +450,9 @@ public abstract class Compiler {
                     if (jsw != null) {
                         jsw.setServletClassLastModifiedTime(jspLastModified.longValue());
                     }
+                    if (cacheKey != null) {
+                        compilationCache.store(cacheKey, this, pageInfo.getDependants(), classDependencies);
+                    }
                 }
             }
         } finally {
@@ -430,6 +467,7 @@ public abstract class Compiler {
             errDispatcher = null;
             pageInfo = null;
             pageNodes = null;
+            classDependencies = null;
 
             if (ctxt.getWriter() != null) {
                 ctxt.getWriter().close();
@@ -438,6 +476,37 @@ public abstract class Compiler {
         }
     }
 
+    /**
+     * Does this compiler report the classes it loads while compiling the generated source via
+     * {@link #addClassDependency(String, byte[])}? Only compilers that do can use the compilation cache.
+     *
+     * @return {@code true} if class dependencies are reported, otherwise {@code false}
+     */
+    protected boolean isClassDependencyTrackingSupported() {
+        return false;
+    }
+
+    /**
+     * Record a class that was loaded, or looked for but not found, while compiling the generated source. Classes
+     * provided by the JRE or by the JSP and EL implementations are not recorded as changes to those are covered by
+     * the JVM and server versions that form part of the cache key.
+     *
+     * @param className  The fully qualified class name
+     * @param classBytes The content of the class file or {@code null} if the class was not found
+     */
+    protected void addClassDependency(String className, byte[] classBytes) {
+        if (classDependencies == null || classDependencies.containsKey(className) ||
+                className.startsWith("jakarta.servlet.") || className.startsWith("jakarta.el.") ||
+                className.startsWith("org.apache.jasper.")) {
+            return;
+        }
+        if (classBytes != null &&
+                ClassLoader.getPlatformClassLoader().getResource(className.replace('.', '/') + ".class") != null) {
+            return;
+        }
+        classDependencies.put(className, classBytes == null ? null : CompilationCache.hash(classBytes));
+    }
+
     /**
      * This is a protected method intended to be overridden by subclasses of Compiler. This is used by the compile
      * method to do all the compilation.
@@ -450,8 +519,9 @@ public abstract class Compiler {
 
     /**
      * Determine if a compilation is necessary by checking the time stamp of the JSP page with that of the corresponding
-     * .class or .java file. If the page has dependencies, the check is also extended to its dependents, and so on. This
-     * method can be overridden by a subclasses of Compiler.
+     * .class or .java file. If the page has dependencies, the check is also extended to its dependents, and so on. If
+     * a {@link JspFileWatcher} is in use, the time stamps of files that are being watched are only checked again once
+     * the watcher has reported a modification. This method can be overridden by a subclasses of Compiler.
      *
      * @param checkClass If true, check against .class file, if false, check against .java file.
      *
@@ -459,13 +529,25 @@ public abstract class Compiler {
      */
     public boolean isOutDated(boolean checkClass) {
 
-        if (jsw != null && (ctxt.getOptions().getModificationTestInterval() > 0)) {
+        JspFileWatcher watcher = null;
+        if (jsw != null && checkClass) {
+            watcher = ctxt.getRuntimeContext().getFileWatcher();
+        }
 
-            if (jsw.getLastModificationTest() + (ctxt.getOptions().getModificationTestInterval() * 1000L) > System
-                    .currentTimeMillis()) {
-                return false;
+        if (watcher != null) {
+            Map<String,Long> polledDependants = jsw.getPolledDependants();
+            if (polledDependants != null) {
+                // The JSP and its other dependants are being watched and
+                // have not been modified since they were last checked.
+                if (polledDependants.isEmpty() || isModificationTestDeferred()) {
+                    return false;
+                }
+                return isOutDated(polledDependants);
             }
-            jsw.setLastModificationTest(System.currentTimeMillis());
+        }
+
+        if (isModificationTestDeferred()) {
+            return false;
         }
 
         // Test the target file first. Unless there is an error checking the
@@ -486,6 +568,15 @@ public abstract class Compiler {
             jsw.setServletClassLastModifiedTime(targetLastModified);
         }
 
+        // Start watching before the last modified times are checked so no
+        // modification can be missed
+        Map<String,Long> depends = null;
+        Map<String,Long> polledDependants = null;
+        if (watcher != null && !jsw.isModificationPending()) {
+            depends = jsw.getDependants();
+            polledDependants = watch(watcher, depends);
+        }
+
         Long jspRealLastModified = ctxt.getLastModified(ctxt.getJspFile());
         if (jspRealLastModified.longValue() < 0) {
             // Something went wrong - assume modification
@@ -505,82 +596,215 @@ public abstract class Compiler {
             return false;
         }
 
-        Map<String,Long> depends = jsw.getDependants();
         if (depends == null) {
-            return false;
+            depends = jsw.getDependants();
+        }
+        if (depends != null && isOutDated(depends)) {
+            return true;
+        }
+
+        if (polledDependants != null) {
+            jsw.setPolledDependants(polledDependants);
+            if (jsw.isModificationPending()) {
+                // Modified while the last modified times were being checked
+                jsw.setPolledDependants(null);
+            }
+        }
+
+        return false;
+
+    }
+
+    private boolean isModificationTestDeferred() {
+        if (jsw != null && (ctxt.getOptions().getModificationTestInterval() > 0)) {
+
+            if (jsw.getLastModificationTest() + (ctxt.getOptions().getModificationTestInterval() * 1000L) > System
+                    .currentTimeMillis()) {
+                return true;
+            }
+            jsw.setLastModificationTest(System.currentTimeMillis());
         }
+        return false;
+    }
 
+    private boolean isOutDated(Map<String,Long> depends) {
         for (Entry<String,Long> include : depends.entrySet()) {
             try {
+                Long includeLastModified = getDependantLastModified(include.getKey());
+                if (includeLastModified == null || includeLastModified.longValue() != include.getValue().longValue()) {
+                    return true;
+                }
+            } catch (Exception e) {
+                if (log.isDebugEnabled()) {
+                    log.debug(Localizer.getMessage("jsp.error.compiler.missingResource"), e);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Registers the JSP and those dependants that are available as files with the watcher. Returns the dependants
+     * that must still be checked by last modified time or null if the JSP cannot be watched.
+     */
+    private Map<String,Long> watch(JspFileWatcher watcher, Map<String,Long> depends) {
+        if (ctxt.isTagFile() && ctxt.getTagFileJar() != null) {
+            return null;
+        }
+        String jspPath = ctxt.getServletContext().getRealPath(ctxt.getJspFile());
+        if (jspPath == null) {
+            return null;
+        }
+
+        List<Path> files = new ArrayList<>();
+        files.add(Paths.get(jspPath).toAbsolutePath().normalize());
+        Map<String,Long> polledDependants = new HashMap<>();
+        if (depends != null) {
+            for (Entry<String,Long> include : depends.entrySet()) {
                 String key = include.getKey();
-                URL includeUrl;
-                long includeLastModified;
-                if (key.startsWith("uri:")) {
-                    // Key is a stable taglib URI used for TLDs in JARs outside
-                    // the web application (avoids baking absolute paths into the
-                    // generated code). Two forms exist:
-                    //   "uri:<taglib-uri>"           – the JAR file itself
-                    //   "uri:<taglib-uri>!/<entry>"  – a TLD entry within the JAR
-                    int bangSlash = key.indexOf("!/");
-                    String tagUri = bangSlash < 0
-                            ? key.substring(4)
-                            : key.substring(4, bangSlash);
-                    TldCache tldCache = ctxt.getOptions().getTldCache();
-                    TldResourcePath tldPath = tldCache.getTldResourcePath(tagUri);
-                    if (tldPath == null) {
-                        return true;
-                    }
-                    try (Jar jar = tldPath.openJar()) {
-                        if (jar == null) {
-                            return true;
+                Path path = null;
+                try {
+                    if (key.startsWith("file:")) {
+                        path = Paths.get(new URI(key));
+                    } else if (key.startsWith("/")) {
+                        String realPath = ctxt.getServletContext().getRealPath(key);
+                        if (realPath != null) {
+                            path = Paths.get(realPath);
                         }
-                        if (bangSlash < 0) {
-                            // JAR-level key: check the JAR file's last-modified
-                            includeLastModified = jar.getLastModified();
-                        } else {
-                            // TLD-entry key: check the entry's last-modified within the JAR
-                            String entryName = key.substring(bangSlash + 2);
-                            includeLastModified = jar.getLastModified(entryName);
-                        }
-                    }
-                } else if (key.startsWith("jar:jar:")) {
-                    // Assume we constructed this correctly
-                    int entryStart = key.lastIndexOf("!/");
-                    String entry = key.substring(entryStart + 2);
-                    try (Jar jar = JarFactory.newInstance(new URI(key.substring(4, entryStart)).toURL())) {
-                        includeLastModified = jar.getLastModified(entry);
                     }
+                } catch (Exception e) {
+                    // Check this dependant by last modified time
+                }
+                if (path == null) {
+                    polledDependants.put(key, include.getValue());
                 } else {
-                    if (key.startsWith("jar:") || key.startsWith("file:")) {
-                        includeUrl = new URI(key).toURL();
-                    } else {
-                        includeUrl = ctxt.getResource(include.getKey());
-                    }
-                    if (includeUrl == null) {
-                        return true;
-                    }
-                    try (CloseableURLConnection iuc = new CloseableURLConnection(includeUrl)) {
-                        if (iuc.getConnection() instanceof JarURLConnection) {
-                            includeLastModified = ((JarURLConnection) iuc.getConnection()).getJarEntry().getTime();
-                        } else {
-                            includeLastModified = iuc.getLastModified();
-                        }
-                    }
+                    files.add(path.toAbsolutePath().normalize());
                 }
+            }
+        }
 
-                if (includeLastModified != include.getValue().longValue()) {
-                    return true;
+        if (watcher.watch(jsw, files)) {
+            return polledDependants;
+        }
+        return null;
+    }
+
+    /**
+     * Determine the current last modified time of a dependant recorded in the generated code.
+     *
+     * @param key The dependant as recorded by {@link PageInfo#addDependant(String, Long)}
+     *
+     * @return the last modified time or {@code null} if the dependant could not be found
+     *
+     * @throws Exception If the last modified time cannot be determined
+     */
+    Long getDependantLastModified(String key) throws Exception {
+        if (key.startsWith("uri:")) {
+            // Key is a stable taglib URI used for TLDs in JARs outside
+            // the web application (avoids baking absolute paths into the
+            // generated code). Two forms exist:
+            //   "uri:<taglib-uri>"           – the JAR file itself
+            //   "uri:<taglib-uri>!/<entry>"  – a TLD entry within the JAR
+            int bangSlash = key.indexOf("!/");
+            String tagUri = bangSlash < 0
+                    ? key.substring(4)
+                    : key.substring(4, bangSlash);
+            TldCache tldCache = ctxt.getOptions().getTldCache();
+            TldResourcePath tldPath = tldCache.getTldResourcePath(tagUri);
+            if (tldPath == null) {
+                return null;
+            }
+            try (Jar jar = tldPath.openJar()) {
+                if (jar == null) {
+                    return null;
                 }
-            } catch (Exception e) {
-                if (log.isDebugEnabled()) {
-                    log.debug(Localizer.getMessage("jsp.error.compiler.missingResource"), e);
+                if (bangSlash < 0) {
+                    // JAR-level key: check the JAR file's last-modified
+                    return Long.valueOf(jar.getLastModified());
+                } else {
+                    // TLD-entry key: check the entry's last-modified within the JAR
+                    String entryName = key.substring(bangSlash + 2);
+                    return Long.valueOf(jar.getLastModified(entryName));
+                }
+            }
+        } else if (key.startsWith("jar:jar:")) {
+            // Assume we constructed this correctly
+            int entryStart = key.lastIndexOf("!/");
+            String entry = key.substring(entryStart + 2);
+            try (Jar jar = JarFactory.newInstance(new URI(key.substring(4, entryStart)).toURL())) {
+                return Long.valueOf(jar.getLastModified(entry));
+            }
+        } else {
+            URL includeUrl = getDependantURL(key);
+            if (includeUrl == null) {
+                return null;
+            }
+            try (CloseableURLConnection iuc = new CloseableURLConnection(includeUrl)) {
+                if (iuc.getConnection() instanceof JarURLConnection) {
+                    return Long.valueOf(((JarURLConnection) iuc.getConnection()).getJarEntry().getTime());
+                } else {
+                    return Long.valueOf(iuc.getLastModified());
                 }
-                return true;
             }
         }
+    }
 
-        return false;
+    /**
+     * Read the content of a dependant recorded in the generated code. Dependants that represent a complete JAR are
+     * not read.
+     *
+     * @param key The dependant as recorded by {@link PageInfo#addDependant(String, Long)}
+     *
+     * @return the content of the dependant or {@code null} if the dependant is a JAR or could not be found
+     *
+     * @throws Exception If the dependant cannot be read
+     */
+    byte[] readDependant(String key) throws Exception {
+        if (key.startsWith("uri:")) {
+            int bangSlash = key.indexOf("!/");
+            if (bangSlash < 0) {
+                return null;
+            }
+            TldResourcePath tldPath = ctxt.getOptions().getTldCache().getTldResourcePath(key.substring(4, bangSlash));
+            if (tldPath == null) {
+                return null;
+            }
+            try (Jar jar = tldPath.openJar()) {
+                if (jar == null) {
+                    return null;
+                }
+                return readFully(jar.getInputStream(key.substring(bangSlash + 2)));
+            }
+        } else if (key.startsWith("jar:jar:")) {
+            int entryStart = key.lastIndexOf("!/");
+            try (Jar jar = JarFactory.newInstance(new URI(key.substring(4, entryStart)).toURL())) {
+                return readFully(jar.getInputStream(key.substring(entryStart + 2)));
+            }
+        } else {
+            URL includeUrl = getDependantURL(key);
+            if (includeUrl == null) {
+                return null;
+            }
+            return readFully(includeUrl.openStream());
+        }
+    }
+
+    private URL getDependantURL(String key) throws Exception {
+        if (key.startsWith("jar:") || key.startsWith("file:")) {
+            return new URI(key).toURL();
+        } else {
+            return ctxt.getResource(key);
+        }
+    }
 
+    private static byte[] readFully(InputStream is) throws IOException {
+        if (is == null) {
+            return null;
+        }
+        try (is) {
+            return is.readAllBytes();
+        }
     }
 
     /**
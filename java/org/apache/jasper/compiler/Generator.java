@@ -918,6 +918,34 @@ class Generator {
             textMap = new HashMap<>();
         }
 
+        /**
+         * Returns the character set the page's template text is expected to be written with. This is the character
+         * set from the page's content type. Tag files are written to the response of the invoking page so the
+         * character set is not known when they are compiled.
+         *
+         * @return the character set or {@code null} if it is not known
+         */
+        private String getTemplateTextCharset() {
+            if (isTagFile) {
+                return null;
+            }
+            String contentType = pageInfo.getContentType();
+            int start = contentType == null ? -1 : contentType.indexOf("charset=");
+            if (start == -1) {
+                return null;
+            }
+            String charset = contentType.substring(start + 8);
+            int end = charset.indexOf(';');
+            if (end != -1) {
+                charset = charset.substring(0, end);
+            }
+            charset = charset.trim();
+            if (charset.length() > 1 && charset.startsWith("\"") && charset.endsWith("\"")) {
+                charset = charset.substring(1, charset.length() - 1);
+            }
+            return charset;
+        }
+
         /**
          * Returns an attribute value, optionally URL encoded. If the value is a runtime expression, the result is the
          * expression itself, as a string. If the result is an EL expression, we insert a call to the interpreter. If
@@ -1835,8 +1863,9 @@ class Generator {
                 return;
             }
 
-            if (ctxt.getOptions().genStringAsCharArray()) {
-                // Generate Strings as char arrays, for performance
+            boolean preEncoded = ctxt.getOptions().genStringAsByteArray();
+            if (preEncoded || ctxt.getOptions().genStringAsCharArray()) {
+                // Generate Strings as pre-encoded text or char arrays, for performance
                 ServletWriter caOut;
                 if (charArrayBuffer == null) {
                     charArrayBuffer = new GenBuffer();
@@ -1853,20 +1882,40 @@ class Generator {
                 int textLength = text.length();
                 while (textIndex < textLength) {
                     int len = Math.min(textLength - textIndex, 16384);
+                    if (preEncoded && textIndex + len < textLength &&
+                            Character.isHighSurrogate(text.charAt(textIndex + len - 1))) {
+                        // Don't split a surrogate pair as neither half can be encoded on its own
+                        len--;
+                    }
                     String output = text.substring(textIndex, textIndex + len);
                     String charArrayName = textMap.get(output);
                     if (charArrayName == null) {
-                        charArrayName = "_jspx_char_array_" + charArrayCount++;
+                        if (preEncoded) {
+                            charArrayName = "_jspx_text_" + charArrayCount++;
+                            caOut.printin("static final org.apache.jasper.runtime.PreEncodedText ");
+                            caOut.print(charArrayName);
+                            caOut.print(" = new org.apache.jasper.runtime.PreEncodedText(");
+                            caOut.print(quote(output));
+                            caOut.print(", ");
+                            caOut.print(quote(getTemplateTextCharset()));
+                            caOut.println(");");
+                        } else {
+                            charArrayName = "_jspx_char_array_" + charArrayCount++;
+                            caOut.printin("static char[] ");
+                            caOut.print(charArrayName);
+                            caOut.print(" = ");
+                            caOut.print(quote(output));
+                            caOut.println(".toCharArray();");
+                        }
                         textMap.put(output, charArrayName);
-                        caOut.printin("static char[] ");
-                        caOut.print(charArrayName);
-                        caOut.print(" = ");
-                        caOut.print(quote(output));
-                        caOut.println(".toCharArray();");
                     }
 
                     n.setBeginJavaLine(out.getJavaLine());
-                    out.printil("out.write(" + charArrayName + ");");
+                    if (preEncoded) {
+                        out.printil(charArrayName + ".write(out);");
+                    } else {
+                        out.printil("out.write(" + charArrayName + ");");
+                    }
                     n.setEndJavaLine(out.getJavaLine());
 
                     textIndex = textIndex + len;
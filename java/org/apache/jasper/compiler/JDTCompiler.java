@@ -27,15 +27,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.apache.jasper.JasperException;
 import org.apache.jasper.runtime.ExceptionUtils;
+import org.apache.jasper.servlet.JasperLoader;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.eclipse.jdt.core.compiler.IProblem;
@@ -67,8 +74,21 @@ public class JDTCompiler extends org.apache.jasper.compiler.Compiler {
     public JDTCompiler() {
     }
 
+    /*
+     * Dependencies loaded by previous compilations, keyed by the class loader they were loaded from. Loading and
+     * probing dependencies is a significant part of the cost of compiling a JSP and most JSPs in a web application
+     * share the majority of their dependencies. Soft references are used so the cached dependencies do not prevent
+     * memory being reclaimed once compilation has completed.
+     */
+    private static final Map<ClassLoader,SoftReference<DependencyCache>> dependencyCaches = new WeakHashMap<>();
+
     private final Log log = LogFactory.getLog(JDTCompiler.class); // must not be static
 
+    @Override
+    protected boolean isClassDependencyTrackingSupported() {
+        return true;
+    }
+
     @Override
     protected void generateClass(Map<String,SmapStratum> smaps)
             throws FileNotFoundException, JasperException, Exception {
@@ -84,6 +104,8 @@ public class JDTCompiler extends org.apache.jasper.compiler.Compiler {
         final String targetClassName =
                 ((!packageName.isEmpty()) ? (packageName + ".") : "") + ctxt.getServletClassName();
         final ClassLoader classLoader = ctxt.getJspLoader();
+        final DependencyCache dependencyCache = getDependencyCache(classLoader);
+        final String generatedPackagePrefix = ctxt.getBasePackageName() + '.';
         String[] fileNames = new String[] { sourceFile };
         String[] classNames = new String[] { targetClassName };
         final List<JavacErrorDetail> problemList = new ArrayList<>();
@@ -198,11 +220,31 @@ public class JDTCompiler extends org.apache.jasper.compiler.Compiler {
                     return new NameEnvironmentAnswer(compilationUnit, null);
                 }
 
+                byte[] classBytes;
+                if (isCacheable(className)) {
+                    classBytes = dependencyCache.getClassBytes(className, this::readClassBytes);
+                } else {
+                    classBytes = readClassBytes(className);
+                }
+                addClassDependency(className, classBytes);
+
+                if (classBytes != null) {
+                    try {
+                        char[] fileName = className.toCharArray();
+                        ClassFileReader classFileReader = new ClassFileReader(classBytes, fileName, true);
+                        return new NameEnvironmentAnswer(classFileReader, null);
+                    } catch (ClassFormatException exc) {
+                        log.error(Localizer.getMessage("jsp.error.compilation.dependent", className), exc);
+                    }
+                }
+                return null;
+            }
+
+            private byte[] readClassBytes(String className) {
                 String resourceName = className.replace('.', '/') + ".class";
 
                 try (InputStream is = classLoader.getResourceAsStream(resourceName)) {
                     if (is != null) {
-                        byte[] classBytes;
                         byte[] buf = new byte[8192];
                         ByteArrayOutputStream baos = new ByteArrayOutputStream(buf.length);
                         int count;
@@ -210,21 +252,33 @@ public class JDTCompiler extends org.apache.jasper.compiler.Compiler {
                             baos.write(buf, 0, count);
                         }
                         baos.flush();
-                        classBytes = baos.toByteArray();
-                        char[] fileName = className.toCharArray();
-                        ClassFileReader classFileReader = new ClassFileReader(classBytes, fileName, true);
-                        return new NameEnvironmentAnswer(classFileReader, null);
+                        return baos.toByteArray();
                     }
-                } catch (IOException | ClassFormatException exc) {
+                } catch (IOException exc) {
                     log.error(Localizer.getMessage("jsp.error.compilation.dependent", className), exc);
                 }
                 return null;
             }
 
+            /*
+             * Generated classes may be recompiled at any point so only dependencies loaded via the parent of the JSP
+             * class loader are cached.
+             */
+            private boolean isCacheable(String className) {
+                return dependencyCache != null && !className.startsWith(generatedPackagePrefix);
+            }
+
             private boolean isPackage(String result) {
                 if (result.equals(targetClassName) || result.startsWith(targetClassName + '$')) {
                     return false;
                 }
+                if (isCacheable(result)) {
+                    return dependencyCache.isPackage(result, this::isPackageInternal);
+                }
+                return isPackageInternal(result);
+            }
+
+            private boolean isPackageInternal(String result) {
                 /*
                  * This might look heavy-weight but, with only the ClassLoader API available, trying to load the
                  * resource as a class is the only reliable way found so far to differentiate between a class and a
@@ -559,4 +613,54 @@ public class JDTCompiler extends org.apache.jasper.compiler.Compiler {
             SmapUtil.installSmap(smaps);
         }
     }
+
+
+    private static DependencyCache getDependencyCache(ClassLoader classLoader) {
+        if (!(classLoader instanceof JasperLoader)) {
+            return null;
+        }
+        ClassLoader parent = classLoader.getParent();
+        synchronized (dependencyCaches) {
+            SoftReference<DependencyCache> ref = dependencyCaches.get(parent);
+            DependencyCache result = (ref == null) ? null : ref.get();
+            if (result == null) {
+                result = new DependencyCache();
+                dependencyCaches.put(parent, new SoftReference<>(result));
+            }
+            return result;
+        }
+    }
+
+
+    /*
+     * Only classes and packages that were found are cached. A class or a package that is added to the web application
+     * after it was first looked up has to be found by the next compilation.
+     */
+    private static final class DependencyCache {
+
+        private final Map<String,byte[]> classBytes = new ConcurrentHashMap<>();
+        private final Set<String> packages = ConcurrentHashMap.newKeySet();
+
+        byte[] getClassBytes(String className, Function<String,byte[]> loader) {
+            byte[] result = classBytes.get(className);
+            if (result == null) {
+                result = loader.apply(className);
+                if (result != null) {
+                    classBytes.put(className, result);
+                }
+            }
+            return result;
+        }
+
+        boolean isPackage(String name, Predicate<String> loader) {
+            if (packages.contains(name)) {
+                return true;
+            }
+            if (loader.test(name)) {
+                packages.add(name);
+                return true;
+            }
+            return false;
+        }
+    }
 }
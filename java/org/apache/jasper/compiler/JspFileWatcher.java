@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.compiler;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.jasper.servlet.JspServletWrapper;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+/**
+ * Uses a {@link WatchService} to detect modifications of the files that JSPs and tag files are compiled from. When
+ * one of those files is created, modified or deleted, only the {@link JspServletWrapper}s that depend on that file are
+ * notified via {@link JspServletWrapper#modified()}. The next modification test for those wrappers then checks the
+ * last modified times of all their files. Wrappers that have not been notified skip that check.
+ */
+public final class JspFileWatcher implements Runnable {
+
+    private final Log log = LogFactory.getLog(JspFileWatcher.class); // must not be static
+
+    private final WatchService watchService;
+
+    private final Object lock = new Object();
+
+    /* Guarded by lock */
+    private final Map<Path,WatchKey> watchedDirs = new HashMap<>();
+    private final Map<Path,Set<JspServletWrapper>> wrappersByFile = new HashMap<>();
+    private final Map<JspServletWrapper,Set<Path>> filesByWrapper = new HashMap<>();
+
+
+    /**
+     * Creates a watcher and starts the thread that processes file system events.
+     *
+     * @param threadName The name of the thread that processes file system events
+     *
+     * @throws IOException If the watch service cannot be created
+     */
+    public JspFileWatcher(String threadName) throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        Thread thread = new Thread(this, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+
+    /**
+     * Watch the given files for modifications on behalf of the given wrapper. Any files previously watched for the
+     * wrapper are no longer watched on its behalf.
+     *
+     * @param jsw   The wrapper to notify if one of the files is modified
+     * @param files The files to watch
+     *
+     * @return {@code true} if all the files are being watched, otherwise {@code false} in which case none of the
+     *             files are watched for the wrapper
+     */
+    public boolean watch(JspServletWrapper jsw, Collection<Path> files) {
+        synchronized (lock) {
+            unwatchInternal(jsw);
+            Set<Path> watchedFiles = new HashSet<>();
+            // Track the files as they are added so a failure part way through can be cleaned up
+            filesByWrapper.put(jsw, watchedFiles);
+            for (Path file : files) {
+                Path dir = file.getParent();
+                if (dir == null) {
+                    unwatchInternal(jsw);
+                    return false;
+                }
+                if (!watchedDirs.containsKey(dir)) {
+                    try {
+                        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                        watchedDirs.put(dir, key);
+                    } catch (IOException | ClosedWatchServiceException e) {
+                        if (log.isDebugEnabled()) {
+                            log.debug(Localizer.getMessage("jsp.message.fileWatcher.registerFail", dir), e);
+                        }
+                        unwatchInternal(jsw);
+                        return false;
+                    }
+                }
+                wrappersByFile.computeIfAbsent(file, k -> new HashSet<>()).add(jsw);
+                watchedFiles.add(file);
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Stop watching files on behalf of the given wrapper.
+     *
+     * @param jsw The wrapper that should no longer be notified of modifications
+     */
+    public void unwatch(JspServletWrapper jsw) {
+        synchronized (lock) {
+            unwatchInternal(jsw);
+        }
+    }
+
+
+    /**
+     * Stops processing file system events and releases the associated resources.
+     */
+    public void destroy() {
+        try {
+            watchService.close();
+        } catch (IOException ioe) {
+            log.warn(Localizer.getMessage("jsp.warning.fileWatcher.close"), ioe);
+        }
+        synchronized (lock) {
+            watchedDirs.clear();
+            wrappersByFile.clear();
+            filesByWrapper.clear();
+        }
+    }
+
+
+    @Override
+    public void run() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = (Path) key.watchable();
+            Set<JspServletWrapper> modified = new HashSet<>();
+            synchronized (lock) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events have been lost so any of the files may have changed
+                        modified.addAll(filesByWrapper.keySet());
+                    } else {
+                        Set<JspServletWrapper> wrappers = wrappersByFile.get(dir.resolve((Path) event.context()));
+                        if (wrappers != null) {
+                            modified.addAll(wrappers);
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    // The directory is no longer accessible
+                    watchedDirs.remove(dir);
+                    for (Map.Entry<Path,Set<JspServletWrapper>> entry : wrappersByFile.entrySet()) {
+                        if (dir.equals(entry.getKey().getParent())) {
+                            modified.addAll(entry.getValue());
+                        }
+                    }
+                }
+            }
+
+            for (JspServletWrapper jsw : modified) {
+                if (log.isTraceEnabled()) {
+                    log.trace(Localizer.getMessage("jsp.message.fileWatcher.modified", jsw.getJspUri()));
+                }
+                jsw.modified();
+            }
+        }
+    }
+
+
+    private void unwatchInternal(JspServletWrapper jsw) {
+        Set<Path> files = filesByWrapper.remove(jsw);
+        if (files == null) {
+            return;
+        }
+        for (Path file : files) {
+            Set<JspServletWrapper> wrappers = wrappersByFile.get(file);
+            if (wrappers != null) {
+                wrappers.remove(jsw);
+                if (wrappers.isEmpty()) {
+                    wrappersByFile.remove(file);
+                }
+            }
+        }
+    }
+}
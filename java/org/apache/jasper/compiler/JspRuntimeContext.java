@@ -18,6 +18,7 @@ package org.apache.jasper.compiler;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -92,7 +93,15 @@ public final class JspRuntimeContext {
         parentClassLoader = loader;
         classpath = initClassPath();
 
+        File compilationCacheDir = options.getCompilationCacheDir();
+        if (compilationCacheDir != null) {
+            compilationCache = new CompilationCache(compilationCacheDir);
+        } else {
+            compilationCache = null;
+        }
+
         if (context instanceof org.apache.jasper.servlet.JspCServletContext) {
+            fileWatcher = null;
             return;
         }
 
@@ -113,6 +122,16 @@ public final class JspRuntimeContext {
 
         /* Init parameter is in seconds, locally we use milliseconds */
         jspIdleTimeout = options.getJspIdleTimeout() * 1000L;
+
+        JspFileWatcher watcher = null;
+        if (options.getUseWatchService() && (options.getDevelopment() || lastCompileCheck >= 0)) {
+            try {
+                watcher = new JspFileWatcher("jsp-watch" + context.getContextPath());
+            } catch (IOException ioe) {
+                log.warn(Localizer.getMessage("jsp.warning.fileWatcher.create"), ioe);
+            }
+        }
+        fileWatcher = watcher;
     }
 
     // ----------------------------------------------------- Instance Variables
@@ -124,6 +143,8 @@ public final class JspRuntimeContext {
     private final Options options;
     private final ClassLoader parentClassLoader;
     private final String classpath;
+    private final CompilationCache compilationCache;
+    private final JspFileWatcher fileWatcher;
     private volatile long lastCompileCheck = -1L;
     private volatile long lastJspQueueUpdate = System.currentTimeMillis();
     /* JSP idle timeout in milliseconds */
@@ -180,7 +201,10 @@ public final class JspRuntimeContext {
      * @param jspUri JSP URI of JspServletWrapper to remove
      */
     public void removeWrapper(String jspUri) {
-        jsps.remove(jspUri);
+        JspServletWrapper jsw = jsps.remove(jspUri);
+        if (jsw != null && fileWatcher != null) {
+            fileWatcher.unwatch(jsw);
+        }
     }
 
     /**
@@ -244,6 +268,9 @@ public final class JspRuntimeContext {
      * Process a "destroy" event for this web application context.
      */
     public void destroy() {
+        if (fileWatcher != null) {
+            fileWatcher.destroy();
+        }
         for (JspServletWrapper jspServletWrapper : jsps.values()) {
             jspServletWrapper.destroy();
         }
@@ -389,6 +416,26 @@ public final class JspRuntimeContext {
     }
 
 
+    /**
+     * Returns the watcher used to detect modifications of JSPs and their dependants.
+     *
+     * @return the file watcher or {@code null} if modifications are detected by checking last modified times
+     */
+    public JspFileWatcher getFileWatcher() {
+        return fileWatcher;
+    }
+
+
+    /**
+     * Returns the persistent cache of compiled JSP pages and tag files.
+     *
+     * @return the compilation cache or {@code null} if the cache is not enabled
+     */
+    public CompilationCache getCompilationCache() {
+        return compilationCache;
+    }
+
+
     /**
      * Returns the map of SMAP strata for compiled JSPs.
      *
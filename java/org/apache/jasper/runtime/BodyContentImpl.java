@@ -20,6 +20,7 @@ import java.io.CharArrayReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Arrays;
 
 import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.tagext.BodyContent;
@@ -29,12 +30,37 @@ import org.apache.jasper.compiler.Localizer;
 /**
  * Write text to a character-output stream, buffering characters to provide efficient writing of single characters,
  * arrays, and strings. Provide support for discarding the output that has been buffered.
+ * <p>
+ * The buffer is a list of fixed size segments obtained from a {@link CharSegmentPool} so it never needs to be copied
+ * to grow. When the content is written out to another body content that uses the same pool, the completed segments
+ * are shared with that body content rather than copied.
  */
 public class BodyContentImpl extends BodyContent {
 
+    /*
+     * Flags for completed segments. The owner of a segment is responsible for returning it to the pool. A shared
+     * segment is referenced by more than one body content so it can't be returned to the pool until the page context
+     * is released.
+     */
+    private static final byte OWNED = 1;
+    private static final byte SHARED = 2;
+
     private final boolean limitBuffer;
-    private final int tagBufferSize;
+    private final CharSegmentPool pool;
 
+    /*
+     * The segments that have been filled. Some may be only partially filled if segments from another body content were
+     * appended after them.
+     */
+    private char[][] segments = new char[4][];
+    private int[] segmentLengths = new int[4];
+    private byte[] segmentFlags = new byte[4];
+    private int segmentCount;
+    private int segmentsLength;
+
+    /*
+     * The segment currently being written. It is always owned by this body content and never shared.
+     */
     private char[] cb;
     private int nextChar;
     private boolean closed;
@@ -49,13 +75,17 @@ public class BodyContentImpl extends BodyContent {
      *
      * @param enclosingWriter The wrapped writer
      * @param limitBuffer     <code>true</code> to discard large buffers
-     * @param tagBufferSize   the buffer size
+     * @param tagBufferSize   the size of each buffer segment
      */
     public BodyContentImpl(JspWriter enclosingWriter, boolean limitBuffer, int tagBufferSize) {
+        this(enclosingWriter, limitBuffer, new CharSegmentPool(tagBufferSize));
+    }
+
+    BodyContentImpl(JspWriter enclosingWriter, boolean limitBuffer, CharSegmentPool pool) {
         super(enclosingWriter);
         this.limitBuffer = limitBuffer;
-        this.tagBufferSize = tagBufferSize;
-        cb = new char[tagBufferSize];
+        this.pool = pool;
+        cb = pool.take();
         bufferSize = cb.length;
         nextChar = 0;
         closed = false;
@@ -67,8 +97,8 @@ public class BodyContentImpl extends BodyContent {
             writer.write(c);
         } else {
             ensureOpen();
-            if (nextChar >= bufferSize) {
-                reAllocBuff(1);
+            if (nextChar >= cb.length) {
+                nextSegment();
             }
             cb[nextChar++] = (char) c;
         }
@@ -87,12 +117,7 @@ public class BodyContentImpl extends BodyContent {
                 return;
             }
 
-            if (len >= bufferSize - nextChar) {
-                reAllocBuff(len);
-            }
-
-            System.arraycopy(cbuf, off, cb, nextChar, len);
-            nextChar += len;
+            append(cbuf, off, len);
         }
     }
 
@@ -111,12 +136,17 @@ public class BodyContentImpl extends BodyContent {
             writer.write(s, off, len);
         } else {
             ensureOpen();
-            if (len >= bufferSize - nextChar) {
-                reAllocBuff(len);
+            int b = off;
+            int t = off + len;
+            while (b < t) {
+                if (nextChar >= cb.length) {
+                    nextSegment();
+                }
+                int d = Math.min(cb.length - nextChar, t - b);
+                s.getChars(b, b + d, cb, nextChar);
+                b += d;
+                nextChar += d;
             }
-
-            s.getChars(off, off + len, cb, nextChar);
-            nextChar += len;
         }
     }
 
@@ -286,11 +316,7 @@ public class BodyContentImpl extends BodyContent {
         if (writer != null) {
             throw new IOException();
         } else {
-            nextChar = 0;
-            if (limitBuffer && (cb.length > tagBufferSize)) {
-                cb = new char[tagBufferSize];
-                bufferSize = cb.length;
-            }
+            releaseSegments(false);
         }
     }
 
@@ -321,23 +347,43 @@ public class BodyContentImpl extends BodyContent {
 
     @Override
     public int getRemaining() {
-        return (writer == null) ? bufferSize - nextChar : 0;
+        return (writer == null) ? cb.length - nextChar : 0;
     }
 
     @Override
     public Reader getReader() {
-        return (writer == null) ? new CharArrayReader(cb, 0, nextChar) : null;
+        if (writer != null) {
+            return null;
+        }
+        if (segmentCount == 0) {
+            return new CharArrayReader(cb, 0, nextChar);
+        }
+        return new CharArrayReader(toCharArray());
     }
 
     @Override
     public String getString() {
-        return (writer == null) ? new String(cb, 0, nextChar) : null;
+        if (writer != null) {
+            return null;
+        }
+        if (segmentCount == 0) {
+            return new String(cb, 0, nextChar);
+        }
+        return new String(toCharArray());
     }
 
     @Override
     public void writeOut(Writer out) throws IOException {
         if (writer == null) {
-            out.write(cb, 0, nextChar);
+            if (segmentCount > 0 && out instanceof BodyContentImpl target && target.pool == pool &&
+                    target.writer == null && target != this) {
+                target.appendSegments(this);
+            } else {
+                for (int i = 0; i < segmentCount; i++) {
+                    out.write(segments[i], 0, segmentLengths[i]);
+                }
+                out.write(cb, 0, nextChar);
+            }
             // Flush not called as the writer passed could be a BodyContent, and
             // it doesn't allow to flush.
         }
@@ -365,11 +411,8 @@ public class BodyContentImpl extends BodyContent {
      */
     protected void recycle() {
         this.writer = null;
-        try {
-            this.clear();
-        } catch (IOException ignore) {
-            // ignore
-        }
+        // The page context is being released so no other body content can still be using shared segments
+        releaseSegments(true);
     }
 
     private void ensureOpen() throws IOException {
@@ -378,25 +421,93 @@ public class BodyContentImpl extends BodyContent {
         }
     }
 
+    private void append(char[] cbuf, int off, int len) {
+        int b = off;
+        int t = off + len;
+        while (b < t) {
+            if (nextChar >= cb.length) {
+                nextSegment();
+            }
+            int d = Math.min(cb.length - nextChar, t - b);
+            System.arraycopy(cbuf, b, cb, nextChar, d);
+            b += d;
+            nextChar += d;
+        }
+    }
+
     /**
-     * Reallocates buffer since the spec requires it to be unbounded.
+     * Appends the content of another body content that uses the same pool. The completed segments of the source are
+     * shared rather than copied. Ownership of the shared segments passes to this body content.
      */
-    private void reAllocBuff(int len) {
-
-        if (bufferSize + len <= cb.length) {
-            bufferSize = cb.length;
-            return;
+    private void appendSegments(BodyContentImpl source) throws IOException {
+        ensureOpen();
+        if (nextChar > 0) {
+            nextSegment();
         }
+        for (int i = 0; i < source.segmentCount; i++) {
+            byte flags = source.segmentFlags[i];
+            addSegment(source.segments[i], source.segmentLengths[i], (byte) ((flags & OWNED) | SHARED));
+            source.segmentFlags[i] = SHARED;
+        }
+        bufferSize = segmentsLength + cb.length;
+        // The segment the source is writing to is not shared
+        append(source.cb, 0, source.nextChar);
+    }
+
+    /**
+     * Starts a new segment since the spec requires the buffer to be unbounded.
+     */
+    private void nextSegment() {
+        addSegment(cb, nextChar, OWNED);
+        cb = pool.take();
+        nextChar = 0;
+        bufferSize = segmentsLength + cb.length;
+    }
 
-        if (len < cb.length) {
-            len = cb.length;
+    private void addSegment(char[] segment, int length, byte flags) {
+        if (segmentCount == segments.length) {
+            int newLength = segmentCount * 2;
+            segments = Arrays.copyOf(segments, newLength);
+            segmentLengths = Arrays.copyOf(segmentLengths, newLength);
+            segmentFlags = Arrays.copyOf(segmentFlags, newLength);
         }
+        segments[segmentCount] = segment;
+        segmentLengths[segmentCount] = length;
+        segmentFlags[segmentCount] = flags;
+        segmentCount++;
+        segmentsLength += length;
+    }
 
-        char[] tmp = new char[cb.length + len];
-        System.arraycopy(cb, 0, tmp, 0, cb.length);
-        cb = tmp;
+    /**
+     * Discards the content. Segments that are owned by this body content are returned to the pool unless buffers are
+     * limited or another body content may still be using them.
+     *
+     * @param released {@code true} if the page context is being released so shared segments are no longer in use
+     */
+    private void releaseSegments(boolean released) {
+        for (int i = 0; i < segmentCount; i++) {
+            byte flags = segmentFlags[i];
+            if (!limitBuffer && (flags & OWNED) != 0 && (released || (flags & SHARED) == 0)) {
+                pool.give(segments[i]);
+            }
+            segments[i] = null;
+        }
+        segmentCount = 0;
+        segmentsLength = 0;
+        nextChar = 0;
         bufferSize = cb.length;
     }
 
+    private char[] toCharArray() {
+        char[] result = new char[segmentsLength + nextChar];
+        int pos = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            System.arraycopy(segments[i], 0, result, pos, segmentLengths[i]);
+            pos += segmentLengths[i];
+        }
+        System.arraycopy(cb, 0, result, pos, nextChar);
+        return result;
+    }
+
 
 }
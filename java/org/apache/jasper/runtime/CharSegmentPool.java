@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import org.apache.jasper.Constants;
+
+/**
+ * Pool of the fixed size segments that {@link BodyContentImpl} buffers are built from. Each {@link PageContextImpl}
+ * has its own pool that is shared by the body contents it creates. Page contexts are only used by one thread at a time
+ * so the pool is not thread safe.
+ */
+final class CharSegmentPool {
+
+    /**
+     * The maximum number of free segments retained by a pool.
+     */
+    static final int MAX_POOLED_SEGMENTS = 64;
+
+    private final int segmentSize;
+    private final char[][] segments = new char[MAX_POOLED_SEGMENTS][];
+    private int count;
+
+
+    CharSegmentPool(int segmentSize) {
+        this.segmentSize = segmentSize > 0 ? segmentSize : Constants.DEFAULT_TAG_BUFFER_SIZE;
+    }
+
+
+    /**
+     * Obtain a segment from the pool, creating a new segment if the pool is empty.
+     *
+     * @return a segment
+     */
+    char[] take() {
+        if (count == 0) {
+            return new char[segmentSize];
+        }
+        char[] segment = segments[--count];
+        segments[count] = null;
+        return segment;
+    }
+
+
+    /**
+     * Return a segment to the pool. The caller must ensure no references to the segment remain in use.
+     *
+     * @param segment The segment that is no longer required
+     */
+    void give(char[] segment) {
+        if (count < MAX_POOLED_SEGMENTS && segment.length == segmentSize) {
+            segments[count++] = segment;
+        }
+    }
+}
@@ -19,12 +19,15 @@ package org.apache.jasper.runtime;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.jsp.JspWriter;
 
 import org.apache.jasper.Constants;
 import org.apache.jasper.compiler.Localizer;
+import org.apache.tomcat.util.buf.PreEncodedWriter;
 
 /**
  * Write text to a character-output stream, buffering characters to provide efficient writing of single characters,
@@ -37,6 +40,13 @@ public class JspWriterImpl extends JspWriter {
     private ServletResponse response;
     private char[] cb;
     private int nextChar;
+    /*
+     * Pre-encoded template text is not copied into the buffer. Space is reserved for it in cb at the recorded offset
+     * so the buffer fills and flushes exactly as it would if the characters had been copied.
+     */
+    private PreEncodedText[] encodedTexts = new PreEncodedText[8];
+    private int[] encodedOffsets = new int[8];
+    private int encodedCount;
     private boolean flushed = false;
     private boolean closed = false;
 
@@ -73,6 +83,7 @@ public class JspWriterImpl extends JspWriter {
             cb = new char[sz];
         }
         nextChar = 0;
+        clearEncoded();
         this.autoFlush = autoFlush;
         this.bufferSize = sz;
     }
@@ -85,6 +96,7 @@ public class JspWriterImpl extends JspWriter {
         closed = false;
         out = null;
         nextChar = 0;
+        clearEncoded();
         response = null;
     }
 
@@ -104,8 +116,42 @@ public class JspWriterImpl extends JspWriter {
             return;
         }
         initOut();
-        out.write(cb, 0, nextChar);
+        int start = 0;
+        for (int i = 0; i < encodedCount; i++) {
+            int offset = encodedOffsets[i];
+            if (offset > start) {
+                out.write(cb, start, offset - start);
+            }
+            PreEncodedText text = encodedTexts[i];
+            writeOut(text);
+            start = offset + text.length();
+        }
+        if (nextChar > start) {
+            out.write(cb, start, nextChar - start);
+        }
         nextChar = 0;
+        clearEncoded();
+    }
+
+    private void clearEncoded() {
+        for (int i = 0; i < encodedCount; i++) {
+            encodedTexts[i] = null;
+        }
+        encodedCount = 0;
+    }
+
+    /*
+     * Write the text as bytes if the underlying writer supports it, otherwise as characters.
+     */
+    private void writeOut(PreEncodedText text) throws IOException {
+        if (out instanceof PreEncodedWriter writer) {
+            Charset charset = writer.getCharset();
+            byte[] bytes = text.getBytes(charset);
+            if (bytes != null && writer.writePreEncoded(bytes, 0, bytes.length, charset)) {
+                return;
+            }
+        }
+        out.write(text.getChars(), 0, text.length());
     }
 
     private void initOut() throws IOException {
@@ -134,6 +180,7 @@ public class JspWriterImpl extends JspWriter {
         }
         ensureOpen();
         nextChar = 0;
+        clearEncoded();
     }
 
     @Override
@@ -143,6 +190,7 @@ public class JspWriterImpl extends JspWriter {
         }
         ensureOpen();
         nextChar = 0;
+        clearEncoded();
     }
 
     private void bufferOverflow() throws IOException {
@@ -288,6 +336,63 @@ public class JspWriterImpl extends JspWriter {
     }
 
 
+    /**
+     * Writes template text. Where possible, the text is written to the response as bytes that were encoded when the
+     * text was created rather than as characters that need to be encoded for every response.
+     *
+     * @param text The template text to write
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(PreEncodedText text) throws IOException {
+        ensureOpen();
+        int len = text.length();
+        if (bufferSize == 0) {
+            initOut();
+            writeOut(text);
+            return;
+        }
+
+        if (len == 0) {
+            return;
+        }
+
+        if (len >= bufferSize) {
+            // See write(char[], int, int)
+            if (autoFlush) {
+                flushBuffer();
+            } else {
+                bufferOverflow();
+            }
+            initOut();
+            writeOut(text);
+            return;
+        }
+
+        if (len > bufferSize - nextChar) {
+            // The characters will be split across a flush of the buffer
+            write(text.getChars(), 0, len);
+            return;
+        }
+
+        if (encodedCount == encodedTexts.length) {
+            encodedTexts = Arrays.copyOf(encodedTexts, encodedCount * 2);
+            encodedOffsets = Arrays.copyOf(encodedOffsets, encodedCount * 2);
+        }
+        encodedTexts[encodedCount] = text;
+        encodedOffsets[encodedCount] = nextChar;
+        encodedCount++;
+        nextChar += len;
+        if (nextChar >= bufferSize) {
+            if (autoFlush) {
+                flushBuffer();
+            } else {
+                bufferOverflow();
+            }
+        }
+    }
+
+
     @Override
     public void newLine() throws IOException {
         write(System.lineSeparator());
@@ -79,6 +79,8 @@ public class PageContextImpl extends PageContext {
 
     private int bodyContentTagBufferSize = Constants.DEFAULT_TAG_BUFFER_SIZE;
 
+    private CharSegmentPool bodyContentSegmentPool;
+
     // page-scope attributes
     private final transient HashMap<String,Object> attributes;
 
@@ -503,7 +505,10 @@ public class PageContextImpl extends PageContext {
         depth++;
         if (depth >= outs.length) {
             BodyContentImpl[] newOuts = Arrays.copyOf(outs, depth + 1);
-            newOuts[depth] = new BodyContentImpl(out, limitBodyContentBuffer, bodyContentTagBufferSize);
+            if (bodyContentSegmentPool == null) {
+                bodyContentSegmentPool = new CharSegmentPool(bodyContentTagBufferSize);
+            }
+            newOuts[depth] = new BodyContentImpl(out, limitBodyContentBuffer, bodyContentSegmentPool);
             outs = newOuts;
         }
 
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.jsp.JspException;
+import jakarta.servlet.jsp.tagext.Tag;
+
+/**
+ * Pool of tag handlers that can be reused without acquiring a lock. Each platform thread has its own stack of tag
+ * handlers with a capacity of <code>tagpoolMaxSize</code>. Tag handlers that do not fit in the stack of the current
+ * thread are added to a bounded overflow shared by all threads. The overflow is divided into stripes and each thread
+ * uses the stripe selected by its ID so threads rarely compete for the same entries.
+ * <p>
+ * Virtual threads are typically short-lived and numerous so a per-thread stack would be wasteful. Virtual threads only
+ * use the striped overflow.
+ * <p>
+ * This pool is enabled by setting the <code>tagpoolClassName</code> option to
+ * <code>org.apache.jasper.runtime.PerThreadTagHandlerPool</code>.
+ */
+public class PerThreadTagHandlerPool extends TagHandlerPool {
+
+    private static final int STRIPES;
+
+    static {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors()) {
+            stripes <<= 1;
+        }
+        STRIPES = stripes;
+    }
+
+    private final ThreadLocal<HandlerStack> localStacks = new ThreadLocal<>();
+
+    /*
+     * The per-thread stacks so the tag handlers they contain can be released when this pool is released. Weak
+     * references are used so the stacks of threads that have terminated do not retain tag handlers.
+     */
+    private final Queue<WeakReference<HandlerStack>> stacks = new ConcurrentLinkedQueue<>();
+
+    private int maxSize;
+
+    private AtomicReferenceArray<Tag> overflow;
+
+
+    /**
+     * Constructs a per-thread tag handler pool.
+     */
+    public PerThreadTagHandlerPool() {
+        super();
+    }
+
+
+    @Override
+    protected void init(ServletConfig config) {
+        super.init(config);
+        maxSize = getMaxSize();
+        overflow = new AtomicReferenceArray<>(STRIPES * maxSize);
+    }
+
+
+    @Override
+    public Tag get(Class<? extends Tag> handlerClass) throws JspException {
+        HandlerStack stack = getStack(false);
+        if (stack != null && stack.current >= 0) {
+            Tag handler = stack.handlers[stack.current];
+            stack.handlers[stack.current--] = null;
+            return handler;
+        }
+
+        int start = getStripeStart();
+        for (int i = start; i < start + maxSize; i++) {
+            Tag handler = overflow.get(i);
+            if (handler != null && overflow.compareAndSet(i, handler, null)) {
+                return handler;
+            }
+        }
+
+        return newHandler(handlerClass);
+    }
+
+
+    @Override
+    public void reuse(Tag handler) {
+        HandlerStack stack = getStack(true);
+        if (stack != null && stack.current < (stack.handlers.length - 1)) {
+            stack.handlers[++stack.current] = handler;
+            return;
+        }
+
+        int start = getStripeStart();
+        for (int i = start; i < start + maxSize; i++) {
+            if (overflow.get(i) == null && overflow.compareAndSet(i, null, handler)) {
+                return;
+            }
+        }
+
+        JspRuntimeLibrary.releaseTag(handler, instanceManager);
+    }
+
+
+    /**
+     * Calls the release() method of all available tag handlers in this tag handler pool. This includes the tag
+     * handlers held by the stacks of every platform thread that has used this pool. It is expected that this method is
+     * only called once the pool is no longer in use.
+     */
+    @Override
+    public void release() {
+        WeakReference<HandlerStack> ref;
+        while ((ref = stacks.poll()) != null) {
+            HandlerStack stack = ref.get();
+            if (stack == null) {
+                continue;
+            }
+            for (int i = stack.current; i >= 0; i--) {
+                JspRuntimeLibrary.releaseTag(stack.handlers[i], instanceManager);
+                stack.handlers[i] = null;
+            }
+            stack.current = -1;
+        }
+        localStacks.remove();
+
+        for (int i = 0; i < overflow.length(); i++) {
+            Tag handler = overflow.getAndSet(i, null);
+            if (handler != null) {
+                JspRuntimeLibrary.releaseTag(handler, instanceManager);
+            }
+        }
+    }
+
+
+    private HandlerStack getStack(boolean create) {
+        Thread currentThread = Thread.currentThread();
+        if (maxSize == 0 || currentThread.isVirtual()) {
+            return null;
+        }
+        HandlerStack stack = localStacks.get();
+        if (stack == null && create) {
+            stack = new HandlerStack(maxSize);
+            localStacks.set(stack);
+            stacks.removeIf(r -> r.get() == null);
+            stacks.add(new WeakReference<>(stack));
+        }
+        return stack;
+    }
+
+
+    private int getStripeStart() {
+        long id = Thread.currentThread().threadId();
+        // Spread the bits of sequentially allocated thread IDs
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((hash >>> 16) & (STRIPES - 1)) * maxSize;
+    }
+
+
+    private static final class HandlerStack {
+
+        private final Tag[] handlers;
+
+        private int current = -1;
+
+        HandlerStack(int size) {
+            this.handlers = new Tag[size];
+        }
+    }
+}
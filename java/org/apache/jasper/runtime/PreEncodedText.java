@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import jakarta.servlet.jsp.JspWriter;
+
+/**
+ * Template text that is encoded once, when the generated class is initialised, so it can be written to the response
+ * as bytes without converting the characters on every request. If the response uses a different character set the
+ * text is encoded again for that character set. Only character sets that encode text independently of the text
+ * written before it, such as UTF-8 and single byte character sets, are supported. The characters are always available
+ * for writers that cannot accept bytes, such as {@link jakarta.servlet.jsp.tagext.BodyContent}.
+ */
+public final class PreEncodedText {
+
+    private final char[] chars;
+    /*
+     * Text that starts or ends part way through a surrogate pair is never encoded as it can only be converted in
+     * combination with the adjacent characters.
+     */
+    private final boolean encodable;
+    private volatile Encoded encoded;
+
+
+    /**
+     * Creates template text encoded with the given character set.
+     *
+     * @param text    The template text
+     * @param charset The name of the character set expected to be used for the response. If {@code null} or not
+     *                    supported, the text is encoded when it is first written.
+     */
+    public PreEncodedText(String text, String charset) {
+        chars = text.toCharArray();
+        encodable = chars.length > 0 && !Character.isLowSurrogate(chars[0]) &&
+                !Character.isHighSurrogate(chars[chars.length - 1]);
+        if (encodable && charset != null) {
+            try {
+                getBytes(Charset.forName(charset));
+            } catch (IllegalArgumentException ignore) {
+                // Invalid or unsupported character set. Encode on first use.
+            }
+        }
+    }
+
+
+    /**
+     * Writes the template text to the given writer.
+     *
+     * @param out The writer
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(JspWriter out) throws IOException {
+        if (out instanceof JspWriterImpl writer) {
+            writer.write(this);
+        } else {
+            out.write(chars, 0, chars.length);
+        }
+    }
+
+
+    char[] getChars() {
+        return chars;
+    }
+
+
+    int length() {
+        return chars.length;
+    }
+
+
+    /**
+     * Obtain the template text encoded with the given character set.
+     *
+     * @param charset The character set
+     *
+     * @return the encoded text or {@code null} if the text cannot be encoded separately from the rest of the response
+     */
+    byte[] getBytes(Charset charset) {
+        if (!encodable || charset == null) {
+            return null;
+        }
+        Encoded result = encoded;
+        if (result == null || !result.charset.equals(charset)) {
+            byte[] bytes = null;
+            if (isStateless(charset)) {
+                bytes = new String(chars).getBytes(charset);
+            }
+            result = new Encoded(charset, bytes);
+            encoded = result;
+        }
+        return result.bytes;
+    }
+
+
+    /*
+     * Text can only be encoded separately from the rest of the response if the encoding does not depend on what has
+     * been written before. That rules out character sets that write a byte order mark or use shift sequences. Limit
+     * pre-encoding to character sets that are known to be stateless.
+     */
+    private static boolean isStateless(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1) ||
+                charset.equals(StandardCharsets.US_ASCII) || charset.equals(StandardCharsets.UTF_16BE) ||
+                charset.equals(StandardCharsets.UTF_16LE)) {
+            return true;
+        }
+        // Single byte character sets are stateless
+        return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f;
+    }
+
+
+    private record Encoded(Charset charset, byte[] bytes) {
+    }
+}
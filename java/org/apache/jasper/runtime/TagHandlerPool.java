@@ -146,6 +146,19 @@ public class TagHandlerPool {
 
         // Out of sync block - there is no need for other threads to
         // wait for us to construct a tag for this thread.
+        return newHandler(handlerClass);
+    }
+
+    /**
+     * Instantiates a new tag handler.
+     *
+     * @param handlerClass Tag handler class
+     *
+     * @return Newly instantiated tag handler
+     *
+     * @throws JspException if a tag handler cannot be instantiated
+     */
+    protected Tag newHandler(Class<? extends Tag> handlerClass) throws JspException {
         try {
             if (useInstanceManagerForTags) {
                 return (Tag) instanceManager.newInstance(handlerClass.getName(), handlerClass.getClassLoader());
@@ -178,6 +191,16 @@ public class TagHandlerPool {
         JspRuntimeLibrary.releaseTag(handler, instanceManager);
     }
 
+    /**
+     * Obtain the configured maximum number of tag handlers to pool. Pool implementations are free to interpret this
+     * value as appropriate for their design.
+     *
+     * @return the configured maximum pool size
+     */
+    protected int getMaxSize() {
+        return handlers.length;
+    }
+
     /**
      * Calls the release() method of all available tag handlers in this tag handler pool.
      */
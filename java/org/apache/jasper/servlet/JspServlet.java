@@ -21,6 +21,12 @@ import java.io.IOException;
 import java.io.Serial;
 import java.lang.reflect.Constructor;
 import java.net.MalformedURLException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletConfig;
@@ -30,6 +36,7 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import org.apache.jasper.Constants;
 import org.apache.jasper.EmbeddedServletOptions;
 import org.apache.jasper.Options;
 import org.apache.jasper.compiler.JspRuntimeContext;
@@ -69,6 +76,8 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
      * configuration is translated into an init-param for this servlet.
      */
     private String jspFile;
+    private transient ExecutorService backgroundCompileExecutor;
+    private final transient AtomicInteger backgroundCompileTasks = new AtomicInteger();
 
 
     @Override
@@ -103,7 +112,9 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
             options = new EmbeddedServletOptions(config, context);
         }
         rctxt = new JspRuntimeContext(context, options);
-        if (config.getInitParameter("jspFile") != null) {
+        if (config.getInitParameter("jspFile") == null) {
+            startBackgroundCompile();
+        } else {
             jspFile = config.getInitParameter("jspFile");
             try {
                 if (null == context.getResource(jspFile)) {
@@ -303,6 +314,17 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
             log.trace("JspServlet.destroy()");
         }
 
+        if (backgroundCompileExecutor != null) {
+            backgroundCompileExecutor.shutdownNow();
+            try {
+                if (!backgroundCompileExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    log.warn(Localizer.getMessage("jsp.warning.backgroundCompile.shutdown"));
+                }
+            } catch (InterruptedException ignore) {
+                // Ignore
+            }
+        }
+
         rctxt.destroy();
     }
 
@@ -315,6 +337,97 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
 
     // -------------------------------------------------------- Private Methods
 
+    private void startBackgroundCompile() {
+        String threadsValue = context.getInitParameter(Constants.BACKGROUND_COMPILE_THREADS_INIT_PARAM);
+        if (threadsValue == null) {
+            return;
+        }
+        int threads;
+        try {
+            threads = Integer.parseInt(threadsValue);
+        } catch (NumberFormatException e) {
+            log.warn(Localizer.getMessage("jsp.warning.backgroundCompile.threads", threadsValue));
+            return;
+        }
+        if (threads <= 0) {
+            return;
+        }
+
+        // Threads inherit the context class loader of this thread which is the web application class loader
+        AtomicInteger threadCount = new AtomicInteger();
+        String namePrefix = "jsp-compile" + context.getContextPath().replace('/', '-') + "-";
+        backgroundCompileExecutor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, namePrefix + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        submitBackgroundCompile(() -> backgroundCompile("/"));
+    }
+
+
+    /*
+     * Runs the given task on the background compilation executor. The executor is shut down, and its threads end,
+     * once the last task completes. The walk of the web application submits the compilation of each JSP before it
+     * completes so the executor is not shut down until all the JSPs have been compiled.
+     */
+    private boolean submitBackgroundCompile(Runnable task) {
+        backgroundCompileTasks.incrementAndGet();
+        try {
+            backgroundCompileExecutor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    if (backgroundCompileTasks.decrementAndGet() == 0) {
+                        backgroundCompileExecutor.shutdown();
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // The servlet has been destroyed
+            backgroundCompileTasks.decrementAndGet();
+            return false;
+        }
+    }
+
+
+    private void backgroundCompile(String path) {
+        Set<String> paths = context.getResourcePaths(path);
+        if (paths == null) {
+            return;
+        }
+        for (String childPath : paths) {
+            if (backgroundCompileExecutor.isShutdown()) {
+                return;
+            }
+            if (childPath.endsWith("/")) {
+                backgroundCompile(childPath);
+            } else if (childPath.endsWith(".jsp") || childPath.endsWith(".jspx") ||
+                    options.getJspConfig().isJspPage(childPath)) {
+                if (!submitBackgroundCompile(() -> backgroundCompileJsp(childPath))) {
+                    return;
+                }
+            }
+        }
+    }
+
+
+    private void backgroundCompileJsp(String jspUri) {
+        if (log.isDebugEnabled()) {
+            log.debug(Localizer.getMessage("jsp.message.backgroundCompile", jspUri));
+        }
+        try {
+            serviceJspFile(null, null, jspUri, true);
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            // The error will be reported again if the JSP is requested
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.error.backgroundCompile", jspUri), t);
+            }
+        }
+    }
+
+
     private void serviceJspFile(HttpServletRequest request, HttpServletResponse response, String jspUri,
             boolean precompile) throws ServletException, IOException {
 
@@ -86,6 +86,16 @@ public class JspServletWrapper {
     /* Timestamp of last time servlet resource was modified */
     private volatile long servletClassLastModifiedTime;
     private long lastModificationTest = 0L;
+    /*
+     * Non-null while the JSP and its dependants are watched for modifications by the JspFileWatcher. Contains the
+     * dependants that cannot be watched and must still be checked by last modified time.
+     */
+    private volatile Map<String,Long> polledDependants;
+    /*
+     * Set when the JspFileWatcher reports a modification. Cleared when the JSP is recompiled. The JSP is not watched
+     * again until it has been recompiled since, with caching, the modification may not be visible immediately.
+     */
+    private volatile boolean modificationPending;
     private long lastUsageTime = System.currentTimeMillis();
     private FastRemovalDequeue<JspServletWrapper>.Entry unloadHandle;
     private final boolean unloadAllowed;
@@ -573,6 +583,54 @@ public class JspServletWrapper {
         this.lastModificationTest = lastModificationTest;
     }
 
+    /**
+     * Returns the dependants that must be checked by last modified time while the JSP and its other dependants are
+     * watched for modifications.
+     *
+     * @return the dependants to check or {@code null} if the JSP and its dependants are not being watched
+     */
+    public Map<String,Long> getPolledDependants() {
+        return polledDependants;
+    }
+
+    /**
+     * Sets the dependants that must be checked by last modified time while the JSP and its other dependants are
+     * watched for modifications.
+     *
+     * @param polledDependants The dependants to check or {@code null} if the JSP and its dependants are not being
+     *                             watched
+     */
+    public void setPolledDependants(Map<String,Long> polledDependants) {
+        this.polledDependants = polledDependants;
+    }
+
+    /**
+     * Returns whether a modification of the JSP or one of its dependants has been reported that has not yet resulted
+     * in the JSP being recompiled.
+     *
+     * @return {@code true} if a modification has been reported since the JSP was last compiled
+     */
+    public boolean isModificationPending() {
+        return modificationPending;
+    }
+
+    /**
+     * Notifies this wrapper that the JSP or one of its dependants has been modified. Until the JSP is recompiled, every
+     * modification test will check the last modified times of the JSP and all its dependants.
+     */
+    public void modified() {
+        modificationPending = true;
+        polledDependants = null;
+    }
+
+    /**
+     * Notifies this wrapper that the JSP is being recompiled.
+     */
+    public void compiling() {
+        modificationPending = false;
+        polledDependants = null;
+    }
+
     /**
      * Returns the timestamp of the last usage.
      *
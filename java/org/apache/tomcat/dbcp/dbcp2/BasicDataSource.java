@@ -32,6 +32,8 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 import java.util.stream.Collector;
@@ -259,6 +261,33 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
      */
     private boolean testWhileIdle;
 
+    /**
+     * The indication of whether the pool uses a lock-free deque for idle connections and first offers a thread the
+     * connection it most recently returned.
+     */
+    private boolean threadAffinity = GenericObjectPoolConfig.DEFAULT_THREAD_AFFINITY;
+
+    /**
+     * The indication of whether the limit on the number of connections is adjusted between {@link #adaptiveMinTotal}
+     * and {@link #maxTotal} from the observed wait times, utilization and connection creation times.
+     */
+    private boolean adaptiveSizing = GenericObjectPoolConfig.DEFAULT_ADAPTIVE_SIZING;
+
+    /**
+     * The lowest limit on the number of connections that adaptive sizing may set.
+     */
+    private int adaptiveMinTotal = GenericObjectPoolConfig.DEFAULT_ADAPTIVE_MIN_TOTAL;
+
+    /**
+     * The mean wait time for a connection above which adaptive sizing increases the limit.
+     */
+    private Duration adaptiveTargetWait = GenericObjectPoolConfig.DEFAULT_ADAPTIVE_TARGET_WAIT;
+
+    /**
+     * The interval at which adaptive sizing reviews the limit.
+     */
+    private Duration adaptiveInterval = GenericObjectPoolConfig.DEFAULT_ADAPTIVE_INTERVAL;
+
     /**
      * The connection password to be passed to our JDBC driver to establish a connection.
      */
@@ -354,7 +383,12 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
 
     private AbandonedConfig abandonedConfig;
 
-    private boolean closed;
+    private volatile boolean closed;
+
+    /**
+     * Held while the data source is created, closed or started. The lock is always acquired before the monitor.
+     */
+    private final ReentrantLock lifecycleLock = new ReentrantLock();
 
     /**
      * Actual name under which this component has been registered.
@@ -400,23 +434,32 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
      * @throws SQLException if an error occurs closing idle connections
      */
     @Override
-    public synchronized void close() throws SQLException {
-        if (registeredJmxObjectName != null) {
-            registeredJmxObjectName.unregisterMBean();
-            registeredJmxObjectName = null;
-        }
-        closed = true;
-        final GenericObjectPool<?> oldPool = connectionPool;
-        connectionPool = null;
-        dataSource = null;
+    public void close() throws SQLException {
+        lifecycleLock.lock();
         try {
-            if (oldPool != null) {
-                oldPool.close();
+            final GenericObjectPool<?> oldPool;
+            synchronized (this) {
+                if (registeredJmxObjectName != null) {
+                    registeredJmxObjectName.unregisterMBean();
+                    registeredJmxObjectName = null;
+                }
+                closed = true;
+                oldPool = connectionPool;
+                connectionPool = null;
+                dataSource = null;
             }
-        } catch (final RuntimeException e) {
-            throw e;
-        } catch (final Exception e) {
-            throw new SQLException(Utils.getMessage("pool.close.fail"), e);
+            // Closing the pool closes the idle connections so the monitor is not held
+            try {
+                if (oldPool != null) {
+                    oldPool.close();
+                }
+            } catch (final RuntimeException e) {
+                throw e;
+            } catch (final Exception e) {
+                throw new SQLException(Utils.getMessage("pool.close.fail"), e);
+            }
+        } finally {
+            lifecycleLock.unlock();
         }
     }
 
@@ -469,6 +512,7 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         updateJmxName(config);
         // Disable JMX on the underlying pool if the DS is not registered:
         config.setJmxEnabled(registeredJmxObjectName != null);
+        config.setThreadAffinity(threadAffinity);
         // Set up usage tracking if enabled
         if (getAbandonedUsageTracking() && abandonedConfig != null) {
             abandonedConfig.setUseUsageTracking(true);
@@ -488,6 +532,10 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         gop.setLifo(lifo);
         gop.setSwallowedExceptionListener(new SwallowedExceptionLogger(log, logExpiredConnections));
         gop.setEvictionPolicyClassName(evictionPolicyClassName);
+        gop.setAdaptiveMinTotal(adaptiveMinTotal);
+        gop.setAdaptiveTargetWait(adaptiveTargetWait);
+        gop.setAdaptiveInterval(adaptiveInterval);
+        gop.setAdaptiveSizing(adaptiveSizing);
         factory.setPool(gop);
         connectionPool = gop;
     }
@@ -498,7 +546,7 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
      * @return The current internal DataSource or a newly created instance if it has not yet been created.
      * @throws SQLException if the object pool cannot be created.
      */
-    protected synchronized DataSource createDataSource() throws SQLException {
+    protected DataSource createDataSource() throws SQLException {
         if (closed) {
             throw new SQLException("Data source is closed");
         }
@@ -509,11 +557,22 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         if (dataSource != null) {
             return dataSource;
         }
-        synchronized (this) {
-            if (dataSource != null) {
-                return dataSource;
+        /*
+         * A lock rather than the monitor is held while the pool is created, which opens connections, so that threads
+         * waiting for the pool to be created do not pin their carrier threads.
+         */
+        lifecycleLock.lock();
+        try {
+            // Acquiring the monitor also makes the configuration set via the synchronized setters visible
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("Data source is closed");
+                }
+                if (dataSource != null) {
+                    return dataSource;
+                }
+                jmxRegister();
             }
-            jmxRegister();
 
             // create factory which returns raw physical connections
             final ConnectionFactory driverConnectionFactory = createConnectionFactory();
@@ -542,6 +601,8 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
             }
 
             return dataSource;
+        } finally {
+            lifecycleLock.unlock();
         }
     }
 
@@ -655,6 +716,104 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         return abandonedConfig != null && abandonedConfig.getUseUsageTracking();
     }
 
+    /**
+     * [Read Only] The number of times adaptive sizing has reduced the limit on the number of connections.
+     *
+     * @return the number of decreases
+     * @see GenericObjectPool#getAdaptiveDecreaseCount()
+     */
+    @Override
+    public long getAdaptiveDecreaseCount() {
+        // Copy reference to avoid NPE if close happens after null check
+        final GenericObjectPool<PoolableConnection> pool = connectionPool;
+        return pool == null ? 0 : pool.getAdaptiveDecreaseCount();
+    }
+
+    /**
+     * [Read Only] The number of times adaptive sizing has increased the limit on the number of connections.
+     *
+     * @return the number of increases
+     * @see GenericObjectPool#getAdaptiveIncreaseCount()
+     */
+    @Override
+    public long getAdaptiveIncreaseCount() {
+        // Copy reference to avoid NPE if close happens after null check
+        final GenericObjectPool<PoolableConnection> pool = connectionPool;
+        return pool == null ? 0 : pool.getAdaptiveIncreaseCount();
+    }
+
+    /**
+     * Gets the interval at which adaptive sizing reviews the limit on the number of connections.
+     *
+     * @return the control interval
+     * @see #setAdaptiveInterval(Duration)
+     */
+    public synchronized Duration getAdaptiveInterval() {
+        return this.adaptiveInterval;
+    }
+
+    /**
+     * [Read Only] A description of the last review of the limit on the number of connections made by adaptive sizing,
+     * including the wait time, utilization and connection creation time it was based on.
+     *
+     * @return the last decision or {@code null} if none has been made
+     * @see GenericObjectPool#getAdaptiveLastDecision()
+     */
+    @Override
+    public String getAdaptiveLastDecision() {
+        // Copy reference to avoid NPE if close happens after null check
+        final GenericObjectPool<PoolableConnection> pool = connectionPool;
+        return pool == null ? null : pool.getAdaptiveLastDecision();
+    }
+
+    /**
+     * [Read Only] The current limit on the number of connections. When adaptive sizing is enabled, this is the limit
+     * computed from the observed load, which is never more than {@link #getMaxTotal()}. Otherwise, it is
+     * {@link #getMaxTotal()}.
+     *
+     * @return the current limit, negative if there is no limit
+     * @see GenericObjectPool#getAdaptiveMaxTotal()
+     */
+    @Override
+    public int getAdaptiveMaxTotal() {
+        // Copy reference to avoid NPE if close happens after null check
+        final GenericObjectPool<PoolableConnection> pool = connectionPool;
+        return pool == null ? getMaxTotal() : pool.getAdaptiveMaxTotal();
+    }
+
+    /**
+     * Gets the lowest limit on the number of connections that adaptive sizing may set.
+     *
+     * @return the lower bound of the adaptive limit
+     * @see #setAdaptiveMinTotal(int)
+     */
+    @Override
+    public synchronized int getAdaptiveMinTotal() {
+        return this.adaptiveMinTotal;
+    }
+
+    /**
+     * Gets the {@code adaptiveSizing} property.
+     *
+     * @return true if the limit on the number of connections is adjusted from the observed load
+     * @see #setAdaptiveSizing(boolean)
+     */
+    @Override
+    public synchronized boolean getAdaptiveSizing() {
+        return this.adaptiveSizing;
+    }
+
+    /**
+     * Gets the mean wait time for a connection above which adaptive sizing increases the limit on the number of
+     * connections.
+     *
+     * @return the target wait time
+     * @see #setAdaptiveTargetWait(Duration)
+     */
+    public synchronized Duration getAdaptiveTargetWait() {
+        return this.adaptiveTargetWait;
+    }
+
     /**
      * Gets the value of the flag that controls whether or not connections being returned to the pool will be checked
      * and configured with {@link Connection#setAutoCommit(boolean) Connection.setAutoCommit(true)} if the auto commit
@@ -687,6 +846,32 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         return createDataSource().getConnection();
     }
 
+    /**
+     * Creates (if necessary) the pool and returns a future that completes with a connection to the database. While
+     * the pool is exhausted no thread waits for a connection, the future is completed once a connection is returned
+     * to the pool. Requests are served in arrival order and the future completes exceptionally with a
+     * {@link SQLException} if no connection is available within {@link #getMaxWaitDuration()}.
+     *
+     * @return a future that completes with a database connection
+     * @see PoolingDataSource#getConnectionAsync()
+     */
+    public CompletableFuture<Connection> getConnectionAsync() {
+        final DataSource ds;
+        try {
+            ds = createDataSource();
+        } catch (final SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (ds instanceof PoolingDataSource<?> pds) {
+            return pds.getConnectionAsync();
+        }
+        try {
+            return CompletableFuture.completedFuture(ds.getConnection());
+        } catch (final SQLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     /**
      * <strong>BasicDataSource does NOT support this method.</strong>
      *
@@ -1416,6 +1601,18 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         return this.testWhileIdle;
     }
 
+    /**
+     * Gets the {@code threadAffinity} property.
+     *
+     * @return true if the pool uses a lock-free deque for idle connections and first offers a thread the connection it
+     *         most recently returned
+     * @see #setThreadAffinity(boolean)
+     */
+    @Override
+    public synchronized boolean getThreadAffinity() {
+        return this.threadAffinity;
+    }
+
     /**
      * Gets the value of the {code durationBetweenEvictionRuns} property.
      *
@@ -1666,7 +1863,7 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
     /**
      * Restarts the datasource.
      * <p>
-     * This method calls {@link #close()} and {@link #start()} in sequence within synchronized scope so any
+     * This method calls {@link #close()} and {@link #start()} in sequence while holding a lock so any
      * connection requests that come in while the datasource is shutting down will be served by the new pool.
      * <p>
      * Idle connections that are stored in the connection pool when this method is invoked are closed, but
@@ -1683,9 +1880,14 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
      * @throws SQLException if an error occurs initializing the datasource
      */
     @Override
-    public synchronized void restart() throws SQLException {
-        close();
-        start();
+    public void restart() throws SQLException {
+        lifecycleLock.lock();
+        try {
+            close();
+            start();
+        } finally {
+            lifecycleLock.unlock();
+        }
     }
 
     private <T> void setAbandoned(final BiConsumer<AbandonedConfig, T> consumer, final T object) {
@@ -1735,6 +1937,58 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         this.accessToUnderlyingConnectionAllowed = allow;
     }
 
+    /**
+     * Sets the interval at which adaptive sizing reviews the limit on the number of connections. The review is
+     * performed by the first thread to get a connection, or by the evictor, once the interval has elapsed.
+     *
+     * @param adaptiveInterval the control interval
+     * @see #getAdaptiveInterval()
+     */
+    public synchronized void setAdaptiveInterval(final Duration adaptiveInterval) {
+        this.adaptiveInterval = adaptiveInterval;
+        setConnectionPool(GenericObjectPool::setAdaptiveInterval, adaptiveInterval);
+    }
+
+    /**
+     * Sets the lowest limit on the number of connections that adaptive sizing may set. Values lower than one are
+     * treated as one.
+     *
+     * @param adaptiveMinTotal the lower bound of the adaptive limit
+     * @see #getAdaptiveMinTotal()
+     */
+    public synchronized void setAdaptiveMinTotal(final int adaptiveMinTotal) {
+        this.adaptiveMinTotal = adaptiveMinTotal;
+        setConnectionPool(GenericObjectPool::setAdaptiveMinTotal, Integer.valueOf(adaptiveMinTotal));
+    }
+
+    /**
+     * Sets the {@code adaptiveSizing} property. When true, the limit on the number of connections starts at
+     * {@link #getMaxTotal()} and is reviewed once per {@link #getAdaptiveInterval() interval}. It is increased,
+     * additively, while all the connections it allows are in use and the mean wait for a connection exceeds
+     * {@link #getAdaptiveTargetWait()}. The increase is larger when opening a connection takes less time than the
+     * wait. It is reduced by a quarter, down to {@link #getAdaptiveMinTotal()}, while fewer than half of the
+     * connections it allows are in use.
+     *
+     * @param adaptiveSizing new value for adaptiveSizing property
+     * @see #getAdaptiveSizing()
+     */
+    public synchronized void setAdaptiveSizing(final boolean adaptiveSizing) {
+        this.adaptiveSizing = adaptiveSizing;
+        setConnectionPool(GenericObjectPool::setAdaptiveSizing, Boolean.valueOf(adaptiveSizing));
+    }
+
+    /**
+     * Sets the mean wait time for a connection above which adaptive sizing increases the limit on the number of
+     * connections.
+     *
+     * @param adaptiveTargetWait the target wait time
+     * @see #getAdaptiveTargetWait()
+     */
+    public synchronized void setAdaptiveTargetWait(final Duration adaptiveTargetWait) {
+        this.adaptiveTargetWait = adaptiveTargetWait;
+        setConnectionPool(GenericObjectPool::setAdaptiveTargetWait, adaptiveTargetWait);
+    }
+
     /**
      * Sets the value of the flag that controls whether or not connections being returned to the pool will be checked
      * and configured with {@link Connection#setAutoCommit(boolean) Connection.setAutoCommit(true)} if the auto commit
@@ -2502,6 +2756,23 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
         setConnectionPool(GenericObjectPool::setTestWhileIdle, Boolean.valueOf(testWhileIdle));
     }
 
+    /**
+     * Sets the {@code threadAffinity} property. When true, idle connections are held in a deque that does not lock
+     * when connections are borrowed or returned and a thread getting a connection is first offered the connection it
+     * most recently returned, if that connection is still idle. This reduces contention when many threads use the
+     * pool concurrently.
+     * <p>
+     * Note: this method currently has no effect once the pool has been initialized. The pool is initialized the first
+     * time one of the following methods is invoked: {@link #getConnection()}, {@link #setLogWriter(PrintWriter)},
+     * {@link #setLoginTimeout(int)}, {@link #getLoginTimeout()}, {@link #getLogWriter()}.
+     * </p>
+     *
+     * @param threadAffinity new value for threadAffinity property
+     */
+    public synchronized void setThreadAffinity(final boolean threadAffinity) {
+        this.threadAffinity = threadAffinity;
+    }
+
     /**
      * Sets the {code durationBetweenEvictionRuns} property.
      *
@@ -2607,9 +2878,14 @@ public class BasicDataSource implements DataSource, BasicDataSourceMXBean, MBean
      * @throws SQLException if an error occurs initializing the datasource
      */
     @Override
-    public synchronized void start() throws SQLException {
-        closed = false;
-        createDataSource();
+    public void start() throws SQLException {
+        lifecycleLock.lock();
+        try {
+            closed = false;
+            createDataSource();
+        } finally {
+            lifecycleLock.unlock();
+        }
     }
 
     /**
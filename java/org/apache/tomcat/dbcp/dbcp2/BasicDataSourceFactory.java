@@ -85,6 +85,11 @@ public class BasicDataSourceFactory implements ObjectFactory {
     private static final String PROP_SOFT_MIN_EVICTABLE_IDLE_TIME_MILLIS = "softMinEvictableIdleTimeMillis";
     private static final String PROP_EVICTION_POLICY_CLASS_NAME = "evictionPolicyClassName";
     private static final String PROP_TEST_WHILE_IDLE = "testWhileIdle";
+    private static final String PROP_THREAD_AFFINITY = "threadAffinity";
+    private static final String PROP_ADAPTIVE_SIZING = "adaptiveSizing";
+    private static final String PROP_ADAPTIVE_MIN_TOTAL = "adaptiveMinTotal";
+    private static final String PROP_ADAPTIVE_TARGET_WAIT_MILLIS = "adaptiveTargetWaitMillis";
+    private static final String PROP_ADAPTIVE_INTERVAL_MILLIS = "adaptiveIntervalMillis";
     private static final String PROP_PASSWORD = Constants.KEY_PASSWORD;
     private static final String PROP_URL = "url";
     private static final String PROP_USER_NAME = "username";
@@ -153,7 +158,9 @@ public class BasicDataSourceFactory implements ObjectFactory {
             PROP_DRIVER_CLASS_NAME, PROP_LIFO, PROP_MAX_TOTAL, PROP_MAX_IDLE, PROP_MIN_IDLE, PROP_INITIAL_SIZE,
             PROP_MAX_WAIT_MILLIS, PROP_TEST_ON_CREATE, PROP_TEST_ON_BORROW, PROP_TEST_ON_RETURN,
             PROP_TIME_BETWEEN_EVICTION_RUNS_MILLIS, PROP_NUM_TESTS_PER_EVICTION_RUN, PROP_MIN_EVICTABLE_IDLE_TIME_MILLIS,
-            PROP_SOFT_MIN_EVICTABLE_IDLE_TIME_MILLIS, PROP_EVICTION_POLICY_CLASS_NAME, PROP_TEST_WHILE_IDLE, PROP_PASSWORD,
+            PROP_SOFT_MIN_EVICTABLE_IDLE_TIME_MILLIS, PROP_EVICTION_POLICY_CLASS_NAME, PROP_TEST_WHILE_IDLE, PROP_THREAD_AFFINITY,
+            PROP_ADAPTIVE_SIZING, PROP_ADAPTIVE_MIN_TOTAL, PROP_ADAPTIVE_TARGET_WAIT_MILLIS, PROP_ADAPTIVE_INTERVAL_MILLIS,
+            PROP_PASSWORD,
             PROP_URL, PROP_USER_NAME, PROP_VALIDATION_QUERY, PROP_VALIDATION_QUERY_TIMEOUT, PROP_CONNECTION_INIT_SQLS,
             PROP_ACCESS_TO_UNDERLYING_CONNECTION_ALLOWED, PROP_REMOVE_ABANDONED_ON_BORROW, PROP_REMOVE_ABANDONED_ON_MAINTENANCE,
             PROP_REMOVE_ABANDONED_TIMEOUT, PROP_LOG_ABANDONED, PROP_ABANDONED_USAGE_TRACKING, PROP_POOL_PREPARED_STATEMENTS,
@@ -287,6 +294,11 @@ public class BasicDataSourceFactory implements ObjectFactory {
         acceptDurationOfMillis(properties, PROP_SOFT_MIN_EVICTABLE_IDLE_TIME_MILLIS, dataSource::setSoftMinEvictableIdle);
         acceptString(properties, PROP_EVICTION_POLICY_CLASS_NAME, dataSource::setEvictionPolicyClassName);
         acceptBoolean(properties, PROP_TEST_WHILE_IDLE, dataSource::setTestWhileIdle);
+        acceptBoolean(properties, PROP_THREAD_AFFINITY, dataSource::setThreadAffinity);
+        acceptBoolean(properties, PROP_ADAPTIVE_SIZING, dataSource::setAdaptiveSizing);
+        acceptInt(properties, PROP_ADAPTIVE_MIN_TOTAL, dataSource::setAdaptiveMinTotal);
+        acceptDurationOfMillis(properties, PROP_ADAPTIVE_TARGET_WAIT_MILLIS, dataSource::setAdaptiveTargetWait);
+        acceptDurationOfMillis(properties, PROP_ADAPTIVE_INTERVAL_MILLIS, dataSource::setAdaptiveInterval);
         acceptString(properties, PROP_PASSWORD, dataSource::setPassword);
         acceptString(properties, PROP_URL, dataSource::setUrl);
         acceptString(properties, PROP_USER_NAME, dataSource::setUsername);
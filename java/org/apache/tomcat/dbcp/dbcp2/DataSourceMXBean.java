@@ -33,6 +33,48 @@ public interface DataSourceMXBean {
      */
     boolean getAbandonedUsageTracking();
 
+    /**
+     * See {@link BasicDataSource#getAdaptiveDecreaseCount()}.
+     *
+     * @return {@link BasicDataSource#getAdaptiveDecreaseCount()}.
+     */
+    long getAdaptiveDecreaseCount();
+
+    /**
+     * See {@link BasicDataSource#getAdaptiveIncreaseCount()}.
+     *
+     * @return {@link BasicDataSource#getAdaptiveIncreaseCount()}.
+     */
+    long getAdaptiveIncreaseCount();
+
+    /**
+     * See {@link BasicDataSource#getAdaptiveLastDecision()}.
+     *
+     * @return {@link BasicDataSource#getAdaptiveLastDecision()}.
+     */
+    String getAdaptiveLastDecision();
+
+    /**
+     * See {@link BasicDataSource#getAdaptiveMaxTotal()}.
+     *
+     * @return {@link BasicDataSource#getAdaptiveMaxTotal()}.
+     */
+    int getAdaptiveMaxTotal();
+
+    /**
+     * See {@link BasicDataSource#getAdaptiveMinTotal()}.
+     *
+     * @return {@link BasicDataSource#getAdaptiveMinTotal()}.
+     */
+    int getAdaptiveMinTotal();
+
+    /**
+     * See {@link BasicDataSource#getAdaptiveSizing()}.
+     *
+     * @return {@link BasicDataSource#getAdaptiveSizing()}.
+     */
+    boolean getAdaptiveSizing();
+
     /**
      * See {@link BasicDataSource#getCacheState()}.
      *
@@ -271,6 +313,13 @@ public interface DataSourceMXBean {
      */
     boolean getTestWhileIdle();
 
+    /**
+     * See {@link BasicDataSource#getThreadAffinity()}.
+     *
+     * @return {@link BasicDataSource#getThreadAffinity()}.
+     */
+    boolean getThreadAffinity();
+
     /**
      * See {@link BasicDataSource#getTimeBetweenEvictionRunsMillis()}.
      *
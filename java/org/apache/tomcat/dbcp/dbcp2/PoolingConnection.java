@@ -23,6 +23,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.tomcat.dbcp.pool2.KeyedObjectPool;
 import org.apache.tomcat.dbcp.pool2.KeyedPooledObjectFactory;
@@ -76,6 +78,9 @@ public class PoolingConnection extends DelegatingConnection<Connection>
     /** Pool of {@link PreparedStatement}s. and {@link CallableStatement}s */
     private KeyedObjectPool<PStmtKey, DelegatingPreparedStatement> stmtPool;
 
+    /** Guards {@link #stmtPool} while the connection is closed. */
+    private final Lock lock = new ReentrantLock();
+
     private volatile boolean clearStatementPoolOnReturn;
 
     /**
@@ -107,28 +112,33 @@ public class PoolingConnection extends DelegatingConnection<Connection>
      * underlying connection.
      */
     @Override
-    public synchronized void close() throws SQLException {
+    public void close() throws SQLException {
+        lock.lock();
         try {
-            if (null != stmtPool) {
-                final KeyedObjectPool<PStmtKey, DelegatingPreparedStatement> oldPool = stmtPool;
-                stmtPool = null;
-                try {
-                    oldPool.close();
-                } catch (final RuntimeException e) {
-                    throw e;
-                } catch (final Exception e) {
-                    throw new SQLException("Cannot close connection", e);
-                }
-            }
-        } finally {
             try {
-                final Connection delegateInternal = getDelegateInternal();
-                if (delegateInternal != null) {
-                    delegateInternal.close();
+                if (null != stmtPool) {
+                    final KeyedObjectPool<PStmtKey, DelegatingPreparedStatement> oldPool = stmtPool;
+                    stmtPool = null;
+                    try {
+                        oldPool.close();
+                    } catch (final RuntimeException e) {
+                        throw e;
+                    } catch (final Exception e) {
+                        throw new SQLException("Cannot close connection", e);
+                    }
                 }
             } finally {
-                setClosedInternal(true);
+                try {
+                    final Connection delegateInternal = getDelegateInternal();
+                    if (delegateInternal != null) {
+                        delegateInternal.close();
+                    }
+                } finally {
+                    setClosedInternal(true);
+                }
             }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -614,15 +624,20 @@ public class PoolingConnection extends DelegatingConnection<Connection>
     }
 
     @Override
-    public synchronized String toString() {
-        if (stmtPool instanceof GenericKeyedObjectPool) {
-            // DBCP-596 PoolingConnection.toString() causes StackOverflowError
-            final GenericKeyedObjectPool<?, ?> gkop = (GenericKeyedObjectPool<?, ?>) stmtPool;
-            if (gkop.getFactory() == this) {
-                return "PoolingConnection: " + stmtPool.getClass() + "@" + System.identityHashCode(stmtPool);
+    public String toString() {
+        lock.lock();
+        try {
+            if (stmtPool instanceof GenericKeyedObjectPool) {
+                // DBCP-596 PoolingConnection.toString() causes StackOverflowError
+                final GenericKeyedObjectPool<?, ?> gkop = (GenericKeyedObjectPool<?, ?>) stmtPool;
+                if (gkop.getFactory() == this) {
+                    return "PoolingConnection: " + stmtPool.getClass() + "@" + System.identityHashCode(stmtPool);
+                }
             }
+            return "PoolingConnection: " + Objects.toString(stmtPool);
+        } finally {
+            lock.unlock();
         }
-        return "PoolingConnection: " + Objects.toString(stmtPool);
     }
 
     /**
@@ -22,6 +22,8 @@ import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -153,6 +155,59 @@ public class PoolingDataSource<C extends Connection> implements DataSource, Auto
         }
     }
 
+    /**
+     * Returns a future that completes with a {@link Connection} from my pool. If my pool is a
+     * {@link GenericObjectPool}, no thread is blocked while the pool is exhausted: the future is completed once a
+     * connection is returned to the pool, see {@link GenericObjectPool#borrowObjectAsync()}. Otherwise the
+     * connection is borrowed by the calling thread before this method returns.
+     * <p>
+     * The future completes exceptionally with a {@link SQLException} if no connection can be obtained. Cancelling the
+     * future withdraws the request, a connection that had already been allocated to it is returned to the pool.
+     * </p>
+     *
+     * @return a future that completes with a connection
+     */
+    public CompletableFuture<Connection> getConnectionAsync() {
+        final CompletableFuture<Connection> result = new CompletableFuture<>();
+        if (!(pool instanceof GenericObjectPool<C> genericPool)) {
+            try {
+                result.complete(getConnection());
+            } catch (final SQLException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        final CompletableFuture<C> borrowed = genericPool.borrowObjectAsync();
+        borrowed.whenComplete((conn, t) -> {
+            if (t == null) {
+                if (!result.complete(new PoolGuardConnectionWrapper<>(conn))) {
+                    // The request was abandoned after the connection was allocated
+                    try {
+                        conn.close();
+                    } catch (final SQLException e) {
+                        log.warn("Failed to return connection to the pool", e);
+                    }
+                }
+            } else {
+                final Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+                if (cause instanceof NoSuchElementException) {
+                    result.completeExceptionally(
+                            new SQLException("Cannot get a connection, pool error " + cause.getMessage(), cause));
+                } else if (cause instanceof SQLException || cause instanceof RuntimeException) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.completeExceptionally(new SQLException("Cannot get a connection, general error", cause));
+                }
+            }
+        });
+        result.whenComplete((conn, t) -> {
+            if (t != null) {
+                borrowed.cancel(false);
+            }
+        });
+        return result;
+    }
+
     /**
      * Throws {@link UnsupportedOperationException}
      *
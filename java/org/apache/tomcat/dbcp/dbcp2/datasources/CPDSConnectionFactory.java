@@ -19,6 +19,8 @@ package org.apache.tomcat.dbcp.dbcp2.datasources;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.sql.ConnectionEvent;
 import javax.sql.ConnectionEventListener;
@@ -42,6 +44,7 @@ final class CPDSConnectionFactory extends AbstractConnectionFactory
 
     private ObjectPool<PooledConnectionAndInfo> pool;
     private UserPassKey userPassKey;
+    private final Lock lock = new ReentrantLock();
 
     /**
      * Creates a new {@link PoolableConnectionFactory}.
@@ -80,10 +83,13 @@ final class CPDSConnectionFactory extends AbstractConnectionFactory
      */
     @Override
     public void closePool(final String userName) throws SQLException {
-        synchronized (this) {
+        lock.lock();
+        try {
             if (userName == null || !userName.equals(this.userPassKey.getUserName())) {
                 return;
             }
+        } finally {
+            lock.unlock();
         }
         try {
             pool.close();
@@ -200,22 +206,27 @@ final class CPDSConnectionFactory extends AbstractConnectionFactory
     }
 
     @Override
-    public synchronized PooledObject<PooledConnectionAndInfo> makeObject() throws SQLException {
-        PooledConnection pc = null;
-        if (userPassKey.getUserName() == null) {
-            pc = cpds.getPooledConnection();
-        } else {
-            pc = cpds.getPooledConnection(userPassKey.getUserName(), userPassKey.getPassword());
-        }
-        if (pc == null) {
-            throw new IllegalStateException("Connection pool data source returned null from getPooledConnection");
+    public PooledObject<PooledConnectionAndInfo> makeObject() throws SQLException {
+        lock.lock();
+        try {
+            PooledConnection pc = null;
+            if (userPassKey.getUserName() == null) {
+                pc = cpds.getPooledConnection();
+            } else {
+                pc = cpds.getPooledConnection(userPassKey.getUserName(), userPassKey.getPassword());
+            }
+            if (pc == null) {
+                throw new IllegalStateException("Connection pool data source returned null from getPooledConnection");
+            }
+            // should we add this object as a listener or the pool.
+            // consider the validateObject method in decision
+            pc.addConnectionEventListener(this);
+            final PooledConnectionAndInfo pci = new PooledConnectionAndInfo(pc, userPassKey);
+            pcMap.put(pc, pci);
+            return new DefaultPooledObject<>(pci);
+        } finally {
+            lock.unlock();
         }
-        // should we add this object as a listener or the pool.
-        // consider the validateObject method in decision
-        pc.addConnectionEventListener(this);
-        final PooledConnectionAndInfo pci = new PooledConnectionAndInfo(pc, userPassKey);
-        pcMap.put(pc, pci);
-        return new DefaultPooledObject<>(pci);
     }
 
     @Override
@@ -230,8 +241,13 @@ final class CPDSConnectionFactory extends AbstractConnectionFactory
      *            new password
      */
     @Override
-    public synchronized void setPassword(final char[] userPassword) {
-        this.userPassKey = new UserPassKey(userPassKey.getUserName(), userPassword);
+    public void setPassword(final char[] userPassword) {
+        lock.lock();
+        try {
+            this.userPassKey = new UserPassKey(userPassKey.getUserName(), userPassword);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -241,8 +257,13 @@ final class CPDSConnectionFactory extends AbstractConnectionFactory
      *            new password
      */
     @Override
-    public synchronized void setPassword(final String userPassword) {
-        this.userPassKey = new UserPassKey(userPassKey.getUserName(), userPassword);
+    public void setPassword(final String userPassword) {
+        lock.lock();
+        try {
+            this.userPassKey = new UserPassKey(userPassKey.getUserName(), userPassword);
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -257,25 +278,30 @@ final class CPDSConnectionFactory extends AbstractConnectionFactory
      * @since 2.6.0
      */
     @Override
-    public synchronized String toString() {
-        final StringBuilder builder = new StringBuilder(super.toString());
-        builder.append("[cpds=");
-        builder.append(cpds);
-        builder.append(", validationQuery=");
-        builder.append(validationQuery);
-        builder.append(", validationQueryTimeoutDuration=");
-        builder.append(validationQueryTimeoutDuration);
-        builder.append(", rollbackAfterValidation=");
-        builder.append(rollbackAfterValidation);
-        builder.append(", pool=");
-        builder.append(pool);
-        builder.append(", maxConnDuration=");
-        builder.append(maxConnDuration);
-        builder.append(", validatingSet=");
-        builder.append(validatingSet);
-        builder.append(", pcMap=");
-        builder.append(pcMap);
-        builder.append("]");
-        return builder.toString();
+    public String toString() {
+        lock.lock();
+        try {
+            final StringBuilder builder = new StringBuilder(super.toString());
+            builder.append("[cpds=");
+            builder.append(cpds);
+            builder.append(", validationQuery=");
+            builder.append(validationQuery);
+            builder.append(", validationQueryTimeoutDuration=");
+            builder.append(validationQueryTimeoutDuration);
+            builder.append(", rollbackAfterValidation=");
+            builder.append(rollbackAfterValidation);
+            builder.append(", pool=");
+            builder.append(pool);
+            builder.append(", maxConnDuration=");
+            builder.append(maxConnDuration);
+            builder.append(", validatingSet=");
+            builder.append(validatingSet);
+            builder.append(", pcMap=");
+            builder.append(pcMap);
+            builder.append("]");
+            return builder.toString();
+        } finally {
+            lock.unlock();
+        }
     }
 }
@@ -19,6 +19,8 @@ package org.apache.tomcat.dbcp.dbcp2.datasources;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.sql.ConnectionEvent;
 import javax.sql.ConnectionEventListener;
@@ -40,6 +42,7 @@ final class KeyedCPDSConnectionFactory extends AbstractConnectionFactory
 
     private static final String NO_KEY_MESSAGE = "close() was called on a Connection, but I have no record of the underlying PooledConnection.";
     private KeyedObjectPool<UserPassKey, PooledConnectionAndInfo> pool;
+    private final Lock lock = new ReentrantLock();
 
     /**
      * Creates a new {@code KeyedCPDSConnectionFactory}.
@@ -184,24 +187,29 @@ final class KeyedCPDSConnectionFactory extends AbstractConnectionFactory
      * @see org.apache.tomcat.dbcp.pool2.KeyedPooledObjectFactory#makeObject(Object)
      */
     @Override
-    public synchronized PooledObject<PooledConnectionAndInfo> makeObject(final UserPassKey userPassKey) throws SQLException {
-        PooledConnection pooledConnection = null;
-        final String userName = userPassKey.getUserName();
-        final String password = userPassKey.getPassword();
-        if (userName == null) {
-            pooledConnection = cpds.getPooledConnection();
-        } else {
-            pooledConnection = cpds.getPooledConnection(userName, password);
-        }
-        if (pooledConnection == null) {
-            throw new IllegalStateException("Connection pool data source returned null from getPooledConnection");
+    public PooledObject<PooledConnectionAndInfo> makeObject(final UserPassKey userPassKey) throws SQLException {
+        lock.lock();
+        try {
+            PooledConnection pooledConnection = null;
+            final String userName = userPassKey.getUserName();
+            final String password = userPassKey.getPassword();
+            if (userName == null) {
+                pooledConnection = cpds.getPooledConnection();
+            } else {
+                pooledConnection = cpds.getPooledConnection(userName, password);
+            }
+            if (pooledConnection == null) {
+                throw new IllegalStateException("Connection pool data source returned null from getPooledConnection");
+            }
+            // should we add this object as a listener or the pool.
+            // consider the validateObject method in decision
+            pooledConnection.addConnectionEventListener(this);
+            final PooledConnectionAndInfo pci = new PooledConnectionAndInfo(pooledConnection, userPassKey);
+            pcMap.put(pooledConnection, pci);
+            return new DefaultPooledObject<>(pci);
+        } finally {
+            lock.unlock();
         }
-        // should we add this object as a listener or the pool.
-        // consider the validateObject method in decision
-        pooledConnection.addConnectionEventListener(this);
-        final PooledConnectionAndInfo pci = new PooledConnectionAndInfo(pooledConnection, userPassKey);
-        pcMap.put(pooledConnection, pci);
-        return new DefaultPooledObject<>(pci);
     }
 
     @Override
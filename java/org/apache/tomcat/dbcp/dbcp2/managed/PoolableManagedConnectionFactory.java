@@ -19,6 +19,8 @@ package org.apache.tomcat.dbcp.dbcp2.managed;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Duration;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.management.ObjectName;
 
@@ -44,6 +46,9 @@ public class PoolableManagedConnectionFactory extends PoolableConnectionFactory
     /** Transaction registry associated with connections created by this factory */
     private final TransactionRegistry transactionRegistry;
 
+    /** Serializes the creation of connections */
+    private final Lock lock = new ReentrantLock();
+
     /**
      * Creates a PoolableManagedConnectionFactory and attach it to a connection pool.
      *
@@ -74,39 +79,44 @@ public class PoolableManagedConnectionFactory extends PoolableConnectionFactory
      * PoolableManagedConnection if statement pooling is enabled.
      */
     @Override
-    public synchronized PooledObject<PoolableConnection> makeObject() throws SQLException {
-        Connection conn = getConnectionFactory().createConnection();
-        if (conn == null) {
-            throw new IllegalStateException("Connection factory returned null from createConnection");
-        }
-        initializeConnection(conn);
-        if (getPoolStatements()) {
-            conn = new PoolingConnection(conn);
-            final GenericKeyedObjectPoolConfig<DelegatingPreparedStatement> config = new GenericKeyedObjectPoolConfig<>();
-            config.setMaxTotalPerKey(-1);
-            config.setBlockWhenExhausted(false);
-            config.setMaxWait(Duration.ZERO);
-            config.setMaxIdlePerKey(1);
-            config.setMaxTotal(getMaxOpenPreparedStatements());
-            final ObjectName dataSourceJmxName = getDataSourceJmxName();
-            final long connIndex = getConnectionIndex().getAndIncrement();
-            if (dataSourceJmxName != null) {
-                final StringBuilder base = new StringBuilder(dataSourceJmxName.toString());
-                base.append(Constants.JMX_CONNECTION_BASE_EXT);
-                base.append(connIndex);
-                config.setJmxNameBase(base.toString());
-                config.setJmxNamePrefix(Constants.JMX_STATEMENT_POOL_PREFIX);
-            } else {
-                config.setJmxEnabled(false);
+    public PooledObject<PoolableConnection> makeObject() throws SQLException {
+        lock.lock();
+        try {
+            Connection conn = getConnectionFactory().createConnection();
+            if (conn == null) {
+                throw new IllegalStateException("Connection factory returned null from createConnection");
+            }
+            initializeConnection(conn);
+            if (getPoolStatements()) {
+                conn = new PoolingConnection(conn);
+                final GenericKeyedObjectPoolConfig<DelegatingPreparedStatement> config = new GenericKeyedObjectPoolConfig<>();
+                config.setMaxTotalPerKey(-1);
+                config.setBlockWhenExhausted(false);
+                config.setMaxWait(Duration.ZERO);
+                config.setMaxIdlePerKey(1);
+                config.setMaxTotal(getMaxOpenPreparedStatements());
+                final ObjectName dataSourceJmxName = getDataSourceJmxName();
+                final long connIndex = getConnectionIndex().getAndIncrement();
+                if (dataSourceJmxName != null) {
+                    final StringBuilder base = new StringBuilder(dataSourceJmxName.toString());
+                    base.append(Constants.JMX_CONNECTION_BASE_EXT);
+                    base.append(connIndex);
+                    config.setJmxNameBase(base.toString());
+                    config.setJmxNamePrefix(Constants.JMX_STATEMENT_POOL_PREFIX);
+                } else {
+                    config.setJmxEnabled(false);
+                }
+                final KeyedObjectPool<PStmtKey, DelegatingPreparedStatement> stmtPool = new GenericKeyedObjectPool<>(
+                        (PoolingConnection) conn, config);
+                ((PoolingConnection) conn).setStatementPool(stmtPool);
+                ((PoolingConnection) conn).setCacheState(getCacheState());
             }
-            final KeyedObjectPool<PStmtKey, DelegatingPreparedStatement> stmtPool = new GenericKeyedObjectPool<>(
-                    (PoolingConnection) conn, config);
-            ((PoolingConnection) conn).setStatementPool(stmtPool);
-            ((PoolingConnection) conn).setCacheState(getCacheState());
+            final PoolableManagedConnection pmc = new PoolableManagedConnection(transactionRegistry, conn, getPool(),
+                    getDisconnectionSqlCodes(), getDisconnectionIgnoreSqlCodes(), isFastFailValidation());
+            pmc.setCacheState(getCacheState());
+            return new DefaultPooledObject<>(pmc);
+        } finally {
+            lock.unlock();
         }
-        final PoolableManagedConnection pmc = new PoolableManagedConnection(transactionRegistry, conn, getPool(),
-                getDisconnectionSqlCodes(), getDisconnectionIgnoreSqlCodes(), isFastFailValidation());
-        pmc.setCacheState(getCacheState());
-        return new DefaultPooledObject<>(pmc);
     }
 }
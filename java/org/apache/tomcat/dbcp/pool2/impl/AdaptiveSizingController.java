@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Computes the number of objects a {@link GenericObjectPool} may create when
+ * adaptive sizing is enabled. The limit moves between a lower bound and
+ * {@link GenericObjectPool#getMaxTotal()} using an additive increase,
+ * multiplicative decrease (AIMD) policy evaluated once per control interval:
+ * <ul>
+ * <li>If every object allowed by the limit was in use during the interval and
+ * the mean borrow wait time exceeded the target, the limit is increased. The
+ * increase is one object, or the ratio of the mean wait time to the mean
+ * object creation time if creating objects is cheaper than waiting for them,
+ * up to doubling the limit.</li>
+ * <li>If the mean borrow wait time met the target and fewer than half of the
+ * objects allowed by the limit were in use, the limit is reduced by a
+ * quarter.</li>
+ * <li>Otherwise, the limit is held.</li>
+ * </ul>
+ * <p>
+ * This class is intended to be thread-safe and for internal use only.
+ * </p>
+ */
+final class AdaptiveSizingController {
+
+    /**
+     * The factor applied to the limit when the pool is underused.
+     */
+    static final double DECREASE_FACTOR = 0.75;
+
+    /**
+     * The fraction of the limit below which the peak number of active objects
+     * is considered underuse.
+     */
+    static final double LOW_UTILIZATION = 0.5;
+
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder waitCount = new LongAdder();
+    private final LongAdder createNanos = new LongAdder();
+    private final LongAdder createCount = new LongAdder();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final AtomicLong lastAdjustNanos;
+    private final AtomicLong increaseCount = new AtomicLong();
+    private final AtomicLong decreaseCount = new AtomicLong();
+
+    /* Smoothed over the intervals in which objects were created */
+    private volatile long meanCreateNanos;
+    private volatile int maxTotal;
+    private volatile String lastDecision;
+
+    /**
+     * Creates a new controller.
+     *
+     * @param maxTotal The initial limit
+     * @param now      The current value of {@link System#nanoTime()}
+     */
+    AdaptiveSizingController(final int maxTotal, final long now) {
+        this.maxTotal = maxTotal;
+        this.lastAdjustNanos = new AtomicLong(now);
+    }
+
+    /**
+     * Adjusts the limit if the control interval has elapsed since the last
+     * adjustment. Only one of the threads calling this method concurrently
+     * performs an adjustment.
+     *
+     * @param now          The current value of {@link System#nanoTime()}
+     * @param force        {@code true} to adjust even if the interval has not
+     *                     elapsed
+     * @param interval     The control interval
+     * @param targetWait   The target mean borrow wait time
+     * @param lowerBound   The lowest allowed limit
+     * @param upperBound   The highest allowed limit
+     * @param activeNow    The number of objects currently in use
+     * @return The change in the limit, zero if it was held or not evaluated
+     */
+    int adjust(final long now, final boolean force, final Duration interval, final Duration targetWait,
+            final int lowerBound, final int upperBound, final int activeNow) {
+        final long last = lastAdjustNanos.get();
+        if (!force && now - last < interval.toNanos() || !lastAdjustNanos.compareAndSet(last, now)) {
+            return 0;
+        }
+
+        final long samples = waitCount.sumThenReset();
+        final long totalWait = waitNanos.sumThenReset();
+        final long created = createCount.sumThenReset();
+        final long totalCreate = createNanos.sumThenReset();
+        final int peak = Math.max(peakActive.getAndSet(activeNow), activeNow);
+        if (created > 0) {
+            final long intervalMean = totalCreate / created;
+            final long previousMean = meanCreateNanos;
+            meanCreateNanos = previousMean == 0 ? intervalMean : (previousMean * 3 + intervalMean) / 4;
+        }
+        final long meanWait = samples == 0 ? 0 : totalWait / samples;
+        final long meanCreate = meanCreateNanos;
+
+        final int current = Math.max(lowerBound, Math.min(maxTotal, upperBound));
+        int next = current;
+        final String action;
+        if (meanWait > targetWait.toNanos() && peak >= current) {
+            long step = 1;
+            if (meanCreate > 0 && meanWait > meanCreate) {
+                step = Math.min(current, meanWait / meanCreate);
+            }
+            next = (int) Math.min(upperBound, current + Math.max(1, step));
+            action = next > current ? "increase" : "hold";
+        } else if (meanWait <= targetWait.toNanos() && peak < current * LOW_UTILIZATION) {
+            next = Math.max(lowerBound, (int) (current * DECREASE_FACTOR));
+            action = next < current ? "decrease" : "hold";
+        } else {
+            action = "hold";
+        }
+        maxTotal = next;
+        if (next > current) {
+            increaseCount.incrementAndGet();
+        } else if (next < current) {
+            decreaseCount.incrementAndGet();
+        }
+        lastDecision = String.format("%s %,d -> %,d: meanWait=%.1fms, peakActive=%,d, meanCreate=%.1fms, samples=%,d",
+                action, Integer.valueOf(current), Integer.valueOf(next), Double.valueOf(meanWait / 1_000_000.0),
+                Integer.valueOf(peak), Double.valueOf(meanCreate / 1_000_000.0), Long.valueOf(samples));
+        return next - current;
+    }
+
+    /**
+     * Determines if the control interval has elapsed since the last
+     * adjustment.
+     *
+     * @param now      The current value of {@link System#nanoTime()}
+     * @param interval The control interval
+     * @return {@code true} if the limit is due to be reviewed
+     */
+    boolean isAdjustDue(final long now, final Duration interval) {
+        return now - lastAdjustNanos.get() >= interval.toNanos();
+    }
+
+    /**
+     * Records a borrow attempt, successful or not.
+     *
+     * @param wait   The time spent waiting for an object
+     * @param active The number of objects in use after the attempt
+     */
+    void borrowed(final Duration wait, final int active) {
+        waitNanos.add(wait.toNanos());
+        waitCount.increment();
+        peakActive.accumulateAndGet(active, Math::max);
+    }
+
+    /**
+     * Records the creation of an object.
+     *
+     * @param nanos The time taken by the factory to make the object
+     */
+    void created(final long nanos) {
+        createNanos.add(nanos);
+        createCount.increment();
+    }
+
+    long getDecreaseCount() {
+        return decreaseCount.get();
+    }
+
+    long getIncreaseCount() {
+        return increaseCount.get();
+    }
+
+    String getLastDecision() {
+        return lastDecision;
+    }
+
+    int getMaxTotal() {
+        return maxTotal;
+    }
+}
@@ -34,6 +34,9 @@ import java.util.TimerTask;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import javax.management.InstanceAlreadyExistsException;
@@ -257,6 +260,24 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject implements Aut
         }
     }
 
+    /**
+     * An action performed on a pooled object while it is locked.
+     *
+     * @param <R> the type of the result of the action
+     * @param <E> the type of the exception thrown by the action
+     */
+    @FunctionalInterface
+    interface LockedAction<R, E extends Exception> {
+
+        /**
+         * Performs the action.
+         *
+         * @return the result of the action
+         * @throws E if the action fails
+         */
+        R run() throws E;
+    }
+
     /**
      * Maintains a cache of values for a single metric and reports
      * statistics on the cached values.
@@ -375,10 +396,10 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject implements Aut
     private volatile EvictionPolicy<T> evictionPolicy;
     private volatile Duration evictorShutdownTimeoutDuration = BaseObjectPoolConfig.DEFAULT_EVICTOR_SHUTDOWN_TIMEOUT;
     // Internal (primarily state) attributes
-    final Object closeLock = new Object();
+    final Lock closeLock = new ReentrantLock();
     volatile boolean closed;
 
-    final Object evictionLock = new Object();
+    final Lock evictionLock = new ReentrantLock();
     private Evictor evictor; // @GuardedBy("evictionLock")
     EvictionIterator evictionIterator; // @GuardedBy("evictionLock")
 
@@ -483,15 +504,14 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject implements Aut
     ArrayList<PooledObject<T>> createRemoveList(final AbandonedConfig abandonedConfig, final Map<IdentityWrapper<T>, PooledObject<T>> allObjects) {
         final Instant timeout = Instant.now().minus(abandonedConfig.getRemoveAbandonedTimeoutDuration());
         final ArrayList<PooledObject<T>> remove = new ArrayList<>();
-        allObjects.values().forEach(pooledObject -> {
-            synchronized (pooledObject) {
-                if (pooledObject.getState() == PooledObjectState.ALLOCATED &&
-                        pooledObject.getLastUsedInstant().compareTo(timeout) <= 0) {
-                    pooledObject.markAbandoned();
-                    remove.add(pooledObject);
-                }
+        allObjects.values().forEach(pooledObject -> withLock(pooledObject, () -> {
+            if (pooledObject.getState() == PooledObjectState.ALLOCATED &&
+                    pooledObject.getLastUsedInstant().compareTo(timeout) <= 0) {
+                pooledObject.markAbandoned();
+                remove.add(pooledObject);
             }
-        });
+            return null;
+        }));
         return remove;
     }
 
@@ -1351,12 +1371,13 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject implements Aut
      * @param pooledObject instance to return to the keyed pool
      */
     protected void markReturningState(final PooledObject<T> pooledObject) {
-        synchronized (pooledObject) {
+        withLock(pooledObject, () -> {
             if (pooledObject.getState() != PooledObjectState.ALLOCATED) {
                 throw new IllegalStateException("Object has already been returned to this pool or is invalid");
             }
             pooledObject.markReturning(); // Keep from being marked abandoned
-        }
+            return null;
+        });
     }
 
     /**
@@ -1970,7 +1991,8 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject implements Aut
      * @param delay time in milliseconds before start and between eviction runs
      */
     final void startEvictor(final Duration delay) {
-        synchronized (evictionLock) {
+        evictionLock.lock();
+        try {
             final boolean isPositiverDelay = PoolImplUtils.isPositive(delay);
             if (evictor == null) { // Starting evictor for the first time or after a cancel
                 if (isPositiverDelay) { // Starting new evictor
@@ -1988,6 +2010,8 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject implements Aut
             } else { // Stopping evictor
                 EvictionTimer.cancel(evictor, evictorShutdownTimeoutDuration, false);
             }
+        } finally {
+            evictionLock.unlock();
         }
     }
 
@@ -2129,17 +2153,47 @@ public abstract class BaseGenericObjectPool<T> extends BaseObject implements Aut
     }
 
     /**
-     * Waits for notification on the given object for the specified duration.
-     * Duration.ZERO causes the thread to wait indefinitely.
+     * Waits for the given condition to be signalled for the specified duration.
+     * Duration.ZERO causes the thread to wait indefinitely. The caller must
+     * hold the lock associated with the condition.
      *
-     * @param obj the object to wait on
+     * @param condition the condition to wait on
      * @param duration the duration to wait
      * @throws InterruptedException if interrupted while waiting
-     * @throws IllegalArgumentException if the duration is negative
      */
-    final void wait(final Object obj, final Duration duration) throws InterruptedException {
-        if (!duration.isNegative()) {
-            obj.wait(duration.toMillis(), duration.getNano() % 1_000_000);
+    final void await(final Condition condition, final Duration duration) throws InterruptedException {
+        if (duration.isZero()) {
+            condition.await();
+        } else if (!duration.isNegative()) {
+            condition.awaitNanos(duration.toNanos());
+        }
+    }
+
+    /**
+     * Performs an action on a pooled object while holding the lock of a
+     * {@link DefaultPooledObject}, see {@link DefaultPooledObject#getLock()},
+     * or the monitor of any other implementation of {@link PooledObject}.
+     *
+     * @param <R> the type of the result of the action
+     * @param <E> the type of the exception thrown by the action
+     * @param pooledObject the object to lock
+     * @param action the action to perform
+     * @return the result of the action
+     * @throws E if the action fails
+     */
+    static <R, E extends Exception> R withLock(final PooledObject<?> pooledObject, final LockedAction<R, E> action)
+            throws E {
+        if (!(pooledObject instanceof DefaultPooledObject)) {
+            synchronized (pooledObject) {
+                return action.run();
+            }
+        }
+        final Lock lock = ((DefaultPooledObject<?>) pooledObject).getLock();
+        lock.lock();
+        try {
+            return action.run();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -0,0 +1,535 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.time.Duration;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * An idle object deque that adds and removes elements without taking a lock.
+ * The lock is only used by threads that have to wait for an element because
+ * the deque is empty, and by threads adding an element while there are such
+ * waiting threads.
+ * <p>
+ * Each element is held in a node that is claimed with a single compare and
+ * set by the thread that removes the element. This allows
+ * {@link #pollLastAdded()} to remove the element most recently added by the
+ * current thread in constant time, wherever it is in the deque. A node that
+ * has been claimed without being unlinked is skipped, and eventually unlinked,
+ * by the other operations.
+ * </p>
+ * <p>
+ * Threads that do not wait, including those that find an element
+ * immediately, are not ordered with respect to the waiting threads so the
+ * fairness of the lock only applies between waiting threads.
+ * </p>
+ * <p>
+ * The size of the deque is tracked by a counter that is updated after each
+ * element has been added or removed, so it may briefly differ from the number
+ * of elements while elements are being concurrently added or removed.
+ * </p>
+ * <p>
+ * This class is intended to be thread-safe.
+ * </p>
+ *
+ * @param <E> the type of elements held in this deque
+ */
+final class ConcurrentIdleObjectDeque<E> extends AbstractCollection<E> implements IdleObjectDeque<E> {
+
+    /**
+     * The number of claimed nodes left linked after which the deque is swept,
+     * if there are fewer elements than that.
+     */
+    private static final int SWEEP_THRESHOLD = 64;
+
+    /** The nodes, including claimed nodes that have not been unlinked yet */
+    private final ConcurrentLinkedDeque<Node<E>> nodes = new ConcurrentLinkedDeque<>();
+
+    /**
+     * The node most recently added by each thread. The node no longer
+     * references its element once the element has been removed.
+     */
+    private final ThreadLocal<Node<E>> lastAdded = new ThreadLocal<>();
+
+    /** Main lock guarding the waiting threads */
+    private final InterruptibleReentrantLock lock;
+
+    /** Condition for waiting takes */
+    private final Condition notEmpty;
+
+    /**
+     * The number of threads waiting on {@link #notEmpty}. Only modified while
+     * holding the lock but read without it.
+     */
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /** Number of elements in the deque */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /** Approximate number of claimed nodes that are still linked */
+    private final AtomicInteger claimedLinked = new AtomicInteger();
+
+    /**
+     * Creates a {@code ConcurrentIdleObjectDeque} with the given fairness
+     * policy for the waiting threads.
+     *
+     * @param fairness true means waiting threads are granted an element as
+     *                 if waiting in a FIFO queue.
+     */
+    ConcurrentIdleObjectDeque(final boolean fairness) {
+        lock = new InterruptibleReentrantLock(fairness);
+        notEmpty = lock.newCondition();
+    }
+
+    @Override
+    public boolean add(final E e) {
+        addLast(e);
+        return true;
+    }
+
+    @Override
+    public void addFirst(final E e) {
+        final Node<E> node = new Node<>(e);
+        nodes.addFirst(node);
+        added(node);
+    }
+
+    @Override
+    public void addLast(final E e) {
+        final Node<E> node = new Node<>(e);
+        nodes.addLast(node);
+        added(node);
+    }
+
+    /**
+     * Updates the size and signals a waiting thread after an element has been
+     * added. The waiter count is incremented before a waiting thread last
+     * checks the deque so either that check sees the new element or this
+     * method sees the waiter.
+     *
+     * @param node the node that was added
+     */
+    private void added(final Node<E> node) {
+        lastAdded.set(node);
+        count.incrementAndGet();
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        while (pollFirst() != null) {
+            // Loop until empty
+        }
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return new Itr(nodes.descendingIterator());
+    }
+
+    @Override
+    public E element() {
+        return getFirst();
+    }
+
+    @Override
+    public E getFirst() {
+        final E x = peekFirst();
+        if (x == null) {
+            throw new NoSuchElementException();
+        }
+        return x;
+    }
+
+    @Override
+    public E getLast() {
+        final E x = peekLast();
+        if (x == null) {
+            throw new NoSuchElementException();
+        }
+        return x;
+    }
+
+    @Override
+    public int getTakeQueueLength() {
+        return waiters.get();
+    }
+
+    @Override
+    public boolean hasTakeWaiters() {
+        return waiters.get() > 0;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(nodes.iterator());
+    }
+
+    @Override
+    public void interruptTakeWaiters() {
+        lock.lock();
+        try {
+            lock.interruptWaiters(notEmpty);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(final E e) {
+        return offerLast(e);
+    }
+
+    @Override
+    public boolean offerFirst(final E e) {
+        addFirst(e);
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(final E e) {
+        addLast(e);
+        return true;
+    }
+
+    @Override
+    public E peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public E peekFirst() {
+        return peek(nodes.iterator());
+    }
+
+    @Override
+    public E peekLast() {
+        return peek(nodes.descendingIterator());
+    }
+
+    private E peek(final Iterator<Node<E>> iter) {
+        while (iter.hasNext()) {
+            final E x = iter.next().get();
+            if (x != null) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public E pollFirst() {
+        Node<E> node;
+        while ((node = nodes.pollFirst()) != null) {
+            final E x = claim(node);
+            if (x != null) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E pollFirst(final Duration timeout) throws InterruptedException {
+        final E x = pollFirst();
+        if (x != null) {
+            return x;
+        }
+        return await(timeout.toNanos(), true);
+    }
+
+    @Override
+    public E pollLast() {
+        Node<E> node;
+        while ((node = nodes.pollLast()) != null) {
+            final E x = claim(node);
+            if (x != null) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the element most recently added by the current thread if it is
+     * still in the deque, otherwise removes the first element. Unlike
+     * {@link #removeFirstOccurrence(Object)}, finding the element does not
+     * require a search of the deque.
+     *
+     * @return the removed element or {@code null} if the deque is empty
+     */
+    E pollLastAdded() {
+        final Node<E> node = lastAdded.get();
+        if (node != null) {
+            lastAdded.remove();
+            final E x = claim(node);
+            if (x != null) {
+                unlinkClaimed(node);
+                return x;
+            }
+        }
+        return pollFirst();
+    }
+
+    @Override
+    public E pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public void push(final E e) {
+        addFirst(e);
+    }
+
+    @Override
+    public E remove() {
+        return removeFirst();
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    @Override
+    public E removeFirst() {
+        final E x = pollFirst();
+        if (x == null) {
+            throw new NoSuchElementException();
+        }
+        return x;
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(final Object o) {
+        return removeOccurrence(o, nodes.iterator());
+    }
+
+    @Override
+    public E removeLast() {
+        final E x = pollLast();
+        if (x == null) {
+            throw new NoSuchElementException();
+        }
+        return x;
+    }
+
+    @Override
+    public boolean removeLastOccurrence(final Object o) {
+        return removeOccurrence(o, nodes.descendingIterator());
+    }
+
+    private boolean removeOccurrence(final Object o, final Iterator<Node<E>> iter) {
+        if (o == null) {
+            return false;
+        }
+        while (iter.hasNext()) {
+            final Node<E> node = iter.next();
+            final E x = node.get();
+            if (o.equals(x) && claim(node) != null) {
+                iter.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, count.get());
+    }
+
+    @Override
+    public E takeFirst() throws InterruptedException {
+        final E x = pollFirst();
+        if (x != null) {
+            return x;
+        }
+        return await(0, false);
+    }
+
+    /**
+     * Claims the element of a node.
+     *
+     * @param node the node to claim
+     * @return the element or {@code null} if the node has already been
+     *         claimed by another thread
+     */
+    private E claim(final Node<E> node) {
+        final E x = node.get();
+        if (x != null && node.compareAndSet(x, null)) {
+            count.decrementAndGet();
+            return x;
+        }
+        return null;
+    }
+
+    /**
+     * Unlinks a node claimed by {@link #pollLastAdded()}. The node is usually
+     * at one end of the deque, where it can be unlinked cheaply. Otherwise it
+     * is left for the other operations to skip and the deque is swept once
+     * enough such nodes have accumulated, so that a thread that always finds
+     * the element it added does not cause the deque to grow.
+     *
+     * @param node the claimed node
+     */
+    private void unlinkClaimed(final Node<E> node) {
+        if (nodes.peekFirst() == node && nodes.removeFirstOccurrence(node) ||
+                nodes.peekLast() == node && nodes.removeLastOccurrence(node)) {
+            return;
+        }
+        final int claimed = claimedLinked.incrementAndGet();
+        if (claimed > SWEEP_THRESHOLD && claimed > count.get()) {
+            claimedLinked.set(0);
+            nodes.removeIf(Node::isClaimed);
+        }
+    }
+
+    /**
+     * Waits for an element to become available.
+     *
+     * @param nanos the maximum time to wait if {@code timed}
+     * @param timed should the wait be limited to {@code nanos}
+     * @return the unlinked element or {@code null} if the timeout expired
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    private E await(long nanos, final boolean timed) throws InterruptedException {
+        E x = null;
+        lock.lockInterruptibly();
+        try {
+            waiters.incrementAndGet();
+            try {
+                while ((x = pollFirst()) == null) {
+                    if (timed) {
+                        if (nanos <= 0) {
+                            return null;
+                        }
+                        nanos = notEmpty.awaitNanos(nanos);
+                    } else {
+                        notEmpty.await();
+                    }
+                }
+                return x;
+            } finally {
+                waiters.decrementAndGet();
+                if (x == null && !isEmpty()) {
+                    // A signal meant for this thread may have been consumed
+                    // by the timeout or the interrupt, pass it on
+                    notEmpty.signal();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Holds an element until the element is claimed.
+     */
+    private static final class Node<E> extends AtomicReference<E> {
+
+        private static final long serialVersionUID = 1L;
+
+        Node(final E item) {
+            super(Objects.requireNonNull(item));
+        }
+
+        boolean isClaimed() {
+            return get() == null;
+        }
+    }
+
+    /**
+     * Iterator over the unclaimed nodes that claims the node of an element
+     * when it is removed.
+     */
+    private final class Itr implements Iterator<E> {
+
+        private final Iterator<Node<E>> delegate;
+
+        private Node<E> nextNode;
+
+        private E nextItem;
+
+        private Node<E> lastRet;
+
+        Itr(final Iterator<Node<E>> delegate) {
+            this.delegate = delegate;
+            advance();
+        }
+
+        private void advance() {
+            nextNode = null;
+            nextItem = null;
+            while (delegate.hasNext()) {
+                final Node<E> node = delegate.next();
+                final E x = node.get();
+                if (x != null) {
+                    nextNode = node;
+                    nextItem = x;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public E next() {
+            if (nextNode == null) {
+                throw new NoSuchElementException();
+            }
+            final E x = nextItem;
+            lastRet = nextNode;
+            advance();
+            return x;
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet == null) {
+                throw new IllegalStateException();
+            }
+            if (claim(lastRet) != null) {
+                nodes.remove(lastRet);
+            }
+            lastRet = null;
+        }
+    }
+}
@@ -21,6 +21,8 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Deque;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.tomcat.dbcp.pool2.PooledObject;
 import org.apache.tomcat.dbcp.pool2.PooledObjectState;
@@ -39,7 +41,8 @@ import org.apache.tomcat.dbcp.pool2.TrackedUse;
 public class DefaultPooledObject<T> implements PooledObject<T> {
 
     private final T object;
-    private PooledObjectState state = PooledObjectState.IDLE; // @GuardedBy("this") to ensure transitions are valid
+    private final Lock lock = new ReentrantLock();
+    private PooledObjectState state = PooledObjectState.IDLE; // @GuardedBy("lock") to ensure transitions are valid
     private final Clock systemClock = Clock.systemUTC();
     private final Instant createInstant = now();
 
@@ -67,24 +70,29 @@ public class DefaultPooledObject<T> implements PooledObject<T> {
      * @return {@code true} if the original state was {@link PooledObjectState#IDLE IDLE}
      */
     @Override
-    public synchronized boolean allocate() {
-        if (state == PooledObjectState.IDLE) {
-            state = PooledObjectState.ALLOCATED;
-            lastBorrowInstant = now();
-            lastUseInstant = lastBorrowInstant;
-            borrowedCount++;
-            if (logAbandoned) {
-                borrowedBy.fillInStackTrace();
+    public boolean allocate() {
+        lock.lock();
+        try {
+            if (state == PooledObjectState.IDLE) {
+                state = PooledObjectState.ALLOCATED;
+                lastBorrowInstant = now();
+                lastUseInstant = lastBorrowInstant;
+                borrowedCount++;
+                if (logAbandoned) {
+                    borrowedBy.fillInStackTrace();
+                }
+                return true;
             }
-            return true;
-        }
-        if (state == PooledObjectState.EVICTION) {
-            // TODO Allocate anyway and ignore eviction test
-            state = PooledObjectState.EVICTION_RETURN_TO_HEAD;
+            if (state == PooledObjectState.EVICTION) {
+                // TODO Allocate anyway and ignore eviction test
+                state = PooledObjectState.EVICTION_RETURN_TO_HEAD;
+            }
+            // TODO if validating and testOnBorrow == true then pre-allocate for
+            // performance
+            return false;
+        } finally {
+            lock.unlock();
         }
-        // TODO if validating and testOnBorrow == true then pre-allocate for
-        // performance
-        return false;
     }
 
     @Override
@@ -119,30 +127,40 @@ public class DefaultPooledObject<T> implements PooledObject<T> {
      *         or {@link PooledObjectState#RETURNING RETURNING}.
      */
     @Override
-    public synchronized boolean deallocate() {
-        if (state == PooledObjectState.ALLOCATED || state == PooledObjectState.RETURNING) {
-            state = PooledObjectState.IDLE;
-            lastReturnInstant = now();
-            borrowedBy.clear();
-            return true;
-        }
+    public boolean deallocate() {
+        lock.lock();
+        try {
+            if (state == PooledObjectState.ALLOCATED || state == PooledObjectState.RETURNING) {
+                state = PooledObjectState.IDLE;
+                lastReturnInstant = now();
+                borrowedBy.clear();
+                return true;
+            }
 
-        return false;
+            return false;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
-    public synchronized boolean endEvictionTest(
+    public boolean endEvictionTest(
             final Deque<PooledObject<T>> idleQueue) {
-        if (state == PooledObjectState.EVICTION) {
-            state = PooledObjectState.IDLE;
-            return true;
-        }
-        if (state == PooledObjectState.EVICTION_RETURN_TO_HEAD) {
-            state = PooledObjectState.IDLE;
-            idleQueue.offerFirst(this);
-        }
+        lock.lock();
+        try {
+            if (state == PooledObjectState.EVICTION) {
+                state = PooledObjectState.IDLE;
+                return true;
+            }
+            if (state == PooledObjectState.EVICTION_RETURN_TO_HEAD) {
+                state = PooledObjectState.IDLE;
+                idleQueue.offerFirst(this);
+            }
 
-        return false;
+            return false;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -245,37 +263,71 @@ public class DefaultPooledObject<T> implements PooledObject<T> {
         return object;
     }
 
+    /**
+     * Gets the lock that guards the state of this object. Pools hold it while
+     * they perform a sequence of operations on the object that must not be
+     * interleaved with a state change made by another thread, such as
+     * validating and passivating an object that is being returned. Unlike the
+     * monitor of this object, blocking while holding this lock does not pin
+     * the carrier thread of a virtual thread.
+     *
+     * @return the lock
+     */
+    public Lock getLock() {
+        return lock;
+    }
+
     /**
      * Gets the state of this object.
      * @return state
      */
     @Override
-    public synchronized PooledObjectState getState() {
-        return state;
+    public PooledObjectState getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Sets the state to {@link PooledObjectState#INVALID INVALID}.
      */
     @Override
-    public synchronized void invalidate() {
-        state = PooledObjectState.INVALID;
+    public void invalidate() {
+        lock.lock();
+        try {
+            state = PooledObjectState.INVALID;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Marks the pooled object as {@link PooledObjectState#ABANDONED ABANDONED}.
      */
     @Override
-    public synchronized void markAbandoned() {
-        state = PooledObjectState.ABANDONED;
+    public void markAbandoned() {
+        lock.lock();
+        try {
+            state = PooledObjectState.ABANDONED;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
      * Marks the pooled object as {@link PooledObjectState#RETURNING RETURNING}.
      */
     @Override
-    public synchronized void markReturning() {
-        state = PooledObjectState.RETURNING;
+    public void markReturning() {
+        lock.lock();
+        try {
+            state = PooledObjectState.RETURNING;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -319,12 +371,17 @@ public class DefaultPooledObject<T> implements PooledObject<T> {
     }
 
     @Override
-    public synchronized boolean startEvictionTest() {
-        if (state == PooledObjectState.IDLE) {
-            state = PooledObjectState.EVICTION;
-            return true;
+    public boolean startEvictionTest() {
+        lock.lock();
+        try {
+            if (state == PooledObjectState.IDLE) {
+                state = PooledObjectState.EVICTION;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
         }
-        return false;
     }
 
     @Override
@@ -333,8 +390,11 @@ public class DefaultPooledObject<T> implements PooledObject<T> {
         result.append("Object: ");
         result.append(object.toString());
         result.append(", State: ");
-        synchronized (this) {
+        lock.lock();
+        try {
             result.append(state.toString());
+        } finally {
+            lock.unlock();
         }
         return result.toString();
         // TODO add other attributes
@@ -33,8 +33,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 
@@ -106,7 +108,8 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
         private final AtomicInteger createCount = new AtomicInteger();
 
         private long makeObjectCount;
-        private final Object makeObjectCountLock = new Object();
+        private final Lock makeObjectCountLock = new ReentrantLock();
+        private final Condition makeObjectCountCondition = makeObjectCountLock.newCondition();
 
         /*
          * The map is keyed on pooled instances, wrapped to ensure that
@@ -773,7 +776,8 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
             return;
         }
 
-        synchronized (closeLock) {
+        closeLock.lock();
+        try {
             if (isClosed()) {
                 return;
             }
@@ -793,6 +797,8 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
             // This clear cleans up the keys now any waiting threads have been
             // interrupted
             clear();
+        } finally {
+            closeLock.unlock();
         }
     }
 
@@ -841,7 +847,8 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
         Boolean create = null;
         while (create == null) {
             remainingWaitDuration = maxWaitDuration.isNegative() ? Duration.ZERO : maxWaitDuration.minus(durationSince(startInstant));
-            synchronized (objectDeque.makeObjectCountLock) {
+            objectDeque.makeObjectCountLock.lock();
+            try {
                 final long newCreateCount = objectDeque.getCreateCount().incrementAndGet();
                 // Check against the per key limit
                 if (newCreateCount > maxTotalPerKeySave) {
@@ -859,14 +866,15 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
                         // bring the pool to capacity. Those calls might also
                         // fail so wait until they complete and then re-test if
                         // the pool is at capacity or not.
-                        objectDeque.makeObjectCountLock.wait(remainingWaitDuration.toMillis(),
-                                 remainingWaitDuration.getNano() % 1_000_000);
+                        await(objectDeque.makeObjectCountCondition, remainingWaitDuration);
                     }
                 } else {
                     // The pool is not at capacity. Create a new object.
                     objectDeque.makeObjectCount++;
                     create = Boolean.TRUE;
                 }
+            } finally {
+                objectDeque.makeObjectCountLock.unlock();
             }
         }
 
@@ -893,9 +901,12 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
             objectDeque.getCreateCount().decrementAndGet();
             throw e;
         } finally {
-            synchronized (objectDeque.makeObjectCountLock) {
+            objectDeque.makeObjectCountLock.lock();
+            try {
                 objectDeque.makeObjectCount--;
-                objectDeque.makeObjectCountLock.notifyAll();
+                objectDeque.makeObjectCountCondition.signalAll();
+            } finally {
+                objectDeque.makeObjectCountLock.unlock();
             }
         }
 
@@ -968,16 +979,16 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
         final ObjectDeque<T> objectDeque = register(key);
 
         try {
-            boolean isIdle;
-            synchronized (toDestroy) {
+            final boolean isIdle = withLock(toDestroy, () -> {
                 // Check idle state directly
-                isIdle = toDestroy.getState().equals(PooledObjectState.IDLE);
+                final boolean idle = toDestroy.getState().equals(PooledObjectState.IDLE);
                 // If idle, not under eviction test, or always is true, remove instance,
                 // updating isIdle if instance is found in idle objects
-                if (isIdle || always) {
-                    isIdle = objectDeque.getIdleObjects().remove(toDestroy);
+                if (idle || always) {
+                    return Boolean.valueOf(objectDeque.getIdleObjects().remove(toDestroy));
                 }
-            }
+                return Boolean.valueOf(idle);
+            }).booleanValue();
             if (isIdle || always) {
                 objectDeque.getAllObjects().remove(IdentityWrapper.unwrap(toDestroy));
                 toDestroy.invalidate();
@@ -1066,7 +1077,8 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
             PooledObject<T> underTest = null;
             final EvictionPolicy<T> evictionPolicy = getEvictionPolicy();
 
-            synchronized (evictionLock) {
+            evictionLock.lock();
+            try {
                 final EvictionConfig evictionConfig = new EvictionConfig(
                         getMinEvictableIdleDuration(),
                         getSoftMinEvictableIdleDuration(),
@@ -1186,6 +1198,8 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
                         underTest.endEvictionTest(idleObjects);
                     }
                 }
+            } finally {
+                evictionLock.unlock();
             }
         }
         final AbandonedConfig ac = this.abandonedConfig;
@@ -1445,12 +1459,13 @@ public class GenericKeyedObjectPool<K, T> extends BaseGenericObjectPool<T>
         if (p == null) {
             throw new IllegalStateException(appendStats("Object not currently part of this pool"));
         }
-        synchronized (p) {
+        withLock(p, () -> {
             if (p.getState() != PooledObjectState.INVALID) {
                 destroy(key, p, true, destroyMode);
                 reuseCapacity();
             }
-        }
+            return null;
+        });
     }
 
     /**
@@ -21,8 +21,21 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import org.apache.tomcat.dbcp.pool2.DestroyMode;
@@ -112,9 +125,66 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
 
     private long makeObjectCount;
 
-    private final Object makeObjectCountLock = new Object();
+    private final Lock makeObjectCountLock = new ReentrantLock();
 
-    private final LinkedBlockingDeque<PooledObject<T>> idleObjects;
+    private final Condition makeObjectCountCondition = makeObjectCountLock.newCondition();
+
+    private final IdleObjectDeque<PooledObject<T>> idleObjects;
+
+    /*
+     * The same deque as idleObjects when thread affinity is enabled, null
+     * otherwise.
+     */
+    private final ConcurrentIdleObjectDeque<PooledObject<T>> affineIdleObjects;
+
+    /*
+     * Pending asynchronous borrow requests in arrival order.
+     */
+    private final ConcurrentLinkedDeque<AsyncBorrowRequest<T>> asyncWaiters = new ConcurrentLinkedDeque<>();
+
+    /*
+     * Used to alternate returned objects between asynchronous and blocking
+     * borrowers when both are waiting.
+     */
+    private final AtomicLong asyncHandOffCount = new AtomicLong();
+
+    /*
+     * Incremented whenever an object may have become available to an
+     * asynchronous borrow request, before the pending requests are checked.
+     */
+    private final AtomicLong availableCount = new AtomicLong();
+
+    /*
+     * Times out asynchronous borrow requests. Its thread only runs while there
+     * are requests with a timeout.
+     */
+    private static final ScheduledThreadPoolExecutor ASYNC_TIMEOUTS = createAsyncTimeouts();
+
+    /*
+     * Adjusts the limit on the number of objects, creating or destroying
+     * objects, when adaptive sizing is enabled so that borrowing threads do
+     * not wait for the factory. The number of threads is bounded and they end
+     * once idle. At most one task is queued or runs for each pool.
+     */
+    private static final ThreadPoolExecutor ADAPTIVE_SIZING = createAdaptiveSizing();
+
+    /*
+     * Set while an adjustment of the limit on the number of objects is queued
+     * or runs on the adaptive sizing executor for this pool.
+     */
+    private final AtomicBoolean adaptiveSizingScheduled = new AtomicBoolean();
+
+    /*
+     * Computes the limit on the number of objects when adaptive sizing is
+     * enabled, null otherwise.
+     */
+    private volatile AdaptiveSizingController adaptiveSizingController;
+
+    private volatile int adaptiveMinTotal = GenericObjectPoolConfig.DEFAULT_ADAPTIVE_MIN_TOTAL;
+
+    private volatile Duration adaptiveTargetWait = GenericObjectPoolConfig.DEFAULT_ADAPTIVE_TARGET_WAIT;
+
+    private volatile Duration adaptiveInterval = GenericObjectPoolConfig.DEFAULT_ADAPTIVE_INTERVAL;
 
     /**
      * Creates a new {@code GenericObjectPool} using defaults from
@@ -149,7 +219,13 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         }
         this.factory = factory;
 
-        idleObjects = new LinkedBlockingDeque<>(config.getFairness());
+        if (config.getThreadAffinity()) {
+            affineIdleObjects = new ConcurrentIdleObjectDeque<>(config.getFairness());
+            idleObjects = affineIdleObjects;
+        } else {
+            idleObjects = new LinkedBlockingDeque<>(config.getFairness());
+            affineIdleObjects = null;
+        }
 
         setConfig(config);
     }
@@ -189,6 +265,7 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
             } else {
                 idleObjects.addLast(p);
             }
+            objectAvailable();
         }
     }
 
@@ -220,6 +297,77 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         }
     }
 
+    /**
+     * Adjusts the limit on the number of objects if adaptive sizing is enabled
+     * and the control interval has elapsed. When the limit is increased,
+     * objects are created for the threads and requests waiting for one. When
+     * it is reduced, idle objects above the limit are destroyed; objects in
+     * use above the limit are destroyed when they are returned. As objects
+     * may be created or destroyed, this is called by the evictor and by the
+     * adaptive sizing executor, never by a borrowing thread.
+     *
+     * @param force {@code true} to adjust even if the interval has not elapsed
+     */
+    void adjustAdaptiveSize(final boolean force) {
+        final AdaptiveSizingController controller = adaptiveSizingController;
+        if (controller == null || isClosed()) {
+            return;
+        }
+        int upperBound = getMaxTotal();
+        if (upperBound < 0) {
+            upperBound = Integer.MAX_VALUE;
+        }
+        final int lowerBound = Math.min(Math.max(1, getAdaptiveMinTotal()), upperBound);
+        final int change = controller.adjust(System.nanoTime(), force, getAdaptiveInterval(), getAdaptiveTargetWait(),
+                lowerBound, upperBound, getNumActive());
+        if (change > 0) {
+            objectAvailable();
+            for (int i = 0; i < change && idleObjects.hasTakeWaiters(); i++) {
+                try {
+                    final PooledObject<T> p = create(Duration.ZERO);
+                    if (PooledObject.isNull(p)) {
+                        break;
+                    }
+                    addIdleObject(p);
+                } catch (final Exception e) {
+                    swallowException(e);
+                    break;
+                }
+            }
+        } else if (change < 0) {
+            PooledObject<T> p;
+            while (createCount.get() > controller.getMaxTotal() && (p = idleObjects.pollLast()) != null) {
+                try {
+                    destroy(p, DestroyMode.NORMAL);
+                } catch (final Exception e) {
+                    swallowException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues an adjustment of the limit on the number of objects on the
+     * adaptive sizing executor unless one is already queued for this pool.
+     */
+    private void scheduleAdaptiveSizing() {
+        if (!adaptiveSizingScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ADAPTIVE_SIZING.execute(() -> {
+                try {
+                    adjustAdaptiveSize(false);
+                } finally {
+                    adaptiveSizingScheduled.set(false);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            adaptiveSizingScheduled.set(false);
+            swallowException(e);
+        }
+    }
+
     /**
      * Equivalent to <code>{@link #borrowObject(Duration)
      * borrowObject}({@link #getMaxWaitDuration()})</code>.
@@ -295,7 +443,7 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         while (p == null) {
             remainingWaitDuration = maxWaitDuration.minus(durationSince(startInstant));
             create = false;
-            p = idleObjects.pollFirst();
+            p = pollIdleObject();
             if (p == null) {
                 p = create(remainingWaitDuration);
                 if (PooledObject.nonNull(p)) {
@@ -308,6 +456,7 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
                     p = negativeDuration ? idleObjects.takeFirst() : idleObjects.pollFirst(remainingWaitDuration);
                 }
                 if (PooledObject.isNull(p)) {
+                    updateAdaptiveSizing(durationSince(startInstant));
                     throw new NoSuchElementException(appendStats("Timeout waiting for idle object, maxWaitDuration=" + remainingWaitDuration));
                 }
             } else if (PooledObject.isNull(p)) {
@@ -358,7 +507,9 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
                 }
             }
         }
-        updateStatsBorrow(p, durationSince(startInstant));
+        final Duration waitDuration = durationSince(startInstant);
+        updateStatsBorrow(p, waitDuration);
+        updateAdaptiveSizing(waitDuration);
         return p.getObject();
     }
 
@@ -416,6 +567,77 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         return borrowObject(Duration.ofMillis(maxWaitMillis));
     }
 
+    /**
+     * Equivalent to <code>{@link #borrowObjectAsync(Duration)
+     * borrowObjectAsync}({@link #getMaxWaitDuration()})</code>.
+     *
+     * @return a future that completes with an object instance from the pool
+     */
+    public CompletableFuture<T> borrowObjectAsync() {
+        return borrowObjectAsync(getMaxWaitDuration());
+    }
+
+    /**
+     * Borrows an object from the pool without blocking the calling thread while
+     * the pool is exhausted.
+     * <p>
+     * If an idle instance is available or a new instance can be created, it is
+     * activated, validated and used to complete the returned future before this
+     * method returns, exactly as {@link #borrowObject(Duration)} would do.
+     * Otherwise, if {@link #getBlockWhenExhausted()} is true, the request is
+     * queued and, once an object is returned to the pool or capacity is freed
+     * by destroying one, the future is completed by the default executor of
+     * {@link CompletableFuture} rather than by the thread that returned or
+     * destroyed the object. No thread waits for the request.
+     * </p>
+     * <p>
+     * Asynchronous requests are served in arrival order. When both
+     * asynchronous requests and threads blocked in {@link #borrowObject()} are
+     * waiting, returned objects alternate between them.
+     * </p>
+     * <p>
+     * The future completes exceptionally with a {@code NoSuchElementException}
+     * if no object became available within {@code maxWaitDuration}, or
+     * immediately if the pool is exhausted and {@link #getBlockWhenExhausted()}
+     * is false. Cancelling the future withdraws the request. If an object was
+     * already allocated to a request that has been cancelled, it is returned to
+     * the pool.
+     * </p>
+     *
+     * @param maxWaitDuration The time to wait for an object to become available,
+     *                        a negative duration waits indefinitely
+     * @return a future that completes with an object instance from the pool
+     */
+    public CompletableFuture<T> borrowObjectAsync(final Duration maxWaitDuration) {
+        final AsyncBorrowRequest<T> request = new AsyncBorrowRequest<>();
+        try {
+            assertOpen();
+        } catch (final IllegalStateException e) {
+            request.future.completeExceptionally(e);
+            return request.future;
+        }
+        // An abandoned request no longer needs its place in the queue
+        request.future.whenComplete((obj, t) -> {
+            if (t != null) {
+                asyncWaiters.remove(request);
+            }
+        });
+        asyncWaiters.addLast(request);
+        serveAsyncWaiters(request);
+        if (!request.future.isDone()) {
+            if (!getBlockWhenExhausted()) {
+                request.future.completeExceptionally(new NoSuchElementException(appendStats("Pool exhausted")));
+            } else if (!maxWaitDuration.isNegative()) {
+                final ScheduledFuture<?> timeout = ASYNC_TIMEOUTS.schedule(
+                        () -> request.future.completeExceptionally(new NoSuchElementException(
+                                appendStats("Timeout waiting for idle object, maxWaitDuration=" + maxWaitDuration))),
+                        maxWaitDuration.toNanos(), TimeUnit.NANOSECONDS);
+                request.future.whenComplete((obj, t) -> timeout.cancel(false));
+            }
+        }
+        return request.future;
+    }
+
     /**
      * Clears any objects sitting idle in the pool by removing them from the
      * idle instance pool and then invoking the configured
@@ -463,7 +685,8 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
             return;
         }
 
-        synchronized (closeLock) {
+        closeLock.lock();
+        try {
             if (isClosed()) {
                 return;
             }
@@ -480,6 +703,12 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
 
             // Release any threads that were waiting for an object
             idleObjects.interruptTakeWaiters();
+            AsyncBorrowRequest<T> request;
+            while ((request = asyncWaiters.pollFirst()) != null) {
+                request.future.completeExceptionally(new IllegalStateException("Pool not open"));
+            }
+        } finally {
+            closeLock.unlock();
         }
     }
 
@@ -505,6 +734,10 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         if (localMaxTotal < 0) {
             localMaxTotal = Integer.MAX_VALUE;
         }
+        final AdaptiveSizingController controller = adaptiveSizingController;
+        if (controller != null) {
+            localMaxTotal = Math.min(localMaxTotal, controller.getMaxTotal());
+        }
         final Instant localStartInstant = Instant.now();
         // Flag that indicates if create should:
         // - TRUE:  call the factory to create an object
@@ -515,7 +748,8 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         while (create == null) {
             // remainingWaitDuration handles spurious wakeup from wait().
             final Duration remainingWaitDuration = maxWaitDuration.minus(durationSince(startInstant));
-            synchronized (makeObjectCountLock) {
+            makeObjectCountLock.lock();
+            try {
                 final long newCreateCount = createCount.incrementAndGet();
                 if (newCreateCount > localMaxTotal) {
                     // The pool is currently at capacity or in the process of
@@ -531,13 +765,15 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
                         // bring the pool to capacity. Those calls might also
                         // fail so wait until they complete and then re-test if
                         // the pool is at capacity or not.
-                        wait(makeObjectCountLock, remainingWaitDuration);
+                        await(makeObjectCountCondition, remainingWaitDuration);
                     }
                 } else {
                     // The pool is not at capacity. Create a new object.
                     makeObjectCount++;
                     create = Boolean.TRUE;
                 }
+            } finally {
+                makeObjectCountLock.unlock();
             }
             // Do not block more if remainingWaitDuration > 0.
             if (create == null && remainingWaitDuration.compareTo(Duration.ZERO) > 0 &&
@@ -552,7 +788,11 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
 
         final PooledObject<T> p;
         try {
+            final long makeStartNanos = System.nanoTime();
             p = factory.makeObject();
+            if (controller != null) {
+                controller.created(System.nanoTime() - makeStartNanos);
+            }
             if (PooledObject.isNull(p)) {
                 createCount.decrementAndGet();
                 throw new NullPointerException(String.format("%s.makeObject() = null", factory.getClass().getSimpleName()));
@@ -565,9 +805,12 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
             createCount.decrementAndGet();
             throw e;
         } finally {
-            synchronized (makeObjectCountLock) {
+            makeObjectCountLock.lock();
+            try {
                 makeObjectCount--;
-                makeObjectCountLock.notifyAll();
+                makeObjectCountCondition.signalAll();
+            } finally {
+                makeObjectCountLock.unlock();
             }
         }
 
@@ -621,6 +864,8 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
      * @throws Exception if the factory's makeObject throws
      */
     private void ensureIdle(final int idleCount, final boolean always) throws Exception {
+        // Capacity may have been freed by destroying an object
+        objectAvailable();
         if (idleCount < 1 || isClosed() || !always && !idleObjects.hasTakeWaiters()) {
             return;
         }
@@ -637,6 +882,7 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
             } else {
                 idleObjects.addLast(p);
             }
+            objectAvailable();
         }
         if (isClosed()) {
             // Pool closed while object was being added to idle objects.
@@ -667,7 +913,8 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
             PooledObject<T> underTest = null;
             final EvictionPolicy<T> evictionPolicy = getEvictionPolicy();
 
-            synchronized (evictionLock) {
+            evictionLock.lock();
+            try {
                 final EvictionConfig evictionConfig = new EvictionConfig(
                         getMinEvictableIdleDuration(),
                         getSoftMinEvictableIdleDuration(),
@@ -761,12 +1008,132 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
                         underTest.endEvictionTest(idleObjects);
                     }
                 }
+            } finally {
+                evictionLock.unlock();
             }
         }
         final AbandonedConfig ac = this.abandonedConfig;
         if (ac != null && ac.getRemoveAbandonedOnMaintenance()) {
             removeAbandoned(ac);
         }
+        adjustAdaptiveSize(false);
+    }
+
+    /**
+     * Gets the number of times adaptive sizing has reduced the limit on the
+     * number of objects.
+     *
+     * @return the number of decreases, zero if adaptive sizing is disabled
+     * @see #getAdaptiveSizing()
+     */
+    @Override
+    public long getAdaptiveDecreaseCount() {
+        final AdaptiveSizingController controller = adaptiveSizingController;
+        return controller == null ? 0 : controller.getDecreaseCount();
+    }
+
+    /**
+     * Gets the number of times adaptive sizing has increased the limit on the
+     * number of objects.
+     *
+     * @return the number of increases, zero if adaptive sizing is disabled
+     * @see #getAdaptiveSizing()
+     */
+    @Override
+    public long getAdaptiveIncreaseCount() {
+        final AdaptiveSizingController controller = adaptiveSizingController;
+        return controller == null ? 0 : controller.getIncreaseCount();
+    }
+
+    /**
+     * Gets the interval at which adaptive sizing reviews the limit on the
+     * number of objects. The review is performed by the first thread to
+     * borrow an object, or by the evictor, once the interval has elapsed.
+     *
+     * @return the control interval
+     * @see #setAdaptiveInterval(Duration)
+     */
+    public Duration getAdaptiveInterval() {
+        return adaptiveInterval;
+    }
+
+    /**
+     * Gets a description of the last review of the limit on the number of
+     * objects made by adaptive sizing, including the measurements it was
+     * based on.
+     *
+     * @return the last decision or {@code null} if no review has been made
+     *         or adaptive sizing is disabled
+     * @see #getAdaptiveSizing()
+     */
+    @Override
+    public String getAdaptiveLastDecision() {
+        final AdaptiveSizingController controller = adaptiveSizingController;
+        return controller == null ? null : controller.getLastDecision();
+    }
+
+    /**
+     * Gets the current limit on the number of objects, idle or in use, that
+     * the pool may hold. When adaptive sizing is enabled, this is the limit
+     * computed by the controller, which is never more than
+     * {@link #getMaxTotal()}. Otherwise, it is {@link #getMaxTotal()}.
+     *
+     * @return the current limit, negative if there is no limit
+     */
+    @Override
+    public int getAdaptiveMaxTotal() {
+        final AdaptiveSizingController controller = adaptiveSizingController;
+        final int localMaxTotal = getMaxTotal();
+        if (controller == null) {
+            return localMaxTotal;
+        }
+        return localMaxTotal < 0 ? controller.getMaxTotal() : Math.min(localMaxTotal, controller.getMaxTotal());
+    }
+
+    /**
+     * Gets the lowest limit on the number of objects that adaptive sizing may
+     * set. Values lower than one are treated as one.
+     *
+     * @return the lower bound of the adaptive limit
+     * @see #setAdaptiveMinTotal(int)
+     */
+    @Override
+    public int getAdaptiveMinTotal() {
+        return adaptiveMinTotal;
+    }
+
+    /**
+     * Gets whether the limit on the number of objects is adjusted, between
+     * {@link #getAdaptiveMinTotal()} and {@link #getMaxTotal()}, from the
+     * observed borrow wait times, utilization and object creation times.
+     * <p>
+     * Once per {@link #getAdaptiveInterval() interval}, the limit is increased
+     * if all the objects it allows were in use and the mean borrow wait time
+     * exceeded {@link #getAdaptiveTargetWait()}. The increase is one object,
+     * or more if creating an object takes less time than borrowers waited,
+     * up to doubling the limit. The limit is reduced by a quarter if the mean
+     * borrow wait time met the target and fewer than half of the objects it
+     * allows were in use.
+     * </p>
+     *
+     * @return {@code true} if adaptive sizing is enabled
+     * @see #setAdaptiveSizing(boolean)
+     */
+    @Override
+    public boolean getAdaptiveSizing() {
+        return adaptiveSizingController != null;
+    }
+
+    /**
+     * Gets the mean borrow wait time above which adaptive sizing increases
+     * the limit on the number of objects, provided all the objects it allows
+     * are in use.
+     *
+     * @return the target borrow wait time
+     * @see #setAdaptiveTargetWait(Duration)
+     */
+    public Duration getAdaptiveTargetWait() {
+        return adaptiveTargetWait;
     }
 
     /**
@@ -886,6 +1253,19 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         return allObjects.get(new IdentityWrapper<>(obj));
     }
 
+    /**
+     * Gets whether idle objects are held in a lock-free deque and a thread
+     * borrowing an object is first offered the object it most recently
+     * returned.
+     *
+     * @return {@code true} if thread affinity is enabled for this pool
+     * @see GenericObjectPoolConfig#getThreadAffinity()
+     */
+    @Override
+    public boolean getThreadAffinity() {
+        return affineIdleObjects != null;
+    }
+
     @SuppressWarnings("boxing")  // Commons Pool uses auto-boxing
     @Override
     String getStatsString() {
@@ -931,11 +1311,12 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
             }
             throw new IllegalStateException("Invalidated object not currently part of this pool");
         }
-        synchronized (p) {
+        withLock(p, () -> {
             if (p.getState() != PooledObjectState.INVALID) {
                 destroy(p, destroyMode);
             }
-        }
+            return null;
+        });
         if (!isClosed()) {
             addObject();
         }
@@ -958,6 +1339,23 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         return allObjects.values().stream().map(DefaultPooledObjectInfo::new).collect(Collectors.toSet());
     }
 
+    /**
+     * Removes an idle object from the deque. When thread affinity is enabled,
+     * the object most recently returned by the current thread is tried first
+     * as it is likely to still be idle and its state cached by this thread.
+     * That object is claimed in place, without searching the deque, and the
+     * removal from the deque is what grants the object to this thread,
+     * exactly as for an object polled from the head of the deque.
+     *
+     * @return the idle object or {@code null} if there is none
+     */
+    private PooledObject<T> pollIdleObject() {
+        if (affineIdleObjects != null) {
+            return affineIdleObjects.pollLastAdded();
+        }
+        return idleObjects.pollFirst();
+    }
+
     /**
      * Tries to ensure that {@link #getMinIdle()} idle instances are available
      * in the pool.
@@ -1017,7 +1415,6 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
     @Override
     public void returnObject(final T obj) {
         final PooledObject<T> p = getPooledObject(obj);
-
         if (p == null) {
             if (!isAbandonedConfig()) {
                 throw new IllegalStateException(
@@ -1025,76 +1422,328 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
             }
             return; // Object was abandoned and removed
         }
-        synchronized (p) {
-            markReturningState(p);
+        final ReturnOutcome outcome = withLock(p, () -> returnLocked(p));
+        boolean idled = outcome == ReturnOutcome.IDLE;
+        if (outcome == ReturnOutcome.HAND_OFF) {
+            final AsyncBorrowRequest<T> request = pollAsyncWaiter();
+            if (request == null) {
+                if (getLifo()) {
+                    idleObjects.addFirst(p);
+                } else {
+                    idleObjects.addLast(p);
+                }
+                idled = true;
+            } else {
+                allocateAsyncLater(request, p, false);
+            }
+        }
+        if (idled) {
+            // A request may have been queued after the check above
+            objectAvailable();
+        }
+    }
 
-            final Duration activeTime = p.getActiveDuration();
+    /**
+     * Validates, passivates and either destroys or idles an object that is
+     * being returned to the pool. The caller holds the lock of the object.
+     *
+     * @param p The object being returned
+     * @return what became of the object
+     */
+    private ReturnOutcome returnLocked(final PooledObject<T> p) {
+        markReturningState(p);
 
-            if (getTestOnReturn() && !factory.validateObject(p)) {
-                try {
-                    destroy(p, DestroyMode.NORMAL);
-                } catch (final Exception e) {
-                    swallowException(e);
-                }
-                try {
-                    ensureIdle(1, false);
-                } catch (final Exception e) {
-                    swallowException(e);
-                }
-                updateStatsReturn(activeTime);
-                return;
+        final Duration activeTime = p.getActiveDuration();
+
+        if (getTestOnReturn() && !factory.validateObject(p)) {
+            try {
+                destroy(p, DestroyMode.NORMAL);
+            } catch (final Exception e) {
+                swallowException(e);
+            }
+            try {
+                ensureIdle(1, false);
+            } catch (final Exception e) {
+                swallowException(e);
             }
+            updateStatsReturn(activeTime);
+            return ReturnOutcome.DESTROYED;
+        }
 
+        try {
+            factory.passivateObject(p);
+        } catch (final Exception e1) {
+            swallowException(e1);
             try {
-                factory.passivateObject(p);
-            } catch (final Exception e1) {
-                swallowException(e1);
-                try {
-                    destroy(p, DestroyMode.NORMAL);
-                } catch (final Exception e) {
-                    swallowException(e);
-                }
-                try {
-                    ensureIdle(1, false);
-                } catch (final Exception e) {
-                    swallowException(e);
-                }
-                updateStatsReturn(activeTime);
-                return;
+                destroy(p, DestroyMode.NORMAL);
+            } catch (final Exception e) {
+                swallowException(e);
+            }
+            try {
+                ensureIdle(1, false);
+            } catch (final Exception e) {
+                swallowException(e);
             }
+            updateStatsReturn(activeTime);
+            return ReturnOutcome.DESTROYED;
+        }
 
-            if (!p.deallocate()) {
-                throw new IllegalStateException(
-                        "Object has already been returned to this pool or is invalid");
+        if (!p.deallocate()) {
+            throw new IllegalStateException(
+                    "Object has already been returned to this pool or is invalid");
+        }
+
+        final ReturnOutcome outcome;
+        final int maxIdleSave = getMaxIdle();
+        final AdaptiveSizingController controller = adaptiveSizingController;
+        if (isClosed() || maxIdleSave > -1 && maxIdleSave <= idleObjects.size() ||
+                controller != null && createCount.get() > controller.getMaxTotal()) {
+            try {
+                destroy(p, DestroyMode.NORMAL);
+            } catch (final Exception e) {
+                swallowException(e);
             }
+            try {
+                ensureIdle(1, false);
+            } catch (final Exception e) {
+                swallowException(e);
+            }
+            outcome = ReturnOutcome.DESTROYED;
+        } else if (!asyncWaiters.isEmpty() &&
+                (!idleObjects.hasTakeWaiters() || asyncHandOffCount.getAndIncrement() % 2 == 0)) {
+            // Completed once the lock on the object has been released
+            outcome = ReturnOutcome.HAND_OFF;
+        } else {
+            // A blocked thread takes the object, asynchronous requests
+            // must not compete for it
+            outcome = idleObjects.hasTakeWaiters() ? ReturnOutcome.IDLE_FOR_BLOCKED : ReturnOutcome.IDLE;
+            if (getLifo()) {
+                idleObjects.addFirst(p);
+            } else {
+                idleObjects.addLast(p);
+            }
+            if (isClosed()) {
+                // Pool closed while object was being added to idle objects.
+                // Make sure the returned object is destroyed rather than left
+                // in the idle object pool (which would effectively be a leak)
+                clear();
+            }
+        }
+        updateStatsReturn(activeTime);
+        return outcome;
+    }
+
+    /**
+     * Removes and returns the oldest asynchronous borrow request that is still
+     * waiting for an object.
+     *
+     * @return the request or {@code null} if none is waiting
+     */
+    private AsyncBorrowRequest<T> pollAsyncWaiter() {
+        AsyncBorrowRequest<T> request;
+        while ((request = asyncWaiters.pollFirst()) != null) {
+            if (!request.future.isDone()) {
+                return request;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records that an object may have become available to an asynchronous
+     * borrow request, because an object was made idle or capacity was freed,
+     * and serves the waiting requests. The count is incremented before the
+     * requests are checked so that either this method sees a request that
+     * {@link #serveAsyncWaiters(AsyncBorrowRequest)} could not serve, or that
+     * method sees the new count and tries again.
+     */
+    private void objectAvailable() {
+        availableCount.incrementAndGet();
+        if (!asyncWaiters.isEmpty()) {
+            serveAsyncWaiters(null);
+        }
+    }
 
-            final int maxIdleSave = getMaxIdle();
-            if (isClosed() || maxIdleSave > -1 && maxIdleSave <= idleObjects.size()) {
+    /**
+     * Completes waiting asynchronous borrow requests, in arrival order, with
+     * idle objects or newly created objects until either no request is
+     * waiting or no object is available. Other than the given request, the
+     * requests are completed by the default executor of
+     * {@link CompletableFuture} rather than by the calling thread, which may
+     * be returning an object.
+     *
+     * @param own The request made by the calling thread, if any, which is
+     *            completed by the calling thread
+     */
+    private void serveAsyncWaiters(final AsyncBorrowRequest<T> own) {
+        AsyncBorrowRequest<T> request;
+        while ((request = pollAsyncWaiter()) != null) {
+            if (isClosed()) {
+                request.future.completeExceptionally(new IllegalStateException("Pool not open"));
+                continue;
+            }
+            final long available = availableCount.get();
+            PooledObject<T> p = pollIdleObject();
+            boolean create = false;
+            if (p == null) {
                 try {
-                    destroy(p, DestroyMode.NORMAL);
+                    p = create(Duration.ZERO);
                 } catch (final Exception e) {
-                    swallowException(e);
+                    request.future.completeExceptionally(e);
+                    continue;
                 }
-                try {
-                    ensureIdle(1, false);
-                } catch (final Exception e) {
-                    swallowException(e);
+                create = PooledObject.nonNull(p);
+            }
+            if (PooledObject.isNull(p)) {
+                // Keep its place in the queue until an object is returned
+                asyncWaiters.addFirst(request);
+                if (availableCount.get() == available) {
+                    return;
                 }
+                // An object became available while the request was out of
+                // the queue, the thread that made it available may not have
+                // seen the request
+                continue;
+            }
+            if (request == own) {
+                allocateAsync(request, p, create);
             } else {
-                if (getLifo()) {
-                    idleObjects.addFirst(p);
-                } else {
-                    idleObjects.addLast(p);
+                allocateAsyncLater(request, p, create);
+            }
+        }
+    }
+
+    /**
+     * Allocates an object to an asynchronous borrow request using the default
+     * executor of {@link CompletableFuture}, or the calling thread if the
+     * executor rejects the task.
+     *
+     * @param request The request to complete
+     * @param p       The object to allocate to the request
+     * @param create  {@code true} if the object has just been created
+     */
+    private void allocateAsyncLater(final AsyncBorrowRequest<T> request, final PooledObject<T> p,
+            final boolean create) {
+        try {
+            request.future.defaultExecutor().execute(() -> allocateAsync(request, p, create));
+        } catch (final RejectedExecutionException e) {
+            allocateAsync(request, p, create);
+        }
+    }
+
+    /**
+     * Activates and, if configured, validates an object for an asynchronous
+     * borrow request and completes the request with it. If the object cannot
+     * be used it is destroyed and the request is queued again at the front.
+     *
+     * @param request The request to complete
+     * @param p       The object to allocate to the request
+     * @param create  {@code true} if the object has just been created
+     */
+    private void allocateAsync(final AsyncBorrowRequest<T> request, final PooledObject<T> p, final boolean create) {
+        if (!p.allocate()) {
+            asyncWaiters.addFirst(request);
+            serveAsyncWaiters(null);
+            return;
+        }
+        Throwable failure = null;
+        try {
+            factory.activateObject(p);
+            if (getTestOnBorrow()) {
+                boolean validate = false;
+                try {
+                    validate = factory.validateObject(p);
+                } catch (final Throwable t) {
+                    PoolUtils.checkRethrow(t);
+                    failure = t;
                 }
-                if (isClosed()) {
-                    // Pool closed while object was being added to idle objects.
-                    // Make sure the returned object is destroyed rather than left
-                    // in the idle object pool (which would effectively be a leak)
-                    clear();
+                if (!validate) {
+                    destroyedByBorrowValidationCount.incrementAndGet();
+                    if (failure == null) {
+                        failure = new NoSuchElementException(appendStats("Unable to validate object"));
+                    }
                 }
             }
-            updateStatsReturn(activeTime);
+        } catch (final Exception e) {
+            failure = e;
+        }
+        if (failure != null) {
+            try {
+                destroy(p, DestroyMode.NORMAL);
+            } catch (final Exception e) {
+                swallowException(e);
+            }
+            if (create) {
+                // As for borrowObject(), a new object that cannot be used is an error
+                final NoSuchElementException nsee = new NoSuchElementException(appendStats("Unable to activate or validate object"));
+                nsee.initCause(failure);
+                request.future.completeExceptionally(nsee);
+            } else {
+                asyncWaiters.addFirst(request);
+            }
+            objectAvailable();
+            return;
         }
+        final Duration waitDuration = durationSince(request.startInstant);
+        updateStatsBorrow(p, waitDuration);
+        updateAdaptiveSizing(waitDuration);
+        if (!request.future.complete(p.getObject())) {
+            // Cancelled or timed out in the meantime
+            returnObject(p.getObject());
+        }
+    }
+
+    /**
+     * Sets the interval at which adaptive sizing reviews the limit on the
+     * number of objects.
+     *
+     * @param adaptiveInterval the control interval
+     * @see #getAdaptiveInterval()
+     */
+    public void setAdaptiveInterval(final Duration adaptiveInterval) {
+        this.adaptiveInterval = PoolImplUtils.nonNull(adaptiveInterval, GenericObjectPoolConfig.DEFAULT_ADAPTIVE_INTERVAL);
+    }
+
+    /**
+     * Sets the lowest limit on the number of objects that adaptive sizing may
+     * set.
+     *
+     * @param adaptiveMinTotal the lower bound of the adaptive limit
+     * @see #getAdaptiveMinTotal()
+     */
+    public void setAdaptiveMinTotal(final int adaptiveMinTotal) {
+        this.adaptiveMinTotal = adaptiveMinTotal;
+    }
+
+    /**
+     * Enables or disables adaptive sizing. When it is enabled, the limit
+     * starts at {@link #getMaxTotal()}, or at {@link #getAdaptiveMinTotal()}
+     * if there is no maximum. Disabling it restores {@link #getMaxTotal()} as
+     * the limit.
+     *
+     * @param adaptiveSizing {@code true} to enable adaptive sizing
+     * @see #getAdaptiveSizing()
+     */
+    public void setAdaptiveSizing(final boolean adaptiveSizing) {
+        if (!adaptiveSizing) {
+            adaptiveSizingController = null;
+        } else if (adaptiveSizingController == null) {
+            final int localMaxTotal = getMaxTotal();
+            adaptiveSizingController = new AdaptiveSizingController(
+                    localMaxTotal < 0 ? Math.max(1, getAdaptiveMinTotal()) : localMaxTotal, System.nanoTime());
+        }
+    }
+
+    /**
+     * Sets the mean borrow wait time above which adaptive sizing increases
+     * the limit on the number of objects.
+     *
+     * @param adaptiveTargetWait the target borrow wait time
+     * @see #getAdaptiveTargetWait()
+     */
+    public void setAdaptiveTargetWait(final Duration adaptiveTargetWait) {
+        this.adaptiveTargetWait = PoolImplUtils.nonNull(adaptiveTargetWait,
+                GenericObjectPoolConfig.DEFAULT_ADAPTIVE_TARGET_WAIT);
     }
 
     /**
@@ -1108,6 +1757,10 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         setMaxIdle(conf.getMaxIdle());
         setMinIdle(conf.getMinIdle());
         setMaxTotal(conf.getMaxTotal());
+        setAdaptiveMinTotal(conf.getAdaptiveMinTotal());
+        setAdaptiveTargetWait(conf.getAdaptiveTargetWait());
+        setAdaptiveInterval(conf.getAdaptiveInterval());
+        setAdaptiveSizing(conf.getAdaptiveSizing());
     }
 
     /**
@@ -1171,6 +1824,23 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         builder.append(abandonedConfig);
     }
 
+    /**
+     * Records a borrow attempt for adaptive sizing, if it is enabled, and
+     * queues a review of the limit on the number of objects if the interval
+     * has elapsed.
+     *
+     * @param waitDuration The time the borrower waited
+     */
+    private void updateAdaptiveSizing(final Duration waitDuration) {
+        final AdaptiveSizingController controller = adaptiveSizingController;
+        if (controller != null) {
+            controller.borrowed(waitDuration, getNumActive());
+            if (controller.isAdjustDue(System.nanoTime(), getAdaptiveInterval())) {
+                scheduleAdaptiveSizing();
+            }
+        }
+    }
+
     @Override
     public void use(final T pooledObject) {
         final AbandonedConfig abandonedCfg = this.abandonedConfig;
@@ -1182,4 +1852,79 @@ public class GenericObjectPool<T> extends BaseGenericObjectPool<T>
         }
     }
 
+
+    /**
+     * Creates the executor that adjusts the limit on the number of objects of
+     * the pools that use adaptive sizing. Its daemon threads are created on
+     * demand and end once idle.
+     *
+     * @return the executor
+     */
+    private static ThreadPoolExecutor createAdaptiveSizing() {
+        final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreadFactory("commons-pool-adaptive-sizing"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+
+    /**
+     * Creates the executor that times out asynchronous borrow requests. Its
+     * daemon thread is created on demand and ends once idle.
+     *
+     * @return the executor
+     */
+    private static ScheduledThreadPoolExecutor createAsyncTimeouts() {
+        final ScheduledThreadPoolExecutor executor =
+                new ScheduledThreadPoolExecutor(0, daemonThreadFactory("commons-pool-async-timeout"));
+        executor.setKeepAliveTime(10, TimeUnit.SECONDS);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+
+    /**
+     * Creates a factory of daemon threads with the context class loader of
+     * this class.
+     *
+     * @param name The name of the threads
+     * @return the thread factory
+     */
+    private static ThreadFactory daemonThreadFactory(final String name) {
+        return runnable -> {
+            final Thread thread = new Thread(null, runnable, name);
+            thread.setDaemon(true);
+            thread.setContextClassLoader(GenericObjectPool.class.getClassLoader());
+            return thread;
+        };
+    }
+
+
+    /**
+     * An asynchronous borrow request waiting for an object.
+     *
+     * @param <T> Type of element pooled
+     */
+    private static final class AsyncBorrowRequest<T> {
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private final Instant startInstant = Instant.now();
+    }
+
+
+    /**
+     * What became of an object returned to the pool.
+     */
+    private enum ReturnOutcome {
+        /** The object was destroyed. */
+        DESTROYED,
+        /** The object is to be handed off to an asynchronous borrow request. */
+        HAND_OFF,
+        /** The object was made idle for a thread blocked in borrowObject(). */
+        IDLE_FOR_BLOCKED,
+        /** The object was made idle. */
+        IDLE
+    }
 }
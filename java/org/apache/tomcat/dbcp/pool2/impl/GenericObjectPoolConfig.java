@@ -16,6 +16,8 @@
  */
 package org.apache.tomcat.dbcp.pool2.impl;
 
+import java.time.Duration;
+
 /**
  * A simple structure encapsulating the configuration for a
  * {@link GenericObjectPool}.
@@ -30,6 +32,34 @@ package org.apache.tomcat.dbcp.pool2.impl;
  */
 public class GenericObjectPoolConfig<T> extends BaseObjectPoolConfig<T> {
 
+    /**
+     * The default value for the {@code adaptiveInterval} configuration attribute.
+     *
+     * @see GenericObjectPool#getAdaptiveInterval()
+     */
+    public static final Duration DEFAULT_ADAPTIVE_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * The default value for the {@code adaptiveMinTotal} configuration attribute: {@value}.
+     *
+     * @see GenericObjectPool#getAdaptiveMinTotal()
+     */
+    public static final int DEFAULT_ADAPTIVE_MIN_TOTAL = 1;
+
+    /**
+     * The default value for the {@code adaptiveSizing} configuration attribute: {@value}.
+     *
+     * @see GenericObjectPool#getAdaptiveSizing()
+     */
+    public static final boolean DEFAULT_ADAPTIVE_SIZING = false;
+
+    /**
+     * The default value for the {@code adaptiveTargetWait} configuration attribute.
+     *
+     * @see GenericObjectPool#getAdaptiveTargetWait()
+     */
+    public static final Duration DEFAULT_ADAPTIVE_TARGET_WAIT = Duration.ofMillis(10);
+
     /**
      * The default value for the {@code maxTotal} configuration attribute: {@value}.
      *
@@ -51,12 +81,29 @@ public class GenericObjectPoolConfig<T> extends BaseObjectPoolConfig<T> {
      */
     public static final int DEFAULT_MIN_IDLE = 0;
 
+    /**
+     * The default value for the {@code threadAffinity} configuration attribute: {@value}.
+     *
+     * @see GenericObjectPool#getThreadAffinity()
+     */
+    public static final boolean DEFAULT_THREAD_AFFINITY = false;
+
     private int maxTotal = DEFAULT_MAX_TOTAL;
 
     private int maxIdle = DEFAULT_MAX_IDLE;
 
     private int minIdle = DEFAULT_MIN_IDLE;
 
+    private boolean threadAffinity = DEFAULT_THREAD_AFFINITY;
+
+    private boolean adaptiveSizing = DEFAULT_ADAPTIVE_SIZING;
+
+    private int adaptiveMinTotal = DEFAULT_ADAPTIVE_MIN_TOTAL;
+
+    private Duration adaptiveTargetWait = DEFAULT_ADAPTIVE_TARGET_WAIT;
+
+    private Duration adaptiveInterval = DEFAULT_ADAPTIVE_INTERVAL;
+
     /**
      * Constructs a new instance.
      */
@@ -74,6 +121,58 @@ public class GenericObjectPoolConfig<T> extends BaseObjectPoolConfig<T> {
         }
     }
 
+    /**
+     * Gets the value for the {@code adaptiveInterval} configuration attribute
+     * for pools created with this configuration instance.
+     *
+     * @return  The current setting of {@code adaptiveInterval} for this
+     *          configuration instance
+     *
+     * @see GenericObjectPool#getAdaptiveInterval()
+     */
+    public Duration getAdaptiveInterval() {
+        return adaptiveInterval;
+    }
+
+    /**
+     * Gets the value for the {@code adaptiveMinTotal} configuration attribute
+     * for pools created with this configuration instance.
+     *
+     * @return  The current setting of {@code adaptiveMinTotal} for this
+     *          configuration instance
+     *
+     * @see GenericObjectPool#getAdaptiveMinTotal()
+     */
+    public int getAdaptiveMinTotal() {
+        return adaptiveMinTotal;
+    }
+
+    /**
+     * Gets the value for the {@code adaptiveSizing} configuration attribute
+     * for pools created with this configuration instance.
+     *
+     * @return  The current setting of {@code adaptiveSizing} for this
+     *          configuration instance
+     *
+     * @see GenericObjectPool#getAdaptiveSizing()
+     */
+    public boolean getAdaptiveSizing() {
+        return adaptiveSizing;
+    }
+
+    /**
+     * Gets the value for the {@code adaptiveTargetWait} configuration
+     * attribute for pools created with this configuration instance.
+     *
+     * @return  The current setting of {@code adaptiveTargetWait} for this
+     *          configuration instance
+     *
+     * @see GenericObjectPool#getAdaptiveTargetWait()
+     */
+    public Duration getAdaptiveTargetWait() {
+        return adaptiveTargetWait;
+    }
+
     /**
      * Gets the value for the {@code maxIdle} configuration attribute
      * for pools created with this configuration instance.
@@ -113,6 +212,76 @@ public class GenericObjectPoolConfig<T> extends BaseObjectPoolConfig<T> {
         return minIdle;
     }
 
+    /**
+     * Gets the value for the {@code threadAffinity} configuration attribute
+     * for pools created with this configuration instance. When enabled, the
+     * idle objects are held in a deque that does not lock when adding or
+     * removing objects and a thread borrowing an object is first offered the
+     * object it most recently returned, if that object is still idle. This
+     * reduces contention when many threads borrow and return objects
+     * concurrently.
+     *
+     * @return  The current setting of {@code threadAffinity} for this
+     *          configuration instance
+     *
+     * @see GenericObjectPool#getThreadAffinity()
+     */
+    public boolean getThreadAffinity() {
+        return threadAffinity;
+    }
+
+    /**
+     * Sets the value for the {@code adaptiveInterval} configuration attribute
+     * for pools created with this configuration instance.
+     *
+     * @param adaptiveInterval The new setting of {@code adaptiveInterval}
+     *        for this configuration instance
+     *
+     * @see GenericObjectPool#setAdaptiveInterval(Duration)
+     */
+    public void setAdaptiveInterval(final Duration adaptiveInterval) {
+        this.adaptiveInterval = PoolImplUtils.nonNull(adaptiveInterval, DEFAULT_ADAPTIVE_INTERVAL);
+    }
+
+    /**
+     * Sets the value for the {@code adaptiveMinTotal} configuration attribute
+     * for pools created with this configuration instance.
+     *
+     * @param adaptiveMinTotal The new setting of {@code adaptiveMinTotal}
+     *        for this configuration instance
+     *
+     * @see GenericObjectPool#setAdaptiveMinTotal(int)
+     */
+    public void setAdaptiveMinTotal(final int adaptiveMinTotal) {
+        this.adaptiveMinTotal = adaptiveMinTotal;
+    }
+
+    /**
+     * Sets the value for the {@code adaptiveSizing} configuration attribute
+     * for pools created with this configuration instance.
+     *
+     * @param adaptiveSizing The new setting of {@code adaptiveSizing}
+     *        for this configuration instance
+     *
+     * @see GenericObjectPool#setAdaptiveSizing(boolean)
+     */
+    public void setAdaptiveSizing(final boolean adaptiveSizing) {
+        this.adaptiveSizing = adaptiveSizing;
+    }
+
+    /**
+     * Sets the value for the {@code adaptiveTargetWait} configuration
+     * attribute for pools created with this configuration instance.
+     *
+     * @param adaptiveTargetWait The new setting of {@code adaptiveTargetWait}
+     *        for this configuration instance
+     *
+     * @see GenericObjectPool#setAdaptiveTargetWait(Duration)
+     */
+    public void setAdaptiveTargetWait(final Duration adaptiveTargetWait) {
+        this.adaptiveTargetWait = PoolImplUtils.nonNull(adaptiveTargetWait, DEFAULT_ADAPTIVE_TARGET_WAIT);
+    }
+
     /**
      * Sets the value for the {@code maxIdle} configuration attribute for
      * pools created with this configuration instance.
@@ -152,6 +321,20 @@ public class GenericObjectPoolConfig<T> extends BaseObjectPoolConfig<T> {
         this.minIdle = minIdle;
     }
 
+    /**
+     * Sets the value for the {@code threadAffinity} configuration attribute
+     * for pools created with this configuration instance. Unlike most other
+     * attributes, this one cannot be changed once a pool has been created.
+     *
+     * @param threadAffinity The new setting of {@code threadAffinity}
+     *        for this configuration instance
+     *
+     * @see GenericObjectPool#getThreadAffinity()
+     */
+    public void setThreadAffinity(final boolean threadAffinity) {
+        this.threadAffinity = threadAffinity;
+    }
+
     @Override
     protected void toStringAppendFields(final StringBuilder builder) {
         super.toStringAppendFields(builder);
@@ -161,5 +344,15 @@ public class GenericObjectPoolConfig<T> extends BaseObjectPoolConfig<T> {
         builder.append(maxIdle);
         builder.append(", minIdle=");
         builder.append(minIdle);
+        builder.append(", threadAffinity=");
+        builder.append(threadAffinity);
+        builder.append(", adaptiveSizing=");
+        builder.append(adaptiveSizing);
+        builder.append(", adaptiveMinTotal=");
+        builder.append(adaptiveMinTotal);
+        builder.append(", adaptiveTargetWait=");
+        builder.append(adaptiveTargetWait);
+        builder.append(", adaptiveInterval=");
+        builder.append(adaptiveInterval);
     }
 }
@@ -31,6 +31,48 @@ import java.util.Set;
  */
 public interface GenericObjectPoolMXBean {
 
+    /**
+     * See {@link GenericObjectPool#getAdaptiveDecreaseCount()}.
+     *
+     * @return See {@link GenericObjectPool#getAdaptiveDecreaseCount()}.
+     */
+    long getAdaptiveDecreaseCount();
+
+    /**
+     * See {@link GenericObjectPool#getAdaptiveIncreaseCount()}.
+     *
+     * @return See {@link GenericObjectPool#getAdaptiveIncreaseCount()}.
+     */
+    long getAdaptiveIncreaseCount();
+
+    /**
+     * See {@link GenericObjectPool#getAdaptiveLastDecision()}.
+     *
+     * @return See {@link GenericObjectPool#getAdaptiveLastDecision()}.
+     */
+    String getAdaptiveLastDecision();
+
+    /**
+     * See {@link GenericObjectPool#getAdaptiveMaxTotal()}.
+     *
+     * @return See {@link GenericObjectPool#getAdaptiveMaxTotal()}.
+     */
+    int getAdaptiveMaxTotal();
+
+    /**
+     * See {@link GenericObjectPool#getAdaptiveMinTotal()}.
+     *
+     * @return See {@link GenericObjectPool#getAdaptiveMinTotal()}.
+     */
+    int getAdaptiveMinTotal();
+
+    /**
+     * See {@link GenericObjectPool#getAdaptiveSizing()}.
+     *
+     * @return See {@link GenericObjectPool#getAdaptiveSizing()}.
+     */
+    boolean getAdaptiveSizing();
+
     /**
      * See {@link GenericObjectPool#getBlockWhenExhausted()}.
      *
@@ -264,6 +306,13 @@ public interface GenericObjectPoolMXBean {
      */
     boolean getTestWhileIdle();
 
+    /**
+     * See {@link GenericObjectPool#getThreadAffinity()}.
+     *
+     * @return See {@link GenericObjectPool#getThreadAffinity()}.
+     */
+    boolean getThreadAffinity();
+
     /**
      * See {@link GenericObjectPool#getDurationBetweenEvictionRuns()}.
      *
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.time.Duration;
+import java.util.Deque;
+
+/**
+ * The operations a {@link GenericObjectPool} needs from the deque that holds
+ * its idle objects, on top of those of {@link Deque}. The class is intended
+ * for internal use only.
+ * <p>
+ * Implementations are intended to be thread-safe.
+ * </p>
+ *
+ * @param <E> the type of elements held in this deque
+ * @see LinkedBlockingDeque
+ * @see ConcurrentIdleObjectDeque
+ */
+interface IdleObjectDeque<E> extends Deque<E> {
+
+    /**
+     * Unlinks the first element in the deque, waiting until there is an
+     * element to unlink if the deque is empty.
+     *
+     * @return the unlinked element
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    E takeFirst() throws InterruptedException;
+
+    /**
+     * Unlinks the first element in the deque, waiting up to the specified time
+     * to do so if the deque is empty.
+     *
+     * @param timeout length of time to wait
+     * @return the unlinked element or {@code null} if the timeout expired
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    E pollFirst(Duration timeout) throws InterruptedException;
+
+    /**
+     * Gets the number of threads waiting to take instances from this deque.
+     *
+     * @return an estimate of the number of waiting threads
+     */
+    int getTakeQueueLength();
+
+    /**
+     * Returns true if there are threads waiting to take instances from this
+     * deque.
+     *
+     * @return true if there is at least one waiting thread
+     */
+    boolean hasTakeWaiters();
+
+    /**
+     * Interrupts the threads currently waiting to take an object from the
+     * deque.
+     */
+    void interruptTakeWaiters();
+}
@@ -66,7 +66,7 @@ import java.util.concurrent.locks.Condition;
  * @since 2.0
  */
 final class LinkedBlockingDeque<E> extends AbstractQueue<E>
-        implements BlockingDeque<E>, Serializable {
+        implements BlockingDeque<E>, IdleObjectDeque<E>, Serializable {
 
     /*
      * Implemented as a simple doubly-linked list protected by a
@@ -557,7 +557,8 @@ final class LinkedBlockingDeque<E> extends AbstractQueue<E>
      *
      * @return number of threads waiting on this deque's notEmpty condition.
      */
-    int getTakeQueueLength() {
+    @Override
+    public int getTakeQueueLength() {
         lock.lock();
         try {
             return lock.getWaitQueueLength(notEmpty);
@@ -572,7 +573,8 @@ final class LinkedBlockingDeque<E> extends AbstractQueue<E>
      *
      * @return true if there is at least one thread waiting on this deque's notEmpty condition.
      */
-    boolean hasTakeWaiters() {
+    @Override
+    public boolean hasTakeWaiters() {
         lock.lock();
         try {
             return lock.hasWaiters(notEmpty);
@@ -585,7 +587,8 @@ final class LinkedBlockingDeque<E> extends AbstractQueue<E>
      * Interrupts the threads currently waiting to take an object from the pool. See disclaimer on accuracy in
      * {@link java.util.concurrent.locks.ReentrantLock#getWaitingThreads(Condition)}.
      */
-    void interruptTakeWaiters() {
+    @Override
+    public void interruptTakeWaiters() {
         lock.lock();
         try {
             lock.interruptWaiters(notEmpty);
@@ -892,7 +895,8 @@ final class LinkedBlockingDeque<E> extends AbstractQueue<E>
      * @return the unlinked element
      * @throws InterruptedException if the current thread is interrupted
      */
-    E pollFirst(final Duration timeout) throws InterruptedException {
+    @Override
+    public E pollFirst(final Duration timeout) throws InterruptedException {
         long nanos = timeout.toNanos();
         lock.lockInterruptibly();
         try {
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.buf;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Implemented by character writers that can also accept characters that have already been encoded with the character
+ * set the writer uses. This allows text that is written many times, such as JSP template text, to be encoded once
+ * rather than every time it is written.
+ */
+public interface PreEncodedWriter {
+
+    /**
+     * Obtain the character set this writer uses to encode characters.
+     *
+     * @return the character set or {@code null} if it cannot be determined
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    Charset getCharset() throws IOException;
+
+
+    /**
+     * Write characters that have already been encoded. The bytes are written after any characters previously written
+     * to this writer.
+     *
+     * @param b       The encoded characters
+     * @param off     The offset of the first byte to write
+     * @param len     The number of bytes to write
+     * @param charset The character set used to encode the characters
+     *
+     * @return {@code true} if the bytes were written. {@code false} if the bytes cannot be written, for example because
+     *             the character set is not the one used by this writer, in which case the caller should write the
+     *             characters instead.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    boolean writePreEncoded(byte[] b, int off, int len, Charset charset) throws IOException;
+}
@@ -22,6 +22,9 @@ package org.apache.tomcat.util.json;
  */
 public class JSONFilter {
 
+    private static final char[] HEX =
+            { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F' };
+
     /**
      * Escape the given char.
      *
@@ -35,10 +38,8 @@ public class JSONFilter {
             if (popular > 0) {
                 return new char[] { '\\', popular };
             } else {
-                StringBuilder escaped = new StringBuilder(6);
-                escaped.append("\\u");
-                escaped.append(String.format("%04X", Integer.valueOf(c)));
-                return escaped.toString().toCharArray();
+                return new char[] { '\\', 'u', HEX[(c >> 12) & 0xF], HEX[(c >> 8) & 0xF], HEX[(c >> 4) & 0xF],
+                        HEX[c & 0xF] };
             }
         } else {
             char[] result = new char[1];
@@ -126,7 +127,7 @@ public class JSONFilter {
         // Utility class. Hide the default constructor.
     }
 
-    private static char getPopularChar(char c) {
+    static char getPopularChar(char c) {
         return switch (c) {
             case '"', '\\' -> c;
             case 0x8 -> 'b';
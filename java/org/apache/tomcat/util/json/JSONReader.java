@@ -0,0 +1,760 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.HexUtils;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Streaming reader for a UTF-8 encoded JSON document, as defined by
+ * <a href="https://www.rfc-editor.org/rfc/rfc8259.html">RFC 8259</a>, held in memory. The document is read one event
+ * at a time directly from the bytes. Strings and numbers are validated as they are read but are only converted to Java
+ * types when requested so values that are skipped are never decoded.
+ * <p>
+ * Unlike {@link JSONParser}, which is intended for configuration files and accepts comments, the reader only accepts
+ * strictly valid JSON. Instances are not thread safe.
+ */
+public class JSONReader {
+
+    private static final StringManager sm = StringManager.getManager(JSONReader.class);
+
+    /**
+     * The events reported by the reader.
+     */
+    public enum Event {
+        START_OBJECT,
+        END_OBJECT,
+        START_ARRAY,
+        END_ARRAY,
+        KEY_NAME,
+        VALUE_STRING,
+        VALUE_NUMBER,
+        VALUE_TRUE,
+        VALUE_FALSE,
+        VALUE_NULL
+    }
+
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+
+    // What the reader expects to find next
+    private static final int VALUE = 0;
+    private static final int FIRST_VALUE = 1;
+    private static final int KEY = 2;
+    private static final int FIRST_KEY = 3;
+    private static final int SEPARATOR = 4;
+    private static final int DONE = 5;
+
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+
+    /**
+     * The default maximum nesting depth of objects and arrays.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 1000;
+
+    private final byte[] buf;
+    private final int begin;
+    private final int end;
+    private int pos;
+
+    private int state = VALUE;
+    private byte[] stack = new byte[16];
+    private int depth;
+
+    private Event event;
+    private int tokenStart;
+    private int tokenEnd;
+    private boolean tokenEscaped;
+    private boolean tokenAscii;
+    private boolean tokenIntegral;
+    private char[] chars;
+
+    private boolean nativeNumbers = false;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+
+
+    /**
+     * Creates a reader for the bytes between the start and end of the given chunk. The chunk is not modified.
+     *
+     * @param input The UTF-8 encoded document
+     */
+    public JSONReader(ByteChunk input) {
+        this(input.getBuffer() == null ? new byte[0] : input.getBuffer(), input.getStart(), input.getLength());
+    }
+
+
+    /**
+     * Creates a reader for the bytes between the position and the limit of the given buffer. The position of the
+     * buffer is not modified. The content of a buffer that is not backed by an accessible array is copied.
+     *
+     * @param input The UTF-8 encoded document
+     */
+    public JSONReader(ByteBuffer input) {
+        if (input.hasArray()) {
+            buf = input.array();
+            begin = input.arrayOffset() + input.position();
+        } else {
+            buf = new byte[input.remaining()];
+            input.duplicate().get(buf);
+            begin = 0;
+        }
+        end = begin + input.remaining();
+        pos = begin;
+    }
+
+
+    /**
+     * Creates a reader for the given bytes. The bytes are not modified.
+     *
+     * @param b   The UTF-8 encoded document
+     * @param off The offset of the start of the document
+     * @param len The length of the document
+     */
+    public JSONReader(byte[] b, int off, int len) {
+        buf = b;
+        begin = off;
+        end = off + len;
+        pos = off;
+    }
+
+
+    /**
+     * Configures how {@link #readValue()} represents numbers.
+     *
+     * @param nativeNumbers If {@code true}, numbers are returned as {@code Long} or {@code Double}, otherwise as
+     *                          {@code BigInteger} or {@code BigDecimal}. The default is {@code false} which is
+     *                          consistent with {@link JSONParser}.
+     */
+    public void setNativeNumbers(boolean nativeNumbers) {
+        this.nativeNumbers = nativeNumbers;
+    }
+
+
+    /**
+     * @return {@code true} if {@link #readValue()} returns numbers as {@code Long} or {@code Double}
+     */
+    public boolean getNativeNumbers() {
+        return nativeNumbers;
+    }
+
+
+    /**
+     * Configures the maximum nesting depth of objects and arrays. A document that nests deeper is rejected which bounds
+     * the recursion of {@link #readValue()}.
+     *
+     * @param maxDepth The maximum nesting depth. The default is {@value #DEFAULT_MAX_DEPTH}.
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+
+    /**
+     * @return the maximum nesting depth of objects and arrays
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+
+    /**
+     * Are there further events in the document?
+     *
+     * @return {@code false} once the event that completes the document has been read, otherwise {@code true}
+     */
+    public boolean hasNext() {
+        return state != DONE;
+    }
+
+
+    /**
+     * Read the next event from the document.
+     *
+     * @return the event
+     *
+     * @throws ParseException         if the document is not valid JSON
+     * @throws NoSuchElementException if the whole document has already been read
+     */
+    public Event next() throws ParseException {
+        skipWhitespace();
+        switch (state) {
+            case DONE:
+                throw new NoSuchElementException();
+            case SEPARATOR: {
+                byte b = peek();
+                if (b == ',') {
+                    pos++;
+                    skipWhitespace();
+                    state = stack[depth - 1] == OBJECT ? KEY : VALUE;
+                } else if (b == '}' && stack[depth - 1] == OBJECT || b == ']' && stack[depth - 1] == ARRAY) {
+                    return close();
+                } else {
+                    throw unexpectedInput();
+                }
+                break;
+            }
+            case FIRST_KEY:
+                if (peek() == '}') {
+                    return close();
+                }
+                state = KEY;
+                break;
+            case FIRST_VALUE:
+                if (peek() == ']') {
+                    return close();
+                }
+                state = VALUE;
+                break;
+            default:
+                break;
+        }
+
+        if (state == KEY) {
+            if (peek() != '"') {
+                throw unexpectedInput();
+            }
+            scanString();
+            skipWhitespace();
+            if (peek() != ':') {
+                throw unexpectedInput();
+            }
+            pos++;
+            state = VALUE;
+            event = Event.KEY_NAME;
+            return event;
+        }
+
+        switch (peek()) {
+            case '{':
+                pos++;
+                push(OBJECT);
+                state = FIRST_KEY;
+                event = Event.START_OBJECT;
+                return event;
+            case '[':
+                pos++;
+                push(ARRAY);
+                state = FIRST_VALUE;
+                event = Event.START_ARRAY;
+                return event;
+            case '"':
+                scanString();
+                return valueRead(Event.VALUE_STRING);
+            case 't':
+                scanLiteral(TRUE);
+                return valueRead(Event.VALUE_TRUE);
+            case 'f':
+                scanLiteral(FALSE);
+                return valueRead(Event.VALUE_FALSE);
+            case 'n':
+                scanLiteral(NULL);
+                return valueRead(Event.VALUE_NULL);
+            default:
+                scanNumber();
+                return valueRead(Event.VALUE_NUMBER);
+        }
+    }
+
+
+    /**
+     * Obtain the key name, string value or number from the current event.
+     *
+     * @return the decoded text of the current event
+     *
+     * @throws IllegalStateException if the current event is not {@link Event#KEY_NAME}, {@link Event#VALUE_STRING} or
+     *                                   {@link Event#VALUE_NUMBER}
+     */
+    public String getString() {
+        checkEvent(event == Event.KEY_NAME || event == Event.VALUE_STRING || event == Event.VALUE_NUMBER);
+        int len = tokenEnd - tokenStart;
+        if (!tokenEscaped) {
+            return new String(buf, tokenStart, len, tokenAscii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+        }
+        // Escape sequences and multi-byte characters always decode to fewer chars than bytes
+        if (chars == null || chars.length < len) {
+            chars = new char[Math.max(len, 64)];
+        }
+        int count = 0;
+        int p = tokenStart;
+        while (p < tokenEnd) {
+            int b = buf[p] & 0xFF;
+            if (b == '\\') {
+                b = buf[p + 1];
+                p += 2;
+                if (b == 'u') {
+                    chars[count++] = (char) ((HexUtils.getDec(buf[p]) << 12) | (HexUtils.getDec(buf[p + 1]) << 8) |
+                            (HexUtils.getDec(buf[p + 2]) << 4) | HexUtils.getDec(buf[p + 3]));
+                    p += 4;
+                } else {
+                    chars[count++] = unescape(b);
+                }
+            } else if (b < 0x80) {
+                chars[count++] = (char) b;
+                p++;
+            } else if (b < 0xE0) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (buf[p + 1] & 0x3F));
+                p += 2;
+            } else if (b < 0xF0) {
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((buf[p + 1] & 0x3F) << 6) | (buf[p + 2] & 0x3F));
+                p += 3;
+            } else {
+                int codePoint = ((b & 0x07) << 18) | ((buf[p + 1] & 0x3F) << 12) | ((buf[p + 2] & 0x3F) << 6) |
+                        (buf[p + 3] & 0x3F);
+                chars[count++] = Character.highSurrogate(codePoint);
+                chars[count++] = Character.lowSurrogate(codePoint);
+                p += 4;
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+
+    /**
+     * Compare the key name or string value of the current event with the given string. If the value does not contain
+     * escape sequences or non-ASCII characters the comparison is made without decoding the value.
+     *
+     * @param s The string to compare with
+     *
+     * @return {@code true} if the current value is equal to the given string
+     *
+     * @throws IllegalStateException if the current event is not {@link Event#KEY_NAME} or {@link Event#VALUE_STRING}
+     */
+    public boolean isString(String s) {
+        checkEvent(event == Event.KEY_NAME || event == Event.VALUE_STRING);
+        if (tokenEscaped || !tokenAscii) {
+            return getString().equals(s);
+        }
+        int len = tokenEnd - tokenStart;
+        if (s.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (buf[tokenStart + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Does the number of the current event have neither a fraction nor an exponent?
+     *
+     * @return {@code true} if the number is written as an integer
+     *
+     * @throws IllegalStateException if the current event is not {@link Event#VALUE_NUMBER}
+     */
+    public boolean isIntegralNumber() {
+        checkEvent(event == Event.VALUE_NUMBER);
+        return tokenIntegral;
+    }
+
+
+    /**
+     * Obtain the number of the current event as a {@code long}.
+     *
+     * @return the number
+     *
+     * @throws IllegalStateException if the current event is not {@link Event#VALUE_NUMBER}
+     * @throws ArithmeticException   if the number has a fractional part or does not fit in a {@code long}
+     */
+    public long getLong() {
+        checkEvent(event == Event.VALUE_NUMBER);
+        int p = tokenStart;
+        boolean negative = buf[p] == '-';
+        if (negative) {
+            p++;
+        }
+        // Up to 18 digits can't overflow
+        if (tokenIntegral && tokenEnd - p < 19) {
+            long result = 0;
+            while (p < tokenEnd) {
+                result = result * 10 + (buf[p++] - '0');
+            }
+            return negative ? -result : result;
+        }
+        return getBigDecimal().longValueExact();
+    }
+
+
+    /**
+     * Obtain the number of the current event as a {@code double}.
+     *
+     * @return the number
+     *
+     * @throws IllegalStateException if the current event is not {@link Event#VALUE_NUMBER}
+     */
+    public double getDouble() {
+        return Double.parseDouble(getNumber());
+    }
+
+
+    /**
+     * Obtain the number of the current event as a {@code BigDecimal}.
+     *
+     * @return the number
+     *
+     * @throws IllegalStateException if the current event is not {@link Event#VALUE_NUMBER}
+     */
+    public BigDecimal getBigDecimal() {
+        return new BigDecimal(getNumber());
+    }
+
+
+    /**
+     * Read the next value in full. Objects are returned as {@code LinkedHashMap<String,Object>} and arrays as
+     * {@code ArrayList<Object>}, consistent with {@link JSONParser}. A {@code null} value is returned as
+     * {@code null}.
+     *
+     * @return the value
+     *
+     * @throws ParseException         if the document is not valid JSON
+     * @throws IllegalStateException  if the next event is the end of an object or an array
+     * @throws NoSuchElementException if the whole document has already been read
+     */
+    public Object readValue() throws ParseException {
+        return readValue(next());
+    }
+
+
+    /**
+     * Read and discard the next value. Skipped strings and numbers are not decoded.
+     *
+     * @throws ParseException         if the document is not valid JSON
+     * @throws IllegalStateException  if the next event is the end of an object or an array
+     * @throws NoSuchElementException if the whole document has already been read
+     */
+    public void skipValue() throws ParseException {
+        Event e = next();
+        checkEvent(e != Event.END_OBJECT && e != Event.END_ARRAY);
+        int level = 0;
+        while (true) {
+            if (e == Event.START_OBJECT || e == Event.START_ARRAY) {
+                level++;
+            } else if (e == Event.END_OBJECT || e == Event.END_ARRAY) {
+                level--;
+            }
+            if (level == 0) {
+                return;
+            }
+            e = next();
+        }
+    }
+
+
+    private Object readValue(Event e) throws ParseException {
+        switch (e) {
+            case START_OBJECT: {
+                LinkedHashMap<String,Object> object = new LinkedHashMap<>();
+                while (next() == Event.KEY_NAME) {
+                    String key = getString();
+                    object.put(key, readValue(next()));
+                }
+                return object;
+            }
+            case START_ARRAY: {
+                ArrayList<Object> array = new ArrayList<>();
+                Event element;
+                while ((element = next()) != Event.END_ARRAY) {
+                    array.add(readValue(element));
+                }
+                return array;
+            }
+            case VALUE_STRING:
+                return getString();
+            case VALUE_NUMBER:
+                if (tokenIntegral) {
+                    return nativeNumbers ? Long.valueOf(getLong()) : new BigInteger(getNumber());
+                } else if (nativeNumbers) {
+                    return Double.valueOf(getDouble());
+                } else {
+                    return getBigDecimal();
+                }
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            case VALUE_NULL:
+                return null;
+            default:
+                throw new IllegalStateException(sm.getString("jsonReader.noValue", e));
+        }
+    }
+
+
+    private String getNumber() {
+        checkEvent(event == Event.VALUE_NUMBER);
+        return new String(buf, tokenStart, tokenEnd - tokenStart, StandardCharsets.ISO_8859_1);
+    }
+
+
+    private void checkEvent(boolean valid) {
+        if (!valid) {
+            throw new IllegalStateException(sm.getString("jsonReader.noValue", event));
+        }
+    }
+
+
+    private byte peek() throws ParseException {
+        if (pos >= end) {
+            throw new ParseException(sm.getString("jsonReader.unexpectedEnd"));
+        }
+        return buf[pos];
+    }
+
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte b = buf[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+
+    private void push(byte type) throws ParseException {
+        if (depth >= maxDepth) {
+            throw new ParseException(
+                    sm.getString("jsonReader.tooDeep", Integer.valueOf(maxDepth), Integer.valueOf(pos - 1 - begin)));
+        }
+        if (depth == stack.length) {
+            byte[] tmp = new byte[depth * 2];
+            System.arraycopy(stack, 0, tmp, 0, depth);
+            stack = tmp;
+        }
+        stack[depth++] = type;
+    }
+
+
+    private Event close() throws ParseException {
+        pos++;
+        return valueRead(stack[--depth] == OBJECT ? Event.END_OBJECT : Event.END_ARRAY);
+    }
+
+
+    private Event valueRead(Event e) throws ParseException {
+        if (depth > 0) {
+            state = SEPARATOR;
+        } else {
+            state = DONE;
+            skipWhitespace();
+            if (pos < end) {
+                throw unexpectedInput();
+            }
+        }
+        event = e;
+        return event;
+    }
+
+
+    private void scanLiteral(byte[] literal) throws ParseException {
+        if (end - pos < literal.length) {
+            throw new ParseException(sm.getString("jsonReader.unexpectedEnd"));
+        }
+        for (byte b : literal) {
+            if (buf[pos] != b) {
+                throw unexpectedInput();
+            }
+            pos++;
+        }
+    }
+
+
+    private void scanNumber() throws ParseException {
+        int start = pos;
+        boolean integral = true;
+        if (buf[pos] == '-') {
+            pos++;
+        }
+        if (peek() == '0') {
+            pos++;
+        } else if (scanDigits() == 0) {
+            throw unexpectedInput();
+        }
+        if (pos < end && buf[pos] == '.') {
+            integral = false;
+            pos++;
+            if (scanDigits() == 0) {
+                throw invalidNumber(start);
+            }
+        }
+        if (pos < end && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            integral = false;
+            pos++;
+            if (pos < end && (buf[pos] == '+' || buf[pos] == '-')) {
+                pos++;
+            }
+            if (scanDigits() == 0) {
+                throw invalidNumber(start);
+            }
+        }
+        tokenStart = start;
+        tokenEnd = pos;
+        tokenEscaped = false;
+        tokenAscii = true;
+        tokenIntegral = integral;
+    }
+
+
+    private int scanDigits() {
+        int start = pos;
+        while (pos < end && buf[pos] >= '0' && buf[pos] <= '9') {
+            pos++;
+        }
+        return pos - start;
+    }
+
+
+    /*
+     * Validates the string and records where it starts and ends so it can be decoded later.
+     */
+    private void scanString() throws ParseException {
+        pos++;
+        int start = pos;
+        boolean escaped = false;
+        boolean ascii = true;
+        while (true) {
+            int b = peek() & 0xFF;
+            if (b == '"') {
+                break;
+            } else if (b == '\\') {
+                escaped = true;
+                pos++;
+                b = peek();
+                if (b == 'u') {
+                    if (end - pos < 5) {
+                        throw new ParseException(sm.getString("jsonReader.unexpectedEnd"));
+                    }
+                    for (int i = 1; i < 5; i++) {
+                        if (HexUtils.getDec(buf[pos + i]) < 0) {
+                            throw invalidEscape();
+                        }
+                    }
+                    pos += 5;
+                } else if (unescape(b) != 0) {
+                    pos++;
+                } else {
+                    throw invalidEscape();
+                }
+            } else if (b < 0x20) {
+                throw unexpectedInput();
+            } else if (b < 0x80) {
+                pos++;
+            } else {
+                ascii = false;
+                scanUtf8(b);
+            }
+        }
+        tokenStart = start;
+        tokenEnd = pos;
+        tokenEscaped = escaped;
+        tokenAscii = ascii;
+        pos++;
+    }
+
+
+    /*
+     * Validates a multi-byte UTF-8 sequence. Overlong encodings, surrogates and code points above U+10FFFF are
+     * rejected so the sequence can be decoded later without further checks.
+     */
+    private void scanUtf8(int b) throws ParseException {
+        int count;
+        int min = 0x80;
+        int max = 0xBF;
+        if (b >= 0xC2 && b <= 0xDF) {
+            count = 1;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            count = 2;
+            if (b == 0xE0) {
+                min = 0xA0;
+            } else if (b == 0xED) {
+                max = 0x9F;
+            }
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            count = 3;
+            if (b == 0xF0) {
+                min = 0x90;
+            } else if (b == 0xF4) {
+                max = 0x8F;
+            }
+        } else {
+            throw invalidUtf8();
+        }
+        if (end - pos <= count) {
+            throw new ParseException(sm.getString("jsonReader.unexpectedEnd"));
+        }
+        int b1 = buf[pos + 1] & 0xFF;
+        if (b1 < min || b1 > max) {
+            throw invalidUtf8();
+        }
+        for (int i = 2; i <= count; i++) {
+            if ((buf[pos + i] & 0xC0) != 0x80) {
+                throw invalidUtf8();
+            }
+        }
+        pos += count + 1;
+    }
+
+
+    /*
+     * Returns the character for a single character escape sequence or zero if the sequence is not valid.
+     */
+    private static char unescape(int b) {
+        return switch (b) {
+            case '"', '\\', '/' -> (char) b;
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            default -> 0;
+        };
+    }
+
+
+    private ParseException unexpectedInput() {
+        return new ParseException(sm.getString("jsonReader.unexpectedInput", Integer.valueOf(pos - begin)));
+    }
+
+
+    private ParseException invalidEscape() {
+        return new ParseException(sm.getString("jsonReader.invalidEscape", Integer.valueOf(pos - begin)));
+    }
+
+
+    private ParseException invalidNumber(int start) {
+        return new ParseException(sm.getString("jsonReader.invalidNumber", Integer.valueOf(start - begin)));
+    }
+
+
+    private ParseException invalidUtf8() {
+        return new ParseException(sm.getString("jsonReader.invalidUtf8", Integer.valueOf(pos - begin)));
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.json;
+
+import java.io.IOException;
+
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.HexUtils;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Streaming writer that generates a UTF-8 encoded JSON document, as defined by
+ * <a href="https://www.rfc-editor.org/rfc/rfc8259.html">RFC 8259</a>, directly into a {@link ByteChunk}. Strings are
+ * escaped and encoded in a single pass without creating intermediate {@code String} or {@code char[]} objects. If the
+ * chunk has a limit and an output channel, the document is written to the channel as the chunk fills up.
+ * <p>
+ * The writer checks that the methods are called in an order that produces a valid document. Instances are not thread
+ * safe.
+ */
+public class JSONWriter {
+
+    private static final StringManager sm = StringManager.getManager(JSONWriter.class);
+
+    private static final byte OBJECT = 1;
+    private static final byte ARRAY = 2;
+    private static final byte NOT_EMPTY = 4;
+
+    private final ByteChunk out;
+    private final boolean pretty;
+    private final byte[] buf = new byte[256];
+    private int count;
+
+    private byte[] stack = new byte[16];
+    private int depth;
+    private boolean afterName;
+    private boolean complete;
+
+
+    /**
+     * Creates a writer that generates a compact document.
+     *
+     * @param out The chunk the document is written to
+     */
+    public JSONWriter(ByteChunk out) {
+        this(out, false);
+    }
+
+
+    /**
+     * Creates a writer.
+     *
+     * @param out    The chunk the document is written to
+     * @param pretty If {@code true}, each member and element is written on a new line, indented by two spaces per
+     *                   level of nesting
+     */
+    public JSONWriter(ByteChunk out, boolean pretty) {
+        this.out = out;
+        this.pretty = pretty;
+    }
+
+
+    /**
+     * Starts an object.
+     *
+     * @throws IOException           if the chunk is full and writing to its output channel failed
+     * @throws IllegalStateException if a value is not permitted at this point
+     */
+    public void startObject() throws IOException {
+        startContainer(OBJECT, '{', "startObject");
+    }
+
+
+    /**
+     * Ends the current object.
+     *
+     * @throws IOException           if the chunk is full and writing to its output channel failed
+     * @throws IllegalStateException if the current value is not an object or a name has been written without a value
+     */
+    public void endObject() throws IOException {
+        endContainer(OBJECT, '}', "endObject");
+    }
+
+
+    /**
+     * Starts an array.
+     *
+     * @throws IOException           if the chunk is full and writing to its output channel failed
+     * @throws IllegalStateException if a value is not permitted at this point
+     */
+    public void startArray() throws IOException {
+        startContainer(ARRAY, '[', "startArray");
+    }
+
+
+    /**
+     * Ends the current array.
+     *
+     * @throws IOException           if the chunk is full and writing to its output channel failed
+     * @throws IllegalStateException if the current value is not an array
+     */
+    public void endArray() throws IOException {
+        endContainer(ARRAY, ']', "endArray");
+    }
+
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name The name
+     *
+     * @throws IOException           if the chunk is full and writing to its output channel failed
+     * @throws IllegalStateException if the current value is not an object or the previous name has no value
+     */
+    public void name(String name) throws IOException {
+        if (depth == 0 || (stack[depth - 1] & OBJECT) == 0 || afterName) {
+            throw new IllegalStateException(sm.getString("jsonWriter.invalidState", "name"));
+        }
+        separator();
+        string(name);
+        put(':');
+        if (pretty) {
+            put(' ');
+        }
+        afterName = true;
+        flush();
+    }
+
+
+    /**
+     * Writes a string value.
+     *
+     * @param value The value. {@code null} is written as the JSON {@code null} literal.
+     *
+     * @throws IOException           if the chunk is full and writing to its output channel failed
+     * @throws IllegalStateException if a value is not permitted at this point
+     */
+    public void value(String value) throws IOException {
+        if (value == null) {
+            nullValue();
+            return;
+        }
+        beforeValue("value");
+        string(value);
+        afterValue();
+    }
+
+
+    /**
+     * Writes a number value.
+     *
+     * @param value The value
+     *
+     * @throws IOException           if the chunk is full and writing to its output channel failed
+     * @throws IllegalStateException if a value is not permitted at this point
+     */
+    public void value(long value) throws IOException {
+        beforeValue("value");
+        if (value == Long.MIN_VALUE) {
+            ascii("-9223372036854775808");
+        } else {
+            if (value < 0) {
+                put('-');
+                value = -value;
+            }
+            int digits = 1;
+            for (long v = value; v >= 10; v /= 10) {
+                digits++;
+            }
+            if (count + digits > buf.length) {
+                flush();
+            }
+            for (int i = count + digits - 1; i >= count; i--) {
+                buf[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            count += digits;
+        }
+        afterValue();
+    }
+
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value The value
+     *
+     * @throws IOException           if the chunk is full and writing to its output channel failed
+     * @throws IllegalStateException if a value is not permitted at this point
+     */
+    public void value(boolean value) throws IOException {
+        beforeValue("value");
+        ascii(value ? "true" : "false");
+        afterValue();
+    }
+
+
+    /**
+     * Writes the {@code null} literal.
+     *
+     * @throws IOException           if the chunk is full and writing to its output channel failed
+     * @throws IllegalStateException if a value is not permitted at this point
+     */
+    public void nullValue() throws IOException {
+        beforeValue("nullValue");
+        ascii("null");
+        afterValue();
+    }
+
+
+    private void startContainer(byte type, char c, String method) throws IOException {
+        beforeValue(method);
+        if (depth == stack.length) {
+            byte[] tmp = new byte[depth * 2];
+            System.arraycopy(stack, 0, tmp, 0, depth);
+            stack = tmp;
+        }
+        stack[depth++] = type;
+        put(c);
+        flush();
+    }
+
+
+    private void endContainer(byte type, char c, String method) throws IOException {
+        if (depth == 0 || (stack[depth - 1] & type) == 0 || afterName) {
+            throw new IllegalStateException(sm.getString("jsonWriter.invalidState", method));
+        }
+        boolean empty = (stack[--depth] & NOT_EMPTY) == 0;
+        if (pretty && !empty) {
+            newLine();
+        }
+        put(c);
+        afterValue();
+    }
+
+
+    private void beforeValue(String method) throws IOException {
+        if (depth == 0) {
+            if (complete) {
+                throw new IllegalStateException(sm.getString("jsonWriter.invalidState", method));
+            }
+        } else if ((stack[depth - 1] & OBJECT) != 0) {
+            if (!afterName) {
+                throw new IllegalStateException(sm.getString("jsonWriter.invalidState", method));
+            }
+            afterName = false;
+        } else {
+            separator();
+        }
+    }
+
+
+    private void afterValue() throws IOException {
+        if (depth == 0) {
+            complete = true;
+        }
+        flush();
+    }
+
+
+    private void separator() throws IOException {
+        if ((stack[depth - 1] & NOT_EMPTY) != 0) {
+            put(',');
+        } else {
+            stack[depth - 1] |= NOT_EMPTY;
+        }
+        if (pretty) {
+            newLine();
+        }
+    }
+
+
+    private void newLine() throws IOException {
+        put('\n');
+        for (int i = 0; i < depth; i++) {
+            put(' ');
+            put(' ');
+        }
+    }
+
+
+    private void string(String s) throws IOException {
+        put('"');
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            // Make sure there is room for the longest sequence written for a single character
+            if (count > buf.length - 6) {
+                flush();
+            }
+            if (c < 0x80) {
+                if (c < 0x20 || c == '"' || c == '\\') {
+                    escape(c);
+                } else {
+                    buf[count++] = (byte) c;
+                }
+            } else if (c < 0x800) {
+                buf[count++] = (byte) (0xC0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                buf[count++] = (byte) (0xE0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buf[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                // A lone surrogate can't be encoded as UTF-8 but it can be escaped
+                escape(c);
+            }
+        }
+        put('"');
+    }
+
+
+    private void escape(char c) {
+        buf[count++] = '\\';
+        char popular = JSONFilter.getPopularChar(c);
+        if (popular > 0) {
+            buf[count++] = (byte) popular;
+        } else {
+            buf[count++] = 'u';
+            buf[count++] = HexUtils.getHex((c >> 12) & 0xF);
+            buf[count++] = HexUtils.getHex((c >> 8) & 0xF);
+            buf[count++] = HexUtils.getHex((c >> 4) & 0xF);
+            buf[count++] = HexUtils.getHex(c & 0xF);
+        }
+    }
+
+
+    private void ascii(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            put(s.charAt(i));
+        }
+    }
+
+
+    private void put(char c) throws IOException {
+        if (count == buf.length) {
+            flush();
+        }
+        buf[count++] = (byte) c;
+    }
+
+
+    private void flush() throws IOException {
+        if (count > 0) {
+            out.append(buf, 0, count);
+            count = 0;
+        }
+    }
+}
@@ -51,9 +51,15 @@ import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.net.ssl.SSLEngine;
 
@@ -66,6 +72,7 @@ import org.apache.tomcat.util.compat.JrePlatform;
 import org.apache.tomcat.util.net.AbstractEndpoint.Handler.SocketState;
 import org.apache.tomcat.util.net.Acceptor.AcceptorState;
 import org.apache.tomcat.util.net.jsse.JSSESupport;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
 
 /**
  * NIO endpoint.
@@ -333,11 +340,58 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         return this.selectorTimeout;
     }
 
+
+    /**
+     * Use a dedicated virtual thread per connection that performs blocking reads and writes directly rather than
+     * the poller.
+     */
+    private boolean useVirtualThreadPerConnection = false;
+
+    /**
+     * Set whether each connection should be served by a dedicated virtual thread using blocking I/O instead of the
+     * poller. This mode is not supported with TLS and will be ignored, with a warning, if TLS is enabled.
+     *
+     * @param useVirtualThreadPerConnection {@code true} to use a virtual thread per connection
+     */
+    public void setUseVirtualThreadPerConnection(boolean useVirtualThreadPerConnection) {
+        this.useVirtualThreadPerConnection = useVirtualThreadPerConnection;
+    }
+
+    /**
+     * Returns whether each connection should be served by a dedicated virtual thread.
+     *
+     * @return {@code true} if a virtual thread per connection has been requested
+     */
+    public boolean getUseVirtualThreadPerConnection() {
+        return useVirtualThreadPerConnection;
+    }
+
     /**
      * The socket poller.
      */
     private Poller poller = null;
 
+    /**
+     * Is the endpoint running with a virtual thread per connection. Fixed when the endpoint starts.
+     */
+    private volatile boolean virtualThreadPerConnection = false;
+
+    /**
+     * Creates the virtual threads used to serve connections when running with a virtual thread per connection.
+     */
+    private ThreadFactory connectionThreadFactory = null;
+
+    /**
+     * Periodic task enforcing read and write timeouts of blocking operations when running with a virtual thread per
+     * connection.
+     */
+    private ScheduledFuture<?> timeoutFuture = null;
+
+    /**
+     * Number of connections waiting for data on their virtual thread.
+     */
+    private final AtomicInteger virtualThreadKeepAliveCount = new AtomicInteger();
+
 
     // --------------------------------------------------------- Public Methods
 
@@ -348,7 +402,9 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
      *             the socket
      */
     public int getKeepAliveCount() {
-        if (poller == null) {
+        if (virtualThreadPerConnection) {
+            return virtualThreadKeepAliveCount.get();
+        } else if (poller == null) {
             return 0;
         } else {
             return poller.getKeyCount();
@@ -517,11 +573,19 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             running = true;
             paused = false;
 
-            if (socketProperties.getProcessorCache() != 0) {
+            virtualThreadPerConnection = useVirtualThreadPerConnection;
+            if (virtualThreadPerConnection && isSSLEnabled()) {
+                log.warn(sm.getString("endpoint.nio.virtualThreadPerConnection.ssl", getName()));
+                virtualThreadPerConnection = false;
+            }
+
+            // Each connection is processed inline on its own virtual thread so
+            // neither processors nor poller events need to be cached
+            if (socketProperties.getProcessorCache() != 0 && !virtualThreadPerConnection) {
                 processorCache =
                         new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, socketProperties.getProcessorCache());
             }
-            if (socketProperties.getEventCache() != 0) {
+            if (socketProperties.getEventCache() != 0 && !virtualThreadPerConnection) {
                 eventCache = new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, socketProperties.getEventCache());
             }
             int actualBufferPool = socketProperties.getActualBufferPool(isSSLEnabled() ? getSniParseLimit() * 2 : 0);
@@ -536,12 +600,19 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
             initializeConnectionLatch();
 
-            // Start poller thread
-            poller = new Poller();
-            Thread pollerThread = new Thread(poller, getName() + "-Poller");
-            pollerThread.setPriority(pollerThreadPriority);
-            pollerThread.setDaemon(true);
-            pollerThread.start();
+            if (virtualThreadPerConnection) {
+                connectionThreadFactory = Thread.ofVirtual().name(getName() + "-conn-", 0).factory();
+                long timeoutInterval = socketProperties.getTimeoutInterval();
+                timeoutFuture = getUtilityExecutor().scheduleWithFixedDelay(this::timeout, timeoutInterval,
+                        timeoutInterval, TimeUnit.MILLISECONDS);
+            } else {
+                // Start poller thread
+                poller = new Poller();
+                Thread pollerThread = new Thread(poller, getName() + "-Poller");
+                pollerThread.setPriority(pollerThreadPriority);
+                pollerThread.setDaemon(true);
+                pollerThread.start();
+            }
 
             startAcceptorThread();
         }
@@ -564,16 +635,28 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
              */
             int acceptorWaitMilliSeconds = 100 + 2 * getSocketProperties().getUnlockTimeout();
             acceptor.stopMillis(acceptorWaitMilliSeconds);
-            if (poller != null) {
-                poller.destroy();
-                poller = null;
-            }
-            try {
-                if (!getStopLatch().await(selectorTimeout + 100, TimeUnit.MILLISECONDS)) {
-                    log.warn(sm.getString("endpoint.nio.stopLatchAwaitFail"));
+            if (virtualThreadPerConnection) {
+                if (timeoutFuture != null) {
+                    timeoutFuture.cancel(false);
+                    timeoutFuture = null;
+                }
+                // Closing the connections terminates their virtual threads
+                for (SocketWrapperBase<NioChannel> socketWrapper : connections.values()) {
+                    socketWrapper.close();
+                }
+                connectionThreadFactory = null;
+            } else {
+                if (poller != null) {
+                    poller.destroy();
+                    poller = null;
+                }
+                try {
+                    if (!getStopLatch().await(selectorTimeout + 100, TimeUnit.MILLISECONDS)) {
+                        log.warn(sm.getString("endpoint.nio.stopLatchAwaitFail"));
+                    }
+                } catch (InterruptedException e) {
+                    log.warn(sm.getString("endpoint.nio.stopLatchAwaitInterrupted"), e);
                 }
-            } catch (InterruptedException e) {
-                log.warn(sm.getString("endpoint.nio.stopLatchAwaitInterrupted"), e);
             }
             shutdownExecutor();
             if (eventCache != null) {
@@ -712,6 +795,34 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * When running with a virtual thread per connection, the internal executor always uses virtual threads.
+     */
+    @Override
+    public void createExecutor() {
+        if (virtualThreadPerConnection) {
+            setExecutor(new VirtualThreadExecutor(getName() + "-virt-"));
+            internalExecutor = true;
+        } else {
+            super.createExecutor();
+        }
+    }
+
+
+    /*
+     * Blocking reads and writes performed without the poller have no timeout of their own. This periodic task
+     * interrupts the operations that have exceeded the read or write timeout of their connection.
+     */
+    private void timeout() {
+        long now = System.currentTimeMillis();
+        for (SocketWrapperBase<NioChannel> socketWrapper : connections.values()) {
+            ((NioSocketWrapper) socketWrapper).checkBlockingTimeouts(now);
+        }
+    }
+
+
     /**
      * Process the specified connection.
      *
@@ -740,8 +851,9 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             socketWrapper = newWrapper;
 
             // Set socket properties
-            // Disable blocking, polling will be used
-            socket.configureBlocking(false);
+            // Disable blocking unless the connection has its own thread,
+            // otherwise polling will be used
+            socket.configureBlocking(virtualThreadPerConnection);
             if (getUnixDomainSocketPath() == null) {
                 socketProperties.setProperties(socket.socket());
             }
@@ -749,7 +861,11 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             socketWrapper.setReadTimeout(getConnectionTimeout());
             socketWrapper.setWriteTimeout(getConnectionTimeout());
             socketWrapper.setKeepAliveLeft(NioEndpoint.this.getMaxKeepAliveRequests());
-            poller.register(socketWrapper);
+            if (virtualThreadPerConnection) {
+                socketWrapper.startConnectionThread();
+            } else {
+                poller.register(socketWrapper);
+            }
             return true;
         } catch (Throwable t) {
             ExceptionUtils.handleThrowable(t);
@@ -1442,6 +1558,23 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         private final Object writeLock;
         private volatile boolean writeBlocking = false;
 
+        /*
+         * State used when the connection is served by its own virtual thread. The channel is then in blocking mode
+         * and only blocking reads and writes access it. Non-blocking reads are served from the read buffer and
+         * non-blocking writes are completed by a virtual thread started when write interest is registered.
+         */
+        private final boolean virtualThreadPerConnection;
+        private final ReentrantLock blockingReadLock;
+        private final ReentrantLock blockingWriteLock;
+        private volatile Thread connectionThread = null;
+        private volatile boolean readInterest = true;
+        private final AtomicBoolean writeInterest = new AtomicBoolean();
+        private volatile long readBlockingSince = 0;
+        private volatile long writeBlockingSince = 0;
+        private volatile boolean readTimedOut = false;
+        private volatile boolean writeTimedOut = false;
+        private volatile IOException readError = null;
+
         /**
          * Creates a new NIO socket wrapper.
          *
@@ -1464,6 +1597,15 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             socketBufferHandler = channel.getBufHandler();
             readLock = (readPending == null) ? new Object() : readPending;
             writeLock = (writePending == null) ? new Object() : writePending;
+            virtualThreadPerConnection = endpoint.virtualThreadPerConnection;
+            if (virtualThreadPerConnection) {
+                // Virtual threads must not block on I/O while holding a monitor
+                blockingReadLock = new ReentrantLock();
+                blockingWriteLock = new ReentrantLock();
+            } else {
+                blockingReadLock = null;
+                blockingWriteLock = null;
+            }
         }
 
         /**
@@ -1559,6 +1701,22 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
         @Override
         public boolean isReadyForRead() throws IOException {
+            if (virtualThreadPerConnection) {
+                if (!blockingReadLock.tryLock()) {
+                    // The connection thread is filling the read buffer
+                    return false;
+                }
+                try {
+                    return doIsReadyForRead();
+                } finally {
+                    blockingReadLock.unlock();
+                }
+            }
+            return doIsReadyForRead();
+        }
+
+
+        private boolean doIsReadyForRead() throws IOException {
             socketBufferHandler.configureReadBufferForRead();
 
             if (socketBufferHandler.getReadBuffer().remaining() > 0) {
@@ -1573,6 +1731,21 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
         @Override
         public int read(boolean block, byte[] b, int off, int len) throws IOException {
+            if (virtualThreadPerConnection) {
+                if (!lockForRead(block)) {
+                    return 0;
+                }
+                try {
+                    return doRead(block, b, off, len);
+                } finally {
+                    blockingReadLock.unlock();
+                }
+            }
+            return doRead(block, b, off, len);
+        }
+
+
+        private int doRead(boolean block, byte[] b, int off, int len) throws IOException {
             int nRead = populateReadBuffer(b, off, len);
             if (nRead > 0) {
                 return nRead;
@@ -1600,6 +1773,21 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
         @Override
         public int read(boolean block, ByteBuffer to) throws IOException {
+            if (virtualThreadPerConnection) {
+                if (!lockForRead(block)) {
+                    return 0;
+                }
+                try {
+                    return doRead(block, to);
+                } finally {
+                    blockingReadLock.unlock();
+                }
+            }
+            return doRead(block, to);
+        }
+
+
+        private int doRead(boolean block, ByteBuffer to) throws IOException {
             int nRead = populateReadBuffer(to);
             if (nRead > 0) {
                 return nRead;
@@ -1662,6 +1850,8 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 socketBufferHandler = SocketBufferHandler.EMPTY;
                 nonBlockingWriteBuffer.clear();
                 reset(NioChannel.CLOSED_NIO_CHANNEL);
+                // Let the connection thread, if any, terminate
+                LockSupport.unpark(connectionThread);
             }
             try {
                 SendfileData data = getSendfileData();
@@ -1687,6 +1877,9 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             if (getSocket() == NioChannel.CLOSED_NIO_CHANNEL) {
                 throw new ClosedChannelException();
             }
+            if (virtualThreadPerConnection) {
+                return fillReadBufferBlockingChannel(block, buffer);
+            }
             if (block) {
                 long timeout = getReadTimeout();
                 long startNanos = 0;
@@ -1737,6 +1930,48 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         }
 
 
+        /*
+         * The channel is in blocking mode. Non-blocking reads cannot use it so they only see the data already read by
+         * the connection thread, or the error that stopped it reading.
+         */
+        private int fillReadBufferBlockingChannel(boolean block, ByteBuffer buffer) throws IOException {
+            IOException error = readError;
+            if (error != null) {
+                throw error;
+            }
+            if (!block) {
+                return 0;
+            }
+            int n;
+            readBlockingSince = System.currentTimeMillis();
+            try {
+                n = getSocket().read(buffer);
+            } catch (IOException ioe) {
+                error = readTimedOut ? new SocketTimeoutException() : ioe;
+                readError = error;
+                throw error;
+            } finally {
+                readBlockingSince = 0;
+            }
+            if (n == -1) {
+                error = readTimedOut ? new SocketTimeoutException() : new EOFException();
+                readError = error;
+                throw error;
+            }
+            return n;
+        }
+
+
+        private boolean lockForRead(boolean block) {
+            if (block) {
+                blockingReadLock.lock();
+                return true;
+            } else {
+                return blockingReadLock.tryLock();
+            }
+        }
+
+
         @Override
         protected boolean flushNonBlocking() throws IOException {
             boolean dataLeft = socketOrNetworkBufferHasDataLeft();
@@ -1802,6 +2037,13 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             if (getSocket() == NioChannel.CLOSED_NIO_CHANNEL) {
                 throw new ClosedChannelException();
             }
+            if (virtualThreadPerConnection) {
+                // Non-blocking writes are completed once write interest is registered
+                if (block) {
+                    doWriteBlockingChannel(buffer);
+                }
+                return;
+            }
             if (block) {
                 if (previousIOException != null) {
                     /*
@@ -1876,12 +2118,42 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         }
 
 
+        private void doWriteBlockingChannel(ByteBuffer buffer) throws IOException {
+            if (previousIOException != null) {
+                // See doWrite()
+                throw new IOException(previousIOException);
+            }
+            blockingWriteLock.lock();
+            try {
+                writeBlockingSince = System.currentTimeMillis();
+                while (buffer.hasRemaining()) {
+                    getSocket().write(buffer);
+                }
+            } catch (IOException ioe) {
+                if (writeTimedOut) {
+                    previousIOException = new SocketTimeoutException();
+                    throw previousIOException;
+                }
+                throw ioe;
+            } finally {
+                writeBlockingSince = 0;
+                blockingWriteLock.unlock();
+            }
+            updateLastWrite();
+        }
+
+
         @Override
         public void registerReadInterest() {
             if (log.isTraceEnabled()) {
                 log.trace(sm.getString("endpoint.debug.registerRead", this));
             }
-            getPoller().add(this, SelectionKey.OP_READ);
+            if (virtualThreadPerConnection) {
+                readInterest = true;
+                LockSupport.unpark(connectionThread);
+            } else {
+                getPoller().add(this, SelectionKey.OP_READ);
+            }
         }
 
 
@@ -1890,7 +2162,126 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             if (log.isTraceEnabled()) {
                 log.trace(sm.getString("endpoint.debug.registerWrite", this));
             }
-            getPoller().add(this, SelectionKey.OP_WRITE);
+            if (virtualThreadPerConnection) {
+                if (writeInterest.compareAndSet(false, true)) {
+                    ThreadFactory threadFactory = ((NioEndpoint) getEndpoint()).connectionThreadFactory;
+                    if (threadFactory == null) {
+                        // The endpoint has stopped
+                        close();
+                    } else {
+                        threadFactory.newThread(this::processWriteInterest).start();
+                    }
+                }
+            } else {
+                getPoller().add(this, SelectionKey.OP_WRITE);
+            }
+        }
+
+
+        /**
+         * Starts the virtual thread that will serve this connection. It waits for read interest to be registered,
+         * then blocks until data is available and processes it, until the connection is closed.
+         */
+        protected void startConnectionThread() {
+            Thread thread = ((NioEndpoint) getEndpoint()).connectionThreadFactory.newThread(this::processConnection);
+            connectionThread = thread;
+            thread.start();
+        }
+
+
+        private void processConnection() {
+            NioEndpoint endpoint = (NioEndpoint) getEndpoint();
+            try {
+                while (!isClosed()) {
+                    if (!readInterest) {
+                        LockSupport.park(this);
+                        continue;
+                    }
+                    readInterest = false;
+                    if (readError != null) {
+                        // The error has already been reported to the processor
+                        close();
+                        break;
+                    }
+                    SocketEvent event = SocketEvent.OPEN_READ;
+                    blockingReadLock.lock();
+                    endpoint.virtualThreadKeepAliveCount.incrementAndGet();
+                    try {
+                        if (socketBufferHandler.isReadBufferEmpty()) {
+                            fillReadBuffer(true);
+                        }
+                    } catch (SocketTimeoutException ste) {
+                        setError(ste);
+                        event = SocketEvent.ERROR;
+                    } catch (IOException ioe) {
+                        // Reported when the processor reads
+                    } finally {
+                        endpoint.virtualThreadKeepAliveCount.decrementAndGet();
+                        blockingReadLock.unlock();
+                    }
+                    if (!isClosed() && !endpoint.processSocket(this, event, false)) {
+                        close();
+                    }
+                }
+            } catch (Throwable t) {
+                ExceptionUtils.handleThrowable(t);
+                log.error(sm.getString("endpoint.processing.fail"), t);
+                close();
+            } finally {
+                connectionThread = null;
+            }
+        }
+
+
+        private void processWriteInterest() {
+            writeInterest.set(false);
+            SocketEvent event = SocketEvent.OPEN_WRITE;
+            ReentrantLock lock = getLock();
+            lock.lock();
+            try {
+                if (isClosed()) {
+                    return;
+                }
+                flush(true);
+            } catch (IOException ioe) {
+                setError(ioe);
+                event = SocketEvent.ERROR;
+            } finally {
+                lock.unlock();
+            }
+            if (!getEndpoint().processSocket(this, event, false)) {
+                close();
+            }
+        }
+
+
+        /*
+         * Interrupts a blocking read or write that has exceeded its timeout. Reads are ended by shutting down the
+         * input so that a response may still be written. Writes are ended by closing the channel.
+         */
+        private void checkBlockingTimeouts(long now) {
+            SocketChannel sc = getSocket().getIOChannel();
+            if (sc == null) {
+                return;
+            }
+            try {
+                long since = readBlockingSince;
+                long timeout = getReadTimeout();
+                if (since > 0 && timeout > 0 && now - since > timeout && !readTimedOut) {
+                    readTimedOut = true;
+                    sc.shutdownInput();
+                }
+                since = writeBlockingSince;
+                timeout = getWriteTimeout();
+                if (since > 0 && timeout > 0 && now - since > timeout && !writeTimedOut) {
+                    writeTimedOut = true;
+                    sc.close();
+                }
+            } catch (IOException ioe) {
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("endpoint.err.close"), ioe);
+                }
+            }
         }
 
 
@@ -1903,6 +2294,9 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         @Override
         public SendfileState processSendfile(SendfileDataBase sendfileData) {
             setSendfileData((SendfileData) sendfileData);
+            if (virtualThreadPerConnection) {
+                return processSendfileBlockingChannel((SendfileData) sendfileData);
+            }
             SelectionKey key = getSocket().getIOChannel().keyFor(getPoller().getSelector());
             if (key == null) {
                 return SendfileState.ERROR;
@@ -1913,6 +2307,65 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         }
 
 
+        private SendfileState processSendfileBlockingChannel(SendfileData sd) {
+            if (log.isTraceEnabled()) {
+                log.trace("Processing send file for: " + sd.fileName);
+            }
+            try {
+                if (sd.fchannel == null) {
+                    // Set up the file channel
+                    File f = new File(sd.fileName);
+                    @SuppressWarnings("resource") // Closed when channel is closed
+                    FileInputStream fis = new FileInputStream(f);
+                    sd.fchannel = fis.getChannel();
+                }
+                blockingWriteLock.lock();
+                try {
+                    SocketChannel wc = getSocket().getIOChannel();
+                    while (sd.length > 0) {
+                        writeBlockingSince = System.currentTimeMillis();
+                        long written = sd.fchannel.transferTo(sd.pos, sd.length, wc);
+                        if (written > 0) {
+                            sd.pos += written;
+                            sd.length -= written;
+                            updateLastWrite();
+                        } else if (sd.fchannel.size() <= sd.pos) {
+                            // Check the length was set correctly
+                            throw new IOException(sm.getString("endpoint.sendfile.tooMuchData"));
+                        }
+                    }
+                } catch (IOException ioe) {
+                    throw writeTimedOut ? new SocketTimeoutException() : ioe;
+                } finally {
+                    writeBlockingSince = 0;
+                    blockingWriteLock.unlock();
+                }
+                if (log.isTraceEnabled()) {
+                    log.trace("Send file complete for: " + sd.fileName);
+                }
+                setSendfileData(null);
+                try {
+                    sd.fchannel.close();
+                } catch (Exception ignore) {
+                    // Ignore
+                }
+                return SendfileState.DONE;
+            } catch (IOException ioe) {
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("endpoint.sendfile.error"), ioe);
+                }
+                return SendfileState.ERROR;
+            }
+        }
+
+
+        @Override
+        public boolean hasAsyncIO() {
+            // Asynchronous IO relies on the poller
+            return !virtualThreadPerConnection && super.hasAsyncIO();
+        }
+
+
         @Override
         protected void populateRemoteAddr() {
             SocketChannel sc = getSocket().getIOChannel();
@@ -2156,8 +2609,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
              * connection. That can result in a stale cached value which in turn can result in unintentionally closing
              * currently active connections.
              */
-            Poller poller = NioEndpoint.this.poller;
-            if (poller == null) {
+            if (virtualThreadPerConnection ? !running : NioEndpoint.this.poller == null) {
                 socketWrapper.close();
                 return;
             }
@@ -0,0 +1,938 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * A thread pool where each worker thread has its own task deque and idle workers steal tasks from the deques of busy
+ * workers. This avoids the single shared queue of {@link ThreadPoolExecutor} becoming a point of contention when
+ * there are many cores submitting and executing short tasks.
+ * <p>
+ * The sizing behaviour is the same as {@link ThreadPoolExecutor} combined with {@link TaskQueue}: when a task is
+ * submitted and there is no idle thread, a new thread is started until the maximum pool size is reached and only
+ * then are tasks queued. Threads above the core pool size exit once they have been idle for the keep alive time.
+ * <p>
+ * A task submitted by a thread that is not a worker of this pool is handed directly to an idle worker if there is one
+ * and otherwise placed at the tail of the deque of a randomly selected worker. A task submitted by a worker is placed
+ * at the head of its own deque and is usually the next task that worker executes. Workers take tasks from the head of
+ * their own deque and steal from the tail of the deques of other workers.
+ */
+public class WorkStealingThreadPoolExecutor extends AbstractExecutorService implements ResizableExecutor {
+
+    private static final StringManager sm = StringManager.getManager(WorkStealingThreadPoolExecutor.class);
+
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+    private static final int TERMINATED = 3;
+
+    private static final Worker[] NO_WORKERS = new Worker[0];
+
+    private final ThreadFactory threadFactory;
+
+    private final ReentrantLock mainLock = new ReentrantLock();
+    private final Condition termination = mainLock.newCondition();
+
+    /*
+     * Copy on write as workers are added and removed far less often than the array is scanned for tasks to steal.
+     * Modified only while holding mainLock.
+     */
+    private volatile Worker[] workers = NO_WORKERS;
+
+    /*
+     * Most recently idle worker first so the workers that have been idle the longest are the ones that time out.
+     */
+    private final ConcurrentLinkedDeque<Worker> idleWorkers = new ConcurrentLinkedDeque<>();
+
+    /*
+     * Tasks that could not be left in the deque of a worker because that worker exited.
+     */
+    private final ConcurrentLinkedQueue<Runnable> overflow = new ConcurrentLinkedQueue<>();
+
+    private final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+
+    private final AtomicInteger poolSize = new AtomicInteger(0);
+    private final AtomicInteger activeCount = new AtomicInteger(0);
+    private final AtomicInteger submittedCount = new AtomicInteger(0);
+    private final AtomicInteger queueSize = new AtomicInteger(0);
+    private final AtomicInteger signalledWorkers = new AtomicInteger(0);
+
+    private final AtomicLong lastContextStoppedTime = new AtomicLong(0L);
+    private final AtomicLong lastTimeThreadKilledItself = new AtomicLong(0L);
+
+    private volatile int state = RUNNING;
+    private volatile int corePoolSize;
+    private volatile int maximumPoolSize;
+    private volatile int queueCapacity;
+    private volatile long keepAliveTime;
+    private volatile long threadRenewalDelay = Constants.DEFAULT_THREAD_RENEWAL_DELAY;
+
+    // Guarded by mainLock
+    private int largestPoolSize;
+    private long completedTaskCount;
+
+
+    /**
+     * Creates a new executor with an unbounded queue. The core threads are started immediately.
+     *
+     * @param corePoolSize    the number of threads to keep in the pool, even if they are idle
+     * @param maximumPoolSize the maximum number of threads to allow in the pool
+     * @param keepAliveTime   when the number of threads is greater than the core, this is the maximum time that excess
+     *                            idle threads will wait for new tasks before terminating
+     * @param unit            the time unit for the {@code keepAliveTime} argument
+     * @param threadFactory   the factory to use when the executor creates a new thread
+     */
+    public WorkStealingThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+            ThreadFactory threadFactory) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, Integer.MAX_VALUE, threadFactory);
+    }
+
+
+    /**
+     * Creates a new executor. The core threads are started immediately.
+     *
+     * @param corePoolSize    the number of threads to keep in the pool, even if they are idle
+     * @param maximumPoolSize the maximum number of threads to allow in the pool
+     * @param keepAliveTime   when the number of threads is greater than the core, this is the maximum time that excess
+     *                            idle threads will wait for new tasks before terminating
+     * @param unit            the time unit for the {@code keepAliveTime} argument
+     * @param queueCapacity   the maximum number of tasks waiting to be executed across all workers
+     * @param threadFactory   the factory to use when the executor creates a new thread
+     */
+    public WorkStealingThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+            int queueCapacity, ThreadFactory threadFactory) {
+        if (corePoolSize < 0 || maximumPoolSize <= 0 || maximumPoolSize < corePoolSize || keepAliveTime < 0 ||
+                queueCapacity < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.corePoolSize = corePoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        this.keepAliveTime = unit.toNanos(keepAliveTime);
+        this.queueCapacity = queueCapacity;
+        this.threadFactory = Objects.requireNonNull(threadFactory);
+
+        prestartAllCoreThreads();
+    }
+
+
+    @Override
+    public void execute(Runnable command) {
+        Objects.requireNonNull(command);
+        if (state != RUNNING) {
+            throw new RejectedExecutionException(
+                    sm.getString("workStealingThreadPoolExecutor.taskRejected", command.toString(), toString()));
+        }
+        // Same policy as TaskQueue: only queue if there is an idle thread or no more threads may be started
+        if (submittedCount.incrementAndGet() > poolSize.get() && addWorker(command)) {
+            return;
+        }
+        if (!enqueue(command)) {
+            submittedCount.decrementAndGet();
+            if (state != RUNNING) {
+                throw new RejectedExecutionException(
+                        sm.getString("workStealingThreadPoolExecutor.taskRejected", command.toString(), toString()));
+            }
+            throw new RejectedExecutionException(sm.getString("workStealingThreadPoolExecutor.queueFull"));
+        }
+        if (state != RUNNING && remove(command)) {
+            throw new RejectedExecutionException(
+                    sm.getString("workStealingThreadPoolExecutor.taskRejected", command.toString(), toString()));
+        }
+        if (poolSize.get() == 0) {
+            // All the workers exited while the task was being queued
+            addWorker(null);
+        }
+    }
+
+
+    /**
+     * Removes this task from the queues of the executor if it is present, thus causing it not to be run if it has not
+     * already started.
+     *
+     * @param task the task to remove
+     *
+     * @return {@code true} if the task was removed
+     */
+    public boolean remove(Runnable task) {
+        boolean removed = overflow.remove(task);
+        for (Worker w : workers) {
+            if (removed) {
+                break;
+            }
+            removed = w.deque.removeLastOccurrence(task);
+        }
+        if (removed) {
+            queueSize.decrementAndGet();
+            submittedCount.decrementAndGet();
+            tryTerminate();
+        }
+        return removed;
+    }
+
+
+    /*
+     * Queues the task, subject to the queue capacity, and makes sure a worker will see it.
+     */
+    private boolean enqueue(Runnable command) {
+        int size;
+        do {
+            size = queueSize.get();
+            if (size >= queueCapacity) {
+                return false;
+            }
+        } while (!queueSize.compareAndSet(size, size + 1));
+
+        Worker self = currentWorker.get();
+        if (self != null) {
+            self.deque.offerFirst(command);
+            signalIdleWorkerIfRequired();
+            return true;
+        }
+
+        if (signalledWorkers.get() <= 0) {
+            Worker idle = claimIdleWorker();
+            if (idle != null) {
+                // The claimed worker cannot exit until it has looked in its deque again
+                idle.deque.offerLast(command);
+                LockSupport.unpark(idle.thread);
+                return true;
+            }
+        }
+
+        Worker[] ws = workers;
+        if (ws.length == 0) {
+            offerOverflow(command);
+            return true;
+        }
+        Worker target = ws[ThreadLocalRandom.current().nextInt(ws.length)];
+        target.deque.offerLast(command);
+        if (target.terminated && target.deque.removeLastOccurrence(command)) {
+            // The target exited before it could see the task. If the remove failed, the exiting worker moved it.
+            offerOverflow(command);
+        } else {
+            signalIdleWorkerIfRequired();
+        }
+        return true;
+    }
+
+
+    private void offerOverflow(Runnable command) {
+        overflow.offer(command);
+        signalIdleWorker();
+    }
+
+
+    private Worker claimIdleWorker() {
+        Worker w;
+        while ((w = idleWorkers.pollFirst()) != null) {
+            if (w.idle.compareAndSet(true, false)) {
+                // Decremented by the worker once it has looked for a task
+                signalledWorkers.incrementAndGet();
+                return w;
+            }
+        }
+        return null;
+    }
+
+
+    private void signalIdleWorker() {
+        Worker w = claimIdleWorker();
+        if (w != null) {
+            LockSupport.unpark(w.thread);
+        }
+    }
+
+
+    /*
+     * Waking a worker for every task means a context switch for every task. If a worker has been woken and has not yet
+     * looked for a task, it will see the task just queued and, if more tasks remain, it will wake another worker.
+     */
+    private void signalIdleWorkerIfRequired() {
+        if (signalledWorkers.get() <= 0) {
+            signalIdleWorker();
+        }
+    }
+
+
+    /*
+     * Called by a worker that was woken by a submitter once it has looked for a task.
+     */
+    private void signalledWorkerSearched(boolean foundTask) {
+        signalledWorkers.decrementAndGet();
+        if (foundTask && queueSize.get() > 0) {
+            signalIdleWorker();
+        }
+    }
+
+
+    /*
+     * Starts a new worker if the maximum pool size has not been reached.
+     */
+    private boolean addWorker(Runnable firstTask) {
+        int size;
+        do {
+            size = poolSize.get();
+            if (size >= maximumPoolSize) {
+                return false;
+            }
+        } while (!poolSize.compareAndSet(size, size + 1));
+
+        Worker w = new Worker(firstTask);
+        if (w.thread == null) {
+            poolSize.decrementAndGet();
+            return false;
+        }
+        mainLock.lock();
+        try {
+            int s = state;
+            if (s > SHUTDOWN || s == SHUTDOWN && firstTask != null) {
+                poolSize.decrementAndGet();
+                return false;
+            }
+            Worker[] ws = workers;
+            Worker[] newWorkers = Arrays.copyOf(ws, ws.length + 1);
+            newWorkers[ws.length] = w;
+            workers = newWorkers;
+            if (newWorkers.length > largestPoolSize) {
+                largestPoolSize = newWorkers.length;
+            }
+        } finally {
+            mainLock.unlock();
+        }
+        try {
+            w.thread.start();
+        } catch (Throwable t) {
+            removeWorker(w);
+            poolSize.decrementAndGet();
+            tryTerminate();
+            throw t;
+        }
+        return true;
+    }
+
+
+    private void removeWorker(Worker w) {
+        mainLock.lock();
+        try {
+            Worker[] ws = workers;
+            for (int i = 0; i < ws.length; i++) {
+                if (ws[i] == w) {
+                    Worker[] newWorkers = new Worker[ws.length - 1];
+                    System.arraycopy(ws, 0, newWorkers, 0, i);
+                    System.arraycopy(ws, i + 1, newWorkers, i, ws.length - i - 1);
+                    workers = newWorkers;
+                    break;
+                }
+            }
+            completedTaskCount += w.completedTasks;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+
+    private void runWorker(Worker w) {
+        currentWorker.set(w);
+        Runnable task = w.firstTask;
+        w.firstTask = null;
+        boolean exitCounted = false;
+        boolean replace = true;
+        try {
+            while (task != null || (task = getTask(w)) != null) {
+                activeCount.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    activeCount.decrementAndGet();
+                    submittedCount.decrementAndGet();
+                    w.completedTasks++;
+                }
+                task = null;
+                stopCurrentThreadIfNeeded();
+            }
+            // getTask() only returns null once the pool size has been decremented for this worker
+            exitCounted = true;
+            replace = false;
+        } finally {
+            processWorkerExit(w, exitCounted, replace);
+        }
+    }
+
+
+    /*
+     * Returns the next task for the worker, waiting for one if necessary, or null if the worker should exit in which
+     * case the pool size has already been decremented.
+     */
+    private Runnable getTask(Worker w) {
+        boolean signalled = false;
+        for (;;) {
+            if (state >= STOP) {
+                if (signalled) {
+                    signalledWorkers.decrementAndGet();
+                }
+                poolSize.decrementAndGet();
+                return null;
+            }
+            Runnable task = findTask(w);
+            if (signalled) {
+                signalled = false;
+                signalledWorkerSearched(task != null);
+            }
+            if (task != null) {
+                return task;
+            }
+            if (state == SHUTDOWN) {
+                poolSize.decrementAndGet();
+                return null;
+            }
+
+            // Register as idle then look again so a task queued concurrently is not missed
+            w.idle.set(true);
+            idleWorkers.offerFirst(w);
+            task = findTask(w);
+            if (task != null) {
+                if (w.idle.compareAndSet(true, false)) {
+                    idleWorkers.remove(w);
+                } else {
+                    // Claimed by a submitter that may queue a task for this worker so let another worker take that
+                    signalledWorkerSearched(true);
+                }
+                return task;
+            }
+
+            long idleStart = System.nanoTime();
+            boolean timedOut = false;
+            while (w.idle.get() && state == RUNNING) {
+                int size = poolSize.get();
+                if (size > maximumPoolSize) {
+                    timedOut = true;
+                    break;
+                }
+                if (size > corePoolSize) {
+                    long remaining = idleStart + keepAliveTime - System.nanoTime();
+                    if (remaining <= 0) {
+                        timedOut = true;
+                        break;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                } else {
+                    LockSupport.park(this);
+                }
+                // Interrupts are only used to stop the pool which is checked above
+                Thread.interrupted();
+            }
+
+            if (w.idle.compareAndSet(true, false)) {
+                // Not claimed by a submitter so this worker is responsible for removing itself
+                idleWorkers.remove(w);
+                if (timedOut && decrementPoolSizeAboveCore()) {
+                    return null;
+                }
+            } else {
+                signalled = true;
+            }
+        }
+    }
+
+
+    private boolean decrementPoolSizeAboveCore() {
+        int size;
+        do {
+            size = poolSize.get();
+            if (size <= corePoolSize && size <= maximumPoolSize) {
+                return false;
+            }
+        } while (!poolSize.compareAndSet(size, size - 1));
+        return true;
+    }
+
+
+    private Runnable findTask(Worker w) {
+        Runnable task = w.deque.pollFirst();
+        if (task == null) {
+            task = overflow.poll();
+        }
+        if (task == null) {
+            Worker[] ws = workers;
+            int n = ws.length;
+            if (n > 1) {
+                int start = ThreadLocalRandom.current().nextInt(n);
+                for (int i = 0; i < n && task == null; i++) {
+                    Worker victim = ws[(start + i) % n];
+                    if (victim != w) {
+                        task = victim.deque.pollLast();
+                    }
+                }
+            }
+        }
+        if (task != null) {
+            queueSize.decrementAndGet();
+        }
+        return task;
+    }
+
+
+    private void processWorkerExit(Worker w, boolean exitCounted, boolean replace) {
+        w.terminated = true;
+        currentWorker.remove();
+        if (!exitCounted) {
+            poolSize.decrementAndGet();
+        }
+        removeWorker(w);
+
+        // Hand any tasks left in the deque to the remaining workers
+        Runnable task;
+        while ((task = w.deque.pollFirst()) != null) {
+            offerOverflow(task);
+        }
+
+        tryTerminate();
+
+        if (state < STOP && (replace || poolSize.get() == 0 && !overflow.isEmpty())) {
+            addWorker(null);
+        }
+    }
+
+
+    private void tryTerminate() {
+        if (state == RUNNING || poolSize.get() > 0) {
+            return;
+        }
+        mainLock.lock();
+        try {
+            if (state == STOP || state == SHUTDOWN && queueSize.get() == 0) {
+                if (poolSize.get() == 0) {
+                    state = TERMINATED;
+                    termination.signalAll();
+                }
+            }
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+
+    /**
+     * If the current thread was started before the last time when a context was stopped, an exception is thrown so that
+     * the current thread is stopped and replaced.
+     */
+    protected void stopCurrentThreadIfNeeded() {
+        if (currentThreadShouldBeStopped()) {
+            long lastTime = lastTimeThreadKilledItself.longValue();
+            if (lastTime + threadRenewalDelay < System.currentTimeMillis()) {
+                if (lastTimeThreadKilledItself.compareAndSet(lastTime, System.currentTimeMillis() + 1)) {
+                    // OK, it's really time to dispose of this thread
+
+                    final String msg = sm.getString("workStealingThreadPoolExecutor.threadStoppedToAvoidPotentialLeak",
+                            Thread.currentThread().getName());
+
+                    throw new StopPooledThreadException(msg);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Checks whether the current thread should be stopped based on the thread renewal policy and the last context stop
+     * time.
+     *
+     * @return true if the current thread should be stopped
+     */
+    protected boolean currentThreadShouldBeStopped() {
+        Thread currentThread = Thread.currentThread();
+        if (threadRenewalDelay >= 0 && currentThread instanceof TaskThread currentTaskThread) {
+            return currentTaskThread.getCreationTime() < this.lastContextStoppedTime.longValue();
+        }
+        return false;
+    }
+
+
+    /**
+     * Called when a context is stopping to trigger thread renewal for threads that were created before the context was
+     * stopped. Threads are renewed after they next complete a task.
+     */
+    public void contextStopping() {
+        this.lastContextStoppedTime.set(System.currentTimeMillis());
+    }
+
+
+    /**
+     * Starts all core threads, causing them to idly wait for work.
+     *
+     * @return the number of threads started
+     */
+    public int prestartAllCoreThreads() {
+        int n = 0;
+        while (poolSize.get() < corePoolSize && addWorker(null)) {
+            n++;
+        }
+        return n;
+    }
+
+
+    @Override
+    public void shutdown() {
+        mainLock.lock();
+        try {
+            if (state < SHUTDOWN) {
+                state = SHUTDOWN;
+            }
+            for (Worker w : workers) {
+                LockSupport.unpark(w.thread);
+            }
+        } finally {
+            mainLock.unlock();
+        }
+        tryTerminate();
+    }
+
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<>();
+        mainLock.lock();
+        try {
+            if (state < STOP) {
+                state = STOP;
+            }
+            for (Worker w : workers) {
+                w.thread.interrupt();
+            }
+            for (Worker w : workers) {
+                Runnable task;
+                while ((task = w.deque.pollFirst()) != null) {
+                    tasks.add(task);
+                }
+            }
+            Runnable task;
+            while ((task = overflow.poll()) != null) {
+                tasks.add(task);
+            }
+            queueSize.addAndGet(-tasks.size());
+            submittedCount.addAndGet(-tasks.size());
+        } finally {
+            mainLock.unlock();
+        }
+        tryTerminate();
+        return tasks;
+    }
+
+
+    @Override
+    public boolean isShutdown() {
+        return state >= SHUTDOWN;
+    }
+
+
+    @Override
+    public boolean isTerminated() {
+        return state == TERMINATED;
+    }
+
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        mainLock.lock();
+        try {
+            while (state != TERMINATED) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = termination.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+
+    @Override
+    public int getPoolSize() {
+        return poolSize.get();
+    }
+
+
+    @Override
+    public int getMaxThreads() {
+        return maximumPoolSize;
+    }
+
+
+    @Override
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+
+    @Override
+    public boolean resizePool(int corePoolSize, int maximumPoolSize) {
+        if (corePoolSize < 0 || maximumPoolSize <= 0 || maximumPoolSize < corePoolSize) {
+            return false;
+        }
+        this.maximumPoolSize = maximumPoolSize;
+        setCorePoolSize(corePoolSize);
+        return true;
+    }
+
+
+    @Override
+    public boolean resizeQueue(int capacity) {
+        if (capacity < 0) {
+            return false;
+        }
+        this.queueCapacity = capacity;
+        return true;
+    }
+
+
+    /**
+     * Returns the core number of threads.
+     *
+     * @return the core number of threads
+     */
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+
+    /**
+     * Sets the core number of threads. If the new value is larger, new threads are started. If the new value is
+     * smaller, excess threads will terminate once they have been idle for the keep alive time.
+     *
+     * @param corePoolSize the new core size
+     */
+    public void setCorePoolSize(int corePoolSize) {
+        if (corePoolSize < 0 || maximumPoolSize < corePoolSize) {
+            throw new IllegalArgumentException();
+        }
+        int previous = this.corePoolSize;
+        this.corePoolSize = corePoolSize;
+        if (corePoolSize > previous) {
+            prestartAllCoreThreads();
+        } else if (corePoolSize < previous) {
+            wakeIdleWorkers();
+        }
+    }
+
+
+    /**
+     * Returns the maximum allowed number of threads.
+     *
+     * @return the maximum allowed number of threads
+     */
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+
+    /**
+     * Sets the maximum allowed number of threads. If the new value is smaller than the current value, excess existing
+     * threads will be terminated when they next become idle.
+     *
+     * @param maximumPoolSize the new maximum
+     */
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        if (maximumPoolSize <= 0 || maximumPoolSize < corePoolSize) {
+            throw new IllegalArgumentException();
+        }
+        this.maximumPoolSize = maximumPoolSize;
+        if (poolSize.get() > maximumPoolSize) {
+            wakeIdleWorkers();
+        }
+    }
+
+
+    /*
+     * Wakes idle workers without claiming them so they re-evaluate whether they should exit.
+     */
+    private void wakeIdleWorkers() {
+        for (Worker w : idleWorkers) {
+            LockSupport.unpark(w.thread);
+        }
+    }
+
+
+    /**
+     * Returns the thread keep-alive time, which is the amount of time that threads in excess of the core pool size may
+     * remain idle before being terminated.
+     *
+     * @param unit the desired time unit of the result
+     *
+     * @return the time limit
+     */
+    public long getKeepAliveTime(TimeUnit unit) {
+        return unit.convert(keepAliveTime, TimeUnit.NANOSECONDS);
+    }
+
+
+    /**
+     * Sets the thread keep-alive time.
+     *
+     * @param time the time to wait. A time value of zero will cause excess threads to terminate immediately after
+     *                 executing tasks.
+     * @param unit the time unit of the {@code time} argument
+     */
+    public void setKeepAliveTime(long time, TimeUnit unit) {
+        if (time < 0) {
+            throw new IllegalArgumentException();
+        }
+        long newKeepAliveTime = unit.toNanos(time);
+        long previous = keepAliveTime;
+        keepAliveTime = newKeepAliveTime;
+        if (newKeepAliveTime < previous) {
+            wakeIdleWorkers();
+        }
+    }
+
+
+    /**
+     * Returns the maximum number of tasks that may wait to be executed.
+     *
+     * @return the queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+
+    /**
+     * Returns the number of tasks waiting to be executed across all workers.
+     *
+     * @return the number of queued tasks
+     */
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+
+    /**
+     * Returns the number of tasks that have been submitted and not yet completed, including queued tasks.
+     *
+     * @return the number of submitted tasks
+     */
+    public int getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+
+    /**
+     * Returns the largest number of threads that have ever simultaneously been in the pool.
+     *
+     * @return the number of threads
+     */
+    public int getLargestPoolSize() {
+        mainLock.lock();
+        try {
+            return largestPoolSize;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the approximate total number of tasks that have completed execution.
+     *
+     * @return the number of tasks
+     */
+    public long getCompletedTaskCount() {
+        mainLock.lock();
+        try {
+            long n = completedTaskCount;
+            for (Worker w : workers) {
+                n += w.completedTasks;
+            }
+            return n;
+        } finally {
+            mainLock.unlock();
+        }
+    }
+
+
+    /**
+     * Returns the delay in milliseconds observed between two threads being renewed after a context is stopped.
+     *
+     * @return the renewal delay
+     */
+    public long getThreadRenewalDelay() {
+        return threadRenewalDelay;
+    }
+
+
+    /**
+     * Sets the delay in milliseconds observed between two threads being renewed after a context is stopped. A negative
+     * value disables thread renewal.
+     *
+     * @param threadRenewalDelay the renewal delay
+     */
+    public void setThreadRenewalDelay(long threadRenewalDelay) {
+        this.threadRenewalDelay = threadRenewalDelay;
+    }
+
+
+    @Override
+    public String toString() {
+        int s = state;
+        String runState = s == RUNNING ? "Running" : s == TERMINATED ? "Terminated" : "Shutting down";
+        return super.toString() + "[" + runState + ", pool size = " + poolSize.get() + ", active threads = " +
+                activeCount.get() + ", queued tasks = " + queueSize.get() + ", completed tasks = " +
+                getCompletedTaskCount() + "]";
+    }
+
+
+    private final class Worker implements Runnable {
+
+        private final Thread thread;
+        private final ConcurrentLinkedDeque<Runnable> deque = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean idle = new AtomicBoolean(false);
+        private Runnable firstTask;
+        private volatile boolean terminated = false;
+        private volatile long completedTasks = 0;
+
+        Worker(Runnable firstTask) {
+            this.firstTask = firstTask;
+            this.thread = threadFactory.newThread(this);
+        }
+
+        @Override
+        public void run() {
+            runWorker(this);
+        }
+    }
+}
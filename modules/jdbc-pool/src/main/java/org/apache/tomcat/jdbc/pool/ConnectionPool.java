@@ -30,10 +30,14 @@ import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -115,6 +119,17 @@ public class ConnectionPool {
      */
     private ThreadPoolExecutor cancellator = new ThreadPoolExecutor(0,1,1000,TimeUnit.MILLISECONDS,new LinkedBlockingQueue<>());
 
+    /**
+     * Executor service used to time out asynchronous connection requests.
+     * It only runs a thread while a request is waiting.
+     */
+    private final ScheduledThreadPoolExecutor asyncTimeouts = createAsyncTimeouts();
+
+    /**
+     * Asynchronous connection requests waiting for a connection
+     */
+    private final Set<CompletableFuture<Connection>> asyncWaiters = ConcurrentHashMap.newKeySet();
+
     /**
      * reference to the JMX mbean
      */
@@ -137,6 +152,20 @@ public class ConnectionPool {
     private final AtomicLong reconnectedCount = new AtomicLong(0);
     private final AtomicLong removeAbandonedCount = new AtomicLong(0);
     private final AtomicLong releasedIdleCount = new AtomicLong(0);
+    private final AtomicLong threadAffinityHitCount = new AtomicLong(0);
+    private final AtomicLong threadAffinityMissCount = new AtomicLong(0);
+
+    /**
+     * The distributions of the time taken to borrow and to validate connections.
+     */
+    private final LatencyHistogram borrowWaitHistogram = new LatencyHistogram();
+    private final LatencyHistogram validationTimeHistogram = new LatencyHistogram();
+
+    /**
+     * The connection most recently returned to the idle queue by each thread.
+     * Only used when {@link PoolConfiguration#isThreadAffinity()} is set.
+     */
+    private final ThreadLocal<WeakReference<PooledConnection>> lastReturned = new ThreadLocal<>();
 
     //===============================================================================
     //         PUBLIC METHODS
@@ -185,6 +214,135 @@ public class ConnectionPool {
         }
     }
 
+    /**
+     * Retrieves a connection without blocking the calling thread while the pool is exhausted.
+     * If a connection is available or the pool has not reached {@link PoolProperties#maxActive maxActive}
+     * connections, the returned future is already complete. Otherwise the request joins the same wait list
+     * as the threads blocked in {@link #getConnection()} and the future is completed, in request order,
+     * once a connection is returned to the pool, but not by the thread that returns it.
+     * The future completes exceptionally with a {@link PoolExhaustedException} if no connection was returned
+     * within {@link PoolProperties#maxWait maxWait} milliseconds.
+     * Cancelling the future withdraws the request, a connection that had already been handed over to it is
+     * returned to the pool.
+     * @return a future that completes with a java.sql.Connection/javax.sql.PooledConnection reflection proxy
+     */
+    public CompletableFuture<Connection> getConnectionCompletableFuture() {
+        final CompletableFuture<Connection> result = new CompletableFuture<>();
+        //we can only wait without blocking if the underlying queue supports it.
+        if (!(idle instanceof FairBlockingQueue<?>)) {
+            result.completeExceptionally(new SQLException("Connection pool is misconfigured, doesn't support async retrieval. Set the 'fair' property to 'true'"));
+            return result;
+        }
+        final long start = System.nanoTime();
+        result.whenComplete((con, x) -> borrowWaitHistogram.recordNanos(System.nanoTime() - start));
+        acquireAsync(result);
+        if (!result.isDone()) {
+            asyncWaiters.add(result);
+            result.whenComplete((con, x) -> asyncWaiters.remove(result));
+            final int maxWait = getPoolProperties().getMaxWait();
+            if (maxWait > 0) {
+                ScheduledFuture<?> timeout = asyncTimeouts.schedule(() -> {
+                    if (!result.isDone()) {
+                        if (jmxPool!=null) {
+                            jmxPool.notify(org.apache.tomcat.jdbc.pool.jmx.ConnectionPool.POOL_EMPTY, "Pool empty - timeout.");
+                        }
+                        result.completeExceptionally(new PoolExhaustedException(
+                                "Timeout: Pool empty. Unable to fetch a connection in " + (maxWait / 1000) +
+                                " seconds, none available[size:"+size.get() +"; busy:"+busy.size()+"; idle:"+idle.size()+"]."));
+                    }
+                }, maxWait, TimeUnit.MILLISECONDS);
+                result.whenComplete((con, x) -> timeout.cancel(false));
+            }
+            if (isClosed()) {
+                result.completeExceptionally(new SQLException("Connection pool closed."));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Borrows a connection for an asynchronous request, or registers the request
+     * with the idle queue if the pool is exhausted.
+     * @param result the request to complete
+     */
+    private void acquireAsync(final CompletableFuture<Connection> result) {
+        try {
+            completeAsync(result, borrowConnection(0, null, null));
+            return;
+        } catch (SQLException x) {
+            if (x.getMessage() == null || x.getMessage().indexOf("NoWait")<0) {
+                result.completeExceptionally(x);
+                return;
+            }
+        }
+        final CompletableFuture<PooledConnection> pcf = ((FairBlockingQueue<PooledConnection>)idle).pollCompletableFuture();
+        //withdraw from the wait list if the request is cancelled or times out
+        result.whenComplete((con, x) -> {
+            if (x != null) {
+                pcf.cancel(false);
+            }
+        });
+        //runs on the executor that completes the request, not on the thread returning the connection
+        pcf.whenComplete((pc, x) -> {
+            if (x != null) {
+                result.completeExceptionally(x);
+                return;
+            }
+            PooledConnection con;
+            try {
+                con = borrowConnection(System.currentTimeMillis(), pc, null, null);
+            } catch (SQLException sx) {
+                result.completeExceptionally(sx);
+                return;
+            }
+            if (con == null) {
+                //the connection could not be validated and has been released
+                acquireAsync(result);
+            } else {
+                borrowedCount.incrementAndGet();
+                completeAsync(result, con);
+            }
+        });
+    }
+
+    /**
+     * Completes an asynchronous request with a borrowed connection. If the request
+     * has been cancelled in the meantime, the connection is returned to the pool.
+     * @param result the request to complete
+     * @param pc the borrowed connection
+     */
+    private void completeAsync(CompletableFuture<Connection> result, PooledConnection pc) {
+        Connection con;
+        try {
+            con = setupConnection(pc);
+        } catch (SQLException x) {
+            result.completeExceptionally(x);
+            return;
+        }
+        if (!result.complete(con)) {
+            try {
+                con.close();
+            } catch (SQLException x) {
+                log.warn("Unable to return connection of a cancelled request to the pool.", x);
+            }
+        }
+    }
+
+    /**
+     * Creates the executor used to time out asynchronous connection requests.
+     * @return the executor
+     */
+    private static ScheduledThreadPoolExecutor createAsyncTimeouts() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(0, r -> {
+            Thread t = new Thread(r, "Tomcat JDBC Pool Async Timeout");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setKeepAliveTime(1000, TimeUnit.MILLISECONDS);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
     /**
      * Borrows a connection from the pool. If a connection is available (in the idle queue) or the pool has not reached
      * {@link PoolProperties#maxActive maxActive} connections a connection is returned immediately.
@@ -194,7 +352,13 @@ public class ConnectionPool {
      */
     public Connection getConnection() throws SQLException {
         //check out a connection
-        PooledConnection con = borrowConnection(-1,null,null);
+        long start = System.nanoTime();
+        PooledConnection con;
+        try {
+            con = borrowConnection(-1,null,null);
+        } finally {
+            borrowWaitHistogram.recordNanos(System.nanoTime() - start);
+        }
         return setupConnection(con);
     }
 
@@ -215,7 +379,13 @@ public class ConnectionPool {
      */
     public Connection getConnection(String username, String password) throws SQLException {
         // check out a connection
-        PooledConnection con = borrowConnection(-1, username, password);
+        long start = System.nanoTime();
+        PooledConnection con;
+        try {
+            con = borrowConnection(-1, username, password);
+        } finally {
+            borrowWaitHistogram.recordNanos(System.nanoTime() - start);
+        }
         return setupConnection(con);
     }
 
@@ -397,6 +567,11 @@ public class ConnectionPool {
         if (poolCleaner!=null) {
             poolCleaner.stopRunning();
         }
+        //fail the asynchronous requests that are still waiting
+        for (CompletableFuture<Connection> waiter : asyncWaiters) {
+            waiter.completeExceptionally(new SQLException("Connection pool closed."));
+        }
+        asyncTimeouts.shutdownNow();
 
         /* release all idle connections */
         BlockingQueue<PooledConnection> pool = (!idle.isEmpty())?idle:(force?busy:idle);
@@ -460,7 +635,8 @@ public class ConnectionPool {
         busy = new LinkedBlockingQueue<>();
         //busy = new FairBlockingQueue<PooledConnection>();
         //make space for 10 extra in case we flow over a bit
-        if (properties.isFairQueue()) {
+        //thread affinity relies on the fair queue removing a given connection without searching for it
+        if (properties.isFairQueue() || properties.isThreadAffinity()) {
             idle = new FairBlockingQueue<>();
             //idle = new MultiLockFairBlockingQueue<PooledConnection>();
             //idle = new LinkedTransferQueue<PooledConnection>();
@@ -669,7 +845,7 @@ public class ConnectionPool {
         // we've asynchronously reduced the number of connections
         // we could have threads stuck in idle.poll(timeout) that will never be
         // notified
-        if (waitcount.get() > 0) {
+        if (waitcount.get() > 0 || !asyncWaiters.isEmpty()) {
             if (!idle.offer(create(true))) {
                 log.warn("Failed to add a new connection to the pool after releasing a connection " +
                         "when at least one thread was waiting for a connection.");
@@ -695,7 +871,7 @@ public class ConnectionPool {
         //get the current time stamp
         long now = System.currentTimeMillis();
         //see if there is one available immediately
-        PooledConnection con = idle.poll();
+        PooledConnection con = pollIdle();
 
         while (true) {
             if (con!=null) {
@@ -768,6 +944,28 @@ public class ConnectionPool {
         } //while
     }
 
+    /**
+     * Retrieves an idle connection without waiting. If thread affinity is enabled,
+     * the connection most recently returned by the current thread is reclaimed if it
+     * is still idle, as it is likely to have warm statement caches for this thread.
+     * Removing the connection from the idle queue guarantees that no other thread
+     * can borrow it at the same time. The idle queue is always a {@link FairBlockingQueue}
+     * when thread affinity is enabled, which removes the connection in constant time.
+     * @return an idle connection or <code>null</code> if none is available
+     */
+    private PooledConnection pollIdle() {
+        if (getPoolProperties().isThreadAffinity()) {
+            WeakReference<PooledConnection> ref = lastReturned.get();
+            PooledConnection con = (ref == null) ? null : ref.get();
+            if (con != null && idle.remove(con)) {
+                threadAffinityHitCount.incrementAndGet();
+                return con;
+            }
+            threadAffinityMissCount.incrementAndGet();
+        }
+        return idle.poll();
+    }
+
     /**
      * Creates a JDBC connection and tries to connect to the database.
      * @param now timestamp of when this was called
@@ -1056,6 +1254,11 @@ public class ConnectionPool {
                                 log.debug("Connection ["+con+"] will be closed and not returned to the pool, idle["+idle.size()+"]>=maxIdle["+poolProperties.getMaxIdle()+"] idle.offer failed.");
                             }
                             release(con);
+                        } else if (poolProperties.isThreadAffinity()) {
+                            WeakReference<PooledConnection> ref = lastReturned.get();
+                            if (ref == null || ref.get() != con) {
+                                lastReturned.set(new WeakReference<>(con));
+                            }
                         }
                     } else {
                         if (log.isDebugEnabled()) {
@@ -1430,6 +1633,45 @@ public class ConnectionPool {
         return releasedIdleCount.get();
     }
 
+    /**
+     * The number of connections borrowed from the idle queue that were the connection
+     * most recently returned by the borrowing thread.
+     * @return the thread affinity hit count
+     */
+    public long getThreadAffinityHitCount() {
+        return threadAffinityHitCount.get();
+    }
+
+    /**
+     * The number of attempts to borrow the connection most recently returned by the
+     * borrowing thread that failed, because there was no such connection or because
+     * it was no longer idle.
+     * @return the thread affinity miss count
+     */
+    public long getThreadAffinityMissCount() {
+        return threadAffinityMissCount.get();
+    }
+
+    /**
+     * The distribution of the time taken by {@link #getConnection()} and
+     * {@link #getConnectionCompletableFuture()} to provide a connection,
+     * including the time spent waiting for one and creating one. Attempts
+     * that timed out or failed are included.
+     * @return the borrow wait time histogram
+     */
+    public LatencyHistogram getBorrowWaitHistogram() {
+        return borrowWaitHistogram;
+    }
+
+    /**
+     * The distribution of the time taken to validate connections, for the
+     * validations that were performed.
+     * @return the validation time histogram
+     */
+    public LatencyHistogram getValidationTimeHistogram() {
+        return validationTimeHistogram;
+    }
+
     /**
      * reset the statistics of this pool.
      */
@@ -1441,6 +1683,10 @@ public class ConnectionPool {
         reconnectedCount.set(0);
         removeAbandonedCount.set(0);
         releasedIdleCount.set(0);
+        threadAffinityHitCount.set(0);
+        threadAffinityMissCount.set(0);
+        borrowWaitHistogram.reset();
+        validationTimeHistogram.reset();
     }
 
     /**
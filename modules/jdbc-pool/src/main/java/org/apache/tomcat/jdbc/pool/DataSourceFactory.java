@@ -311,6 +311,11 @@ public class DataSourceFactory implements ObjectFactory {
      */
     protected static final String PROP_USESTATEMENTFACADE = "useStatementFacade";
 
+    /**
+     * Property name for threadAffinity.
+     */
+    protected static final String PROP_THREADAFFINITY = "threadAffinity";
+
     /**
      * Value indicating an unknown transaction isolation level.
      */
@@ -376,7 +381,8 @@ public class DataSourceFactory implements ObjectFactory {
         PROP_LOGVALIDATIONERRORS,
         PROP_PROPAGATEINTERRUPTSTATE,
         PROP_IGNOREEXCEPTIONONPRELOAD,
-        PROP_USESTATEMENTFACADE
+        PROP_USESTATEMENTFACADE,
+        PROP_THREADAFFINITY
     };
 
     // -------------------------------------------------- ObjectFactory Methods
@@ -735,6 +741,10 @@ public class DataSourceFactory implements ObjectFactory {
         if (value != null) {
             poolProperties.setUseStatementFacade(Boolean.parseBoolean(value));
         }
+        value = properties.getProperty(PROP_THREADAFFINITY);
+        if (value != null) {
+            poolProperties.setThreadAffinity(Boolean.parseBoolean(value));
+        }
         return poolProperties;
     }
 
@@ -22,7 +22,10 @@ import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.util.Iterator;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 import javax.sql.XAConnection;
@@ -53,6 +56,12 @@ public class DataSourceProxy implements PoolConfiguration {
      */
     protected volatile PoolConfiguration poolProperties = null;
 
+    /**
+     * Guards the creation of the pool. The pool opens its initial connections
+     * while this lock is held.
+     */
+    private final Lock createPoolLock = new ReentrantLock();
+
     /**
      * Construct a DataSourceProxy with default pool properties.
      */
@@ -149,12 +158,17 @@ public class DataSourceProxy implements PoolConfiguration {
     /**
      * Sets up the connection pool, by creating a pooling driver.
      */
-    private synchronized ConnectionPool pCreatePool() throws SQLException {
-        if (pool != null) {
-            return pool;
-        } else {
-            pool = new ConnectionPool(poolProperties);
-            return pool;
+    private ConnectionPool pCreatePool() throws SQLException {
+        createPoolLock.lock();
+        try {
+            if (pool != null) {
+                return pool;
+            } else {
+                pool = new ConnectionPool(poolProperties);
+                return pool;
+            }
+        } finally {
+            createPoolLock.unlock();
         }
     }
 
@@ -183,6 +197,20 @@ public class DataSourceProxy implements PoolConfiguration {
         return pool.getConnectionAsync();
     }
 
+    /**
+     * Retrieves a connection without blocking the calling thread while the pool is exhausted.
+     * The future is completed once a connection is returned to the pool.
+     * @return a CompletableFuture that completes with the connection when it becomes available
+     * @throws SQLException Connection error
+     * @see ConnectionPool#getConnectionCompletableFuture()
+     */
+    public CompletableFuture<Connection> getConnectionCompletableFuture() throws SQLException {
+        if (pool == null) {
+            return createPool().getConnectionCompletableFuture();
+        }
+        return pool.getConnectionCompletableFuture();
+    }
+
     /**
      * Get a database connection.
      * {@link javax.sql.XADataSource#getXAConnection()}
@@ -798,6 +826,115 @@ public class DataSourceProxy implements PoolConfiguration {
         }
     }
 
+    /**
+     * The number of connections borrowed from the idle queue that were the connection
+     * most recently returned by the borrowing thread.
+     * @return the thread affinity hit count
+     */
+    public long getThreadAffinityHitCount() {
+        try {
+            return createPool().getThreadAffinityHitCount();
+        } catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * The number of attempts to borrow the connection most recently returned by the
+     * borrowing thread that failed.
+     * @return the thread affinity miss count
+     */
+    public long getThreadAffinityMissCount() {
+        try {
+            return createPool().getThreadAffinityMissCount();
+        } catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * The fraction of the attempts to borrow the connection most recently returned
+     * by the borrowing thread that succeeded.
+     * @return the thread affinity hit ratio, between 0 and 1
+     */
+    public double getThreadAffinityHitRatio() {
+        long hits = getThreadAffinityHitCount();
+        long total = hits + getThreadAffinityMissCount();
+        return (total == 0) ? 0 : ((double) hits) / total;
+    }
+
+    /**
+     * The median time taken to borrow a connection.
+     * @return the borrow wait time in milliseconds
+     */
+    public double getBorrowWaitTimeP50() {
+        try {
+            return createPool().getBorrowWaitHistogram().getValueAtPercentileMillis(50);
+        } catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * The 99th percentile of the time taken to borrow a connection.
+     * @return the borrow wait time in milliseconds
+     */
+    public double getBorrowWaitTimeP99() {
+        try {
+            return createPool().getBorrowWaitHistogram().getValueAtPercentileMillis(99);
+        } catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * The 99.9th percentile of the time taken to borrow a connection.
+     * @return the borrow wait time in milliseconds
+     */
+    public double getBorrowWaitTimeP999() {
+        try {
+            return createPool().getBorrowWaitHistogram().getValueAtPercentileMillis(99.9);
+        } catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * The median time taken to validate a connection.
+     * @return the validation time in milliseconds
+     */
+    public double getValidationTimeP50() {
+        try {
+            return createPool().getValidationTimeHistogram().getValueAtPercentileMillis(50);
+        } catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * The 99th percentile of the time taken to validate a connection.
+     * @return the validation time in milliseconds
+     */
+    public double getValidationTimeP99() {
+        try {
+            return createPool().getValidationTimeHistogram().getValueAtPercentileMillis(99);
+        } catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
+    /**
+     * The 99.9th percentile of the time taken to validate a connection.
+     * @return the validation time in milliseconds
+     */
+    public double getValidationTimeP999() {
+        try {
+            return createPool().getValidationTimeHistogram().getValueAtPercentileMillis(99.9);
+        } catch (SQLException x) {
+            throw new RuntimeException(x);
+        }
+    }
+
     /**
      * reset the statistics of this pool.
      */
@@ -1225,6 +1362,16 @@ public class DataSourceProxy implements PoolConfiguration {
         getPoolProperties().setUseStatementFacade(useStatementFacade);
     }
 
+    @Override
+    public boolean isThreadAffinity() {
+        return getPoolProperties().isThreadAffinity();
+    }
+
+    @Override
+    public void setThreadAffinity(boolean threadAffinity) {
+        getPoolProperties().setThreadAffinity(threadAffinity);
+    }
+
     /**
      * Purge all connections from the pool.
      */
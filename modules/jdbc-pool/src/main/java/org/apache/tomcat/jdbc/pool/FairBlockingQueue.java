@@ -17,10 +17,14 @@
 package org.apache.tomcat.jdbc.pool;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -63,9 +67,10 @@ public class FairBlockingQueue<E> implements BlockingQueue<E> {
     final ReentrantLock lock = new ReentrantLock(false);
 
     /**
-     * All the objects in the pool are stored in a simple linked list
+     * All the objects in the pool are stored in a linked list that is indexed
+     * so that {@link #remove(Object)} does not have to search it
      */
-    final LinkedList<E> items;
+    final IndexedList<E> items;
 
     /**
      * All threads waiting for an object are stored in a linked list
@@ -76,7 +81,7 @@ public class FairBlockingQueue<E> implements BlockingQueue<E> {
      * Creates a new fair blocking queue.
      */
     public FairBlockingQueue() {
-        items = new LinkedList<>();
+        items = new IndexedList<>();
         waiters = new LinkedList<>();
     }
 
@@ -95,15 +100,21 @@ public class FairBlockingQueue<E> implements BlockingQueue<E> {
         ExchangeCountDownLatch<E> c = null;
         try {
             //check to see if threads are waiting for an object
-            if (!waiters.isEmpty()) {
+            while (c == null && !waiters.isEmpty()) {
                 //if threads are waiting grab the latch for that thread
                 c = waiters.poll();
+                if (!c.isWaiting()) {
+                    //an asynchronous request that has been abandoned
+                    c = null;
+                    continue;
+                }
                 //give the object to the thread instead of adding it to the pool
                 c.setItem(e);
                 if (isLinux) {
                     c.countDown();
                 }
-            } else {
+            }
+            if (c == null) {
                 //we always add first, so that the most recently used object will be given out
                 items.addFirst(e);
             }
@@ -114,6 +125,16 @@ public class FairBlockingQueue<E> implements BlockingQueue<E> {
         if (!isLinux && c!=null) {
             c.countDown();
         }
+        //complete an asynchronous request on another thread, as it runs its callbacks
+        if (c instanceof CompletableExchange) {
+            final CompletableExchange<E> exchange = (CompletableExchange<E>) c;
+            CompletableFuture.runAsync(() -> {
+                if (!exchange.complete()) {
+                    //the request was abandoned in the meantime, give the object to the next one
+                    offer(e);
+                }
+            });
+        }
         //we have an unbounded queue, so always return true
         return true;
     }
@@ -219,6 +240,48 @@ public class FairBlockingQueue<E> implements BlockingQueue<E> {
         return result;
     }
 
+    /**
+     * Request an item from the queue without blocking. If the queue is empty,
+     * the request joins the same wait list as the threads blocked in
+     * {@link #poll(long, TimeUnit)} and the future is completed, in request
+     * order, with the next item offered. The future is completed by the
+     * default executor of {@link CompletableFuture} rather than by the thread
+     * that offers the item. Cancelling or otherwise
+     * completing the future withdraws the request.
+     * @return - a future that completes with the item
+     */
+    public CompletableFuture<E> pollCompletableFuture() {
+        final ReentrantLock lock = this.lock;
+        final CompletableExchange<E> c;
+        lock.lock();
+        try {
+            //check to see if we have objects in the queue
+            E item = items.poll();
+            if (item != null) {
+                CompletableFuture<E> result = new CompletableFuture<>();
+                result.complete(item);
+                return result;
+            }
+            //queue is empty, add ourselves as waiters
+            c = new CompletableExchange<>();
+            waiters.addLast(c);
+        } finally {
+            lock.unlock();
+        }
+        //an abandoned request no longer needs its place in the wait list
+        c.future.whenComplete((item, x) -> {
+            if (x != null) {
+                lock.lock();
+                try {
+                    waiters.remove(c);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        });
+        return c.future;
+    }
+
     @Override
     public boolean remove(Object e) {
         final ReentrantLock lock = this.lock;
@@ -524,6 +587,148 @@ public class FairBlockingQueue<E> implements BlockingQueue<E> {
         public void setItem(T item) {
             this.item = item;
         }
+        /**
+         * Checks if the waiter still expects an item. Called while the global
+         * lock is held.
+         *
+         * @return true, a waiting thread removes itself from the wait list
+         */
+        public boolean isWaiting() {
+            return true;
+        }
+    }
+
+    /**
+     * A waiter that completes a future instead of releasing a blocked thread.
+     *
+     * @param <T> the type of the item to exchange
+     */
+    protected class CompletableExchange<T> extends ExchangeCountDownLatch<T> {
+        /** The future completed with the item. */
+        protected final CompletableFuture<T> future = new CompletableFuture<>();
+        /**
+         * Creates a new CompletableExchange.
+         */
+        public CompletableExchange() {
+            super(1);
+        }
+        @Override
+        public boolean isWaiting() {
+            return !future.isDone();
+        }
+        /**
+         * Completes the future with the item once the global lock has been
+         * released.
+         *
+         * @return true if the request accepted the item
+         */
+        public boolean complete() {
+            return future.complete(getItem());
+        }
+    }
+
+    //------------------------------------------------------------------
+    // Item list with constant time removal
+    //------------------------------------------------------------------
+    /**
+     * A doubly linked list of items, most recently added first, with an index
+     * from each item to the first node that holds it. Adding an item, removing
+     * the first item and removing a given item are constant time operations,
+     * unless the list holds the removed item more than once. Not thread safe,
+     * the list is only accessed while holding the lock of the queue.
+     *
+     * @param <E> Type of element in the list
+     */
+    static final class IndexedList<E> {
+        private final Map<Object,Node<E>> index = new HashMap<>();
+        private Node<E> head = null;
+        private int size = 0;
+        private int duplicates = 0;
+
+        void addFirst(E e) {
+            Node<E> node = new Node<>(e);
+            node.next = head;
+            if (head != null) {
+                head.prev = node;
+            }
+            head = node;
+            size++;
+            if (index.put(e, node) != null) {
+                duplicates++;
+            }
+        }
+
+        E poll() {
+            Node<E> node = head;
+            if (node == null) {
+                return null;
+            }
+            unlink(node);
+            return node.item;
+        }
+
+        boolean remove(Object o) {
+            Node<E> node = index.get(o);
+            if (node == null) {
+                return false;
+            }
+            unlink(node);
+            return true;
+        }
+
+        boolean contains(Object o) {
+            return index.containsKey(o);
+        }
+
+        int size() {
+            return size;
+        }
+
+        void toArray(E[] a) {
+            int i = 0;
+            for (Node<E> node = head; node != null; node = node.next) {
+                a[i++] = node.item;
+            }
+        }
+
+        /*
+         * The node is always the first node for its item, as nodes are only
+         * unlinked by poll(), which takes the head, and by remove(Object).
+         */
+        private void unlink(Node<E> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            }
+            size--;
+            Node<E> next = null;
+            if (duplicates > 0) {
+                // Only search the rest of the list when an item has been added more than once
+                for (next = node.next; next != null && !Objects.equals(next.item, node.item); next = next.next) {
+                    // Keep looking
+                }
+            }
+            if (next == null) {
+                index.remove(node.item);
+            } else {
+                index.put(node.item, next);
+                duplicates--;
+            }
+        }
+
+        private static final class Node<E> {
+            private final E item;
+            private Node<E> prev;
+            private Node<E> next;
+
+            Node(E item) {
+                this.item = item;
+            }
+        }
     }
 
     //------------------------------------------------------------------
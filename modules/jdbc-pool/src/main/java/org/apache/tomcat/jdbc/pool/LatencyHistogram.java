@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.pool;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A fixed memory histogram of latencies, recorded in microseconds.
+ * <p>
+ * Values are counted in log-linear buckets: each power of two is divided into
+ * 32 buckets of equal width, so the value reported for a percentile is within
+ * about 3% of the recorded value, from one microsecond up to about 19 hours.
+ * Larger values are counted in the last bucket.
+ * <p>
+ * Recording is lock free. The counts start in a single set of buckets, and
+ * further sets are added when concurrent threads contend on the same bucket,
+ * up to a fixed limit. Threads are spread over the sets according to their
+ * identity, which avoids keeping per thread state that would outlive a web
+ * application. The counts of all sets are added up when the histogram is read.
+ * <p>
+ * Reading and resetting the histogram while values are being recorded does
+ * not block, the result reflects the values recorded at some point during the
+ * call.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The largest value, in microseconds, that is counted in its own bucket.
+     */
+    public static final long MAX_VALUE = (1L << 36) - 1;
+
+    static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private static final int MAX_STRIPES =
+            Math.min(16, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+
+    private final AtomicReference<AtomicLongArray[]> stripes =
+            new AtomicReference<>(new AtomicLongArray[] { new AtomicLongArray(BUCKET_COUNT) });
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency.
+     * @param micros the latency in microseconds, negative values are recorded as zero
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        increment(bucketIndex(Math.min(value, MAX_VALUE)));
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Records a latency.
+     * @param nanos the latency in nanoseconds, negative values are recorded as zero
+     */
+    public void recordNanos(long nanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Returns the number of recorded values.
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+        for (long c : snapshot()) {
+            count += c;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     * @return the largest value in microseconds, 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, rounded up to the upper bound of its bucket.
+     * @param percentile the percentage, for example <code>99.9</code>
+     * @return the value in microseconds, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = snapshot();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double p = Math.min(100.0, Math.max(0.0, percentile));
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                //the last bucket is unbounded
+                return (i == counts.length - 1) ? max.get() : Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded
+     * values fall, in milliseconds.
+     * @param percentile the percentage, for example <code>99.9</code>
+     * @return the value in milliseconds, 0 if nothing was recorded
+     * @see #getValueAtPercentile(double)
+     */
+    public double getValueAtPercentileMillis(double percentile) {
+        return getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Discards all recorded values.
+     */
+    public void reset() {
+        for (AtomicLongArray cells : stripes.get()) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                cells.set(i, 0);
+            }
+        }
+        max.set(0);
+    }
+
+    private void increment(int index) {
+        AtomicLongArray[] current = stripes.get();
+        AtomicLongArray cells = current[probe() & (current.length - 1)];
+        long count = cells.get(index);
+        if (!cells.compareAndSet(index, count, count + 1)) {
+            cells.getAndIncrement(index);
+            if (current.length < MAX_STRIPES) {
+                AtomicLongArray[] expanded = Arrays.copyOf(current, current.length << 1);
+                for (int i = current.length; i < expanded.length; i++) {
+                    expanded[i] = new AtomicLongArray(BUCKET_COUNT);
+                }
+                stripes.compareAndSet(current, expanded);
+            }
+        }
+    }
+
+    private long[] snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (AtomicLongArray cells : stripes.get()) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += cells.get(i);
+            }
+        }
+        return counts;
+    }
+
+    private static int probe() {
+        int h = System.identityHashCode(Thread.currentThread()) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int bucketIndex(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
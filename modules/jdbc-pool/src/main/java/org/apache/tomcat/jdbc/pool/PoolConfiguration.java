@@ -921,4 +921,21 @@ public interface PoolConfiguration {
      * @return <code>true</code> if the statements are wrapped
      */
     boolean getUseStatementFacade();
+
+    /**
+     * Set this to true if a thread getting a connection should first be given the
+     * connection it most recently returned to the pool, if that connection is still idle.
+     * Reusing the same connection makes better use of driver and database side caches,
+     * such as prepared statement caches, and falls back to the shared idle queue otherwise.
+     * @param threadAffinity set to <code>true</code> to enable thread affinity
+     */
+    void setThreadAffinity(boolean threadAffinity);
+
+    /**
+     * Returns <code>true</code> if a thread getting a connection is first given the
+     * connection it most recently returned to the pool.
+     * See {@link PoolConfiguration#setThreadAffinity(boolean)} for details.
+     * @return <code>true</code> if thread affinity is enabled
+     */
+    boolean isThreadAffinity();
 }
@@ -158,6 +158,8 @@ public class PoolProperties implements PoolConfiguration, Cloneable, Serializabl
     private volatile boolean ignoreExceptionOnPreLoad = false;
     /** Whether to use a statement facade. */
     private volatile boolean useStatementFacade = true;
+    /** Whether a thread is first given the connection it most recently returned. */
+    private volatile boolean threadAffinity = false;
 
     @Override
     public void setAbandonWhenPercentageFull(int percentage) {
@@ -1211,6 +1213,16 @@ public class PoolProperties implements PoolConfiguration, Cloneable, Serializabl
         this.useStatementFacade = useStatementFacade;
     }
 
+    @Override
+    public boolean isThreadAffinity() {
+        return threadAffinity;
+    }
+
+    @Override
+    public void setThreadAffinity(boolean threadAffinity) {
+        this.threadAffinity = threadAffinity;
+    }
+
     @Override
     protected Object clone() throws CloneNotSupportedException {
         // TODO Auto-generated method stub
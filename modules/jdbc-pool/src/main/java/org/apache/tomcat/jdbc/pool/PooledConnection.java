@@ -526,6 +526,15 @@ public class PooledConnection implements PooledConnectionMBean {
             return true;
         }
 
+        long start = System.nanoTime();
+        try {
+            return executeValidation(validateAction, sql, now);
+        } finally {
+            parent.getValidationTimeHistogram().recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private boolean executeValidation(int validateAction, String sql, long now) {
         if (poolProperties.getValidator() != null) {
             if (poolProperties.getValidator().validate(connection, validateAction)) {
                 this.lastValidated = now;
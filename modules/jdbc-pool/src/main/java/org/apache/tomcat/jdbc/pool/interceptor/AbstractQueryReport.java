@@ -118,6 +118,15 @@ public abstract class AbstractQueryReport extends AbstractCreateStatementInterce
         return sql;
     }
 
+    /**
+     * Invoked for every query execution, a call to execute/executeQuery or executeBatch, whether it succeeded or
+     * failed and regardless of the timing threshold. The default implementation does nothing.
+     * @param nanos the time the execution took in nanoseconds
+     */
+    protected void reportQueryTime(long nanos) {
+        // NOOP
+    }
+
     /**
      * returns the query measure threshold.
      * This value is in milliseconds. If the query is faster than this threshold than it won't be accounted for
@@ -226,11 +235,15 @@ public abstract class AbstractQueryReport extends AbstractCreateStatementInterce
             process = isExecute( method, process);
             //if we are executing, get the current time
             long start = (process)?System.currentTimeMillis():0;
+            long startNanos = (process)?System.nanoTime():0;
             Object result =  null;
             try {
                 //execute the query
                 result =  method.invoke(delegate,args);
             }catch (Throwable t) {
+                if (process) {
+                    reportQueryTime(System.nanoTime()-startNanos);
+                }
                 reportFailedQuery(query,args,name,start,t);
                 if (t instanceof InvocationTargetException
                         && t.getCause() != null) {
@@ -240,6 +253,9 @@ public abstract class AbstractQueryReport extends AbstractCreateStatementInterce
                 }
             }
             //measure the time
+            if (process) {
+                reportQueryTime(System.nanoTime()-startNanos);
+            }
             long delta = (process)?(System.currentTimeMillis()-start):Long.MIN_VALUE;
             //see if we meet the requirements to measure
             if (delta>threshold) {
@@ -34,6 +34,7 @@ import javax.management.openmbean.SimpleType;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.LatencyHistogram;
 import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
 import org.apache.tomcat.jdbc.pool.PooledConnection;
 
@@ -53,6 +54,15 @@ public class SlowQueryReport extends AbstractQueryReport  {
      * the queries that are used for this interceptor.
      */
     protected volatile ConcurrentHashMap<String,QueryStats> queries = null;
+    /**
+     * the distribution of the execution time of all queries, on a per pool basis
+     */
+    protected static final ConcurrentHashMap<String,LatencyHistogram> perPoolHistograms =
+            new ConcurrentHashMap<>();
+    /**
+     * the execution time histogram that is used for this interceptor.
+     */
+    protected volatile LatencyHistogram histogram = null;
     /**
      * Maximum number of queries we will be storing
      */
@@ -82,6 +92,16 @@ public class SlowQueryReport extends AbstractQueryReport  {
         return perPoolStats.get(poolname);
     }
 
+    /**
+     * Returns the distribution of the execution time of all queries for a given pool,
+     * regardless of the threshold
+     * @param poolname - the name of the pool we want to retrieve the distribution for
+     * @return the query time histogram, or {@code null} if the pool is not known
+     */
+    public static LatencyHistogram getPoolHistogram(String poolname) {
+        return perPoolHistograms.get(poolname);
+    }
+
     /**
      * Creates a slow query report interceptor
      */
@@ -143,6 +163,19 @@ public class SlowQueryReport extends AbstractQueryReport  {
         return sql;
     }
 
+    /**
+     * Records the execution time in the query time histogram of the pool.
+     *
+     * @param nanos the time the execution took in nanoseconds
+     */
+    @Override
+    protected void reportQueryTime(long nanos) {
+        LatencyHistogram histogram = this.histogram;
+        if (histogram != null) {
+            histogram.recordNanos(nanos);
+        }
+    }
+
     /**
      * invoked when the connection receives the close request
      * Not used for now.
@@ -204,6 +237,7 @@ public class SlowQueryReport extends AbstractQueryReport  {
                 queries = perPoolStats.get(pool.getName());
             }
         }
+        histogram = perPoolHistograms.computeIfAbsent(pool.getName(), k -> new LatencyHistogram());
     }
 
     /**
@@ -214,6 +248,7 @@ public class SlowQueryReport extends AbstractQueryReport  {
     @Override
     public void poolClosed(ConnectionPool pool) {
         perPoolStats.remove(pool.getName());
+        perPoolHistograms.remove(pool.getName());
         super.poolClosed(pool);
     }
 
@@ -279,8 +314,10 @@ public class SlowQueryReport extends AbstractQueryReport  {
         super.reset(parent, con);
         if (parent!=null) {
             queries = perPoolStats.get(parent.getName());
+            histogram = perPoolHistograms.get(parent.getName());
         } else {
             queries = null;
+            histogram = null;
         }
     }
 
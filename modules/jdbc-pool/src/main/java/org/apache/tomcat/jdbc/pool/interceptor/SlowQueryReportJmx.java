@@ -40,6 +40,7 @@ import javax.management.openmbean.OpenDataException;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.LatencyHistogram;
 import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
 import org.apache.tomcat.jdbc.pool.PooledConnection;
 import org.apache.tomcat.jdbc.pool.jmx.JmxUtil;
@@ -325,13 +326,39 @@ public class SlowQueryReportJmx extends SlowQueryReport implements NotificationE
     public void resetStats() {
         ConcurrentHashMap<String,QueryStats> queries = perPoolStats.get(poolName);
         if (queries!=null) {
-            Iterator<String> it = queries.keySet().iterator();
-            while (it.hasNext()) {
-                it.remove();
-            }
+            queries.clear();
+        }
+        LatencyHistogram histogram = perPoolHistograms.get(poolName);
+        if (histogram!=null) {
+            histogram.reset();
         }
     }
 
+    @Override
+    public double getQueryTimeP50() {
+        return getQueryTime(50);
+    }
+
+    @Override
+    public double getQueryTimeP99() {
+        return getQueryTime(99);
+    }
+
+    @Override
+    public double getQueryTimeP999() {
+        return getQueryTime(99.9);
+    }
+
+    /**
+     * Returns a percentile of the execution time of all queries for this connection pool.
+     * @param percentile the percentage, for example <code>99.9</code>
+     * @return the query time in milliseconds, 0 if nothing was recorded
+     */
+    protected double getQueryTime(double percentile) {
+        LatencyHistogram histogram = perPoolHistograms.get(poolName);
+        return (histogram==null) ? 0 : histogram.getValueAtPercentileMillis(percentile);
+    }
+
     /**
      * JMX operation - returns all the queries we have collected.
      * @return - the slow query report as composite data.
@@ -28,4 +28,22 @@ public interface SlowQueryReportJmxMBean {
      * @throws OpenDataException if the composite data cannot be created
      */
     CompositeData[] getSlowQueriesCD() throws OpenDataException;
+
+    /**
+     * Returns the median execution time of all queries, regardless of the threshold.
+     * @return query time in milliseconds
+     */
+    double getQueryTimeP50();
+
+    /**
+     * Returns the 99th percentile of the execution time of all queries, regardless of the threshold.
+     * @return query time in milliseconds
+     */
+    double getQueryTimeP99();
+
+    /**
+     * Returns the 99.9th percentile of the execution time of all queries, regardless of the threshold.
+     * @return query time in milliseconds
+     */
+    double getQueryTimeP999();
 }
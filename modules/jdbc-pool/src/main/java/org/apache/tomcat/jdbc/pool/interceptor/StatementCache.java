@@ -21,10 +21,19 @@ import java.lang.reflect.Method;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.management.ObjectName;
 
@@ -38,9 +47,19 @@ import org.apache.tomcat.jdbc.pool.jmx.JmxUtil;
 /**
  * Interceptor that caches {@code PreparedStatement} and/or
  * {@code CallableStatement} instances on a connection.
+ * <p>
+ * The number of cached statements is limited for the whole pool. When the
+ * limit has been reached, a statement that is closed replaces the least
+ * recently used statement cached on the same connection. The number of times
+ * each SQL statement is prepared is tracked for the whole pool so that new
+ * connections can be warmed with the most frequently prepared statements.
  */
 public class StatementCache extends StatementDecoratorInterceptor implements StatementCacheMBean {
     private static final Log log = LogFactory.getLog(StatementCache.class);
+    /**
+     * The number of statements returned by {@link #getHottestStatements()}.
+     */
+    protected static final int HOTTEST_STATEMENTS = 10;
     /**
      * All statement types (prepared and callable).
      */
@@ -63,6 +82,12 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
      */
     protected static final String STATEMENT_CACHE_ATTR = StatementCache.class.getName() + ".cache";
 
+    /**
+     * Attribute key for storing the order in which statements were placed in
+     * the cache in connection attributes.
+     */
+    protected static final String STATEMENT_ORDER_ATTR = StatementCache.class.getName() + ".order";
+
     /**
      * Default constructor.
      */
@@ -73,8 +98,12 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
     private boolean cachePrepared = true;
     private boolean cacheCallable = false;
     private int maxCacheSize = 50;
+    private int warm = 0;
+    private int maxQueries = 1000;
     private PooledConnection pcon;
     private String[] types;
+    private volatile boolean warmPending = false;
+    private boolean warming = false;
 
     private ObjectName oname = null;
 
@@ -107,6 +136,16 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
         return cacheSize;
     }
 
+    @Override
+    public int getWarm() {
+        return warm;
+    }
+
+    @Override
+    public int getMaxQueries() {
+        return maxQueries;
+    }
+
     @Override
     public void setProperties(Map<String, InterceptorProperty> properties) {
         super.setProperties(properties);
@@ -122,6 +161,14 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
         if (p!=null) {
             maxCacheSize = p.getValueAsInt(maxCacheSize);
         }
+        p = properties.get("warm");
+        if (p!=null) {
+            warm = p.getValueAsInt(warm);
+        }
+        p = properties.get("maxQueries");
+        if (p!=null) {
+            maxQueries = p.getValueAsInt(maxQueries);
+        }
         if (cachePrepared && cacheCallable) {
             this.types = ALL_TYPES;
         } else if (cachePrepared) {
@@ -141,15 +188,22 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
 
     private AtomicInteger cacheSize;
 
+    private static ConcurrentHashMap<ConnectionPool,CacheStatistics> statisticsMap =
+            new ConcurrentHashMap<>();
+
+    private CacheStatistics statistics;
+
     @Override
     public void poolStarted(ConnectionPool pool) {
         cacheSizeMap.putIfAbsent(pool, new AtomicInteger(0));
+        statisticsMap.putIfAbsent(pool, new CacheStatistics());
         super.poolStarted(pool);
     }
 
     @Override
     public void poolClosed(ConnectionPool pool) {
         cacheSizeMap.remove(pool);
+        statisticsMap.remove(pool);
         super.poolClosed(pool);
     }
     /*end the cache size*/
@@ -160,6 +214,7 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
         super.reset(parent, con);
         if (parent==null) {
             cacheSize = null;
+            statistics = null;
             this.pcon = null;
             if (oname != null) {
                 JmxUtil.unregisterJmx(oname);
@@ -167,11 +222,15 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
             }
         } else {
             cacheSize = cacheSizeMap.get(parent);
+            statistics = statisticsMap.get(parent);
             this.pcon = con;
             if (!pcon.getAttributes().containsKey(STATEMENT_CACHE_ATTR)) {
                 ConcurrentHashMap<CacheKey,CachedStatement> cache =
                         new ConcurrentHashMap<>();
                 pcon.getAttributes().put(STATEMENT_CACHE_ATTR,cache);
+                pcon.getAttributes().put(STATEMENT_ORDER_ATTR,new CacheOrder());
+                //a new connection, prepare the hottest statements on first use
+                warmPending = warm > 0;
             }
             if (oname == null) {
                 String keyprop = ",JdbcInterceptor=" + getClass().getSimpleName();
@@ -192,6 +251,12 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
             }
             statements.clear();
         }
+        CacheOrder order = (CacheOrder) con.getAttributes().get(STATEMENT_ORDER_ATTR);
+        if (order != null) {
+            order.clear();
+        }
+        //the connection may be reconnected, warm it again on next use
+        warmPending = warm > 0 && !finalizing;
 
         super.disconnected(parent, con, finalizing);
     }
@@ -229,9 +294,17 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
 
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (warmPending && !compare(CLOSE_VAL, method)) {
+            warmPending = false;
+            warm(proxy);
+        }
         boolean process = process(this.types, method, false);
         if (process && args.length>0 && args[0] instanceof String) {
             CachedStatement statement = isCached(method, args);
+            CacheStatistics stats = statistics;
+            if (stats != null) {
+                stats.record(createCacheKey(method, args), method, statement != null, maxQueries);
+            }
             if (statement!=null) {
                 //remove it from the cache since it is used
                 removeStatement(statement);
@@ -244,6 +317,43 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
         }
     }
 
+    /**
+     * Prepares the most frequently used statements of the pool on this
+     * connection and places them in the cache, so that a new connection does
+     * not have to prepare them on demand. The statements are created through
+     * the rest of the interceptor chain exactly as if the application had
+     * prepared and closed them.
+     *
+     * @param proxy the connection proxy
+     */
+    protected void warm(Object proxy) {
+        CacheStatistics stats = statistics;
+        ConcurrentHashMap<CacheKey,CachedStatement> cache = getCache();
+        if (stats == null || cache == null) {
+            return;
+        }
+        warming = true;
+        try {
+            for (StatementUsage usage : stats.getHottest(warm)) {
+                if (cacheSize.get() >= maxCacheSize) {
+                    break;
+                }
+                if (process(this.types, usage.method, false) && !cache.containsKey(usage.key)) {
+                    Object statement = super.invoke(proxy, usage.method, usage.key.args);
+                    ((Statement) statement).close();
+                    stats.warmed.incrementAndGet();
+                }
+            }
+        } catch (Throwable t) {
+            if (t instanceof VirtualMachineError) {
+                throw (VirtualMachineError) t;
+            }
+            log.warn("Unable to prepare frequently used statements on a new connection", t);
+        } finally {
+            warming = false;
+        }
+    }
+
     /**
      * Checks if a statement for the given method and arguments is currently cached.
      *
@@ -286,10 +396,38 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
         } else {
             //cache the statement
             cache.put(proxy.getCacheKey(), proxy);
+            CacheOrder order = getCacheOrder();
+            if (order != null) {
+                order.add(proxy, cache);
+            }
             return true;
         }
     }
 
+    /**
+     * Closes the least recently used statement cached on the current
+     * connection, to make room for another statement.
+     *
+     * @return true if a statement was closed, false if there was none
+     */
+    protected boolean evictStatement() {
+        ConcurrentHashMap<CacheKey,CachedStatement> cache = getCache();
+        CacheOrder order = getCacheOrder();
+        if (cache == null || order == null) {
+            return false;
+        }
+        CachedStatement eldest = order.pollEldest(cache);
+        if (eldest == null || !removeStatement(eldest)) {
+            return false;
+        }
+        eldest.forceClose();
+        CacheStatistics stats = statistics;
+        if (stats != null) {
+            stats.evictions.incrementAndGet();
+        }
+        return true;
+    }
+
     /**
      * Removes the given statement from the cache.
      *
@@ -329,6 +467,11 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
         return cache;
     }
 
+    private CacheOrder getCacheOrder() {
+        PooledConnection pCon = this.pcon;
+        return (pCon == null) ? null : (CacheOrder) pCon.getAttributes().get(STATEMENT_ORDER_ATTR);
+    }
+
     @Override
     public int getCacheSizePerConnection() {
         ConcurrentHashMap<CacheKey,CachedStatement> cache = getCache();
@@ -338,6 +481,60 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
         return cache.size();
     }
 
+    @Override
+    public long getHitCount() {
+        CacheStatistics stats = statistics;
+        return (stats == null) ? 0 : stats.hits.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        CacheStatistics stats = statistics;
+        return (stats == null) ? 0 : stats.misses.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return (total == 0) ? 0 : ((double) hits) / total;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        CacheStatistics stats = statistics;
+        return (stats == null) ? 0 : stats.evictions.get();
+    }
+
+    @Override
+    public long getWarmedCount() {
+        CacheStatistics stats = statistics;
+        return (stats == null) ? 0 : stats.warmed.get();
+    }
+
+    @Override
+    public String[] getHottestStatements() {
+        CacheStatistics stats = statistics;
+        if (stats == null) {
+            return new String[0];
+        }
+        List<StatementUsage> hottest = stats.getHottest(HOTTEST_STATEMENTS);
+        String[] result = new String[hottest.size()];
+        for (int i = 0; i < result.length; i++) {
+            StatementUsage usage = hottest.get(i);
+            result[i] = usage.uses.get() + " " + usage.key.args[0];
+        }
+        return result;
+    }
+
+    @Override
+    public void resetStats() {
+        CacheStatistics stats = statistics;
+        if (stats != null) {
+            stats.reset();
+        }
+    }
+
     /**
      * Proxy for a cached prepared statement.
      */
@@ -359,6 +556,13 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
         public void closeInvoked() {
             //should we cache it
             boolean shouldClose = true;
+            if (cacheSize.get() >= maxCacheSize && !warming && getCacheKey() != null) {
+                ConcurrentHashMap<CacheKey,CachedStatement> cache = getCache();
+                if (cache != null && !cache.containsKey(getCacheKey())) {
+                    //make room by closing the least recently used statement of this connection
+                    evictStatement();
+                }
+            }
             if (cacheSize.get() < maxCacheSize) {
                 //cache a proxy so that we don't reuse the facade
                 CachedStatement proxy = new CachedStatement(getDelegate(),getSql());
@@ -447,6 +651,170 @@ public class StatementCache extends StatementDecoratorInterceptor implements Sta
     }
 
 
+    /**
+     * The statements cached on a connection, in the order they were placed in
+     * the cache. A statement that is in use has been removed from the cache
+     * so this is also the order in which the statements were last used. A
+     * statement that is removed from the cache stays in the queue until it is
+     * reached by {@link #pollEldest(Map)} or the queue is purged, which
+     * happens once the queue holds twice as many statements as the cache.
+     */
+    private static final class CacheOrder {
+        private final ConcurrentLinkedQueue<CachedStatement> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger(0);
+
+        private void add(CachedStatement statement, Map<CacheKey,CachedStatement> cache) {
+            queue.offer(statement);
+            if (size.incrementAndGet() > 2 * Math.max(cache.size(), 8)) {
+                int removed = 0;
+                for (Iterator<CachedStatement> it = queue.iterator(); it.hasNext();) {
+                    CachedStatement st = it.next();
+                    if (cache.get(st.getCacheKey()) != st) {
+                        it.remove();
+                        removed++;
+                    }
+                }
+                size.addAndGet(-removed);
+            }
+        }
+
+        /*
+         * Removes the statements that are no longer cached from the head of
+         * the queue and returns the first statement that is still cached.
+         */
+        private CachedStatement pollEldest(Map<CacheKey,CachedStatement> cache) {
+            CachedStatement st;
+            while ((st = queue.poll()) != null) {
+                size.decrementAndGet();
+                if (cache.get(st.getCacheKey()) == st) {
+                    return st;
+                }
+            }
+            return null;
+        }
+
+        private void clear() {
+            queue.clear();
+            size.set(0);
+        }
+    }
+
+
+    /**
+     * Usage statistics of a statement, shared by all the connections of a pool.
+     */
+    private static final class StatementUsage {
+        private final CacheKey key;
+        private final Method method;
+        private final AtomicLong uses = new AtomicLong(0);
+
+        private StatementUsage(CacheKey key, Method method) {
+            this.key = key;
+            this.method = method;
+        }
+    }
+
+
+    /**
+     * The number of uses of a statement at a given time. The counts of the
+     * statements keep changing while they are compared so they are copied
+     * before they are compared.
+     */
+    private static final class UsageSnapshot {
+        private static final Comparator<UsageSnapshot> LEAST_USED_FIRST =
+                (u1, u2) -> Long.compare(u1.uses, u2.uses);
+        private static final Comparator<UsageSnapshot> MOST_USED_FIRST = LEAST_USED_FIRST.reversed();
+
+        private final StatementUsage usage;
+        private final long uses;
+
+        private UsageSnapshot(StatementUsage usage) {
+            this.usage = usage;
+            this.uses = usage.uses.get();
+        }
+    }
+
+
+    /**
+     * Statistics of the statement cache of a pool.
+     */
+    private static final class CacheStatistics {
+
+        private final ConcurrentHashMap<CacheKey,StatementUsage> usages = new ConcurrentHashMap<>();
+        private final AtomicLong hits = new AtomicLong(0);
+        private final AtomicLong misses = new AtomicLong(0);
+        private final AtomicLong evictions = new AtomicLong(0);
+        private final AtomicLong warmed = new AtomicLong(0);
+
+        private void record(CacheKey key, Method method, boolean hit, int maxQueries) {
+            if (hit) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+            if (maxQueries <= 0 || key == null) {
+                return;
+            }
+            StatementUsage usage = usages.get(key);
+            if (usage == null) {
+                usage = new StatementUsage(key, method);
+                StatementUsage existing = usages.putIfAbsent(key, usage);
+                if (existing != null) {
+                    usage = existing;
+                } else if (usages.size() > maxQueries) {
+                    removeLeastUsed(maxQueries);
+                }
+            }
+            usage.uses.incrementAndGet();
+        }
+
+        private void removeLeastUsed(int maxQueries) {
+            //remove more than needed so that this is not needed for every new statement
+            int keep = maxQueries - maxQueries / 10;
+            for (UsageSnapshot snapshot : select(usages.size() - keep, UsageSnapshot.LEAST_USED_FIRST)) {
+                usages.remove(snapshot.usage.key, snapshot.usage);
+            }
+        }
+
+        private List<StatementUsage> getHottest(int count) {
+            List<UsageSnapshot> selected = select(count, UsageSnapshot.MOST_USED_FIRST);
+            Collections.sort(selected, UsageSnapshot.MOST_USED_FIRST);
+            List<StatementUsage> result = new ArrayList<>(selected.size());
+            for (UsageSnapshot snapshot : selected) {
+                result.add(snapshot.usage);
+            }
+            return result;
+        }
+
+        /*
+         * Selects the first count statements in the given order, in no
+         * particular order, with a heap whose head is the last statement
+         * selected so far.
+         */
+        private List<UsageSnapshot> select(int count, Comparator<UsageSnapshot> order) {
+            if (count <= 0) {
+                return new ArrayList<>();
+            }
+            PriorityQueue<UsageSnapshot> heap = new PriorityQueue<>(count + 1, order.reversed());
+            for (StatementUsage usage : usages.values()) {
+                heap.offer(new UsageSnapshot(usage));
+                if (heap.size() > count) {
+                    heap.poll();
+                }
+            }
+            return new ArrayList<>(heap);
+        }
+
+        private void reset() {
+            usages.clear();
+            hits.set(0);
+            misses.set(0);
+            evictions.set(0);
+            warmed.set(0);
+        }
+    }
+
+
     private static final class CacheKey {
         private final String stmtType;
         private final Object[] args;
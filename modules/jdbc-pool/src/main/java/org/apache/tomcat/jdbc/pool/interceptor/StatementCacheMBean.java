@@ -47,4 +47,55 @@ public interface StatementCacheMBean {
      * @return number of cached statements for this connection
      */
     int getCacheSizePerConnection();
+    /**
+     * Returns the number of most frequently used statements that are prepared
+     * when a new connection is first used.
+     * @return number of statements used to warm a new connection
+     */
+    int getWarm();
+    /**
+     * Returns the maximum number of distinct SQL statements for which usage
+     * statistics are kept.
+     * @return maximum number of tracked statements
+     */
+    int getMaxQueries();
+    /**
+     * Returns the number of statements that were found in the cache.
+     * @return cache hit count for the pool
+     */
+    long getHitCount();
+    /**
+     * Returns the number of statements that had to be prepared because they
+     * were not found in the cache.
+     * @return cache miss count for the pool
+     */
+    long getMissCount();
+    /**
+     * Returns the ratio of cache hits to statement requests.
+     * @return hit ratio between 0 and 1, or 0 if no statement was requested
+     */
+    double getHitRatio();
+    /**
+     * Returns the number of cached statements that were closed to make room
+     * for another statement.
+     * @return eviction count for the pool
+     */
+    long getEvictionCount();
+    /**
+     * Returns the number of statements that were prepared to warm new
+     * connections.
+     * @return number of statements prepared by warming
+     */
+    long getWarmedCount();
+    /**
+     * Returns the most frequently prepared SQL statements of the pool, each
+     * prefixed by the number of times it was prepared.
+     * @return the hottest statements, most used first
+     */
+    String[] getHottestStatements();
+    /**
+     * Resets the hit, miss and eviction counts and the statement usage
+     * statistics.
+     */
+    void resetStats();
 }
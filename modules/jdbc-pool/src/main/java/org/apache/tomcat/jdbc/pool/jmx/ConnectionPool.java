@@ -304,6 +304,53 @@ public class ConnectionPool extends NotificationBroadcasterSupport
         return pool.getReleasedIdleCount();
     }
 
+    @Override
+    public long getThreadAffinityHitCount() {
+        return pool.getThreadAffinityHitCount();
+    }
+
+    @Override
+    public long getThreadAffinityMissCount() {
+        return pool.getThreadAffinityMissCount();
+    }
+
+    @Override
+    public double getThreadAffinityHitRatio() {
+        long hits = pool.getThreadAffinityHitCount();
+        long total = hits + pool.getThreadAffinityMissCount();
+        return (total == 0) ? 0 : ((double) hits) / total;
+    }
+
+    @Override
+    public double getBorrowWaitTimeP50() {
+        return pool.getBorrowWaitHistogram().getValueAtPercentileMillis(50);
+    }
+
+    @Override
+    public double getBorrowWaitTimeP99() {
+        return pool.getBorrowWaitHistogram().getValueAtPercentileMillis(99);
+    }
+
+    @Override
+    public double getBorrowWaitTimeP999() {
+        return pool.getBorrowWaitHistogram().getValueAtPercentileMillis(99.9);
+    }
+
+    @Override
+    public double getValidationTimeP50() {
+        return pool.getValidationTimeHistogram().getValueAtPercentileMillis(50);
+    }
+
+    @Override
+    public double getValidationTimeP99() {
+        return pool.getValidationTimeHistogram().getValueAtPercentileMillis(99);
+    }
+
+    @Override
+    public double getValidationTimeP999() {
+        return pool.getValidationTimeHistogram().getValueAtPercentileMillis(99.9);
+    }
+
     //=================================================================
     //       POOL OPERATIONS
     //=================================================================
@@ -962,6 +1009,16 @@ public class ConnectionPool extends NotificationBroadcasterSupport
         getPoolProperties().setUseStatementFacade(useStatementFacade);
     }
 
+    @Override
+    public boolean isThreadAffinity() {
+        return getPoolProperties().isThreadAffinity();
+    }
+
+    @Override
+    public void setThreadAffinity(boolean threadAffinity) {
+        getPoolProperties().setThreadAffinity(threadAffinity);
+    }
+
     @Override
     public void purge() {
         pool.purge();
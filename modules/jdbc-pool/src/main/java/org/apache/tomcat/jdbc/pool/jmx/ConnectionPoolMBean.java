@@ -104,6 +104,63 @@ public interface ConnectionPoolMBean extends PoolConfiguration  {
      */
     long getReleasedIdleCount();
 
+    /**
+     * Returns the number of connections borrowed from the idle queue that were the
+     * connection most recently returned by the borrowing thread.
+     * @return thread affinity hit count
+     */
+    long getThreadAffinityHitCount();
+
+    /**
+     * Returns the number of attempts to borrow the connection most recently returned
+     * by the borrowing thread that failed.
+     * @return thread affinity miss count
+     */
+    long getThreadAffinityMissCount();
+
+    /**
+     * Returns the fraction of the attempts to borrow the connection most recently
+     * returned by the borrowing thread that succeeded.
+     * @return thread affinity hit ratio, between 0 and 1
+     */
+    double getThreadAffinityHitRatio();
+
+    /**
+     * Returns the median time taken to borrow a connection.
+     * @return borrow wait time in milliseconds
+     */
+    double getBorrowWaitTimeP50();
+
+    /**
+     * Returns the 99th percentile of the time taken to borrow a connection.
+     * @return borrow wait time in milliseconds
+     */
+    double getBorrowWaitTimeP99();
+
+    /**
+     * Returns the 99.9th percentile of the time taken to borrow a connection.
+     * @return borrow wait time in milliseconds
+     */
+    double getBorrowWaitTimeP999();
+
+    /**
+     * Returns the median time taken to validate a connection.
+     * @return validation time in milliseconds
+     */
+    double getValidationTimeP50();
+
+    /**
+     * Returns the 99th percentile of the time taken to validate a connection.
+     * @return validation time in milliseconds
+     */
+    double getValidationTimeP99();
+
+    /**
+     * Returns the 99.9th percentile of the time taken to validate a connection.
+     * @return validation time in milliseconds
+     */
+    double getValidationTimeP999();
+
     //=================================================================
     //       POOL OPERATIONS
     //=================================================================
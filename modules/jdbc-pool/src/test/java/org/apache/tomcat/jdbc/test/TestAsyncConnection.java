@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.PooledConnection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.PoolExhaustedException;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestAsyncConnection {
+
+    private DataSource ds;
+
+    @After
+    public void tearDown() {
+        if (ds != null) {
+            ds.close(true);
+        }
+        Driver.reset();
+    }
+
+    @Test
+    public void testAvailableConnection() throws Exception {
+        createDataSource(true, 10000);
+        CompletableFuture<Connection> future = ds.getConnectionCompletableFuture();
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(1, ds.getActive());
+        future.get().close();
+        Assert.assertEquals(0, ds.getActive());
+    }
+
+    @Test
+    public void testCompletedOnReturnInRequestOrder() throws Exception {
+        createDataSource(true, 10000);
+        Connection con = ds.getConnection();
+        Object actual = ((PooledConnection) con).getConnection();
+        CompletableFuture<Connection> first = ds.getConnectionCompletableFuture();
+        CompletableFuture<Connection> second = ds.getConnectionCompletableFuture();
+        Assert.assertFalse(first.isDone());
+        Assert.assertFalse(second.isDone());
+
+        con.close();
+        Assert.assertTrue(first.isDone());
+        Assert.assertSame(actual, ((PooledConnection) first.get()).getConnection());
+        Assert.assertFalse(second.isDone());
+
+        first.get().close();
+        Assert.assertSame(actual, ((PooledConnection) second.get()).getConnection());
+        second.get().close();
+        Assert.assertEquals(0, ds.getActive());
+        Assert.assertEquals(1, ds.getIdle());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        createDataSource(true, 10000);
+        Connection con = ds.getConnection();
+        CompletableFuture<Connection> future = ds.getConnectionCompletableFuture();
+        Assert.assertTrue(future.cancel(false));
+        con.close();
+        Assert.assertEquals(0, ds.getActive());
+        Assert.assertEquals(1, ds.getIdle());
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        createDataSource(true, 100);
+        Connection con = ds.getConnection();
+        CompletableFuture<Connection> future = ds.getConnectionCompletableFuture();
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof PoolExhaustedException);
+        }
+        con.close();
+        Assert.assertEquals(1, ds.getIdle());
+    }
+
+    @Test
+    public void testPoolClosed() throws Exception {
+        createDataSource(true, 10000);
+        ds.getConnection();
+        CompletableFuture<Connection> future = ds.getConnectionCompletableFuture();
+        ds.close(true);
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+
+    @Test
+    public void testRequiresFairQueue() throws Exception {
+        createDataSource(false, 10000);
+        CompletableFuture<Connection> future = ds.getConnectionCompletableFuture();
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+
+    private void createDataSource(boolean fairQueue, int maxWait) throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setFairQueue(fairQueue);
+        p.setJmxEnabled(false);
+        p.setTestOnBorrow(false);
+        p.setTestWhileIdle(false);
+        p.setInitialSize(0);
+        p.setMinIdle(0);
+        p.setMaxActive(1);
+        p.setMaxIdle(1);
+        p.setMaxWait(maxWait);
+        ds = new DataSource(p);
+        ds.createPool();
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.tomcat.jdbc.test;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -42,6 +43,34 @@ public class TestAsyncQueue {
     }
 
 
+    @Test
+    public void testRemove() throws Exception {
+        Object a = "a";
+        Object b = "b";
+        Object c = "c";
+        queue.offer(a);
+        queue.offer(b);
+        queue.offer(c);
+        queue.offer(a);
+        Assert.assertEquals(4, queue.size());
+
+        // Removes the most recently offered occurrence
+        Assert.assertTrue(queue.remove(a));
+        Assert.assertTrue(queue.contains(a));
+        Assert.assertTrue(queue.remove(b));
+        Assert.assertFalse(queue.remove(b));
+        Assert.assertFalse(queue.contains(b));
+        Assert.assertEquals(2, queue.size());
+
+        Assert.assertEquals(c, queue.poll());
+        Assert.assertTrue(queue.contains(a));
+        Assert.assertEquals(a, queue.poll());
+        Assert.assertFalse(queue.contains(a));
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(0, queue.size());
+    }
+
+
     @Test
     public void testAsyncPoll1() throws Exception {
         Object item = new Object();
@@ -69,6 +98,65 @@ public class TestAsyncQueue {
         Assert.assertEquals(future.get(),item);
     }
 
+    @Test
+    public void testCompletableFuturePoll() throws Exception {
+        Object item = new Object();
+        queue.offer(item);
+        CompletableFuture<Object> future = queue.pollCompletableFuture();
+        Assert.assertSame(item, future.getNow(null));
+
+        CompletableFuture<Object> first = queue.pollCompletableFuture();
+        CompletableFuture<Object> second = queue.pollCompletableFuture();
+        Assert.assertFalse(first.isDone());
+        // Callbacks must not run on the thread that offers the item
+        CompletableFuture<Thread> completedBy = first.thenApply(i -> Thread.currentThread());
+        queue.offer(item);
+        Assert.assertNotSame(Thread.currentThread(), completedBy.get(10, TimeUnit.SECONDS));
+        Assert.assertSame(item, first.getNow(null));
+        Assert.assertFalse(second.isDone());
+        Assert.assertEquals(0, queue.size());
+    }
+
+
+    @Test
+    public void testCompletableFutureCancel() throws Exception {
+        Object item = new Object();
+        CompletableFuture<Object> cancelled = queue.pollCompletableFuture();
+        CompletableFuture<Object> waiting = queue.pollCompletableFuture();
+        Assert.assertTrue(cancelled.cancel(false));
+        queue.offer(item);
+        Assert.assertSame(item, waiting.get(10, TimeUnit.SECONDS));
+
+        cancelled = queue.pollCompletableFuture();
+        cancelled.cancel(false);
+        queue.offer(item);
+        Assert.assertEquals(1, queue.size());
+    }
+
+
+    @Test
+    public void testCompletableFutureFairWithBlockingPoll() throws Exception {
+        Object item = new Object();
+        Object[] polled = new Object[1];
+        Thread t = new Thread(() -> {
+            try {
+                polled[0] = queue.poll(10000, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ignore) {
+                // Ignore, checked below
+            }
+        });
+        t.start();
+        // Give the thread time to join the wait list
+        Thread.sleep(500);
+        CompletableFuture<Object> future = queue.pollCompletableFuture();
+        queue.offer(item);
+        t.join(10000);
+        Assert.assertSame(item, polled[0]);
+        Assert.assertFalse(future.isDone());
+        queue.offer(item);
+        Assert.assertSame(item, future.get(10, TimeUnit.SECONDS));
+    }
+
     protected class OfferThread extends Thread {
         Object item = null;
         long delay = 5000;
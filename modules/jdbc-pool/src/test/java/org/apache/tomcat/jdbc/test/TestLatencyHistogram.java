@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.LatencyHistogram;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.jmx.ConnectionPoolMBean;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestLatencyHistogram {
+
+    private DataSource ds;
+
+    @After
+    public void tearDown() {
+        if (ds != null) {
+            ds.close(true);
+        }
+        Driver.reset();
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram h = new LatencyHistogram();
+        Assert.assertEquals(0, h.getCount());
+        Assert.assertEquals(0, h.getMax());
+        Assert.assertEquals(0, h.getValueAtPercentile(99.9));
+    }
+
+    @Test
+    public void testSmallValuesExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            h.record(i);
+        }
+        Assert.assertEquals(50, h.getCount());
+        Assert.assertEquals(25, h.getValueAtPercentile(50));
+        Assert.assertEquals(50, h.getValueAtPercentile(100));
+        Assert.assertEquals(1, h.getValueAtPercentile(0));
+    }
+
+    @Test
+    public void testRelativeError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v < LatencyHistogram.MAX_VALUE / 4; v = v * 3 + 7) {
+            h.reset();
+            h.record(v);
+            Assert.assertEquals(v, h.getValueAtPercentile(50));
+            // The median is now in the bucket of 2v, reported as its upper bound
+            h.record(v * 2);
+            h.record(v * 2);
+            h.record(v * 4);
+            long reported = h.getValueAtPercentile(50);
+            Assert.assertTrue(v + ": " + reported, reported >= v * 2);
+            Assert.assertTrue(v + ": " + reported, reported <= v * 2 * 1.04);
+        }
+    }
+
+    @Test
+    public void testTail() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < 9990; i++) {
+            h.record(1000);
+        }
+        for (int i = 0; i < 10; i++) {
+            h.record(1_000_000);
+        }
+        Assert.assertEquals(1.0, h.getValueAtPercentileMillis(50), 0.05);
+        Assert.assertEquals(1.0, h.getValueAtPercentileMillis(99), 0.05);
+        Assert.assertEquals(1000.0, h.getValueAtPercentileMillis(99.95), 1.0);
+        Assert.assertEquals(1_000_000, h.getMax());
+    }
+
+    @Test
+    public void testLargeAndNegativeValues() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        h.recordNanos(Long.MAX_VALUE);
+        Assert.assertEquals(2, h.getCount());
+        Assert.assertEquals(0, h.getValueAtPercentile(50));
+        Assert.assertEquals(h.getMax(), h.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+        final LatencyHistogram h = new LatencyHistogram();
+        final int threads = 8;
+        final int count = 100_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int value = 100 * (i + 1);
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < count; j++) {
+                    h.record(value);
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread t : workers) {
+            t.join();
+        }
+        Assert.assertEquals(threads * count, h.getCount());
+        Assert.assertEquals(100 * threads, h.getMax());
+        h.reset();
+        Assert.assertEquals(0, h.getCount());
+    }
+
+    @Test
+    public void testPoolStatistics() throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setJmxEnabled(true);
+        p.setTestWhileIdle(false);
+        p.setTestOnBorrow(true);
+        p.setValidationInterval(-1);
+        p.setValidator((connection, validateAction) -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            return true;
+        });
+        p.setInitialSize(0);
+        p.setMinIdle(0);
+        p.setMaxActive(1);
+        p.setMaxWait(200);
+        ds = new DataSource(p);
+
+        Connection con = ds.getConnection();
+        con.close();
+        con = ds.getConnection();
+        try {
+            ds.getConnection();
+            Assert.fail();
+        } catch (SQLException e) {
+            // Expected, the timed out attempt is included
+        }
+        con.close();
+
+        ConnectionPoolMBean mbean = ds.getPool().getJmxPool();
+        Assert.assertEquals(3, ds.getPool().getBorrowWaitHistogram().getCount());
+        Assert.assertTrue(mbean.getBorrowWaitTimeP50() < 150);
+        Assert.assertTrue(mbean.getBorrowWaitTimeP999() >= 190);
+        Assert.assertEquals(mbean.getBorrowWaitTimeP999(), ds.getBorrowWaitTimeP999(), 0.001);
+
+        Assert.assertTrue(ds.getPool().getValidationTimeHistogram().getCount() > 0);
+        Assert.assertTrue(mbean.getValidationTimeP50() >= 19);
+        Assert.assertTrue(mbean.getValidationTimeP99() >= mbean.getValidationTimeP50());
+
+        mbean.resetStats();
+        Assert.assertEquals(0, mbean.getBorrowWaitTimeP999(), 0);
+        Assert.assertEquals(0, mbean.getValidationTimeP999(), 0);
+    }
+}
@@ -170,6 +170,36 @@ public class TestSlowQueryReport extends DefaultTestCase {
         Assert.assertNull(SlowQueryReport.getPoolStats(pool.getName()));
     }
 
+    @Test
+    public void testQueryTimePercentiles() throws Exception {
+        Connection con = this.datasource.getConnection();
+        String fastSql = this.datasource.getValidationQuery();
+        for (int i=0; i<99; i++) {
+            Statement st = con.createStatement();
+            ResultSet rs = st.executeQuery(fastSql);
+            rs.close();
+            st.close();
+        }
+        Statement st = con.createStatement();
+        ResultSet rs = st.executeQuery(superSlowSql);
+        rs.close();
+        st.close();
+
+        ConnectionPool pool = datasource.getPool();
+        //every execution is recorded, not only the ones above the threshold
+        Assert.assertEquals(100, SlowQueryReport.getPoolHistogram(pool.getName()).getCount());
+        SlowQueryReportJmx jmx = new SlowQueryReportJmx();
+        jmx.poolStarted(pool);
+        Assert.assertTrue(jmx.getQueryTimeP50() < 50);
+        Assert.assertTrue(jmx.getQueryTimeP99() < 50);
+        Assert.assertTrue(jmx.getQueryTimeP999() >= 190);
+        jmx.resetStats();
+        Assert.assertEquals(0, jmx.getQueryTimeP999(), 0);
+        con.close();
+        tearDown();
+        Assert.assertNull(SlowQueryReport.getPoolHistogram(pool.getName()));
+    }
+
     @Test
     public void testFailedSql() throws Exception {
         int count = 3;
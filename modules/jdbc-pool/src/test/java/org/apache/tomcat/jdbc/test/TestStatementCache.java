@@ -177,6 +177,108 @@ public class TestStatementCache extends DefaultTestCase {
         con2.close();
     }
 
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        init();
+        datasource.setJdbcInterceptors(
+                TestStatementCacheInterceptor.class.getName()
+                + "(prepared=true,callable=false,max=2);"
+                + StatementCounterInterceptor.class.getName());
+        Connection con = datasource.getConnection();
+        StatementCounterInterceptor counter = findInterceptor(con, StatementCounterInterceptor.class);
+        con.prepareStatement("select 1").close();
+        con.prepareStatement("select 2").close();
+        // Use "select 1" again so that "select 2" is the least recently used
+        con.prepareStatement("select 1").close();
+        Assert.assertEquals(2, interceptor.getCacheSize().get());
+
+        con.prepareStatement("select 3").close();
+        Assert.assertEquals(2, interceptor.getCacheSize().get());
+        Assert.assertEquals("Evicted statement is closed", 2, counter.getActiveCount());
+        Assert.assertEquals(1, interceptor.getEvictionCount());
+
+        long misses = interceptor.getMissCount();
+        con.prepareStatement("select 1").close();
+        con.prepareStatement("select 3").close();
+        Assert.assertEquals(misses, interceptor.getMissCount());
+        con.prepareStatement("select 2").close();
+        Assert.assertEquals(misses + 1, interceptor.getMissCount());
+        con.close();
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        init();
+        config(true,false,10);
+        Connection con = datasource.getConnection();
+        interceptor.resetStats();
+        for (int i=0; i<3; i++) {
+            con.prepareStatement("select 1").close();
+        }
+        con.prepareStatement("select 2").close();
+        Assert.assertEquals(2, interceptor.getHitCount());
+        Assert.assertEquals(2, interceptor.getMissCount());
+        Assert.assertEquals(0.5, interceptor.getHitRatio(), 0.001);
+        String[] hottest = interceptor.getHottestStatements();
+        Assert.assertEquals(2, hottest.length);
+        Assert.assertEquals("3 select 1", hottest[0]);
+        Assert.assertEquals("1 select 2", hottest[1]);
+
+        interceptor.resetStats();
+        Assert.assertEquals(0, interceptor.getHitCount());
+        Assert.assertEquals(0, interceptor.getHottestStatements().length);
+        con.close();
+    }
+
+    @Test
+    public void testMaxQueries() throws Exception {
+        init();
+        datasource.setJdbcInterceptors(TestStatementCacheInterceptor.class.getName()
+                + "(prepared=true,callable=false,max=10,maxQueries=20)");
+        Connection con = datasource.getConnection();
+        interceptor.resetStats();
+        for (int i=0; i<5; i++) {
+            con.prepareStatement("select 'hot'").close();
+        }
+        for (int i=0; i<50; i++) {
+            con.prepareStatement("select "+i).close();
+        }
+        String[] hottest = interceptor.getHottestStatements();
+        Assert.assertEquals(10, hottest.length);
+        Assert.assertEquals("5 select 'hot'", hottest[0]);
+        Assert.assertTrue(hottest[1].startsWith("1 select "));
+        con.close();
+    }
+
+    @Test
+    public void testWarm() throws Exception {
+        init();
+        datasource.setJdbcInterceptors(TestStatementCacheInterceptor.class.getName()
+                + "(prepared=true,callable=false,max=10,warm=2)");
+        Connection con1 = datasource.getConnection();
+        for (int i=0; i<3; i++) {
+            con1.prepareStatement("select 1").close();
+        }
+        con1.prepareStatement("select 2").close();
+        con1.prepareStatement("select 2").close();
+        con1.prepareStatement("select 3").close();
+        Assert.assertEquals(2, interceptor.getWarm());
+        Assert.assertEquals(0, interceptor.getWarmedCount());
+
+        // A connection that has not been used yet is warmed with the two most used statements
+        Connection con2 = datasource.getConnection();
+        long misses = interceptor.getMissCount();
+        con2.prepareStatement("select 1").close();
+        con2.prepareStatement("select 2").close();
+        Assert.assertEquals(2, interceptor.getWarmedCount());
+        Assert.assertEquals(misses, interceptor.getMissCount());
+        Assert.assertEquals(2, interceptor.getCacheSizePerConnection());
+        con2.prepareStatement("select 3").close();
+        Assert.assertEquals(misses + 1, interceptor.getMissCount());
+        con1.close();
+        con2.close();
+    }
+
 
     public static class TestStatementCacheInterceptor extends StatementCache {
         public TestStatementCacheInterceptor() {
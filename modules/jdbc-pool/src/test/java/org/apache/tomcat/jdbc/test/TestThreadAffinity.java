@@ -0,0 +1,119 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.jdbc.test;
+
+import java.sql.Connection;
+
+import javax.sql.PooledConnection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.test.driver.Driver;
+
+public class TestThreadAffinity {
+
+    private DataSource ds;
+
+    @After
+    public void tearDown() {
+        if (ds != null) {
+            ds.close(true);
+        }
+        Driver.reset();
+    }
+
+    @Test
+    public void testSameConnectionReturned() throws Exception {
+        doTestSameConnectionReturned(false);
+    }
+
+    @Test
+    public void testSameConnectionReturnedFairQueue() throws Exception {
+        doTestSameConnectionReturned(true);
+    }
+
+    private void doTestSameConnectionReturned(boolean fairQueue) throws Exception {
+        createDataSource(fairQueue, 4);
+        Connection con = ds.getConnection();
+        Object actual = ((PooledConnection) con).getConnection();
+        con.close();
+        ds.resetStats();
+
+        // Without thread affinity, the idle queue would hand out the other idle connections first
+        for (int i = 0; i < 5; i++) {
+            con = ds.getConnection();
+            Assert.assertSame(actual, ((PooledConnection) con).getConnection());
+            con.close();
+        }
+        Assert.assertEquals(5, ds.getThreadAffinityHitCount());
+        Assert.assertEquals(0, ds.getThreadAffinityMissCount());
+        Assert.assertEquals(1.0, ds.getPool().getJmxPool().getThreadAffinityHitRatio(), 0.001);
+    }
+
+    @Test
+    public void testConnectionInUseByOtherThread() throws Exception {
+        createDataSource(false, 1);
+        Connection con = ds.getConnection();
+        Object actual = ((PooledConnection) con).getConnection();
+        con.close();
+
+        Connection[] other = new Connection[1];
+        Thread t = new Thread(() -> {
+            try {
+                other[0] = ds.getConnection();
+            } catch (Exception e) {
+                // Ignore, checked below
+            }
+        });
+        t.start();
+        t.join();
+        Assert.assertNotNull(other[0]);
+
+        Assert.assertSame(actual, ((PooledConnection) other[0]).getConnection());
+
+        ds.resetStats();
+        con = ds.getConnection();
+        Assert.assertNotSame(actual, ((PooledConnection) con).getConnection());
+        Assert.assertEquals(0, ds.getThreadAffinityHitCount());
+        Assert.assertEquals(1, ds.getThreadAffinityMissCount());
+        Assert.assertEquals(2, ds.getActive());
+        con.close();
+        other[0].close();
+        Assert.assertEquals(0, ds.getActive());
+    }
+
+    private void createDataSource(boolean fairQueue, int initialSize) throws Exception {
+        PoolConfiguration p = new DefaultProperties();
+        p.setDriverClassName(Driver.class.getName());
+        p.setUrl(Driver.url);
+        p.setFairQueue(fairQueue);
+        p.setJmxEnabled(true);
+        p.setTestOnBorrow(false);
+        p.setTestWhileIdle(false);
+        p.setInitialSize(initialSize);
+        p.setMaxActive(4);
+        p.setMinIdle(initialSize);
+        p.setMaxIdle(4);
+        p.setThreadAffinity(true);
+        ds = new DataSource(p);
+        ds.createPool();
+    }
+}
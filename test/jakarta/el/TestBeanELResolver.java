@@ -269,6 +269,27 @@ public class TestBeanELResolver extends ELBaseTest {
         resolver.setValue(context, new TesterBean(BEAN_NAME), PROPERTY01_NAME, PROPERTY_VALUE);
     }
 
+    /**
+     * Tests that a value of the wrong type is reported as an invalid argument.
+     */
+    @Test
+    public void testSetValue08() {
+        BeanELResolver resolver = new BeanELResolver();
+        ELContext context = new StandardELContext(ELManager.getExpressionFactory());
+        TesterBean bean = new TesterBean(BEAN_NAME);
+
+        resolver.setValue(context, bean, PROPERTY03_NAME, PROPERTY_VALUE);
+        Assert.assertEquals(PROPERTY_VALUE, bean.getName());
+
+        try {
+            resolver.setValue(context, bean, PROPERTY03_NAME, Integer.valueOf(1));
+            Assert.fail();
+        } catch (ELException e) {
+            assertThat("Wrong cause type", e.getCause(), instanceOf(IllegalArgumentException.class));
+        }
+        Assert.assertEquals(PROPERTY_VALUE, bean.getName());
+    }
+
     /**
      * Tests that a null context results in an NPE as per EL Javadoc.
      */
@@ -49,4 +49,62 @@ public class TesterCompositeELResolverPerformance {
             resolver.convertToType(context, "This is a String", String.class);
         }
     }
+
+
+    @Test
+    public void testBeanGetValue() throws Exception {
+        ELManager manager = new ELManager();
+        ELContext context = manager.getELContext();
+        TesterBean bean = new TesterBean("test");
+
+        // Both the full resolver chain and the BeanELResolver in isolation
+        ELResolver[] resolvers = new ELResolver[] { context.getELResolver(), new BeanELResolver() };
+        for (ELResolver resolver : resolvers) {
+            // Warm-up
+            doGetValue(context, resolver, bean);
+
+            long start = System.nanoTime();
+            doGetValue(context, resolver, bean);
+            long duration = System.nanoTime() - start;
+
+            System.out.println("Bean getValue performance test using [" + resolver.getClass().getSimpleName() +
+                    "] complete in " + duration + "ns");
+        }
+    }
+
+
+    private void doGetValue(ELContext context, ELResolver resolver, TesterBean bean) {
+        for (int i = 0; i < 10000000; i++) {
+            resolver.getValue(context, bean, "name");
+        }
+    }
+
+
+    @Test
+    public void testBeanSetValue() throws Exception {
+        ELManager manager = new ELManager();
+        ELContext context = manager.getELContext();
+        TesterBean bean = new TesterBean("test");
+
+        // Both the full resolver chain and the BeanELResolver in isolation
+        ELResolver[] resolvers = new ELResolver[] { context.getELResolver(), new BeanELResolver() };
+        for (ELResolver resolver : resolvers) {
+            // Warm-up
+            doSetValue(context, resolver, bean);
+
+            long start = System.nanoTime();
+            doSetValue(context, resolver, bean);
+            long duration = System.nanoTime() - start;
+
+            System.out.println("Bean setValue performance test using [" + resolver.getClass().getSimpleName() +
+                    "] complete in " + duration + "ns");
+        }
+    }
+
+
+    private void doSetValue(ELContext context, ELResolver resolver, TesterBean bean) {
+        for (int i = 0; i < 10000000; i++) {
+            resolver.setValue(context, bean, "name", "value");
+        }
+    }
 }
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestStandardThreadExecutor {
+
+    @Test
+    public void testDefault() throws Exception {
+        doTestExecute(false);
+    }
+
+
+    @Test
+    public void testWorkStealing() throws Exception {
+        doTestExecute(true);
+    }
+
+
+    private void doTestExecute(boolean workStealing) throws Exception {
+        StandardThreadExecutor executor = new StandardThreadExecutor();
+        executor.setName("test");
+        executor.setMinSpareThreads(2);
+        executor.setMaxThreads(4);
+        executor.setWorkStealing(workStealing);
+        executor.start();
+        try {
+            Assert.assertEquals(2, executor.getPoolSize());
+
+            CountDownLatch done = new CountDownLatch(100);
+            for (int i = 0; i < 100; i++) {
+                executor.execute(done::countDown);
+            }
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Future<String> future = executor.submit(() -> "done");
+            Assert.assertEquals("done", future.get(10, TimeUnit.SECONDS));
+
+            Assert.assertTrue(executor.resizePool(1, 8));
+            Assert.assertEquals(1, executor.getCorePoolSize());
+            Assert.assertEquals(workStealing, executor.resizeQueue(10));
+        } finally {
+            executor.stop();
+            executor.destroy();
+        }
+        try {
+            executor.execute(() -> {});
+            Assert.fail();
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+}
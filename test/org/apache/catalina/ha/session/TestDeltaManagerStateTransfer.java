@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.ha.session;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Session;
+import org.apache.catalina.ha.CatalinaCluster;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.membership.MemberImpl;
+import org.easymock.EasyMock;
+
+/**
+ * Tests for the partitioned session state transfer in {@link DeltaManager}.
+ */
+public class TestDeltaManagerStateTransfer {
+
+    private static class TesterDeltaManager extends DeltaManager {
+
+        private final Session[] sessions;
+        private final List<Session> sent = new ArrayList<>();
+        private final List<String> requests = new ArrayList<>();
+
+        TesterDeltaManager(Session[] sessions) {
+            this.sessions = sessions;
+        }
+
+        @Override
+        public Session[] findSessions() {
+            return sessions;
+        }
+
+        @Override
+        protected void sendSessions(Member sender, Session[] currentSessions, long sendTimestamp)
+                throws IOException {
+            sent.addAll(List.of(currentSessions));
+        }
+
+        @Override
+        protected void requestSessionState(Member mbr, int partition, int partitions, long timestamp) {
+            requests.add(((MemberImpl) mbr).getPort() + ":" + partition + "/" + partitions);
+        }
+    }
+
+    private static TesterDeltaManager createManager(Session[] sessions, Member... members) {
+        TesterDeltaManager manager = new TesterDeltaManager(sessions);
+        manager.setSendAllSessionsWaitTime(0);
+        // Don't wait for the state transfer in getAllClusterSessions()
+        manager.setStateTransferTimeout(0);
+        CatalinaCluster cluster = EasyMock.createNiceMock(CatalinaCluster.class);
+        EasyMock.expect(cluster.getMembers()).andReturn(members).anyTimes();
+        EasyMock.replay(cluster);
+        manager.setCluster(cluster);
+        return manager;
+    }
+
+    private static SessionMessage getAllMessage(int partition, int partitions) {
+        byte[] data = ByteBuffer.allocate(8).putInt(partition).putInt(partitions).array();
+        return new SessionMessageImpl("test", SessionMessage.EVT_GET_ALL_SESSIONS, data, "GET-ALL", "GET-ALL-test");
+    }
+
+    private static SessionMessage message(int eventType) {
+        SessionMessage msg = new SessionMessageImpl("test", eventType, null, "STATE", "STATE-test");
+        msg.setTimestamp(System.currentTimeMillis());
+        return msg;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStateTransferMembersZeroRejected() {
+        new TesterDeltaManager(new Session[0]).setStateTransferMembers(0);
+    }
+
+    @Test
+    public void testPartitionsAreDisjointAndComplete() throws Exception {
+        TesterDeltaManager source = new TesterDeltaManager(new Session[0]);
+        Session[] sessions = new Session[50];
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i] = new DeltaSession(source);
+            sessions[i].setId("SESSION" + i, false);
+        }
+
+        Set<Session> all = new HashSet<>();
+        int total = 0;
+        for (int partition = 0; partition < 3; partition++) {
+            TesterDeltaManager manager = createManager(sessions);
+            manager.handleGET_ALL_SESSIONS(getAllMessage(partition, 3), null);
+            total += manager.sent.size();
+            all.addAll(manager.sent);
+        }
+        Assert.assertEquals(sessions.length, total);
+        Assert.assertEquals(sessions.length, all.size());
+    }
+
+    @Test
+    public void testSingleMemberRequest() throws Exception {
+        Member a = new MemberImpl("localhost", 4001, 0);
+        Member b = new MemberImpl("localhost", 4002, 0);
+        TesterDeltaManager manager = createManager(new Session[0], a, b);
+
+        manager.getAllClusterSessions();
+
+        Assert.assertEquals(List.of("4001:0/1"), manager.requests);
+        Assert.assertEquals(1, manager.getStateTransferPendingPartitions());
+        manager.handleALL_SESSION_TRANSFERCOMPLETE(message(SessionMessage.EVT_ALL_SESSION_TRANSFERCOMPLETE), a);
+        Assert.assertTrue(manager.getStateTransferred());
+    }
+
+    @Test
+    public void testPartitionedRequest() throws Exception {
+        Member a = new MemberImpl("localhost", 4001, 0);
+        Member b = new MemberImpl("localhost", 4002, 0);
+        Member c = new MemberImpl("localhost", 4003, 0);
+        TesterDeltaManager manager = createManager(new Session[0], a, b, c);
+        manager.setStateTransferMembers(2);
+
+        manager.getAllClusterSessions();
+
+        Assert.assertEquals(List.of("4001:0/2", "4002:1/2"), manager.requests);
+        manager.handleALL_SESSION_TRANSFERCOMPLETE(message(SessionMessage.EVT_ALL_SESSION_TRANSFERCOMPLETE), b);
+        Assert.assertFalse(manager.getStateTransferred());
+        manager.handleALL_SESSION_TRANSFERCOMPLETE(message(SessionMessage.EVT_ALL_SESSION_TRANSFERCOMPLETE), a);
+        Assert.assertTrue(manager.getStateTransferred());
+        Assert.assertEquals(0, manager.getStateTransferPendingPartitions());
+    }
+
+    @Test
+    public void testPartitionReassignedWhenNoContextManager() throws Exception {
+        Member a = new MemberImpl("localhost", 4001, 0);
+        Member b = new MemberImpl("localhost", 4002, 0);
+        TesterDeltaManager manager = createManager(new Session[0], a, b);
+        manager.setStateTransferMembers(2);
+
+        manager.getAllClusterSessions();
+        manager.requests.clear();
+
+        // a does not have the context, its partition is requested from b once b has shown it has
+        manager.handleALL_SESSION_NOCONTEXTMANAGER(message(SessionMessage.EVT_ALL_SESSION_NOCONTEXTMANAGER), a);
+        Assert.assertFalse(manager.isNoContextManagerReceived());
+        Assert.assertEquals(2, manager.getStateTransferPendingPartitions());
+        Assert.assertTrue(manager.requests.isEmpty());
+
+        manager.handleALL_SESSION_TRANSFERCOMPLETE(message(SessionMessage.EVT_ALL_SESSION_TRANSFERCOMPLETE), b);
+        Assert.assertEquals(List.of("4002:0/2"), manager.requests);
+        Assert.assertFalse(manager.getStateTransferred());
+
+        manager.handleALL_SESSION_TRANSFERCOMPLETE(message(SessionMessage.EVT_ALL_SESSION_TRANSFERCOMPLETE), b);
+        Assert.assertTrue(manager.getStateTransferred());
+        Assert.assertFalse(manager.isNoContextManagerReceived());
+    }
+
+    @Test
+    public void testNoContextManagerAnywhere() throws Exception {
+        Member a = new MemberImpl("localhost", 4001, 0);
+        Member b = new MemberImpl("localhost", 4002, 0);
+        TesterDeltaManager manager = createManager(new Session[0], a, b);
+        manager.setStateTransferMembers(2);
+
+        manager.getAllClusterSessions();
+
+        manager.handleALL_SESSION_NOCONTEXTMANAGER(message(SessionMessage.EVT_ALL_SESSION_NOCONTEXTMANAGER), a);
+        manager.handleALL_SESSION_NOCONTEXTMANAGER(message(SessionMessage.EVT_ALL_SESSION_NOCONTEXTMANAGER), b);
+        Assert.assertTrue(manager.isNoContextManagerReceived());
+        Assert.assertFalse(manager.getStateTransferred());
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.group.interceptors;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.tribes.Channel;
+import org.apache.catalina.tribes.ChannelException;
+import org.apache.catalina.tribes.ChannelMessage;
+import org.apache.catalina.tribes.ErrorHandler;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.UniqueId;
+import org.apache.catalina.tribes.group.ChannelInterceptorBase;
+import org.apache.catalina.tribes.group.InterceptorPayload;
+import org.apache.catalina.tribes.io.ChannelData;
+import org.apache.catalina.tribes.io.XByteBuffer;
+import org.apache.catalina.tribes.membership.MemberImpl;
+
+public class TestBatchInterceptor {
+
+    private BatchInterceptor src;
+    private BatchInterceptor dest;
+    private PipedInterceptor pipe;
+    private CaptureInterceptor capture;
+    private Member member;
+
+    @Before
+    public void setup() throws Exception {
+        src = new BatchInterceptor();
+        dest = new BatchInterceptor();
+        pipe = new PipedInterceptor(dest);
+        capture = new CaptureInterceptor();
+        src.setNext(pipe);
+        dest.setPrevious(capture);
+        member = new MemberImpl("localhost", 4000, 0);
+    }
+
+
+    @Test
+    public void testBatchedUntilFlush() throws Exception {
+        ChannelData[] sent = new ChannelData[3];
+        for (int i = 0; i < sent.length; i++) {
+            sent[i] = send("message-" + i, Channel.SEND_OPTIONS_ASYNCHRONOUS);
+        }
+        Assert.assertEquals(0, pipe.count);
+        Assert.assertEquals(0, capture.messages.size());
+
+        src.flush();
+
+        Assert.assertEquals(1, pipe.count);
+        Assert.assertEquals(3, capture.messages.size());
+        for (int i = 0; i < sent.length; i++) {
+            ChannelMessage received = capture.messages.get(i);
+            Assert.assertEquals("message-" + i, body(received));
+            Assert.assertArrayEquals(sent[i].getUniqueId(), received.getUniqueId());
+            Assert.assertEquals(sent[i].getTimestamp(), received.getTimestamp());
+            Assert.assertEquals(Channel.SEND_OPTIONS_ASYNCHRONOUS, received.getOptions());
+        }
+        Assert.assertEquals(3, src.getMessagesBatched());
+        Assert.assertEquals(1, src.getBatchesSent());
+    }
+
+
+    @Test
+    public void testOrderPreservedForUnbatchedMessage() throws Exception {
+        send("a", Channel.SEND_OPTIONS_ASYNCHRONOUS);
+        send("b", Channel.SEND_OPTIONS_ASYNCHRONOUS);
+        send("c", Channel.SEND_OPTIONS_SYNCHRONIZED_ACK);
+
+        Assert.assertEquals(2, pipe.count);
+        Assert.assertEquals(3, capture.messages.size());
+        Assert.assertEquals("a", body(capture.messages.get(0)));
+        Assert.assertEquals("b", body(capture.messages.get(1)));
+        Assert.assertEquals("c", body(capture.messages.get(2)));
+    }
+
+
+    @Test
+    public void testMaxSize() throws Exception {
+        src.setMaxSize(100);
+        send("0123456789012345678901234567890123456789", Channel.SEND_OPTIONS_ASYNCHRONOUS);
+        Assert.assertEquals(0, pipe.count);
+        send("0123456789012345678901234567890123456789", Channel.SEND_OPTIONS_ASYNCHRONOUS);
+        Assert.assertEquals(1, pipe.count);
+        Assert.assertEquals(2, capture.messages.size());
+
+        // Too large to be batched at all
+        send("0".repeat(200), Channel.SEND_OPTIONS_ASYNCHRONOUS);
+        Assert.assertEquals(2, pipe.count);
+        Assert.assertEquals(3, capture.messages.size());
+        Assert.assertEquals(200, body(capture.messages.get(2)).length());
+    }
+
+
+    @Test
+    public void testCompletionReportedAfterSend() throws Exception {
+        RecordingErrorHandler handler = new RecordingErrorHandler();
+        ChannelData sent = send("a", Channel.SEND_OPTIONS_ASYNCHRONOUS, handler);
+        Assert.assertEquals(0, handler.completed.size());
+
+        src.flush();
+
+        Assert.assertEquals(1, handler.completed.size());
+        Assert.assertEquals(new UniqueId(sent.getUniqueId()), handler.completed.get(0));
+        Assert.assertEquals(0, handler.errors.size());
+        // The batch itself is sent synchronously
+        Assert.assertEquals(0, pipe.lastOptions & Channel.SEND_OPTIONS_ASYNCHRONOUS);
+    }
+
+
+    @Test
+    public void testErrorReportedOnSendFailure() throws Exception {
+        RecordingErrorHandler handler1 = new RecordingErrorHandler();
+        RecordingErrorHandler handler2 = new RecordingErrorHandler();
+        send("a", Channel.SEND_OPTIONS_ASYNCHRONOUS, handler1);
+        send("b", Channel.SEND_OPTIONS_ASYNCHRONOUS, handler2);
+        pipe.fail = true;
+
+        src.flush();
+
+        Assert.assertEquals(0, handler1.completed.size());
+        Assert.assertEquals(1, handler1.errors.size());
+        Assert.assertEquals(0, handler2.completed.size());
+        Assert.assertEquals(1, handler2.errors.size());
+    }
+
+
+    @Test
+    public void testErrorReportedOnMemberDisappeared() throws Exception {
+        RecordingErrorHandler handler = new RecordingErrorHandler();
+        send("a", Channel.SEND_OPTIONS_ASYNCHRONOUS, handler);
+
+        src.memberDisappeared(member);
+        src.flush();
+
+        Assert.assertEquals(0, pipe.count);
+        Assert.assertEquals(0, handler.completed.size());
+        Assert.assertEquals(1, handler.errors.size());
+        Assert.assertEquals(member, handler.errors.get(0).getFaultyMembers()[0].getMember());
+    }
+
+
+    @Test
+    public void testAddNotBlockedBySend() throws Exception {
+        send("a", Channel.SEND_OPTIONS_ASYNCHRONOUS);
+        pipe.entered = new CountDownLatch(1);
+        pipe.release = new CountDownLatch(1);
+        Thread flush = new Thread(src::flush);
+        flush.start();
+        Assert.assertTrue(pipe.entered.await(10, TimeUnit.SECONDS));
+
+        // The batch for the member is being sent. Adding to the batch must not wait for that.
+        Thread add = new Thread(() -> {
+            try {
+                send("b", Channel.SEND_OPTIONS_ASYNCHRONOUS);
+            } catch (ChannelException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        add.start();
+        add.join(10000);
+        Assert.assertFalse(add.isAlive());
+
+        pipe.release.countDown();
+        flush.join(10000);
+        Assert.assertFalse(flush.isAlive());
+        pipe.entered = null;
+        pipe.release = null;
+
+        src.flush();
+
+        Assert.assertEquals(2, pipe.count);
+        Assert.assertEquals(2, capture.messages.size());
+        Assert.assertEquals("a", body(capture.messages.get(0)));
+        Assert.assertEquals("b", body(capture.messages.get(1)));
+    }
+
+
+    private ChannelData send(String body, int options) throws ChannelException {
+        return send(body, options, null);
+    }
+
+
+    private ChannelData send(String body, int options, ErrorHandler handler) throws ChannelException {
+        ChannelData msg = new ChannelData(true);
+        msg.setOptions(options);
+        msg.setAddress(member);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        msg.setMessage(new XByteBuffer(bytes, false));
+        InterceptorPayload payload = null;
+        if (handler != null) {
+            payload = new InterceptorPayload();
+            payload.setErrorHandler(handler);
+        }
+        src.sendMessage(new Member[] { member }, msg, payload);
+        return msg;
+    }
+
+
+    private static String body(ChannelMessage msg) {
+        return new String(msg.getMessage().getBytesDirect(), 0, msg.getMessage().getLength(), StandardCharsets.UTF_8);
+    }
+
+
+    private static class PipedInterceptor extends ChannelInterceptorBase {
+        private final BatchInterceptor dest;
+        private int count = 0;
+        private int lastOptions;
+        private boolean fail = false;
+        private volatile CountDownLatch entered;
+        private volatile CountDownLatch release;
+
+        PipedInterceptor(BatchInterceptor dest) {
+            this.dest = dest;
+        }
+
+        @Override
+        public void sendMessage(Member[] destination, ChannelMessage msg, InterceptorPayload payload)
+                throws ChannelException {
+            if (fail) {
+                throw new ChannelException("Send failed");
+            }
+            if (entered != null) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new ChannelException(e);
+                }
+            }
+            count++;
+            lastOptions = msg.getOptions();
+            dest.messageReceived((ChannelMessage) msg.deepclone());
+        }
+    }
+
+
+    private static class CaptureInterceptor extends ChannelInterceptorBase {
+        private final List<ChannelMessage> messages = new ArrayList<>();
+
+        @Override
+        public void messageReceived(ChannelMessage msg) {
+            messages.add(msg);
+        }
+    }
+
+
+    private static class RecordingErrorHandler implements ErrorHandler {
+        private final List<UniqueId> completed = new ArrayList<>();
+        private final List<ChannelException> errors = new ArrayList<>();
+
+        @Override
+        public void handleError(ChannelException x, UniqueId id) {
+            errors.add(x);
+        }
+
+        @Override
+        public void handleCompletion(UniqueId id) {
+            completed.add(id);
+        }
+    }
+}
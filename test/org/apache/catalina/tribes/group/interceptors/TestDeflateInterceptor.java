@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.group.interceptors;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.tribes.Channel;
+import org.apache.catalina.tribes.ChannelException;
+import org.apache.catalina.tribes.ChannelMessage;
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.group.ChannelInterceptorBase;
+import org.apache.catalina.tribes.group.InterceptorPayload;
+import org.apache.catalina.tribes.io.ChannelData;
+import org.apache.catalina.tribes.io.XByteBuffer;
+import org.apache.catalina.tribes.membership.MemberImpl;
+
+public class TestDeflateInterceptor {
+
+    private static final String SESSION = "org.apache.catalina.ha.session.DeltaRequest$AttributeInfo" +
+            "java.lang.String user.preferences.locale=en_GB;user.preferences.timezone=Europe/London;";
+
+    private DeflateInterceptor src;
+    private DeflateInterceptor dest;
+    private PipedInterceptor pipe;
+    private CaptureInterceptor capture;
+    private Member member;
+
+    @Before
+    public void setup() throws Exception {
+        src = new DeflateInterceptor();
+        dest = new DeflateInterceptor();
+        pipe = new PipedInterceptor(dest);
+        capture = new CaptureInterceptor();
+        src.setNext(pipe);
+        dest.setPrevious(capture);
+        member = new MemberImpl("localhost", 4000, 0);
+    }
+
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] data = SESSION.repeat(20).getBytes(StandardCharsets.UTF_8);
+        send(data);
+
+        Assert.assertEquals(1, capture.messages.size());
+        Assert.assertArrayEquals(data, capture.messages.get(0).getMessage().getBytes());
+        Assert.assertEquals(Channel.SEND_OPTIONS_DEFAULT, capture.messages.get(0).getOptions());
+        Assert.assertTrue(pipe.lastLength < data.length);
+        Assert.assertEquals(1, src.getCountCompressedTX());
+        Assert.assertEquals(1, dest.getCountCompressedRX());
+        Assert.assertTrue(src.getCompressionRatio() > 1);
+    }
+
+
+    @Test
+    public void testSmallMessageNotCompressed() throws Exception {
+        byte[] data = "small".getBytes(StandardCharsets.UTF_8);
+        send(data);
+
+        Assert.assertArrayEquals(data, capture.messages.get(0).getMessage().getBytes());
+        Assert.assertEquals(data.length, pipe.lastLength);
+        Assert.assertEquals(1, src.getCountUncompressedTX());
+        Assert.assertEquals(1, dest.getCountUncompressedRX());
+    }
+
+
+    @Test
+    public void testIncompressibleMessageNotCompressed() throws Exception {
+        byte[] data = new byte[4096];
+        new Random(42).nextBytes(data);
+        send(data);
+
+        Assert.assertArrayEquals(data, capture.messages.get(0).getMessage().getBytes());
+        Assert.assertEquals(data.length, pipe.lastLength);
+        Assert.assertEquals(0, src.getCountCompressedTX());
+        Assert.assertEquals(1, src.getCountUncompressedTX());
+    }
+
+
+    @Test
+    public void testDictionary() throws Exception {
+        byte[] dictionary = SESSION.getBytes(StandardCharsets.UTF_8);
+        byte[] data = (SESSION + "id=42").getBytes(StandardCharsets.UTF_8);
+        src.setCompressionMinSize(0);
+
+        send(data);
+        int withoutDictionary = pipe.lastLength;
+
+        src.setDictionaryBytes(dictionary);
+        dest.setDictionaryBytes(dictionary);
+        Assert.assertEquals(src.getDictionaryId(), dest.getDictionaryId());
+        send(data);
+
+        Assert.assertEquals(2, capture.messages.size());
+        Assert.assertArrayEquals(data, capture.messages.get(1).getMessage().getBytes());
+        Assert.assertTrue(pipe.lastLength < withoutDictionary / 2);
+    }
+
+
+    @Test
+    public void testDictionaryMismatch() throws Exception {
+        src.setDictionaryBytes(SESSION.getBytes(StandardCharsets.UTF_8));
+        dest.setDictionaryBytes("something else".getBytes(StandardCharsets.UTF_8));
+        send(SESSION.repeat(5).getBytes(StandardCharsets.UTF_8));
+
+        Assert.assertEquals(1, pipe.count);
+        Assert.assertEquals(0, capture.messages.size());
+    }
+
+
+    @Test
+    public void testMaxDecompressedSize() throws Exception {
+        byte[] data = SESSION.repeat(20).getBytes(StandardCharsets.UTF_8);
+        dest.setMaxDecompressedSize(data.length - 1);
+        send(data);
+
+        Assert.assertEquals(1, pipe.count);
+        Assert.assertEquals(0, capture.messages.size());
+
+        dest.setMaxDecompressedSize(data.length);
+        send(data);
+        Assert.assertEquals(1, capture.messages.size());
+    }
+
+
+    @Test(expected = DataFormatException.class)
+    public void testImpossibleLength() throws Exception {
+        // A few bytes of deflate data claiming to expand to 1GiB
+        byte[] original = SESSION.repeat(20).getBytes(StandardCharsets.UTF_8);
+        byte[] data = src.compress(original, original.length).getBytes();
+        XByteBuffer.toBytes(1024 * 1024 * 1024, data, data.length - 4);
+        dest.setMaxDecompressedSize(Integer.MAX_VALUE);
+        dest.decompress(data, data.length);
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCompressionLevel() {
+        src.setCompressionLevel(10);
+    }
+
+
+    private void send(byte[] body) throws ChannelException {
+        ChannelData msg = new ChannelData(true);
+        msg.setOptions(Channel.SEND_OPTIONS_DEFAULT);
+        msg.setAddress(member);
+        msg.setMessage(new XByteBuffer(body, false));
+        src.sendMessage(new Member[] { member }, msg, null);
+    }
+
+
+    private static class PipedInterceptor extends ChannelInterceptorBase {
+        private final DeflateInterceptor dest;
+        private int count = 0;
+        private int lastLength = -1;
+
+        PipedInterceptor(DeflateInterceptor dest) {
+            this.dest = dest;
+        }
+
+        @Override
+        public void sendMessage(Member[] destination, ChannelMessage msg, InterceptorPayload payload)
+                throws ChannelException {
+            count++;
+            lastLength = msg.getMessage().getLength();
+            dest.messageReceived((ChannelMessage) msg.deepclone());
+        }
+    }
+
+
+    private static class CaptureInterceptor extends ChannelInterceptorBase {
+        private final List<ChannelMessage> messages = new ArrayList<>();
+
+        @Override
+        public void messageReceived(ChannelMessage msg) {
+            messages.add(msg);
+        }
+    }
+}
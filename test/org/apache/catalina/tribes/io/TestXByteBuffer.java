@@ -19,9 +19,14 @@ package org.apache.catalina.tribes.io;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.catalina.tribes.membership.MemberImpl;
+
 public class TestXByteBuffer {
 
     @Test
@@ -38,4 +43,69 @@ public class TestXByteBuffer {
         assertThat(obj, instanceOf(String.class));
         Assert.assertEquals(test, obj);
     }
+
+    @Test
+    public void testCreateDataPackageBuffers() throws Exception {
+        ChannelData data = createChannelData("Gathering write");
+        byte[] expected = XByteBuffer.createDataPackage(data);
+
+        ByteBuffer[] buffers = XByteBuffer.createDataPackage(data, null);
+        Assert.assertArrayEquals(expected, concat(buffers));
+
+        ByteBuffer payload = ByteBuffer.allocateDirect(64);
+        payload.put(data.getMessage().getBytes());
+        payload.flip();
+        buffers = XByteBuffer.createDataPackage(data, payload);
+        Assert.assertArrayEquals(expected, concat(buffers));
+        for (ByteBuffer buffer : buffers) {
+            Assert.assertTrue(buffer.isReadOnly());
+        }
+    }
+
+    @Test
+    public void testExtractPackages() throws Exception {
+        XByteBuffer xbuf = new XByteBuffer(16, true);
+        for (int i = 0; i < 3; i++) {
+            byte[] pkg = XByteBuffer.createDataPackage(createChannelData("Message " + i));
+            xbuf.append(pkg, 0, pkg.length);
+        }
+        // A partial fourth package
+        byte[] partial = XByteBuffer.createDataPackage(createChannelData("Message 3"));
+        xbuf.append(partial, 0, 20);
+
+        ChannelData[] packages = xbuf.extractPackages();
+        Assert.assertEquals(3, packages.length);
+        for (int i = 0; i < packages.length; i++) {
+            Assert.assertEquals("Message " + i,
+                    new String(packages[i].getMessage().getBytes(), StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(20, xbuf.getLength());
+        Assert.assertEquals(0, xbuf.extractPackages().length);
+
+        xbuf.append(partial, 20, partial.length - 20);
+        packages = xbuf.extractPackages();
+        Assert.assertEquals(1, packages.length);
+        Assert.assertEquals("Message 3", new String(packages[0].getMessage().getBytes(), StandardCharsets.UTF_8));
+        Assert.assertEquals(0, xbuf.getLength());
+    }
+
+    private static ChannelData createChannelData(String message) throws Exception {
+        ChannelData data = new ChannelData(true);
+        data.setAddress(new MemberImpl("localhost", 4000, 0));
+        data.setTimestamp(System.currentTimeMillis());
+        data.setMessage(new XByteBuffer(message.getBytes(StandardCharsets.UTF_8), false));
+        return data;
+    }
+
+    private static byte[] concat(ByteBuffer[] buffers) {
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+        ByteBuffer result = ByteBuffer.allocate(length);
+        for (ByteBuffer buffer : buffers) {
+            result.put(buffer.duplicate());
+        }
+        return result.array();
+    }
 }
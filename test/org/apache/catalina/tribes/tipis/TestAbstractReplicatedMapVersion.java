@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.tribes.tipis;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.tribes.Member;
+import org.apache.catalina.tribes.group.GroupChannel;
+import org.apache.catalina.tribes.membership.MemberImpl;
+import org.apache.catalina.tribes.tipis.AbstractReplicatedMap.MapMessage;
+
+public class TestAbstractReplicatedMapVersion {
+
+    private static final String KEY = "key";
+
+    private TesterMap map;
+    private Member primary;
+    private TesterEntry entry;
+
+
+    @Before
+    public void setUp() throws Exception {
+        map = new TesterMap();
+        primary = new MemberImpl("localhost", 4000, 0);
+        entry = new TesterEntry();
+        // Create the backup copy
+        map.messageReceived(new MapMessage(map.getMapContextName(), MapMessage.MSG_BACKUP, false, KEY, entry, null,
+                primary, null), primary);
+        Assert.assertSame(entry, map.get(KEY));
+    }
+
+
+    @After
+    public void tearDown() {
+        map.breakdown();
+    }
+
+
+    @Test
+    public void testDiffsInSequence() {
+        map.messageReceived(createDiff("a", 1), primary);
+        map.messageReceived(createDiff("b", 2), primary);
+        Assert.assertEquals(List.of("a", "b"), entry.applied);
+        Assert.assertEquals(2, entry.getVersion());
+        Assert.assertTrue(map.requested.isEmpty());
+    }
+
+
+    @Test
+    public void testVersionGap() {
+        map.messageReceived(createDiff("a", 1), primary);
+        // Version 2 was lost
+        map.messageReceived(createDiff("c", 3), primary);
+        Assert.assertEquals(List.of("a"), entry.applied);
+        Assert.assertEquals(1, entry.getVersion());
+        Assert.assertEquals(List.of(KEY), map.requested);
+    }
+
+
+    @Test
+    public void testStaleDiff() {
+        map.messageReceived(createDiff("a", 1), primary);
+        map.messageReceived(createDiff("b", 2), primary);
+        // Duplicate or re-ordered diff
+        map.messageReceived(createDiff("a", 1), primary);
+        Assert.assertEquals(List.of("a", "b"), entry.applied);
+        Assert.assertEquals(2, entry.getVersion());
+        Assert.assertTrue(map.requested.isEmpty());
+    }
+
+
+    @Test
+    public void testUnversionedDiff() throws Exception {
+        map.messageReceived(createDiff("a", 1), primary);
+        // A member that does not version diffs never sets the version, which must survive serialization as unversioned
+        MapMessage msg = createDiff("b", 0);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(msg);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            msg = (MapMessage) ois.readObject();
+        }
+        Assert.assertEquals(0, msg.getVersion());
+        map.messageReceived(msg, primary);
+        map.messageReceived(createDiff("c", 0), primary);
+        Assert.assertEquals(List.of("a", "b", "c"), entry.applied);
+        Assert.assertTrue(map.requested.isEmpty());
+    }
+
+
+    @Test
+    public void testDiffWithoutEntry() {
+        map.messageReceived(new MapMessage(map.getMapContextName(), MapMessage.MSG_BACKUP, true, "other", null,
+                "a".getBytes(StandardCharsets.UTF_8), primary, null), primary);
+        Assert.assertNull(map.get("other"));
+        Assert.assertEquals(List.of("other"), map.requested);
+    }
+
+
+    @Test
+    public void testResend() throws Exception {
+        Member backup = new MemberImpl("localhost", 4001, 0);
+        map.messageReceived(new MapMessage(map.getMapContextName(), MapMessage.MSG_RESEND, false, KEY, null, null,
+                backup, null), backup);
+        Assert.assertEquals(List.of(KEY), map.resent);
+        Assert.assertEquals(List.of(backup), map.resentTo);
+    }
+
+
+    private MapMessage createDiff(String diff, long version) {
+        MapMessage msg = new MapMessage(map.getMapContextName(), MapMessage.MSG_BACKUP, true, KEY, null,
+                diff.getBytes(StandardCharsets.UTF_8), primary, null);
+        msg.setVersion(version);
+        return msg;
+    }
+
+
+    private static class TesterMap extends LazyReplicatedMap<String,Object> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final List<Object> requested = new ArrayList<>();
+        private final List<Object> resent = new ArrayList<>();
+        private final List<Member> resentTo = new ArrayList<>();
+
+        TesterMap() {
+            super(null, new GroupChannel(), 5000, "version-test", null);
+        }
+
+        @Override
+        protected void requestComplete(Serializable key, Member primary) {
+            requested.add(key);
+        }
+
+        @Override
+        protected void replicateComplete(Object key, Member[] dest) {
+            resent.add(key);
+            resentTo.addAll(List.of(dest));
+        }
+    }
+
+
+    private static class TesterEntry implements ReplicatedMapEntry {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> applied = new ArrayList<>();
+        private long version;
+
+        @Override
+        public boolean isDirty() {
+            return false;
+        }
+
+        @Override
+        public boolean isDiffable() {
+            return true;
+        }
+
+        @Override
+        public byte[] getDiff() {
+            return new byte[0];
+        }
+
+        @Override
+        public void applyDiff(byte[] diff, int offset, int length) {
+            applied.add(new String(diff, offset, length, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void resetDiff() {
+        }
+
+        @Override
+        public void lock() {
+        }
+
+        @Override
+        public void unlock() {
+        }
+
+        @Override
+        public void setOwner(Object owner) {
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public void setVersion(long version) {
+            this.version = version;
+        }
+
+        @Override
+        public long getLastTimeReplicated() {
+            return 0;
+        }
+
+        @Override
+        public void setLastTimeReplicated(long lastTimeReplicated) {
+        }
+
+        @Override
+        public boolean isAccessReplicate() {
+            return false;
+        }
+
+        @Override
+        public void accessEntry() {
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+public class TestAdaptiveConcurrencyValve extends TomcatBaseTest {
+
+    @Test
+    public void testRejectOverLimit() throws Exception {
+        AdaptiveConcurrencyValve valve = new AdaptiveConcurrencyValve();
+        valve.setInitialLimit(1);
+        valve.setMaxLimit(1);
+
+        CountDownLatch insideServlet = new CountDownLatch(1);
+        CountDownLatch canReturn = new CountDownLatch(1);
+        start(valve, new BlockingServlet(insideServlet, canReturn));
+
+        AtomicInteger firstRc = new AtomicInteger();
+        Thread firstThread = request("/", firstRc);
+        Assert.assertTrue(insideServlet.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, valve.getInFlight());
+
+        int rc = getUrl("http://localhost:" + getPort() + "/", new ByteChunk(), null);
+        Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rc);
+        Assert.assertEquals(1, valve.getRejectedCount());
+
+        canReturn.countDown();
+        firstThread.join(10000);
+        Assert.assertEquals(HttpServletResponse.SC_OK, firstRc.get());
+        Assert.assertEquals(0, valve.getInFlight());
+    }
+
+
+    @Test
+    public void testQueue() throws Exception {
+        AdaptiveConcurrencyValve valve = new AdaptiveConcurrencyValve();
+        valve.setInitialLimit(1);
+        valve.setMaxLimit(1);
+        valve.setMaxQueueSize(1);
+        valve.setMaxQueueTime(10000);
+
+        CountDownLatch insideServlet = new CountDownLatch(1);
+        CountDownLatch canReturn = new CountDownLatch(1);
+        start(valve, new BlockingServlet(insideServlet, canReturn));
+
+        AtomicInteger firstRc = new AtomicInteger();
+        Thread firstThread = request("/", firstRc);
+        Assert.assertTrue(insideServlet.await(10, TimeUnit.SECONDS));
+
+        AtomicInteger secondRc = new AtomicInteger();
+        Thread secondThread = request("/", secondRc);
+        int count = 0;
+        while (valve.getQueued() == 0 && count < 200) {
+            Thread.sleep(50);
+            count++;
+        }
+        Assert.assertEquals(1, valve.getQueued());
+
+        // The queue is full
+        int rc = getUrl("http://localhost:" + getPort() + "/", new ByteChunk(), null);
+        Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rc);
+
+        canReturn.countDown();
+        firstThread.join(10000);
+        secondThread.join(10000);
+        Assert.assertEquals(HttpServletResponse.SC_OK, firstRc.get());
+        Assert.assertEquals(HttpServletResponse.SC_OK, secondRc.get());
+        Assert.assertEquals(0, valve.getQueued());
+        Assert.assertEquals(1, valve.getRejectedCount());
+    }
+
+
+    @Test
+    public void testGradientLimitReducedWhenSlower() throws Exception {
+        AdaptiveConcurrencyValve valve = new AdaptiveConcurrencyValve();
+        valve.setInitialLimit(50);
+        valve.setSmoothing(1);
+        valve.setSampleWindowTime(1);
+        valve.setSampleWindowSize(5);
+
+        AtomicLong delay = new AtomicLong(5);
+        start(valve, new DelayServlet(delay));
+
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(HttpServletResponse.SC_OK, getUrl("http://localhost:" + getPort() + "/",
+                    new ByteChunk(), null));
+        }
+        // Not enough load to grow the limit
+        Assert.assertEquals(50, valve.getLimit());
+
+        delay.set(100);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(HttpServletResponse.SC_OK, getUrl("http://localhost:" + getPort() + "/",
+                    new ByteChunk(), null));
+        }
+        Assert.assertTrue(Integer.toString(valve.getLimit()), valve.getLimit() < 50);
+    }
+
+
+    @Test
+    public void testVegasLimitReducedOnError() throws Exception {
+        AdaptiveConcurrencyValve valve = new AdaptiveConcurrencyValve();
+        valve.setAlgorithm(AdaptiveConcurrencyValve.ALGORITHM_VEGAS);
+        valve.setInitialLimit(50);
+        valve.setSmoothing(1);
+        valve.setSampleWindowTime(1);
+        valve.setSampleWindowSize(5);
+
+        start(valve, new ErrorServlet());
+
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    getUrl("http://localhost:" + getPort() + "/", new ByteChunk(), null));
+        }
+        Assert.assertTrue(Integer.toString(valve.getLimit()), valve.getLimit() < 50);
+    }
+
+
+    @Test
+    public void testUrlPatterns() throws Exception {
+        AdaptiveConcurrencyValve valve = new AdaptiveConcurrencyValve();
+        valve.setUrlPatterns("/api/.*, /admin/.*");
+
+        start(valve, new DelayServlet(new AtomicLong(0)));
+
+        getUrl("http://localhost:" + getPort() + "/api/foo", new ByteChunk(), null);
+        getUrl("http://localhost:" + getPort() + "/other", new ByteChunk(), null);
+        getUrl("http://localhost:" + getPort() + "/api/bar", new ByteChunk(), null);
+
+        String[] partitions = valve.getPartitionLimits();
+        Assert.assertEquals(2, partitions.length);
+        valve.resetLimits();
+        Assert.assertEquals(0, valve.getPartitionLimits().length);
+    }
+
+
+    @Test
+    public void testAsyncHoldsPermit() throws Exception {
+        AdaptiveConcurrencyValve valve = new AdaptiveConcurrencyValve();
+        valve.setInitialLimit(1);
+        valve.setMaxLimit(1);
+
+        CountDownLatch asyncStarted = new CountDownLatch(1);
+        CountDownLatch canComplete = new CountDownLatch(1);
+        start(valve, new AsyncServlet(asyncStarted, canComplete));
+
+        AtomicInteger firstRc = new AtomicInteger();
+        Thread firstThread = request("/", firstRc);
+        Assert.assertTrue(asyncStarted.await(10, TimeUnit.SECONDS));
+        // The container thread has returned but the request is still in progress
+        Thread.sleep(200);
+        Assert.assertEquals(1, valve.getInFlight());
+
+        int rc = getUrl("http://localhost:" + getPort() + "/", new ByteChunk(), null);
+        Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rc);
+
+        canComplete.countDown();
+        firstThread.join(10000);
+        Assert.assertEquals(HttpServletResponse.SC_OK, firstRc.get());
+        int count = 0;
+        while (valve.getInFlight() > 0 && count < 100) {
+            Thread.sleep(50);
+            count++;
+        }
+        Assert.assertEquals(0, valve.getInFlight());
+    }
+
+
+    @Test
+    public void testInvalidProperties() {
+        AdaptiveConcurrencyValve valve = new AdaptiveConcurrencyValve();
+        Assert.assertEquals(AdaptiveConcurrencyValve.ALGORITHM_GRADIENT, valve.getAlgorithm());
+        Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, valve.getHighConcurrencyStatus());
+        try {
+            valve.setAlgorithm("aimd");
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+        try {
+            valve.setMinLimit(0);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+        try {
+            valve.setSmoothing(0);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+        try {
+            valve.setHighConcurrencyStatus(99);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+
+    private void start(AdaptiveConcurrencyValve valve, HttpServlet servlet) throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "servlet", servlet).setAsyncSupported(true);
+        ctx.addServletMapping("/", "servlet");
+        ctx.getPipeline().addValve(valve);
+        tomcat.start();
+    }
+
+
+    private Thread request(String path, AtomicInteger rc) {
+        Thread t = new Thread(() -> {
+            try {
+                rc.set(getUrl("http://localhost:" + getPort() + path, new ByteChunk(), null));
+            } catch (IOException e) {
+                // Ignore
+            }
+        });
+        t.start();
+        return t;
+    }
+
+
+    private static class BlockingServlet extends HttpServlet {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient CountDownLatch insideServlet;
+        private final transient CountDownLatch canReturn;
+
+        BlockingServlet(CountDownLatch insideServlet, CountDownLatch canReturn) {
+            this.insideServlet = insideServlet;
+            this.canReturn = canReturn;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            insideServlet.countDown();
+            try {
+                canReturn.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+            resp.getWriter().print("OK");
+        }
+    }
+
+
+    private static class DelayServlet extends HttpServlet {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicLong delay;
+
+        DelayServlet(AtomicLong delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            try {
+                Thread.sleep(delay.get());
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+            resp.getWriter().print("OK");
+        }
+    }
+
+
+    private static class ErrorServlet extends HttpServlet {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+
+    private static class AsyncServlet extends HttpServlet {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final transient CountDownLatch asyncStarted;
+        private final transient CountDownLatch canComplete;
+
+        AsyncServlet(CountDownLatch asyncStarted, CountDownLatch canComplete) {
+            this.asyncStarted = asyncStarted;
+            this.canComplete = canComplete;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            AsyncContext ac = req.startAsync();
+            ac.setTimeout(30000);
+            ac.start(() -> {
+                try {
+                    canComplete.await(10, TimeUnit.SECONDS);
+                    resp.getWriter().print("OK");
+                } catch (InterruptedException | IOException e) {
+                    // Ignore
+                }
+                ac.complete();
+            });
+            asyncStarted.countDown();
+        }
+    }
+}
@@ -41,6 +41,7 @@ import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
 import org.apache.tomcat.util.buf.ByteChunk;
 import org.apache.tomcat.util.json.JSONParser;
+import org.apache.tomcat.util.json.JSONReader;
 
 public class TestJsonErrorReportValve extends TomcatBaseTest {
 
@@ -340,6 +341,35 @@ public class TestJsonErrorReportValve extends TomcatBaseTest {
         Assert.assertEquals(unicodeMessage, json.get("message"));
     }
 
+    @Test
+    public void testJsonErrorWithSupplementaryCharacters() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        ((StandardHost) tomcat.getHost()).setErrorReportValveClass(JSON_VALVE);
+
+        Context ctx = getProgrammaticRootContext();
+
+        // Supplementary character, lone surrogate and control character
+        String message = "Error: \ud83d\ude00 \ud800 \u0001";
+        Tomcat.addServlet(ctx, "supplementary", new SendErrorServlet(
+                HttpServletResponse.SC_INTERNAL_SERVER_ERROR, message));
+        ctx.addServletMapping("/", "supplementary");
+
+        tomcat.start();
+
+        ByteChunk res = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort(), res, null);
+
+        Assert.assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, rc);
+
+        // The body must be valid UTF-8
+        JSONReader reader = new JSONReader(res);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> json = (Map<String, Object>) reader.readValue();
+
+        Assert.assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ((Number) json.get("status")).intValue());
+        Assert.assertEquals(message, json.get("message"));
+    }
+
     @Test
     public void testJsonErrorShowReportFalse() throws Exception {
         Tomcat tomcat = getTomcatInstance();
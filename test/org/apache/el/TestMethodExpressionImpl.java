@@ -16,6 +16,8 @@
  */
 package org.apache.el;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 
 import jakarta.el.ELBaseTest;
@@ -747,4 +749,21 @@ public class TestMethodExpressionImpl extends ELBaseTest {
         Assert.assertEquals(1, mi.getParamTypes().length);
         Assert.assertEquals(String.class, mi.getParamTypes()[0]);
     }
+
+
+    @Test
+    public void testInvokeDifferentBaseClasses() {
+        List<Object> beans = new ArrayList<>();
+        context.getVariableMapper().setVariable("beans", factory.createValueExpression(beans, List.class));
+        MethodExpression me = factory.createMethodExpression(context, "#{beans[0].getName()}", null, null);
+        for (int i = 0; i < 3; i++) {
+            beans.add(0, beanB);
+            Assert.assertEquals("B", me.invoke(context, null));
+
+            TesterBeanA beanA = new TesterBeanA();
+            beanA.setName("A" + i);
+            beans.add(0, beanA);
+            Assert.assertEquals("A" + i, me.invoke(context, null));
+        }
+    }
 }
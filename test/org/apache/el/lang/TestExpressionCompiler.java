@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.el.lang;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.el.ELContext;
+import jakarta.el.ExpressionFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.el.TesterBeanB;
+import org.apache.el.parser.Node;
+import org.apache.jasper.el.ELContextImpl;
+
+public class TestExpressionCompiler {
+
+    private static final String[] EXPRESSIONS = new String[] {
+            "${1 + 2}", "${1 + 2.5}", "${i + 1}", "${i + d}", "${i - 1}", "${i * 3}", "${i / 2}", "${i % 2}",
+            "${d * 2}", "${d / 0}", "${s + 1}", "${s + 1.5}", "${big + 1}", "${i + null}", "${null + null}",
+            "${-i}", "${-d}", "${-1}", "${-s}", "${i > 1}", "${i >= 5}", "${i < 1}", "${i <= 5}", "${i == 5}",
+            "${i != 5}", "${s == 7}", "${s > 6}", "${!true}", "${not empty list}", "${empty map}", "${empty ''}",
+            "${true and i > 1}", "${false or i > 1}", "${i > 1 ? 'yes' : 'no'}", "${null ?? 'default'}",
+            "${beanB.name}", "${beanB['name']}", "${beanB.sayHello()}", "${beanB.sayHello('World')}",
+            "${beanB.echo('a', 'b')}", "${list[1]}", "${list.size()}", "${map.key}", "${map['key']}",
+            "${map.missing}", "Hello ${beanB.name}!", "#{beanB.name}", "${list.stream().map(x -> x * 2).toList()}",
+            "${'a' += 'b'}", "${[1, 2, 3].stream().sum()}", "${i += 1}", "${5 mod 0}", "${beanB.missing}",
+            "${missing.name}", "${beanB.name.length()}" };
+
+
+    @Test
+    public void testCompiledSameAsInterpreted() {
+        for (String expression : EXPRESSIONS) {
+            Node node = ExpressionBuilder.createNode(expression);
+            ExpressionCompiler.Evaluator evaluator = ExpressionCompiler.compile(node);
+
+            Object expected;
+            try {
+                expected = node.getValue(createEvaluationContext());
+            } catch (RuntimeException e) {
+                try {
+                    evaluator.getValue(createEvaluationContext());
+                    Assert.fail(expression);
+                } catch (RuntimeException e2) {
+                    Assert.assertEquals(expression, e.getClass(), e2.getClass());
+                }
+                continue;
+            }
+            Object actual = evaluator.getValue(createEvaluationContext());
+            Assert.assertEquals(expression, expected, actual);
+            if (expected != null) {
+                Assert.assertEquals(expression, expected.getClass(), actual.getClass());
+            }
+        }
+    }
+
+
+    @Test
+    public void testConstantFolding() {
+        ExpressionCompiler.Evaluator evaluator = ExpressionCompiler.compile(ExpressionBuilder.createNode("${1 + 2 * 3}"));
+        Assert.assertTrue(ExpressionCompiler.isConstant(evaluator));
+        Assert.assertEquals(Long.valueOf(7), evaluator.getValue(createEvaluationContext()));
+
+        // Errors are reported on evaluation rather than compilation
+        evaluator = ExpressionCompiler.compile(ExpressionBuilder.createNode("${1 mod 0}"));
+        Assert.assertFalse(ExpressionCompiler.isConstant(evaluator));
+    }
+
+
+    @Test
+    public void testDeoptimisation() {
+        ExpressionFactory factory = ExpressionFactory.newInstance();
+        ExpressionCompiler.Evaluator evaluator = ExpressionCompiler.compile(ExpressionBuilder.createNode("${a + b}"));
+
+        EvaluationContext ctx = createEvaluationContext();
+        ctx.getVariableMapper().setVariable("a", factory.createValueExpression(Integer.valueOf(1), Object.class));
+        ctx.getVariableMapper().setVariable("b", factory.createValueExpression(Long.valueOf(2), Object.class));
+        Assert.assertEquals(Long.valueOf(3), evaluator.getValue(ctx));
+        Assert.assertFalse(ExpressionCompiler.isDeoptimised(evaluator));
+
+        ctx.getVariableMapper().setVariable("b", factory.createValueExpression("2.5", Object.class));
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(Double.valueOf(3.5), evaluator.getValue(ctx));
+        }
+        Assert.assertTrue(ExpressionCompiler.isDeoptimised(evaluator));
+
+        ctx.getVariableMapper().setVariable("b", factory.createValueExpression(Long.valueOf(2), Object.class));
+        Assert.assertEquals(Long.valueOf(3), evaluator.getValue(ctx));
+    }
+
+
+    @Test
+    public void testTiered() {
+        Node node = ExpressionBuilder.createNode("${i + 2}");
+        ExpressionCompiler.Tiering tiering = new ExpressionCompiler.Tiering();
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(Long.valueOf(7),
+                    ExpressionCompiler.getValue(node, tiering, createEvaluationContext(), 3));
+            Assert.assertNull(tiering.getEvaluator());
+        }
+        Assert.assertEquals(Long.valueOf(7), ExpressionCompiler.getValue(node, tiering, createEvaluationContext(), 3));
+        Assert.assertNotNull(tiering.getEvaluator());
+        Assert.assertEquals(Long.valueOf(7), ExpressionCompiler.getValue(node, tiering, createEvaluationContext(), 3));
+    }
+
+
+    private static EvaluationContext createEvaluationContext() {
+        ExpressionFactory factory = ExpressionFactory.newInstance();
+        ELContext context = new ELContextImpl();
+
+        TesterBeanB beanB = new TesterBeanB();
+        beanB.setName("Tomcat");
+        List<Object> list = new ArrayList<>();
+        list.add(Integer.valueOf(1));
+        list.add("two");
+        Map<String,Object> map = new HashMap<>();
+        map.put("key", "value");
+
+        context.getVariableMapper().setVariable("beanB", factory.createValueExpression(beanB, TesterBeanB.class));
+        context.getVariableMapper().setVariable("list", factory.createValueExpression(list, List.class));
+        context.getVariableMapper().setVariable("map", factory.createValueExpression(map, Map.class));
+        context.getVariableMapper().setVariable("i", factory.createValueExpression(Integer.valueOf(5), Object.class));
+        context.getVariableMapper().setVariable("d", factory.createValueExpression(Double.valueOf(2.5), Object.class));
+        context.getVariableMapper().setVariable("s", factory.createValueExpression("7", Object.class));
+        context.getVariableMapper().setVariable("big",
+                factory.createValueExpression(new BigDecimal("1.5"), Object.class));
+
+        return new EvaluationContext(context, null, context.getVariableMapper());
+    }
+}
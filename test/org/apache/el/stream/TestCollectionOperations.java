@@ -18,11 +18,17 @@ package org.apache.el.stream;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import jakarta.el.ELBaseTest;
+import jakarta.el.ELContext;
 import jakarta.el.ELException;
 import jakarta.el.ELProcessor;
+import jakarta.el.ExpressionFactory;
+import jakarta.el.StandardELContext;
+import jakarta.el.ValueExpression;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -32,6 +38,11 @@ import org.apache.el.lang.ELSupport;
 
 public class TestCollectionOperations extends ELBaseTest {
 
+    static {
+        // Parallel streams are evaluated sequentially unless the common pool has more than one thread
+        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", "4");
+    }
+
     private static final TesterBeanA bean01 = new TesterBeanA();
     private static final TesterBeanA bean02 = new TesterBeanA();
     private static final TesterBeanA bean03 = new TesterBeanA();
@@ -775,4 +786,150 @@ public class TestCollectionOperations extends ELBaseTest {
 
         result.get();
     }
+
+
+    @Test
+    public void testShortCircuit01() {
+        ELProcessor processor = new ELProcessor();
+        TesterCounter counter = new TesterCounter();
+        processor.defineBean("counter", counter);
+
+        Object result = processor.getValue(
+                "[1,2,3,4,5].stream().map(x->counter.touch(x)).filter(x->x>1).findFirst().get()",
+                Object.class);
+
+        Assert.assertEquals(Long.valueOf(2), result);
+        Assert.assertEquals(2, counter.getCount());
+    }
+
+
+    @Test
+    public void testShortCircuit02() {
+        ELProcessor processor = new ELProcessor();
+        TesterCounter counter = new TesterCounter();
+        processor.defineBean("counter", counter);
+
+        Object result = processor.getValue(
+                "[5,4,3,2,1].stream().map(x->counter.touch(x)).limit(2).sorted().toList()",
+                List.class);
+
+        List<Long> expected = new ArrayList<>(2);
+        expected.add(Long.valueOf(4));
+        expected.add(Long.valueOf(5));
+        Assert.assertEquals(expected, result);
+        Assert.assertEquals(2, counter.getCount());
+    }
+
+
+    @Test
+    public void testIterator01() {
+        ELProcessor processor = new ELProcessor();
+
+        Iterator<?> result = (Iterator<?>) processor.getValue(
+                "[3,1,2].stream().sorted().map(x->x*2).iterator()",
+                Object.class);
+
+        Assert.assertEquals(Long.valueOf(2), result.next());
+        Assert.assertEquals(Long.valueOf(4), result.next());
+        Assert.assertEquals(Long.valueOf(6), result.next());
+        Assert.assertFalse(result.hasNext());
+    }
+
+
+    @Test
+    public void testParallel01() {
+        ELProcessor processor = new ELProcessor();
+        processor.defineBean("src", createLongs(10000));
+
+        Object expected = processor.getValue(
+                "src.stream().filter(x->x%3==0).map(x->x*2).toList()",
+                List.class);
+        Object result = processor.getValue(
+                "src.stream().parallel().filter(x->x%3==0).map(x->x*2).toList()",
+                List.class);
+
+        Assert.assertEquals(3334, ((List<?>) expected).size());
+        Assert.assertEquals(expected, result);
+    }
+
+
+    @Test
+    public void testParallel02() {
+        ELProcessor processor = new ELProcessor();
+        processor.defineBean("src", createLongs(10000));
+
+        // Lambda arguments of the enclosing expression are visible to the parallel lambda expressions
+        Object result = processor.getValue(
+                "(k->src.stream().parallel().map(x->x+k).sum())(10)",
+                Object.class);
+
+        Assert.assertEquals(Long.valueOf(10000L * 9999 / 2 + 10000 * 10), result);
+    }
+
+
+    @Test
+    public void testParallel03() {
+        ELProcessor processor = new ELProcessor();
+        processor.defineBean("src", createLongs(10000));
+
+        Object result = processor.getValue(
+                "src.stream().parallel().map(x->x%100).distinct().sorted((a,b)->b-a).limit(3).toList()",
+                List.class);
+
+        List<Long> expected = new ArrayList<>(3);
+        expected.add(Long.valueOf(99));
+        expected.add(Long.valueOf(98));
+        expected.add(Long.valueOf(97));
+        Assert.assertEquals(expected, result);
+    }
+
+
+    @Test
+    public void testParallel04() {
+        ExpressionFactory factory = ExpressionFactory.newInstance();
+        Thread caller = Thread.currentThread();
+        AtomicBoolean modifiedByTask = new AtomicBoolean();
+        ELContext context = new StandardELContext(factory) {
+            @Override
+            public void putContext(Class<?> key, Object contextObject) {
+                if (Thread.currentThread() != caller) {
+                    modifiedByTask.set(true);
+                }
+                super.putContext(key, contextObject);
+            }
+        };
+        context.getELResolver().setValue(context, null, "src", createLongs(10000));
+        context.getELResolver().setValue(context, null, "threshold", Long.valueOf(8999));
+
+        // The identifier that is not a lambda argument is resolved by each task
+        ValueExpression ve = factory.createValueExpression(context,
+                "${src.stream().parallel().filter(x->x>threshold).count()}", Object.class);
+
+        Assert.assertEquals(Long.valueOf(1000), ve.getValue(context));
+        Assert.assertFalse(modifiedByTask.get());
+    }
+
+
+    private static List<Long> createLongs(int count) {
+        List<Long> result = new ArrayList<>(count);
+        for (long i = 0; i < count; i++) {
+            result.add(Long.valueOf(i));
+        }
+        return result;
+    }
+
+
+    public static class TesterCounter {
+
+        private int count = 0;
+
+        public Object touch(Object obj) {
+            count++;
+            return obj;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.compiler;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.jasper.servlet.JasperInitializer;
+
+public class TestCompilationCache extends TomcatBaseTest {
+
+    @Test
+    public void testSharedBetweenContexts() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "jsp-cache-app");
+        addDeleteOnTearDown(appDir);
+        File tagDir = new File(appDir, "WEB-INF/tags");
+        Assert.assertTrue(tagDir.mkdirs());
+        File include = new File(appDir, "inc.jspf");
+        Files.writeString(new File(appDir, "page.jsp").toPath(),
+                "<%@ taglib prefix=\"t\" tagdir=\"/WEB-INF/tags\" %><%@ include file=\"inc.jspf\" %>-<t:hello/>",
+                StandardCharsets.UTF_8);
+        Files.writeString(include.toPath(), "ONE", StandardCharsets.UTF_8);
+        Files.writeString(new File(tagDir, "hello.tag").toPath(), "HELLO", StandardCharsets.UTF_8);
+
+        File cacheDir = new File(getTemporaryDirectory(), "jsp-cache");
+        addDeleteOnTearDown(cacheDir);
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctxA = addContext(tomcat, "/a", appDir, cacheDir);
+        Context ctxB = addContext(tomcat, "/b", appDir, cacheDir);
+        Context ctxC = addContext(tomcat, "/c", appDir, cacheDir);
+        tomcat.start();
+
+        // Compiled and stored in the cache
+        Assert.assertEquals("ONE-HELLO", getUrl("http://localhost:" + getPort() + "/a/page.jsp").toString().trim());
+        Assert.assertTrue(new File(getGeneratedDir(ctxA), "page_jsp.java").isFile());
+        // One entry for the page and one for the tag file
+        Assert.assertEquals(2, countEntries(cacheDir));
+
+        // Restored from the cache - no source is generated
+        Assert.assertEquals("ONE-HELLO", getUrl("http://localhost:" + getPort() + "/b/page.jsp").toString().trim());
+        Assert.assertTrue(new File(getGeneratedDir(ctxB), "page_jsp.class").isFile());
+        Assert.assertFalse(new File(getGeneratedDir(ctxB), "page_jsp.java").exists());
+        Assert.assertTrue(new File(getGeneratedDir(ctxB), "tag/web/hello_tag.class").isFile());
+
+        // Change the content of the included file without changing its last modified time
+        long lastModified = include.lastModified();
+        Files.writeString(include.toPath(), "TWO", StandardCharsets.UTF_8);
+        Assert.assertTrue(include.setLastModified(lastModified));
+
+        Assert.assertEquals("TWO-HELLO", getUrl("http://localhost:" + getPort() + "/c/page.jsp").toString().trim());
+        Assert.assertTrue(new File(getGeneratedDir(ctxC), "page_jsp.java").isFile());
+        // The stale entry is replaced
+        Assert.assertEquals(2, countEntries(cacheDir));
+    }
+
+
+    @Test
+    public void testEntryOutsideScratchDirIgnored() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "jsp-cache-app");
+        addDeleteOnTearDown(appDir);
+        Assert.assertTrue(appDir.mkdirs());
+        Files.writeString(new File(appDir, "page.jsp").toPath(), "PAGE", StandardCharsets.UTF_8);
+
+        File cacheDir = new File(getTemporaryDirectory(), "jsp-cache");
+        addDeleteOnTearDown(cacheDir);
+
+        Tomcat tomcat = getTomcatInstance();
+        addContext(tomcat, "/a", appDir, cacheDir);
+        Context ctxB = addContext(tomcat, "/b", appDir, cacheDir);
+        tomcat.start();
+
+        Assert.assertEquals("PAGE", getUrl("http://localhost:" + getPort() + "/a/page.jsp").toString().trim());
+        Assert.assertEquals(1, countEntries(cacheDir));
+
+        // Add a file that would be written outside of the scratch directory to the entry
+        File entryFile;
+        try (Stream<Path> paths = Files.walk(cacheDir.toPath())) {
+            entryFile = paths.filter(p -> p.getFileName().toString().equals("entry.properties")).findFirst()
+                    .orElseThrow().toFile();
+        }
+        Files.writeString(new File(entryFile.getParentFile(), "escaped.class").toPath(), "ESCAPED",
+                StandardCharsets.UTF_8);
+        Files.writeString(entryFile.toPath(), "file.../escaped.class=0\n", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        // The entry is not used - the page is compiled
+        Assert.assertEquals("PAGE", getUrl("http://localhost:" + getPort() + "/b/page.jsp").toString().trim());
+        File scratchDir = new File(((StandardContext) ctxB).getWorkPath());
+        Assert.assertTrue(new File(getGeneratedDir(ctxB), "page_jsp.java").isFile());
+        Assert.assertFalse(new File(scratchDir.getParentFile(), "escaped.class").exists());
+    }
+
+
+    private static Context addContext(Tomcat tomcat, String path, File appDir, File cacheDir) {
+        Context ctx = tomcat.addContext(path, appDir.getAbsolutePath());
+        ctx.addServletContainerInitializer(new JasperInitializer(), null);
+        Tomcat.initWebappDefaults(ctx);
+        Wrapper w = (Wrapper) ctx.findChild("jsp");
+        w.addInitParameter("compilationCacheDir", cacheDir.getAbsolutePath());
+        return ctx;
+    }
+
+
+    private static File getGeneratedDir(Context ctx) {
+        return new File(((StandardContext) ctx).getWorkPath(), "org/apache/jsp");
+    }
+
+
+    private static long countEntries(File cacheDir) throws Exception {
+        try (Stream<Path> paths = Files.walk(cacheDir.toPath())) {
+            return paths.filter(p -> p.getFileName().toString().equals("entry.properties")).count();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.compiler;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.jasper.servlet.JasperInitializer;
+import org.apache.jasper.servlet.JspServlet;
+import org.apache.jasper.servlet.JspServletWrapper;
+
+public class TestJspFileWatcher extends TomcatBaseTest {
+
+    @Test
+    public void testModification() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "jsp-watch");
+        addDeleteOnTearDown(appDir);
+        Assert.assertTrue(appDir.mkdirs());
+        File include = new File(appDir, "inc.jspf");
+        File other = new File(appDir, "other.txt");
+        Files.writeString(new File(appDir, "page.jsp").toPath(), "<%@ include file=\"inc.jspf\" %>",
+                StandardCharsets.UTF_8);
+        Files.writeString(include.toPath(), "ONE", StandardCharsets.UTF_8);
+        Files.writeString(other.toPath(), "OTHER", StandardCharsets.UTF_8);
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = tomcat.addContext("", appDir.getAbsolutePath());
+        ctx.addServletContainerInitializer(new JasperInitializer(), null);
+        Tomcat.initWebappDefaults(ctx);
+        Wrapper w = (Wrapper) ctx.findChild("jsp");
+        w.addInitParameter("modificationTestInterval", "0");
+        w.addInitParameter("useWatchService", "true");
+        tomcat.start();
+
+        Assert.assertEquals("ONE", getUrl("http://localhost:" + getPort() + "/page.jsp").toString().trim());
+
+        JspRuntimeContext rctxt = getRuntimeContext(w);
+        Assert.assertNotNull(rctxt.getFileWatcher());
+        JspServletWrapper jsw = rctxt.getWrapper("/page.jsp");
+
+        // The first request compiled the page. The second checks it and starts watching.
+        Assert.assertEquals("ONE", getUrl("http://localhost:" + getPort() + "/page.jsp").toString().trim());
+        Assert.assertNotNull(jsw.getPolledDependants());
+        Assert.assertTrue(jsw.getPolledDependants().isEmpty());
+
+        // Modifying a file the page does not depend on has no effect
+        Files.writeString(other.toPath(), "CHANGED", StandardCharsets.UTF_8);
+        Thread.sleep(1000);
+        Assert.assertNotNull(jsw.getPolledDependants());
+
+        Files.writeString(include.toPath(), "TWO", StandardCharsets.UTF_8);
+        Assert.assertTrue(include.setLastModified(include.lastModified() + 10000));
+        int count = 0;
+        while (!jsw.isModificationPending() && count < 100) {
+            // Some WatchService implementations poll the file system
+            Thread.sleep(100);
+            count++;
+        }
+        Assert.assertNull(jsw.getPolledDependants());
+
+        // The modification may not be visible until the cached resource expires
+        String result = null;
+        count = 0;
+        while (!"TWO".equals(result) && count < 100) {
+            result = getUrl("http://localhost:" + getPort() + "/page.jsp").toString().trim();
+            Assert.assertNull(jsw.getPolledDependants());
+            Thread.sleep(100);
+            count++;
+        }
+        Assert.assertEquals("TWO", result);
+
+        // Watched again once recompiled
+        Assert.assertEquals("TWO", getUrl("http://localhost:" + getPort() + "/page.jsp").toString().trim());
+        Assert.assertNotNull(jsw.getPolledDependants());
+    }
+
+
+    @Test
+    public void testDisabledByDefault() throws Exception {
+        Tomcat tomcat = getTomcatInstanceTestWebapp(false, true);
+        Wrapper w = (Wrapper) tomcat.getHost().findChildren()[0].findChild("jsp");
+        Assert.assertNull(getRuntimeContext(w).getFileWatcher());
+    }
+
+
+    private static JspRuntimeContext getRuntimeContext(Wrapper w) throws Exception {
+        JspServlet jspServlet = (JspServlet) w.getServlet();
+        Field rctxtField = JspServlet.class.getDeclaredField("rctxt");
+        rctxtField.setAccessible(true);
+        return (JspRuntimeContext) rctxtField.get(jspServlet);
+    }
+}
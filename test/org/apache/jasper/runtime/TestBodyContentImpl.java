@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.io.Reader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBodyContentImpl {
+
+    private static final String TEXT = "0123456789".repeat(10);
+
+
+    @Test
+    public void testGrowth() throws Exception {
+        BodyContentImpl body = new BodyContentImpl(null, false, 16);
+        body.write("start-");
+        body.write(TEXT.toCharArray(), 0, TEXT.length());
+        body.write('-');
+        body.print(42);
+        String expected = "start-" + TEXT + "-42";
+        Assert.assertEquals(expected, body.getString());
+        Assert.assertTrue(body.getBufferSize() >= expected.length());
+        Assert.assertEquals(body.getBufferSize() - expected.length(), body.getRemaining());
+
+        try (Reader reader = body.getReader()) {
+            char[] chars = new char[expected.length() + 1];
+            Assert.assertEquals(expected.length(), reader.read(chars));
+            Assert.assertEquals(expected, new String(chars, 0, expected.length()));
+        }
+
+        StringWriter sw = new StringWriter();
+        body.writeOut(sw);
+        Assert.assertEquals(expected, sw.toString());
+
+        body.clear();
+        Assert.assertEquals("", body.getString());
+        Assert.assertEquals(16, body.getBufferSize());
+    }
+
+
+    @Test
+    public void testSharedSegments() throws Exception {
+        CharSegmentPool pool = new CharSegmentPool(16);
+        BodyContentImpl outer = new BodyContentImpl(null, false, pool);
+        BodyContentImpl inner = new BodyContentImpl(outer, false, pool);
+
+        outer.write("start-");
+        inner.write(TEXT);
+        inner.writeOut(outer);
+        outer.write("-end");
+        String expected = "start-" + TEXT + "-end";
+        Assert.assertEquals(expected, outer.getString());
+
+        // The source is not modified and can still be written to
+        inner.write("more");
+        Assert.assertEquals(TEXT + "more", inner.getString());
+        inner.writeOut(outer);
+        Assert.assertEquals(expected + TEXT + "more", outer.getString());
+
+        // Segments shared with the outer body content must not be reused while it is in use
+        inner.clear();
+        inner.write("x".repeat(TEXT.length() * 2));
+        Assert.assertEquals(expected + TEXT + "more", outer.getString());
+        outer.clear();
+        outer.write("y".repeat(TEXT.length() * 2));
+        Assert.assertEquals("x".repeat(TEXT.length() * 2), inner.getString());
+    }
+
+
+    @Test
+    public void testRecycle() throws Exception {
+        CharSegmentPool pool = new CharSegmentPool(16);
+        BodyContentImpl outer = new BodyContentImpl(null, false, pool);
+        BodyContentImpl inner = new BodyContentImpl(outer, false, pool);
+
+        inner.write(TEXT);
+        inner.writeOut(outer);
+        inner.writeOut(outer);
+        outer.recycle();
+        inner.recycle();
+
+        // Each segment is returned to the pool once
+        Set<char[]> segments = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < CharSegmentPool.MAX_POOLED_SEGMENTS; i++) {
+            Assert.assertTrue(segments.add(pool.take()));
+        }
+    }
+}
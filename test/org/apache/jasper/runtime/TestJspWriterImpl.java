@@ -16,12 +16,22 @@
  */
 package org.apache.jasper.runtime;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.jasper.servlet.JasperInitializer;
 import org.apache.tomcat.util.buf.ByteChunk;
 
 public class TestJspWriterImpl extends TomcatBaseTest {
@@ -54,4 +64,70 @@ public class TestJspWriterImpl extends TomcatBaseTest {
         Assert.assertEquals(res.toString(),
                 HttpServletResponse.SC_INTERNAL_SERVER_ERROR, rc);
     }
+
+
+    @Test
+    public void testPreEncodedText() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "jsp-pre-encoded");
+        addDeleteOnTearDown(appDir);
+        File tagDir = new File(appDir, "WEB-INF/tags");
+        Assert.assertTrue(tagDir.mkdirs());
+
+        // Larger than the buffer, straddles the end of the buffer and fits in the buffer
+        String large = "caf\u00e9 \ud83d\ude00 \u20ac ".repeat(200);
+        String medium = "<p>" + "\u00e9\u00e8".repeat(250) + "</p>";
+        String body = "<% for (int i = 0; i < 3; i++) { %>" + large + "<%= i %>" + medium +
+                "<t:wrap>tag \u00e9 body</t:wrap>\n<% } %>";
+        writeFile(new File(tagDir, "wrap.tag"), "<%@ tag pageEncoding=\"UTF-8\" %>[wrapped \u00e9 <jsp:doBody/>]");
+        String taglib = "<%@ taglib prefix=\"t\" tagdir=\"/WEB-INF/tags\" %>";
+        writeFile(new File(appDir, "utf8.jsp"), taglib +
+                "<%@ page contentType=\"text/html;charset=UTF-8\" pageEncoding=\"UTF-8\" buffer=\"1kb\" %>" + body);
+        writeFile(new File(appDir, "none.jsp"), taglib +
+                "<%@ page contentType=\"text/html;charset=UTF-8\" pageEncoding=\"UTF-8\" buffer=\"none\" %>" + body);
+        // The euro sign can't be encoded
+        writeFile(new File(appDir, "latin1.jsp"), taglib + "<%@ page pageEncoding=\"UTF-8\" %>" + body);
+        // The character set is changed at runtime
+        writeFile(new File(appDir, "changed.jsp"), taglib +
+                "<%@ page contentType=\"text/html;charset=UTF-8\" pageEncoding=\"UTF-8\" %>" +
+                "<% response.setCharacterEncoding(request.getParameter(\"cs\")); %>" + body);
+        writeFile(new File(appDir, "clear.jsp"), "<%@ page pageEncoding=\"UTF-8\" %>" +
+                "discarded text <% out.clearBuffer(); %>kept text");
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctxA = addContext(tomcat, "/a", appDir, true);
+        addContext(tomcat, "/b", appDir, false);
+        tomcat.start();
+
+        for (String page : new String[] { "utf8.jsp", "none.jsp", "latin1.jsp", "changed.jsp?cs=ISO-8859-15",
+                "changed.jsp?cs=UTF-16", "changed.jsp?cs=UTF-16LE", "clear.jsp" }) {
+            ByteChunk expected = new ByteChunk();
+            Assert.assertEquals(page, HttpServletResponse.SC_OK,
+                    getUrl("http://localhost:" + getPort() + "/b/" + page, expected, null));
+            ByteChunk actual = new ByteChunk();
+            Assert.assertEquals(page, HttpServletResponse.SC_OK,
+                    getUrl("http://localhost:" + getPort() + "/a/" + page, actual, null));
+            Assert.assertTrue(page, expected.getLength() > 0);
+            Assert.assertArrayEquals(page, Arrays.copyOf(expected.getBytes(), expected.getLength()),
+                    Arrays.copyOf(actual.getBytes(), actual.getLength()));
+        }
+
+        String generated = Files.readString(new File(((StandardContext) ctxA).getWorkPath(),
+                "org/apache/jsp/utf8_jsp.java").toPath(), StandardCharsets.UTF_8);
+        Assert.assertTrue(generated.contains("PreEncodedText"));
+    }
+
+
+    private static Context addContext(Tomcat tomcat, String path, File appDir, boolean preEncoded) {
+        Context ctx = tomcat.addContext(path, appDir.getAbsolutePath());
+        ctx.addServletContainerInitializer(new JasperInitializer(), null);
+        Tomcat.initWebappDefaults(ctx);
+        Wrapper w = (Wrapper) ctx.findChild("jsp");
+        w.addInitParameter("genStringAsByteArray", Boolean.toString(preEncoded));
+        return ctx;
+    }
+
+
+    private static void writeFile(File file, String content) throws Exception {
+        Files.writeString(file.toPath(), content, StandardCharsets.UTF_8);
+    }
 }
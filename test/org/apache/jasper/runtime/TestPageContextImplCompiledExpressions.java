@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.jsp.JspFactory;
+import jakarta.servlet.jsp.JspWriter;
+import jakarta.servlet.jsp.PageContext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.el.lang.ExpressionCompiler;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+/**
+ * Tests the compilation of the expressions in JSP template text, which are created for each evaluation.
+ */
+public class TestPageContextImplCompiledExpressions extends TomcatBaseTest {
+
+    static {
+        System.setProperty("org.apache.el.ExpressionCompiler.THRESHOLD", "3");
+    }
+
+
+    @Test
+    public void testTemplateTextExpressionCompiled() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File("test/webapp");
+        Context ctx = tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+
+        Tomcat.addServlet(ctx, "evaluate", new EvaluateServlet());
+        ctx.addServletMapping("/evaluate", "evaluate");
+
+        tomcat.start();
+
+        Assert.assertEquals(3, ExpressionCompiler.THRESHOLD);
+
+        ByteChunk res = getUrl("http://localhost:" + getPort() + "/test/evaluate");
+
+        Assert.assertEquals("false,false,true,true,true", res.toString().trim());
+    }
+
+
+    public static class EvaluateServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+            PageContext pageContext = JspFactory.getDefaultFactory().getPageContext(this, req, resp, null, false,
+                    JspWriter.DEFAULT_BUFFER, true);
+            pageContext.setAttribute("bean", new CompiledBean());
+            StringBuilder result = new StringBuilder();
+            for (int i = 0; i < ExpressionCompiler.THRESHOLD + 2; i++) {
+                if (i > 0) {
+                    result.append(',');
+                }
+                result.append(PageContextImpl.proprietaryEvaluate("${bean.compiled}", Boolean.class, pageContext,
+                        null));
+            }
+            JspFactory.getDefaultFactory().releasePageContext(pageContext);
+            resp.setContentType("text/plain");
+            PrintWriter pw = resp.getWriter();
+            pw.print(result);
+        }
+    }
+
+
+    public static class CompiledBean {
+
+        /**
+         * @return {@code true} if the bean is being read by a compiled expression
+         */
+        public boolean isCompiled() {
+            for (StackTraceElement element : new Throwable().getStackTrace()) {
+                if (element.getClassName().startsWith(ExpressionCompiler.class.getName() + "$")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.jsp.tagext.Tag;
+import jakarta.servlet.jsp.tagext.TagSupport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.jasper.Constants;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+public class TestPerThreadTagHandlerPool extends TomcatBaseTest {
+
+    @Test
+    public void testReuse() throws Exception {
+        PerThreadTagHandlerPool pool = createPool();
+
+        Tag t1 = pool.get(ReleaseCountingTag.class);
+        pool.reuse(t1);
+        Assert.assertSame(t1, pool.get(ReleaseCountingTag.class));
+        pool.reuse(t1);
+        pool.release();
+    }
+
+
+    @Test
+    public void testOverflow() throws Exception {
+        PerThreadTagHandlerPool pool = createPool();
+
+        // Fill the per-thread stack and the stripe of the overflow used by this thread
+        int count = Constants.MAX_POOL_SIZE * 2;
+        Set<Tag> handlers = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            handlers.add(pool.get(ReleaseCountingTag.class));
+        }
+        Assert.assertEquals(count, handlers.size());
+
+        int released = ReleaseCountingTag.RELEASE_COUNT.get();
+        for (Tag handler : handlers) {
+            pool.reuse(handler);
+        }
+        // No space in the pool so the handler is released
+        pool.reuse(new ReleaseCountingTag());
+        Assert.assertEquals(released + 1, ReleaseCountingTag.RELEASE_COUNT.get());
+
+        for (int i = 0; i < count; i++) {
+            Assert.assertTrue(handlers.remove(pool.get(ReleaseCountingTag.class)));
+        }
+        Assert.assertTrue(handlers.isEmpty());
+    }
+
+
+    @Test
+    public void testVirtualThread() throws Exception {
+        PerThreadTagHandlerPool pool = createPool();
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Tag> handlers = new ArrayList<>();
+        Thread t = Thread.ofVirtual().start(() -> {
+            try {
+                Tag t1 = pool.get(ReleaseCountingTag.class);
+                pool.reuse(t1);
+                Tag t2 = pool.get(ReleaseCountingTag.class);
+                pool.reuse(t2);
+                handlers.add(t1);
+                handlers.add(t2);
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        t.join(10000);
+        Assert.assertNull(error.get());
+        Assert.assertEquals(2, handlers.size());
+        // Virtual threads use the striped overflow
+        Assert.assertSame(handlers.get(0), handlers.get(1));
+    }
+
+
+    @Test
+    public void testRelease() throws Exception {
+        PerThreadTagHandlerPool pool = createPool();
+
+        int released = ReleaseCountingTag.RELEASE_COUNT.get();
+
+        pool.reuse(pool.get(ReleaseCountingTag.class));
+        Thread t = new Thread(() -> {
+            try {
+                pool.reuse(pool.get(ReleaseCountingTag.class));
+            } catch (Exception e) {
+                // Ignore. The assertion on the release count will fail.
+            }
+        });
+        t.start();
+        t.join(10000);
+
+        // Release includes the handler held by the stack of the other thread
+        pool.release();
+        Assert.assertEquals(released + 2, ReleaseCountingTag.RELEASE_COUNT.get());
+    }
+
+
+    @Test
+    public void testTagPoolClassName() throws Exception {
+        Tomcat tomcat = getTomcatInstanceTestWebapp(false, false);
+        Context ctx = (Context) tomcat.getHost().findChildren()[0];
+        ctx.addParameter(TagHandlerPool.OPTION_TAGPOOL, PerThreadTagHandlerPool.class.getName());
+        tomcat.start();
+
+        Wrapper w = (Wrapper) ctx.findChild("jsp");
+        ServletConfig config = w.getServlet().getServletConfig();
+        Assert.assertTrue(TagHandlerPool.getTagHandlerPool(config) instanceof PerThreadTagHandlerPool);
+
+        ByteChunk res = getUrl("http://localhost:" + getPort() + "/test/bug5nnnn/bug53545.jsp");
+        Assert.assertTrue(res.toString().contains("OK"));
+    }
+
+
+    private PerThreadTagHandlerPool createPool() throws Exception {
+        Tomcat tomcat = getTomcatInstanceTestWebapp(false, true);
+        Wrapper w = (Wrapper) tomcat.getHost().findChildren()[0].findChild("jsp");
+        PerThreadTagHandlerPool pool = new PerThreadTagHandlerPool();
+        pool.init(w.getServlet().getServletConfig());
+        return pool;
+    }
+
+
+    public static class ReleaseCountingTag extends TagSupport {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        static final AtomicInteger RELEASE_COUNT = new AtomicInteger();
+
+        @Override
+        public void release() {
+            RELEASE_COUNT.incrementAndGet();
+            super.release();
+        }
+    }
+}
@@ -42,14 +42,18 @@ public class TesterTagHandlerPoolPerformance extends TomcatBaseTest {
         Tomcat tomcat = getTomcatInstanceTestWebapp(false, true);
 
         Wrapper w = (Wrapper) tomcat.getHost().findChildren()[0].findChild("jsp");
-        TagHandlerPool tagHandlerPool = new TagHandlerPool();
-        tagHandlerPool.init(w.getServlet().getServletConfig());
-
-        for (int i = 1; i < 9; i++) {
-            TesterThreadedPerformance test = new TesterThreadedPerformance(
-                    i, 5000000, new TestInstanceSupplier(tagHandlerPool));
-            long duration = test.doTest();
-            System.out.println(i + " threads completed in " + duration + "ns");
+
+        TagHandlerPool[] tagHandlerPools = new TagHandlerPool[] { new TagHandlerPool(), new PerThreadTagHandlerPool() };
+        for (TagHandlerPool tagHandlerPool : tagHandlerPools) {
+            tagHandlerPool.init(w.getServlet().getServletConfig());
+
+            for (int i = 1; i < 9; i++) {
+                TesterThreadedPerformance test = new TesterThreadedPerformance(
+                        i, 5000000, new TestInstanceSupplier(tagHandlerPool));
+                long duration = test.doTest();
+                System.out.println(tagHandlerPool.getClass().getSimpleName() + ": " + i + " threads completed in " +
+                        duration + "ns");
+            }
         }
     }
 
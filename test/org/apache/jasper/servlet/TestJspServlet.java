@@ -18,6 +18,8 @@ package org.apache.jasper.servlet;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -28,6 +30,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
 import org.apache.tomcat.util.buf.ByteChunk;
@@ -97,6 +101,47 @@ public class TestJspServlet  extends TomcatBaseTest {
     }
 
 
+    @Test
+    public void testBackgroundCompile() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "jsp-background");
+        addDeleteOnTearDown(appDir);
+        File subDir = new File(appDir, "sub");
+        Assert.assertTrue(subDir.mkdirs());
+        Files.writeString(new File(appDir, "one.jsp").toPath(), "<%= \"ONE\" %>", StandardCharsets.UTF_8);
+        Files.writeString(new File(subDir, "two.jspx").toPath(),
+                "<jsp:root xmlns:jsp=\"http://java.sun.com/JSP/Page\" version=\"2.0\">TWO</jsp:root>",
+                StandardCharsets.UTF_8);
+        // Failures must not prevent the other JSPs being compiled
+        Files.writeString(new File(appDir, "broken.jsp").toPath(), "<% invalid %>", StandardCharsets.UTF_8);
+
+        Tomcat tomcat = getTomcatInstance();
+        StandardContext context = (StandardContext) tomcat.addWebapp(null, "/bg", appDir.getAbsolutePath());
+        context.setJspBackgroundCompileThreads(2);
+        tomcat.start();
+
+        JspServlet jspServlet = (JspServlet) ((Wrapper) context.findChild("jsp")).getServlet();
+        int count = 0;
+        while (jspServlet.getJspCount() < 3 && count < 300) {
+            Thread.sleep(100);
+            count++;
+        }
+        Assert.assertEquals(3, jspServlet.getJspCount());
+
+        File workDir = new File(context.getWorkPath(), "org/apache/jsp");
+        count = 0;
+        while (!(new File(workDir, "one_jsp.class").isFile() && new File(workDir, "sub/two_jspx.class").isFile()) &&
+                count < 300) {
+            Thread.sleep(100);
+            count++;
+        }
+        Assert.assertTrue(new File(workDir, "one_jsp.class").isFile());
+        Assert.assertTrue(new File(workDir, "sub/two_jspx.class").isFile());
+
+        ByteChunk res = getUrl("http://localhost:" + getPort() + "/bg/one.jsp");
+        Assert.assertEquals("ONE", res.toString().trim());
+    }
+
+
     private static class Bug56568aServlet extends HttpServlet {
 
         private static final long serialVersionUID = 1L;
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.dbcp.pool2.PooledObject;
+import org.apache.tomcat.dbcp.pool2.PooledObjectFactory;
+
+public class TestGenericObjectPoolAdaptiveSizing {
+
+    private GenericObjectPool<Object> pool;
+
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+
+    @Test
+    public void testDisabled() throws Exception {
+        pool = new GenericObjectPool<>(new ObjectFactory());
+        Assert.assertFalse(pool.getAdaptiveSizing());
+        Assert.assertEquals(pool.getMaxTotal(), pool.getAdaptiveMaxTotal());
+        pool.adjustAdaptiveSize(true);
+        Assert.assertNull(pool.getAdaptiveLastDecision());
+    }
+
+
+    @Test
+    public void testStartsAtMaxTotal() throws Exception {
+        createPool(8, 2);
+        Assert.assertTrue(pool.getAdaptiveSizing());
+        Assert.assertEquals(8, pool.getAdaptiveMaxTotal());
+    }
+
+
+    @Test
+    public void testDecreaseWhenUnderused() throws Exception {
+        createPool(8, 2);
+        pool.returnObject(pool.borrowObject());
+
+        pool.adjustAdaptiveSize(true);
+        Assert.assertEquals(6, pool.getAdaptiveMaxTotal());
+        Assert.assertTrue(pool.getAdaptiveLastDecision(), pool.getAdaptiveLastDecision().startsWith("decrease 8 -> 6"));
+        pool.adjustAdaptiveSize(true);
+        Assert.assertEquals(4, pool.getAdaptiveMaxTotal());
+        pool.adjustAdaptiveSize(true);
+        pool.adjustAdaptiveSize(true);
+        pool.adjustAdaptiveSize(true);
+        // Never below adaptiveMinTotal
+        Assert.assertEquals(2, pool.getAdaptiveMaxTotal());
+        Assert.assertEquals(4, pool.getAdaptiveDecreaseCount());
+        Assert.assertEquals(0, pool.getAdaptiveIncreaseCount());
+    }
+
+
+    @Test
+    public void testHoldWhenBusy() throws Exception {
+        createPool(4, 1);
+        pool.borrowObject();
+        pool.borrowObject();
+        pool.adjustAdaptiveSize(true);
+        Assert.assertEquals(4, pool.getAdaptiveMaxTotal());
+        Assert.assertTrue(pool.getAdaptiveLastDecision(), pool.getAdaptiveLastDecision().startsWith("hold"));
+    }
+
+
+    @Test
+    public void testLimitEnforced() throws Exception {
+        createPool(8, 2);
+        shrinkTo(2);
+        pool.borrowObject();
+        pool.borrowObject();
+        try {
+            pool.borrowObject(Duration.ofMillis(20));
+            Assert.fail();
+        } catch (NoSuchElementException e) {
+            // Expected
+        }
+        Assert.assertEquals(2, pool.getNumActive());
+    }
+
+
+    @Test
+    public void testIncreaseWhenWaiting() throws Exception {
+        createPool(8, 2);
+        shrinkTo(2);
+        pool.borrowObject();
+        pool.borrowObject();
+
+        // A blocked borrower is served once the limit has been increased
+        AtomicReference<Object> blocked = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                blocked.set(pool.borrowObject(Duration.ofSeconds(10)));
+            } catch (Exception e) {
+                // Ignore, checked below
+            }
+        });
+        t.start();
+        int count = 0;
+        while (pool.getNumWaiters() == 0 && count < 100) {
+            Thread.sleep(50);
+            count++;
+        }
+        try {
+            pool.borrowObject(Duration.ofMillis(50));
+            Assert.fail();
+        } catch (NoSuchElementException e) {
+            // Expected, the wait is recorded
+        }
+
+        pool.adjustAdaptiveSize(true);
+        Assert.assertTrue(pool.getAdaptiveMaxTotal() > 2);
+        Assert.assertTrue(pool.getAdaptiveMaxTotal() <= 4);
+        Assert.assertEquals(1, pool.getAdaptiveIncreaseCount());
+        Assert.assertTrue(pool.getAdaptiveLastDecision(), pool.getAdaptiveLastDecision().startsWith("increase 2 -> "));
+        t.join(10000);
+        Assert.assertNotNull(blocked.get());
+        Assert.assertEquals(3, pool.getNumActive());
+        // The thread that adjusted the limit, not the borrower, created it
+        Assert.assertSame(Thread.currentThread(), ((CreatedObject) blocked.get()).creator);
+    }
+
+
+    @Test
+    public void testIncreaseInBackground() throws Exception {
+        createPool(8, 2);
+        shrinkTo(2);
+        pool.borrowObject();
+        pool.borrowObject();
+        // Every borrow now triggers an adjustment
+        pool.setAdaptiveInterval(Duration.ZERO);
+
+        AtomicReference<Object> blocked = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                blocked.set(pool.borrowObject(Duration.ofSeconds(10)));
+            } catch (Exception e) {
+                // Ignore, checked below
+            }
+        });
+        t.start();
+        int count = 0;
+        while (pool.getNumWaiters() == 0 && count < 100) {
+            Thread.sleep(50);
+            count++;
+        }
+        try {
+            pool.borrowObject(Duration.ofMillis(50));
+            Assert.fail();
+        } catch (NoSuchElementException e) {
+            // Expected, the wait is recorded and the limit is increased in the background
+        }
+
+        t.join(10000);
+        Assert.assertNotNull(blocked.get());
+        Assert.assertTrue(pool.getAdaptiveIncreaseCount() > 0);
+        // Neither borrowing thread created it
+        Thread creator = ((CreatedObject) blocked.get()).creator;
+        Assert.assertNotSame(Thread.currentThread(), creator);
+        Assert.assertNotSame(t, creator);
+    }
+
+
+    @Test
+    public void testIncreaseCappedAtMaxTotal() throws Exception {
+        createPool(2, 1);
+        pool.borrowObject();
+        pool.borrowObject();
+        try {
+            pool.borrowObject(Duration.ofMillis(50));
+            Assert.fail();
+        } catch (NoSuchElementException e) {
+            // Expected
+        }
+        pool.adjustAdaptiveSize(true);
+        Assert.assertEquals(2, pool.getAdaptiveMaxTotal());
+        Assert.assertEquals(0, pool.getAdaptiveIncreaseCount());
+    }
+
+
+    @Test
+    public void testDecreaseDestroysIdleObjects() throws Exception {
+        createPool(4, 1);
+        for (int i = 0; i < 4; i++) {
+            pool.addObject();
+        }
+        Assert.assertEquals(4, pool.getNumIdle());
+        pool.adjustAdaptiveSize(true);
+        Assert.assertEquals(3, pool.getAdaptiveMaxTotal());
+        Assert.assertEquals(3, pool.getNumIdle());
+        Assert.assertEquals(1, pool.getDestroyedCount());
+    }
+
+
+    @Test
+    public void testDisable() throws Exception {
+        createPool(8, 2);
+        shrinkTo(2);
+        pool.setAdaptiveSizing(false);
+        Assert.assertEquals(8, pool.getAdaptiveMaxTotal());
+        for (int i = 0; i < 8; i++) {
+            pool.borrowObject();
+        }
+    }
+
+
+    private void createPool(int maxTotal, int adaptiveMinTotal) {
+        GenericObjectPoolConfig<Object> config = new GenericObjectPoolConfig<>();
+        config.setJmxEnabled(false);
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+        config.setAdaptiveSizing(true);
+        config.setAdaptiveMinTotal(adaptiveMinTotal);
+        // Adjustments are triggered by the tests
+        config.setAdaptiveInterval(Duration.ofHours(1));
+        pool = new GenericObjectPool<>(new ObjectFactory(), config);
+    }
+
+
+    private void shrinkTo(int maxTotal) {
+        while (pool.getAdaptiveMaxTotal() > maxTotal) {
+            pool.adjustAdaptiveSize(true);
+        }
+        Assert.assertEquals(maxTotal, pool.getAdaptiveMaxTotal());
+    }
+
+
+    private static class ObjectFactory implements PooledObjectFactory<Object> {
+
+        @Override
+        public void activateObject(PooledObject<Object> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public void destroyObject(PooledObject<Object> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public PooledObject<Object> makeObject() throws Exception {
+            return new DefaultPooledObject<>(new CreatedObject());
+        }
+
+        @Override
+        public void passivateObject(PooledObject<Object> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Object> p) {
+            return true;
+        }
+    }
+
+
+    private static class CreatedObject {
+        private final Thread creator = Thread.currentThread();
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.time.Duration;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.dbcp.pool2.PooledObject;
+import org.apache.tomcat.dbcp.pool2.PooledObjectFactory;
+
+public class TestGenericObjectPoolAsync {
+
+    private GenericObjectPool<Object> pool;
+
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+
+    @Test
+    public void testAvailableObject() throws Exception {
+        createPool(1);
+        CompletableFuture<Object> future = pool.borrowObjectAsync();
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(1, pool.getNumActive());
+        pool.returnObject(future.get());
+        Assert.assertEquals(1, pool.getNumIdle());
+    }
+
+
+    @Test
+    public void testCompletedOnReturnInArrivalOrder() throws Exception {
+        createPool(1);
+        Object a = pool.borrowObject();
+        CompletableFuture<Object> first = pool.borrowObjectAsync();
+        CompletableFuture<Object> second = pool.borrowObjectAsync();
+        Assert.assertFalse(first.isDone());
+        Assert.assertFalse(second.isDone());
+
+        pool.returnObject(a);
+        Assert.assertSame(a, first.get(10, TimeUnit.SECONDS));
+        Assert.assertFalse(second.isDone());
+
+        pool.returnObject(a);
+        Assert.assertSame(a, second.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, pool.getNumActive());
+        Assert.assertEquals(3, pool.getBorrowedCount());
+    }
+
+
+    @Test
+    public void testCancelledRequestSkipped() throws Exception {
+        createPool(1);
+        Object a = pool.borrowObject();
+        CompletableFuture<Object> cancelled = pool.borrowObjectAsync();
+        CompletableFuture<Object> waiting = pool.borrowObjectAsync();
+        Assert.assertTrue(cancelled.cancel(false));
+
+        pool.returnObject(a);
+        Assert.assertSame(a, waiting.get(10, TimeUnit.SECONDS));
+        pool.returnObject(a);
+        Assert.assertEquals(1, pool.getNumIdle());
+    }
+
+
+    @Test
+    public void testTimeout() throws Exception {
+        createPool(1);
+        Object a = pool.borrowObject();
+        CompletableFuture<Object> future = pool.borrowObjectAsync(Duration.ofMillis(100));
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof NoSuchElementException);
+        }
+
+        // The timed out request must not consume the returned object
+        pool.returnObject(a);
+        Assert.assertEquals(1, pool.getNumIdle());
+    }
+
+
+    @Test
+    public void testNoBlockWhenExhausted() throws Exception {
+        createPool(1);
+        pool.setBlockWhenExhausted(false);
+        pool.borrowObject();
+        CompletableFuture<Object> future = pool.borrowObjectAsync();
+        Assert.assertTrue(future.isCompletedExceptionally());
+    }
+
+
+    @Test
+    public void testDestroyFreesCapacity() throws Exception {
+        createPool(1);
+        Object a = pool.borrowObject();
+        CompletableFuture<Object> future = pool.borrowObjectAsync();
+        pool.invalidateObject(a);
+        Assert.assertNotSame(a, future.get(10, TimeUnit.SECONDS));
+    }
+
+
+    @Test
+    public void testClose() throws Exception {
+        createPool(1);
+        pool.borrowObject();
+        CompletableFuture<Object> future = pool.borrowObjectAsync();
+        pool.close();
+        try {
+            future.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+
+    @Test
+    public void testAlternateWithBlockedThread() throws Exception {
+        createPool(1);
+        Object a = pool.borrowObject();
+
+        AtomicReference<Object> blocked = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                blocked.set(pool.borrowObject(Duration.ofSeconds(10)));
+            } catch (Exception e) {
+                // Ignore, checked below
+            }
+        });
+        t.start();
+        int count = 0;
+        while (pool.getNumWaiters() == 0 && count < 100) {
+            Thread.sleep(50);
+            count++;
+        }
+        CompletableFuture<Object> first = pool.borrowObjectAsync();
+        CompletableFuture<Object> second = pool.borrowObjectAsync();
+
+        pool.returnObject(a);
+        Assert.assertSame(a, first.get(10, TimeUnit.SECONDS));
+        pool.returnObject(a);
+        t.join(10000);
+        Assert.assertSame(a, blocked.get());
+        Assert.assertFalse(second.isDone());
+        pool.returnObject(a);
+        Assert.assertSame(a, second.get(10, TimeUnit.SECONDS));
+    }
+
+
+    @Test
+    public void testConcurrentReturn() throws Exception {
+        createPool(1);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                for (int i = 0; i < 2000; i++) {
+                    pool.returnObject(pool.borrowObject());
+                }
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        t.start();
+        for (int i = 0; i < 2000; i++) {
+            // A request queued while the object is being returned must not be missed
+            pool.returnObject(pool.borrowObjectAsync().get(10, TimeUnit.SECONDS));
+        }
+        t.join(10000);
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(1, pool.getNumIdle());
+    }
+
+
+    private void createPool(int maxTotal) {
+        GenericObjectPoolConfig<Object> config = new GenericObjectPoolConfig<>();
+        config.setJmxEnabled(false);
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+        config.setMaxWait(Duration.ofSeconds(10));
+        pool = new GenericObjectPool<>(new ObjectFactory(), config);
+    }
+
+
+    private static class ObjectFactory implements PooledObjectFactory<Object> {
+
+        @Override
+        public void activateObject(PooledObject<Object> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public void destroyObject(PooledObject<Object> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public PooledObject<Object> makeObject() throws Exception {
+            return new DefaultPooledObject<>(new Object());
+        }
+
+        @Override
+        public void passivateObject(PooledObject<Object> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Object> p) {
+            return true;
+        }
+    }
+}
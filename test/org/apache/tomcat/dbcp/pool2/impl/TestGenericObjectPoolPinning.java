@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.dbcp.dbcp2.BasicDataSource;
+import org.apache.tomcat.dbcp.pool2.PooledObject;
+import org.apache.tomcat.dbcp.pool2.PooledObjectFactory;
+
+/**
+ * Checks that virtual threads using the pool do not pin their carrier thread when they block in the pool or in the
+ * factory. The JFR event used here is the one behind {@code -Djdk.tracePinnedThreads=full}, which can be added to
+ * the test JVM arguments to print the stack traces as well.
+ */
+public class TestGenericObjectPoolPinning {
+
+    @Test
+    public void testNoPinning() throws Exception {
+        doTestNoPinning(false);
+    }
+
+
+    @Test
+    public void testNoPinningThreadAffinity() throws Exception {
+        doTestNoPinning(true);
+    }
+
+
+    private void doTestNoPinning(boolean threadAffinity) throws Exception {
+        assertNoPinning(() -> {
+            GenericObjectPoolConfig<Object> config = new GenericObjectPoolConfig<>();
+            config.setJmxEnabled(false);
+            config.setMaxTotal(4);
+            config.setMaxIdle(4);
+            config.setTestOnBorrow(true);
+            config.setTestOnReturn(true);
+            config.setThreadAffinity(threadAffinity);
+            AtomicInteger failures = new AtomicInteger();
+            try (GenericObjectPool<Object> pool = new GenericObjectPool<>(new SlowFactory(), config);
+                    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 64; i++) {
+                    executor.execute(() -> {
+                        for (int j = 0; j < 20; j++) {
+                            try {
+                                Object obj = pool.borrowObject(Duration.ofSeconds(30));
+                                Thread.sleep(1);
+                                if (j % 10 == 0) {
+                                    pool.invalidateObject(obj);
+                                } else {
+                                    pool.returnObject(obj);
+                                }
+                            } catch (Exception e) {
+                                failures.incrementAndGet();
+                            }
+                        }
+                    });
+                }
+                executor.shutdown();
+                Assert.assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(0, failures.get());
+        });
+    }
+
+
+    /*
+     * The first use of a BasicDataSource creates the pool and opens the initial connections while the other threads
+     * wait for it.
+     */
+    @Test
+    public void testNoPinningBasicDataSourceFirstUse() throws Exception {
+        assertNoPinning(() -> {
+            BasicDataSource ds = new BasicDataSource();
+            ds.setDriver(new SlowDriver());
+            ds.setUrl("jdbc:slow:");
+            ds.setInitialSize(4);
+            ds.setMaxTotal(4);
+            AtomicInteger failures = new AtomicInteger();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < 16; i++) {
+                    executor.execute(() -> {
+                        try (Connection connection = ds.getConnection()) {
+                            Thread.sleep(1);
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                    });
+                }
+                executor.shutdown();
+                Assert.assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+            } finally {
+                ds.close();
+            }
+            Assert.assertEquals(0, failures.get());
+        });
+    }
+
+
+    private static void assertNoPinning(PinningTask task) throws Exception {
+        List<String> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream rs = new RecordingStream()) {
+            rs.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            rs.onEvent("jdk.VirtualThreadPinned", event -> {
+                String trace = toString(event);
+                if (trace.contains("org.apache.tomcat.dbcp.")) {
+                    pinned.add(trace);
+                }
+            });
+            rs.startAsync();
+
+            task.run();
+
+            // Let the stream deliver the last events
+            Thread.sleep(1500);
+        }
+        Assert.assertTrue(String.join("\n\n", pinned), pinned.isEmpty());
+    }
+
+
+    private interface PinningTask {
+        void run() throws Exception;
+    }
+
+
+    private static String toString(RecordedEvent event) {
+        StringBuilder sb = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                sb.append(frame.getMethod().getType().getName());
+                sb.append('.');
+                sb.append(frame.getMethod().getName());
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+
+    /*
+     * Blocks in every factory call, as a JDBC driver waiting for the network would.
+     */
+    private static class SlowFactory implements PooledObjectFactory<Object> {
+
+        @Override
+        public void activateObject(PooledObject<Object> p) throws Exception {
+            Thread.sleep(1);
+        }
+
+        @Override
+        public void destroyObject(PooledObject<Object> p) throws Exception {
+            Thread.sleep(1);
+        }
+
+        @Override
+        public PooledObject<Object> makeObject() throws Exception {
+            Thread.sleep(5);
+            return new DefaultPooledObject<>(new Object());
+        }
+
+        @Override
+        public void passivateObject(PooledObject<Object> p) throws Exception {
+            Thread.sleep(1);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Object> p) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                return false;
+            }
+            return true;
+        }
+    }
+
+
+    /*
+     * Blocks while connecting, as a JDBC driver waiting for the network would.
+     */
+    private static class SlowDriver implements Driver {
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return (Connection) Proxy.newProxyInstance(SlowDriver.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, (proxy, method, args) -> switch (method.getName()) {
+                        case "isValid", "getAutoCommit" -> Boolean.TRUE;
+                        case "isClosed", "isReadOnly" -> Boolean.FALSE;
+                        case "getTransactionIsolation" -> Integer.valueOf(Connection.TRANSACTION_READ_COMMITTED);
+                        case "hashCode" -> Integer.valueOf(System.identityHashCode(proxy));
+                        case "equals" -> Boolean.valueOf(proxy == args[0]);
+                        case "toString" -> "SlowConnection";
+                        default -> null;
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:slow:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
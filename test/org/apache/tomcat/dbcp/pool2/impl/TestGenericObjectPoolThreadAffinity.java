@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.dbcp.pool2.PooledObject;
+import org.apache.tomcat.dbcp.pool2.PooledObjectFactory;
+
+public class TestGenericObjectPoolThreadAffinity {
+
+    private GenericObjectPool<Resource> pool;
+
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+
+    @Test
+    public void testReturnedObjectOfferedToSameThread() throws Exception {
+        createPool(4);
+        // FIFO so that only the thread affinity can explain getting b back
+        pool.setLifo(false);
+        Resource a = pool.borrowObject();
+        Resource b = pool.borrowObject();
+        pool.returnObject(a);
+        pool.returnObject(b);
+
+        Assert.assertSame(b, pool.borrowObject());
+        Assert.assertSame(a, pool.borrowObject());
+    }
+
+
+    @Test
+    public void testReturnedObjectBorrowedByOtherThread() throws Exception {
+        createPool(4);
+        Resource a = pool.borrowObject();
+        pool.returnObject(a);
+
+        AtomicReference<Resource> other = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                other.set(pool.borrowObject());
+            } catch (Exception e) {
+                // Ignore, checked below
+            }
+        });
+        t.start();
+        t.join();
+        Assert.assertSame(a, other.get());
+
+        Resource b = pool.borrowObject();
+        Assert.assertNotSame(a, b);
+        Assert.assertEquals(2, pool.getNumActive());
+        Assert.assertEquals(0, pool.getNumIdle());
+    }
+
+
+    @Test
+    public void testWaiterGetsReturnedObject() throws Exception {
+        createPool(1);
+        Resource a = pool.borrowObject();
+
+        AtomicReference<Resource> waiter = new AtomicReference<>();
+        Thread t = new Thread(() -> {
+            try {
+                waiter.set(pool.borrowObject(Duration.ofSeconds(10)));
+            } catch (Exception e) {
+                // Ignore, checked below
+            }
+        });
+        t.start();
+        int count = 0;
+        while (pool.getNumWaiters() == 0 && count < 100) {
+            Thread.sleep(50);
+            count++;
+        }
+        Assert.assertEquals(1, pool.getNumWaiters());
+
+        pool.returnObject(a);
+        t.join(10000);
+        Assert.assertSame(a, waiter.get());
+        Assert.assertEquals(0, pool.getNumWaiters());
+    }
+
+
+    @Test(expected = NoSuchElementException.class)
+    public void testTimeout() throws Exception {
+        createPool(1);
+        pool.borrowObject();
+        pool.borrowObject(Duration.ofMillis(100));
+    }
+
+
+    @Test
+    public void testEviction() throws Exception {
+        createPool(4);
+        pool.setMinEvictableIdleDuration(Duration.ofMillis(1));
+        pool.setNumTestsPerEvictionRun(4);
+        Resource a = pool.borrowObject();
+        Resource b = pool.borrowObject();
+        pool.returnObject(a);
+        pool.returnObject(b);
+        Assert.assertEquals(2, pool.getNumIdle());
+
+        Thread.sleep(20);
+        pool.evict();
+
+        Assert.assertEquals(0, pool.getNumIdle());
+        Assert.assertEquals(2, pool.getDestroyedByEvictorCount());
+        Assert.assertNotSame(b, pool.borrowObject());
+    }
+
+
+    @Test
+    public void testConcurrentBorrowReturn() throws Exception {
+        createPool(4);
+        AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 20000; j++) {
+                    try {
+                        Resource r = pool.borrowObject(Duration.ofSeconds(10));
+                        if (!r.inUse.compareAndSet(false, true)) {
+                            failures.incrementAndGet();
+                        }
+                        r.inUse.set(false);
+                        pool.returnObject(r);
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(0, failures.get());
+        Assert.assertEquals(0, pool.getNumActive());
+        Assert.assertEquals(pool.getCreatedCount(), pool.getNumIdle());
+        Assert.assertTrue(pool.getCreatedCount() <= 4);
+    }
+
+
+    @Test
+    public void testLastAddedClaimedInPlace() throws Exception {
+        ConcurrentIdleObjectDeque<String> deque = new ConcurrentIdleObjectDeque<>(false);
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            // Each element added by this thread ends up between elements added by another thread
+            for (int i = 0; i < 200; i++) {
+                String first = "first-" + i;
+                String last = "last-" + i;
+                deque.addFirst("mine-" + i);
+                other.submit(() -> {
+                    deque.addFirst(first);
+                    deque.addLast(last);
+                }).get();
+                Assert.assertEquals("mine-" + i, deque.pollLastAdded());
+            }
+        } finally {
+            other.shutdown();
+        }
+        Assert.assertEquals(400, deque.size());
+        // The element has already been claimed
+        Assert.assertEquals("first-199", deque.pollLastAdded());
+
+        List<String> remaining = new ArrayList<>();
+        for (String s : deque) {
+            remaining.add(s);
+        }
+        Assert.assertEquals(399, remaining.size());
+        Assert.assertFalse(remaining.stream().anyMatch(s -> s.startsWith("mine-")));
+        Assert.assertTrue(deque.removeFirstOccurrence("last-0"));
+        Assert.assertFalse(deque.removeFirstOccurrence("last-0"));
+        Assert.assertEquals(398, deque.size());
+    }
+
+
+    private void createPool(int maxTotal) {
+        GenericObjectPoolConfig<Resource> config = new GenericObjectPoolConfig<>();
+        config.setJmxEnabled(false);
+        config.setThreadAffinity(true);
+        config.setMaxTotal(maxTotal);
+        config.setMaxIdle(maxTotal);
+        pool = new GenericObjectPool<>(new ResourceFactory(), config);
+        Assert.assertTrue(pool.getThreadAffinity());
+    }
+
+
+    private static class Resource {
+        private final AtomicBoolean inUse = new AtomicBoolean();
+    }
+
+
+    private static class ResourceFactory implements PooledObjectFactory<Resource> {
+
+        @Override
+        public void activateObject(PooledObject<Resource> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public void destroyObject(PooledObject<Resource> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public PooledObject<Resource> makeObject() throws Exception {
+            return new DefaultPooledObject<>(new Resource());
+        }
+
+        @Override
+        public void passivateObject(PooledObject<Resource> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Resource> p) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.dbcp.pool2.impl;
+
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+import org.junit.Test;
+
+import org.apache.tomcat.dbcp.pool2.PooledObject;
+import org.apache.tomcat.dbcp.pool2.PooledObjectFactory;
+import org.apache.tomcat.unittest.TesterThreadedPerformance;
+
+/*
+ * This is an absolute performance test. There is no benefit it running it as part of a standard test run so it is
+ * excluded due to the name starting Tester...
+ */
+public class TesterGenericObjectPoolPerformance {
+
+    private static final int MAX_TOTAL = 50;
+
+
+    @Test
+    public void testLinkedBlockingDeque() throws Exception {
+        doTest(false);
+    }
+
+
+    @Test
+    public void testThreadAffinity() throws Exception {
+        doTest(true);
+    }
+
+
+    private void doTest(boolean threadAffinity) throws Exception {
+        GenericObjectPoolConfig<Object> config = new GenericObjectPoolConfig<>();
+        config.setJmxEnabled(false);
+        config.setThreadAffinity(threadAffinity);
+        config.setMaxTotal(MAX_TOTAL);
+        config.setMaxIdle(MAX_TOTAL);
+        try (GenericObjectPool<Object> pool = new GenericObjectPool<>(new ObjectFactory(), config)) {
+            for (int threads : new int[] { 1, 4, 16, 50, 400 }) {
+                TesterThreadedPerformance test =
+                        new TesterThreadedPerformance(threads, 2000000 / threads, new TestInstanceSupplier(pool));
+                long duration = test.doTest();
+                System.out.println("threadAffinity=" + threadAffinity + ", " + threads + " threads completed in " +
+                        duration + "ns");
+            }
+        }
+    }
+
+
+    private static class TestInstanceSupplier implements Supplier<IntConsumer> {
+
+        private final GenericObjectPool<Object> pool;
+
+        TestInstanceSupplier(GenericObjectPool<Object> pool) {
+            this.pool = pool;
+        }
+
+
+        @Override
+        public IntConsumer get() {
+            return new TestInstance(pool);
+        }
+    }
+
+
+    private static class TestInstance implements IntConsumer {
+
+        private final GenericObjectPool<Object> pool;
+
+        TestInstance(GenericObjectPool<Object> pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void accept(int value) {
+            try {
+                Object o = pool.borrowObject();
+                pool.returnObject(o);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+
+    private static class ObjectFactory implements PooledObjectFactory<Object> {
+
+        @Override
+        public void activateObject(PooledObject<Object> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public void destroyObject(PooledObject<Object> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public PooledObject<Object> makeObject() throws Exception {
+            return new DefaultPooledObject<>(new Object());
+        }
+
+        @Override
+        public void passivateObject(PooledObject<Object> p) throws Exception {
+            // NO-OP
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Object> p) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.json;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.json.JSONReader.Event;
+
+public class TestJSONReader {
+
+    @Test
+    public void testEvents() throws Exception {
+        JSONReader reader = createReader(
+                " { \"a\" : [ 1, -2.5e3, \"x\", true, false, null ], \"b\" : { }, \"c\" : [ ] } ");
+        List<Event> events = new ArrayList<>();
+        while (reader.hasNext()) {
+            events.add(reader.next());
+        }
+        Assert.assertEquals(Arrays.asList(Event.START_OBJECT, Event.KEY_NAME, Event.START_ARRAY, Event.VALUE_NUMBER,
+                Event.VALUE_NUMBER, Event.VALUE_STRING, Event.VALUE_TRUE, Event.VALUE_FALSE, Event.VALUE_NULL,
+                Event.END_ARRAY, Event.KEY_NAME, Event.START_OBJECT, Event.END_OBJECT, Event.KEY_NAME,
+                Event.START_ARRAY, Event.END_ARRAY, Event.END_OBJECT), events);
+    }
+
+
+    @Test
+    public void testScalarDocument() throws Exception {
+        JSONReader reader = createReader("\"text\"");
+        Assert.assertEquals(Event.VALUE_STRING, reader.next());
+        Assert.assertEquals("text", reader.getString());
+        Assert.assertFalse(reader.hasNext());
+    }
+
+
+    @Test
+    public void testStrings() throws Exception {
+        doTestString("\"\"", "");
+        doTestString("\"abc\"", "abc");
+        doTestString("\"\\\"\\\\\\/\\b\\f\\n\\r\\t\"", "\"\\/\b\f\n\r\t");
+        doTestString("\"a\\u00e9\\u4E2Dz\"", "a\u00e9\u4e2dz");
+        doTestString("\"\\ud83d\\ude00\"", "\ud83d\ude00");
+        // Lone surrogates may be escaped
+        doTestString("\"\\ud800\"", "\ud800");
+        // Multi-byte UTF-8 with and without escapes
+        doTestString("\"\u00e9\u4e2d\ud83d\ude00\"", "\u00e9\u4e2d\ud83d\ude00");
+        doTestString("\"\u00e9\\n\u4e2d\\n\ud83d\ude00\"", "\u00e9\n\u4e2d\n\ud83d\ude00");
+    }
+
+
+    @Test
+    public void testIsString() throws Exception {
+        JSONReader reader = createReader("{\"name\":\"caf\u00e9\",\"na\\u006de\":\"x\"}");
+        reader.next();
+        Assert.assertEquals(Event.KEY_NAME, reader.next());
+        Assert.assertTrue(reader.isString("name"));
+        Assert.assertFalse(reader.isString("nam"));
+        Assert.assertFalse(reader.isString("names"));
+        Assert.assertEquals(Event.VALUE_STRING, reader.next());
+        Assert.assertTrue(reader.isString("caf\u00e9"));
+        Assert.assertEquals(Event.KEY_NAME, reader.next());
+        Assert.assertTrue(reader.isString("name"));
+    }
+
+
+    @Test
+    public void testNumbers() throws Exception {
+        JSONReader reader = createReader(
+                "[0, -0, 123, -9223372036854775808, 9223372036854775807, 1.5, 1e2, -1.25E-2, 12345678901234567890]");
+        reader.next();
+        Assert.assertEquals(0, nextLong(reader));
+        Assert.assertEquals(0, nextLong(reader));
+        Assert.assertEquals(123, nextLong(reader));
+        Assert.assertEquals(Long.MIN_VALUE, nextLong(reader));
+        Assert.assertEquals(Long.MAX_VALUE, nextLong(reader));
+        reader.next();
+        Assert.assertFalse(reader.isIntegralNumber());
+        Assert.assertEquals(1.5, reader.getDouble(), 0);
+        reader.next();
+        Assert.assertFalse(reader.isIntegralNumber());
+        Assert.assertEquals(100, reader.getLong());
+        reader.next();
+        Assert.assertEquals(new BigDecimal("-0.0125"), reader.getBigDecimal());
+        Assert.assertEquals("-1.25E-2", reader.getString());
+        reader.next();
+        Assert.assertTrue(reader.isIntegralNumber());
+        Assert.assertThrows(ArithmeticException.class, reader::getLong);
+    }
+
+
+    @Test
+    public void testReadValue() throws Exception {
+        String json = "{\"a\":[1,2.5,\"x\",true,null],\"b\":{\"c\":false}}";
+        JSONReader reader = createReader(json);
+        Object value = reader.readValue();
+        Assert.assertFalse(reader.hasNext());
+        Assert.assertEquals(new JSONParser(json).parse(), value);
+
+        Map<String,Object> expected = new LinkedHashMap<>();
+        expected.put("a", Arrays.asList(Long.valueOf(1), Double.valueOf(2.5), "x", Boolean.TRUE, null));
+        expected.put("b", Map.of("c", Boolean.FALSE));
+        reader = createReader(json);
+        reader.setNativeNumbers(true);
+        Assert.assertEquals(expected, reader.readValue());
+        Assert.assertEquals(BigInteger.ONE, createReader("1").readValue());
+    }
+
+
+    @Test
+    public void testSkipValue() throws Exception {
+        JSONReader reader = createReader("{\"a\":{\"b\":[1,{\"c\":[]}]},\"d\":\"e\"}");
+        reader.next();
+        reader.next();
+        reader.skipValue();
+        Assert.assertEquals(Event.KEY_NAME, reader.next());
+        Assert.assertEquals("d", reader.getString());
+        reader.skipValue();
+        Assert.assertEquals(Event.END_OBJECT, reader.next());
+        Assert.assertFalse(reader.hasNext());
+    }
+
+
+    @Test
+    public void testInputs() throws Exception {
+        byte[] bytes = "xx[\"a\"]xx".getBytes(StandardCharsets.UTF_8);
+
+        ByteChunk chunk = new ByteChunk();
+        chunk.setBytes(bytes, 2, 5);
+        Assert.assertEquals(List.of("a"), new JSONReader(chunk).readValue());
+
+        ByteBuffer heap = ByteBuffer.wrap(bytes, 2, 5).slice();
+        Assert.assertEquals(List.of("a"), new JSONReader(heap).readValue());
+        Assert.assertEquals(0, heap.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).position(2).limit(7);
+        Assert.assertEquals(List.of("a"), new JSONReader(direct).readValue());
+        Assert.assertEquals(2, direct.position());
+    }
+
+
+    @Test
+    public void testInvalid() {
+        String[] invalid = { "", " ", "{", "[", "[1", "[1,]", "{\"a\":1,}", "{\"a\" 1}", "{1:2}", "[1 2]", "01", "1.",
+                "1e", "-", "+1", ".5", "tru", "nul", "True", "\"a", "\"\\x\"", "\"\\u12\"", "\"\\u12g4\"",
+                "\"a\tb\"", "[1]]", "{}x", "1 2", "[}", "{]", "'a'" };
+        for (String json : invalid) {
+            assertInvalid(json.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+
+    @Test
+    public void testMaxDepth() throws ParseException {
+        JSONReader reader = createReader("[[[1]]]");
+        reader.setMaxDepth(3);
+        Assert.assertEquals(List.of(List.of(List.of(BigInteger.ONE))), reader.readValue());
+
+        reader = createReader("[[[1]]]");
+        reader.setMaxDepth(2);
+        try {
+            reader.readValue();
+            Assert.fail();
+        } catch (ParseException expected) {
+            // Expected
+        }
+
+        // The default limit stops deeply nested input long before the stack overflows
+        reader = createReader("[".repeat(100_000) + "]".repeat(100_000));
+        try {
+            reader.readValue();
+            Assert.fail();
+        } catch (ParseException expected) {
+            // Expected
+        }
+    }
+
+
+    @Test
+    public void testInvalidUtf8() {
+        // Truncated sequence, unexpected continuation byte, overlong encoding, surrogate, code point beyond U+10FFFF
+        byte[][] invalid = { { '"', (byte) 0xC3 }, { '"', (byte) 0x80, '"' }, { '"', (byte) 0xC0, (byte) 0xAF, '"' },
+                { '"', (byte) 0xE0, (byte) 0x80, (byte) 0xAF, '"' },
+                { '"', (byte) 0xED, (byte) 0xA0, (byte) 0x80, '"' },
+                { '"', (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80, '"' },
+                { '"', (byte) 0xE4, (byte) 0xB8, 'x', '"' } };
+        for (byte[] json : invalid) {
+            assertInvalid(json);
+        }
+    }
+
+
+    private static void doTestString(String json, String expected) throws ParseException {
+        JSONReader reader = createReader(json);
+        Assert.assertEquals(Event.VALUE_STRING, reader.next());
+        Assert.assertEquals(expected, reader.getString());
+        Assert.assertTrue(reader.isString(expected));
+    }
+
+
+    private static long nextLong(JSONReader reader) throws ParseException {
+        Assert.assertEquals(Event.VALUE_NUMBER, reader.next());
+        Assert.assertTrue(reader.isIntegralNumber());
+        return reader.getLong();
+    }
+
+
+    private static void assertInvalid(byte[] json) {
+        JSONReader reader = new JSONReader(json, 0, json.length);
+        try {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+            Assert.fail(new String(json, StandardCharsets.ISO_8859_1));
+        } catch (ParseException expected) {
+            // Expected
+        }
+    }
+
+
+    private static JSONReader createReader(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return new JSONReader(bytes, 0, bytes.length);
+    }
+}
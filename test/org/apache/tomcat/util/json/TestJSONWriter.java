@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.ByteChunk.ByteOutputChannel;
+
+public class TestJSONWriter {
+
+    @Test
+    public void testCompact() throws Exception {
+        ByteChunk out = new ByteChunk();
+        JSONWriter writer = new JSONWriter(out);
+        writeDocument(writer);
+        Assert.assertEquals("{\"a\":[1,-2,9223372036854775807,-9223372036854775808,true,false,null,\"x\"],\"b\":{}," +
+                "\"c\":[],\"d\":null}", toString(out));
+    }
+
+
+    @Test
+    public void testPretty() throws Exception {
+        ByteChunk out = new ByteChunk();
+        JSONWriter writer = new JSONWriter(out, true);
+        writeDocument(writer);
+        Assert.assertEquals("{\n  \"a\": [\n    1,\n    -2,\n    9223372036854775807,\n    -9223372036854775808,\n" +
+                "    true,\n    false,\n    null,\n    \"x\"\n  ],\n  \"b\": {},\n  \"c\": [],\n  \"d\": null\n}",
+                toString(out));
+    }
+
+
+    @Test
+    public void testStrings() throws Exception {
+        doTestString("", "\"\"");
+        doTestString("abc", "\"abc\"");
+        doTestString("\"\\/\b\f\n\r\t\u0001\u001f", "\"\\\"\\\\/\\b\\f\\n\\r\\t\\u0001\\u001f\"");
+        doTestString("\u007f\u0080\u00e9\u07ff\u0800\u4e2d\uffff", "\"\u007f\u0080\u00e9\u07ff\u0800\u4e2d\uffff\"");
+        doTestString("\ud83d\ude00", "\"\ud83d\ude00\"");
+        // Lone surrogates are escaped
+        doTestString("a\ud800b\udc00", "\"a\\ud800b\\udc00\"");
+        doTestString("\ud83d", "\"\\ud83d\"");
+    }
+
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        // Long enough to require the internal buffer to be flushed several times
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append((char) (i * 67 % 0xD800));
+        }
+        sb.append("\ud83d\ude00");
+        String text = sb.toString();
+
+        ByteChunk out = new ByteChunk();
+        JSONWriter writer = new JSONWriter(out);
+        writer.startObject();
+        writer.name(text);
+        writer.value(text);
+        writer.endObject();
+
+        JSONReader reader = new JSONReader(out);
+        Map<String,Object> expected = new LinkedHashMap<>();
+        expected.put(text, text);
+        Assert.assertEquals(expected, reader.readValue());
+    }
+
+
+    @Test
+    public void testOutputChannel() throws Exception {
+        ByteChunk written = new ByteChunk();
+        ByteChunk out = new ByteChunk();
+        out.allocate(16, 16);
+        out.setByteOutputChannel(new ByteOutputChannel() {
+            @Override
+            public void realWriteBytes(byte[] buf, int off, int len) throws IOException {
+                written.append(buf, off, len);
+            }
+
+            @Override
+            public void realWriteBytes(ByteBuffer from) throws IOException {
+                written.append(from);
+            }
+        });
+        JSONWriter writer = new JSONWriter(out);
+        writer.startArray();
+        for (int i = 0; i < 100; i++) {
+            writer.value("value-" + i);
+        }
+        writer.endArray();
+        out.flushBuffer();
+
+        JSONReader reader = new JSONReader(written);
+        Object[] expected = new Object[100];
+        for (int i = 0; i < 100; i++) {
+            expected[i] = "value-" + i;
+        }
+        Assert.assertEquals(Arrays.asList(expected), reader.readValue());
+    }
+
+
+    @Test
+    public void testInvalidState() throws Exception {
+        JSONWriter writer = new JSONWriter(new ByteChunk());
+        Assert.assertThrows(IllegalStateException.class, () -> writer.name("a"));
+        Assert.assertThrows(IllegalStateException.class, writer::endObject);
+        writer.startObject();
+        Assert.assertThrows(IllegalStateException.class, () -> writer.value("a"));
+        Assert.assertThrows(IllegalStateException.class, writer::endArray);
+        writer.name("a");
+        Assert.assertThrows(IllegalStateException.class, () -> writer.name("b"));
+        Assert.assertThrows(IllegalStateException.class, writer::endObject);
+        writer.startArray();
+        Assert.assertThrows(IllegalStateException.class, () -> writer.name("b"));
+        writer.endArray();
+        writer.endObject();
+        Assert.assertThrows(IllegalStateException.class, writer::nullValue);
+    }
+
+
+    private static void writeDocument(JSONWriter writer) throws IOException {
+        writer.startObject();
+        writer.name("a");
+        writer.startArray();
+        writer.value(1);
+        writer.value(-2);
+        writer.value(Long.MAX_VALUE);
+        writer.value(Long.MIN_VALUE);
+        writer.value(true);
+        writer.value(false);
+        writer.nullValue();
+        writer.value("x");
+        writer.endArray();
+        writer.name("b");
+        writer.startObject();
+        writer.endObject();
+        writer.name("c");
+        writer.startArray();
+        writer.endArray();
+        writer.name("d");
+        writer.value((String) null);
+        writer.endObject();
+    }
+
+
+    private static void doTestString(String value, String expected) throws IOException {
+        ByteChunk out = new ByteChunk();
+        new JSONWriter(out).value(value);
+        Assert.assertEquals(expected, toString(out));
+    }
+
+
+    private static String toString(ByteChunk out) {
+        return new String(out.getBuffer(), out.getStart(), out.getLength(), StandardCharsets.UTF_8);
+    }
+}
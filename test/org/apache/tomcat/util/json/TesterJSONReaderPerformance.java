@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.util.buf.ByteChunk;
+
+/**
+ * Compares parsing a UTF-8 encoded document with {@link JSONReader} and with the JavaCC generated {@link JSONParser}.
+ */
+public class TesterJSONReaderPerformance {
+
+    private static final int ITERATIONS = 20000;
+
+
+    @Test
+    public void testParse() throws Exception {
+        ByteChunk document = createDocument();
+        System.out.println("Document size: [" + document.getLength() + "] bytes");
+
+        // Warm up
+        doTestJSONParser(document, ITERATIONS / 10);
+        doTestJSONReader(document, ITERATIONS / 10);
+        doTestJSONReaderEvents(document, ITERATIONS / 10);
+
+        long parserTime = doTestJSONParser(document, ITERATIONS);
+        long readerTime = doTestJSONReader(document, ITERATIONS);
+        long eventsTime = doTestJSONReaderEvents(document, ITERATIONS);
+
+        System.out.println("JSONParser:          [" + parserTime / 1000000 + "] ms");
+        System.out.println("JSONReader (values): [" + readerTime / 1000000 + "] ms");
+        System.out.println("JSONReader (events): [" + eventsTime / 1000000 + "] ms");
+
+        Assert.assertTrue("JSONParser was faster than JSONReader", readerTime < parserTime);
+    }
+
+
+    private long doTestJSONParser(ByteChunk document, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Reader reader = new InputStreamReader(
+                    new ByteArrayInputStream(document.getBuffer(), document.getStart(), document.getLength()),
+                    StandardCharsets.UTF_8);
+            Assert.assertNotNull(new JSONParser(reader).parse());
+        }
+        return System.nanoTime() - start;
+    }
+
+
+    private long doTestJSONReader(ByteChunk document, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Assert.assertNotNull(new JSONReader(document).readValue());
+        }
+        return System.nanoTime() - start;
+    }
+
+
+    /*
+     * Typical streaming use: look for the values of interest and skip everything else.
+     */
+    private long doTestJSONReaderEvents(ByteChunk document, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            JSONReader reader = new JSONReader(document);
+            int names = 0;
+            while (reader.hasNext()) {
+                if (reader.next() == JSONReader.Event.KEY_NAME && reader.isString("name")) {
+                    reader.next();
+                    names++;
+                }
+            }
+            Assert.assertEquals(100, names);
+        }
+        return System.nanoTime() - start;
+    }
+
+
+    /*
+     * Similar in structure to the pod list returned by the Kubernetes API.
+     */
+    private static ByteChunk createDocument() throws Exception {
+        ByteChunk document = new ByteChunk();
+        JSONWriter writer = new JSONWriter(document);
+        writer.startObject();
+        writer.name("kind");
+        writer.value("PodList");
+        writer.name("items");
+        writer.startArray();
+        for (int i = 0; i < 50; i++) {
+            writer.startObject();
+            writer.name("metadata");
+            writer.startObject();
+            writer.name("name");
+            writer.value("tomcat-" + i);
+            writer.name("uid");
+            writer.value("8d0c4b3e-" + i + "-4f6a-9a6e-\u00e9t\u00e9");
+            writer.name("creationTimestamp");
+            writer.value("2024-01-01T00:00:00Z");
+            writer.name("generation");
+            writer.value(i * 1000L);
+            writer.endObject();
+            writer.name("status");
+            writer.startObject();
+            writer.name("phase");
+            writer.value("Running");
+            writer.name("podIP");
+            writer.value("10.0.0." + i);
+            writer.name("ready");
+            writer.value(true);
+            writer.name("containers");
+            writer.startArray();
+            writer.startObject();
+            writer.name("name");
+            writer.value("tomcat\n\"main\"");
+            writer.name("restartCount");
+            writer.value(i % 3);
+            writer.endObject();
+            writer.endArray();
+            writer.endObject();
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+        return document;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.coyote.AbstractProtocol;
+
+/**
+ * Tests for the NIO connector when each connection is served by its own virtual thread.
+ */
+public class TestNioEndpointVirtualThreadPerConnection extends TomcatBaseTest {
+
+    private static final String REQUEST = "GET /thread HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    private NioEndpoint endpoint;
+
+
+    @Before
+    public void setUpVirtualThreadPerConnection() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Connector connector = tomcat.getConnector();
+        Assume.assumeTrue(connector.getProtocolHandlerClassName().contains("Http11NioProtocol"));
+        Assert.assertTrue(connector.setProperty("useVirtualThreadPerConnection", "true"));
+        Assert.assertTrue(connector.setProperty("maxConnections", "-1"));
+        Assert.assertTrue(connector.setProperty("keepAliveTimeout", "2000"));
+
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "thread", new ThreadServlet());
+        ctx.addServletMapping("/thread", "thread");
+        Tomcat.addServlet(ctx, "async", new AsyncServlet()).setAsyncSupported(true);
+        ctx.addServletMapping("/async", "async");
+        Tomcat.addServlet(ctx, "nonblocking", new NonBlockingWriteServlet()).setAsyncSupported(true);
+        ctx.addServletMapping("/nonblocking", "nonblocking");
+
+        tomcat.start();
+        Method getEndpoint = AbstractProtocol.class.getDeclaredMethod("getEndpoint");
+        getEndpoint.setAccessible(true);
+        endpoint = (NioEndpoint) getEndpoint.invoke(connector.getProtocolHandler());
+    }
+
+
+    @Test
+    public void testKeepAlive() throws Exception {
+        try (Socket socket = new Socket("localhost", getPort())) {
+            OutputStream os = socket.getOutputStream();
+            InputStream is = socket.getInputStream();
+            String first = null;
+            for (int i = 0; i < 3; i++) {
+                os.write(REQUEST.getBytes(StandardCharsets.ISO_8859_1));
+                os.flush();
+                String body = readResponseBody(is);
+                Assert.assertTrue(body, body.startsWith("virtual "));
+                // The same thread serves every request on the connection
+                if (first == null) {
+                    first = body;
+                } else {
+                    Assert.assertEquals(first, body);
+                }
+            }
+            waitForKeepAliveCount(1);
+        }
+    }
+
+
+    @Test
+    public void testPipelining() throws Exception {
+        try (Socket socket = new Socket("localhost", getPort())) {
+            OutputStream os = socket.getOutputStream();
+            os.write((REQUEST + REQUEST).getBytes(StandardCharsets.ISO_8859_1));
+            os.flush();
+            InputStream is = socket.getInputStream();
+            Assert.assertTrue(readResponseBody(is).startsWith("virtual "));
+            Assert.assertTrue(readResponseBody(is).startsWith("virtual "));
+        }
+    }
+
+
+    @Test
+    public void testKeepAliveTimeout() throws Exception {
+        try (Socket socket = new Socket("localhost", getPort())) {
+            socket.setSoTimeout(10000);
+            OutputStream os = socket.getOutputStream();
+            os.write(REQUEST.getBytes(StandardCharsets.ISO_8859_1));
+            os.flush();
+            InputStream is = socket.getInputStream();
+            readResponseBody(is);
+            long start = System.nanoTime();
+            // The server closes the connection once the keep-alive timeout expires
+            Assert.assertEquals(-1, is.read());
+            long elapsedMillis = (System.nanoTime() - start) / 1000000;
+            Assert.assertTrue(Long.toString(elapsedMillis), elapsedMillis >= 1500);
+        }
+        waitForKeepAliveCount(0);
+    }
+
+
+    @Test
+    public void testAsync() throws Exception {
+        try (Socket socket = new Socket("localhost", getPort())) {
+            OutputStream os = socket.getOutputStream();
+            InputStream is = socket.getInputStream();
+            for (int i = 0; i < 2; i++) {
+                os.write("GET /async HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                os.flush();
+                Assert.assertEquals("async", readResponseBody(is));
+            }
+        }
+    }
+
+
+    @Test
+    public void testNonBlockingWrite() throws Exception {
+        try (Socket socket = new Socket("localhost", getPort())) {
+            OutputStream os = socket.getOutputStream();
+            os.write("GET /nonblocking HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            os.flush();
+            InputStream is = socket.getInputStream();
+            // Give the server time to fill the socket buffers
+            Thread.sleep(500);
+            String body = readResponseBody(is);
+            Assert.assertEquals(NonBlockingWriteServlet.CHUNKS * NonBlockingWriteServlet.CHUNK_SIZE, body.length());
+        }
+    }
+
+
+    private void waitForKeepAliveCount(int expected) throws InterruptedException {
+        int count = 0;
+        while (endpoint.getKeepAliveCount() != expected && count < 100) {
+            Thread.sleep(50);
+            count++;
+        }
+        Assert.assertEquals(expected, endpoint.getKeepAliveCount());
+    }
+
+
+    /*
+     * Reads the response headers and the body of a response that uses a content length or chunked encoding.
+     */
+    private static String readResponseBody(InputStream is) throws IOException {
+        int contentLength = -1;
+        boolean chunked = false;
+        String line = readLine(is);
+        Assert.assertTrue(line, line.startsWith("HTTP/1.1 200"));
+        while (!(line = readLine(is)).isEmpty()) {
+            String lower = line.toLowerCase();
+            if (lower.startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            } else if (lower.startsWith("transfer-encoding:") && lower.contains("chunked")) {
+                chunked = true;
+            }
+        }
+        StringBuilder body = new StringBuilder();
+        if (chunked) {
+            int size;
+            while ((size = Integer.parseInt(readLine(is).trim(), 16)) > 0) {
+                body.append(new String(is.readNBytes(size), StandardCharsets.ISO_8859_1));
+                readLine(is);
+            }
+            readLine(is);
+        } else {
+            body.append(new String(is.readNBytes(contentLength), StandardCharsets.ISO_8859_1));
+        }
+        return body.toString();
+    }
+
+
+    private static String readLine(InputStream is) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int b;
+        while ((b = is.read()) != '\n') {
+            if (b == -1) {
+                throw new IOException("Unexpected end of stream");
+            }
+            if (b != '\r') {
+                sb.append((char) b);
+            }
+        }
+        return sb.toString();
+    }
+
+
+    private static class ThreadServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/plain");
+            Thread t = Thread.currentThread();
+            String body = (t.isVirtual() ? "virtual " : "platform ") + t.getName();
+            resp.setContentLength(body.length());
+            PrintWriter pw = resp.getWriter();
+            pw.print(body);
+        }
+    }
+
+
+    private static class AsyncServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            AsyncContext ac = req.startAsync();
+            Thread t = new Thread(() -> {
+                try {
+                    Thread.sleep(100);
+                    resp.setContentType("text/plain");
+                    resp.setContentLength(5);
+                    resp.getWriter().print("async");
+                } catch (Exception e) {
+                    // Ignore, the test checks the response
+                }
+                ac.complete();
+            });
+            t.start();
+        }
+    }
+
+
+    private static class NonBlockingWriteServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int CHUNKS = 256;
+        private static final int CHUNK_SIZE = 8192;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            AsyncContext ac = req.startAsync();
+            resp.setContentType("text/plain");
+            ServletOutputStream sos = resp.getOutputStream();
+            byte[] chunk = new byte[CHUNK_SIZE];
+            Arrays.fill(chunk, (byte) 'x');
+            sos.setWriteListener(new WriteListener() {
+
+                private int written = 0;
+
+                @Override
+                public void onWritePossible() throws IOException {
+                    while (sos.isReady()) {
+                        if (written == CHUNKS) {
+                            ac.complete();
+                            return;
+                        }
+                        sos.write(chunk);
+                        written++;
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    ac.complete();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+
+/*
+ * Compares the poller plus executor model of the NIO connector with a virtual thread per connection while a large
+ * number of idle keep-alive connections are open. The number of idle connections defaults to 50,000 and may be set
+ * with the system property tester.idleConnections. The client and the server both need a file descriptor per
+ * connection so the limit for open files must be set accordingly (ulimit -n).
+ *
+ * This test is excluded from the standard test run due to the name starting Tester...
+ */
+public class TesterNioEndpointVirtualThreadPerConnectionPerformance extends TomcatBaseTest {
+
+    private static final int IDLE_CONNECTIONS = Integer.getInteger("tester.idleConnections", 50000).intValue();
+    private static final int ACTIVE_CONNECTIONS = 16;
+    private static final int REQUESTS_PER_CONNECTION = 2000;
+
+    private static final byte[] REQUEST =
+            "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+
+    @Test
+    public void testPoller() throws Exception {
+        doTest(false);
+    }
+
+
+    @Test
+    public void testVirtualThreadPerConnection() throws Exception {
+        doTest(true);
+    }
+
+
+    private void doTest(boolean virtualThreadPerConnection) throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Connector connector = tomcat.getConnector();
+        Assume.assumeTrue(connector.getProtocolHandlerClassName().contains("Http11NioProtocol"));
+        Assert.assertTrue(connector.setProperty("useVirtualThreadPerConnection",
+                Boolean.toString(virtualThreadPerConnection)));
+        Assert.assertTrue(connector.setProperty("maxConnections", "-1"));
+        Assert.assertTrue(connector.setProperty("acceptCount", "10000"));
+        Assert.assertTrue(connector.setProperty("keepAliveTimeout", "600000"));
+        Assert.assertTrue(connector.setProperty("maxKeepAliveRequests", "-1"));
+
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "ok", new OkServlet());
+        ctx.addServletMapping("/", "ok");
+        tomcat.start();
+
+        InetSocketAddress address = new InetSocketAddress("localhost", getPort());
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        long heapBefore = usedHeap();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        // Open the idle connections. Each one serves a single request so it is in keep-alive when measured.
+        List<SocketChannel> idle = new ArrayList<>(IDLE_CONNECTIONS);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < IDLE_CONNECTIONS; i++) {
+                SocketChannel sc = SocketChannel.open(address);
+                idle.add(sc);
+                request(sc, buffer);
+            }
+            long openMillis = (System.nanoTime() - start) / 1000000;
+
+            long heapIdle = usedHeap();
+            int threadsIdle = ManagementFactory.getThreadMXBean().getThreadCount();
+
+            // Serve requests on a few active connections while the idle connections remain open
+            long[] latencies = new long[ACTIVE_CONNECTIONS * REQUESTS_PER_CONNECTION];
+            Thread[] clients = new Thread[ACTIVE_CONNECTIONS];
+            for (int i = 0; i < ACTIVE_CONNECTIONS; i++) {
+                final int offset = i * REQUESTS_PER_CONNECTION;
+                clients[i] = new Thread(() -> {
+                    ByteBuffer clientBuffer = ByteBuffer.allocate(1024);
+                    try (SocketChannel sc = SocketChannel.open(address)) {
+                        for (int j = 0; j < REQUESTS_PER_CONNECTION; j++) {
+                            long requestStart = System.nanoTime();
+                            request(sc, clientBuffer);
+                            latencies[offset + j] = System.nanoTime() - requestStart;
+                        }
+                    } catch (IOException ioe) {
+                        ioe.printStackTrace();
+                    }
+                });
+            }
+            start = System.nanoTime();
+            for (Thread client : clients) {
+                client.start();
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            long activeNanos = System.nanoTime() - start;
+            Arrays.sort(latencies);
+
+            System.out.println((virtualThreadPerConnection ? "Virtual thread per connection" : "Poller and executor") +
+                    ": " + IDLE_CONNECTIONS + " idle connections opened in " + openMillis + "ms, heap delta " +
+                    ((heapIdle - heapBefore) / (1024 * 1024)) + "MB, platform thread delta " +
+                    (threadsIdle - threadsBefore) + ", active throughput " +
+                    (latencies.length * 1000000000L / activeNanos) + " req/s, latency p50 " +
+                    latencies[latencies.length / 2] / 1000 + "us p99 " +
+                    latencies[latencies.length * 99 / 100] / 1000 + "us");
+        } finally {
+            for (SocketChannel sc : idle) {
+                sc.close();
+            }
+        }
+    }
+
+
+    private static void request(SocketChannel sc, ByteBuffer buffer) throws IOException {
+        sc.write(ByteBuffer.wrap(REQUEST));
+        buffer.clear();
+        // The response is small and ends with the two byte body
+        while (true) {
+            if (sc.read(buffer) < 0) {
+                throw new IOException("Unexpected end of stream");
+            }
+            int pos = buffer.position();
+            if (pos >= 6 && buffer.get(pos - 2) == 'O' && buffer.get(pos - 1) == 'K' && buffer.get(pos - 3) == '\n') {
+                return;
+            }
+        }
+    }
+
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+
+    private static class OkServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/plain");
+            resp.setContentLength(2);
+            resp.getOutputStream().write(new byte[] { 'O', 'K' });
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestWorkStealingThreadPoolExecutor {
+
+    private WorkStealingThreadPoolExecutor executor;
+
+
+    @After
+    public void tearDown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdownNow();
+            Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+
+    @Test
+    public void testCoreThreadsStarted() {
+        executor = create(4, 10, Integer.MAX_VALUE);
+        Assert.assertEquals(4, executor.getPoolSize());
+        Assert.assertEquals(10, executor.getMaxThreads());
+    }
+
+
+    @Test
+    public void testThreadsStartedBeforeQueueing() throws Exception {
+        executor = create(1, 4, Integer.MAX_VALUE);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(new BlockingTask(started, release));
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(4, executor.getPoolSize());
+        Assert.assertEquals(4, executor.getActiveCount());
+        Assert.assertEquals(0, executor.getQueueSize());
+
+        // All threads are busy and the maximum has been reached so the next task is queued
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(ran::countDown);
+        Assert.assertEquals(4, executor.getPoolSize());
+        Assert.assertEquals(1, executor.getQueueSize());
+        Assert.assertFalse(ran.await(100, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        Assert.assertTrue(ran.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, executor.getQueueSize());
+    }
+
+
+    @Test
+    public void testQueueFull() throws Exception {
+        executor = create(0, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(new BlockingTask(started, release));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        executor.execute(() -> {});
+        try {
+            executor.execute(() -> {});
+            Assert.fail();
+        } catch (RejectedExecutionException expected) {
+            // Expected
+        }
+
+        Assert.assertTrue(executor.resizeQueue(2));
+        executor.execute(() -> {});
+        Assert.assertEquals(2, executor.getQueueSize());
+        release.countDown();
+    }
+
+
+    @Test
+    public void testIdleThreadsExit() throws Exception {
+        executor = new WorkStealingThreadPoolExecutor(1, 8, 100, TimeUnit.MILLISECONDS,
+                new TaskThreadFactory("test-", true, Thread.NORM_PRIORITY));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(new BlockingTask(started, release));
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(8, executor.getPoolSize());
+        release.countDown();
+
+        int count = 0;
+        while (executor.getPoolSize() > 1 && count < 100) {
+            Thread.sleep(50);
+            count++;
+        }
+        Assert.assertEquals(1, executor.getPoolSize());
+        Assert.assertEquals(8, executor.getLargestPoolSize());
+    }
+
+
+    @Test
+    public void testTasksSubmittedByWorkers() throws Exception {
+        executor = create(4, 4, Integer.MAX_VALUE);
+        int fanOut = 1000;
+        int parents = 100;
+        CountDownLatch done = new CountDownLatch(fanOut * parents);
+        AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < parents; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < fanOut; j++) {
+                    executor.execute(() -> {
+                        count.incrementAndGet();
+                        done.countDown();
+                    });
+                }
+            });
+        }
+        Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(fanOut * parents, count.get());
+
+        int wait = 0;
+        while (executor.getCompletedTaskCount() < fanOut * parents + parents && wait < 100) {
+            Thread.sleep(50);
+            wait++;
+        }
+        Assert.assertEquals(fanOut * parents + parents, executor.getCompletedTaskCount());
+        Assert.assertEquals(0, executor.getSubmittedCount());
+    }
+
+
+    @Test
+    public void testWorkStolenFromBlockedWorker() throws Exception {
+        executor = create(2, 2, Integer.MAX_VALUE);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(1);
+        executor.execute(() -> {
+            // Queued in the deque of this worker which then blocks so the other worker has to steal the task
+            executor.execute(ran::countDown);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+        });
+        Assert.assertTrue(ran.await(10, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+
+    @Test
+    public void testResizePool() throws Exception {
+        executor = create(2, 4, Integer.MAX_VALUE);
+        Assert.assertTrue(executor.resizePool(6, 8));
+        Assert.assertEquals(6, executor.getPoolSize());
+        Assert.assertEquals(8, executor.getMaxThreads());
+        Assert.assertFalse(executor.resizePool(4, 2));
+
+        executor.setKeepAliveTime(10, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(executor.resizePool(1, 1));
+        int count = 0;
+        while (executor.getPoolSize() > 1 && count < 100) {
+            Thread.sleep(50);
+            count++;
+        }
+        Assert.assertEquals(1, executor.getPoolSize());
+    }
+
+
+    @Test
+    public void testShutdownNow() throws Exception {
+        executor = create(1, 1, Integer.MAX_VALUE);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(new BlockingTask(started, release));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        executor.execute(() -> {});
+        executor.execute(() -> {});
+
+        List<Runnable> pending = executor.shutdownNow();
+        Assert.assertEquals(2, pending.size());
+        Assert.assertTrue(executor.isShutdown());
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.isTerminated());
+        Assert.assertEquals(0, executor.getPoolSize());
+        try {
+            executor.execute(() -> {});
+            Assert.fail();
+        } catch (RejectedExecutionException expected) {
+            // Expected
+        }
+    }
+
+
+    @Test
+    public void testShutdownRunsQueuedTasks() throws Exception {
+        executor = create(1, 1, Integer.MAX_VALUE);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(new BlockingTask(started, release));
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            executor.execute(count::incrementAndGet);
+        }
+        executor.shutdown();
+        Assert.assertFalse(executor.isTerminated());
+        release.countDown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(10, count.get());
+    }
+
+
+    @Test
+    public void testThreadRenewal() throws Exception {
+        executor = create(2, 2, Integer.MAX_VALUE);
+        executor.setThreadRenewalDelay(0);
+        Set<Thread> original = runOnAllThreads(2);
+
+        // Creation time has a resolution of one millisecond
+        Thread.sleep(10);
+        executor.contextStopping();
+        Thread.sleep(10);
+
+        // Each thread is renewed after it next completes a task. Only one thread is renewed per millisecond.
+        for (int i = 0; i < 5; i++) {
+            runOnAllThreads(2);
+            Thread.sleep(10);
+        }
+
+        Set<Thread> renewed = runOnAllThreads(2);
+        for (Thread t : original) {
+            Assert.assertFalse(renewed.contains(t));
+            t.join(10000);
+            Assert.assertFalse(t.isAlive());
+        }
+        Assert.assertEquals(2, executor.getPoolSize());
+    }
+
+
+    /*
+     * Runs a task on each of the threads by blocking them all at the same time.
+     */
+    private Set<Thread> runOnAllThreads(int count) throws InterruptedException {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(count);
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            executor.execute(() -> {
+                threads.add(Thread.currentThread());
+                new BlockingTask(started, release).run();
+                done.countDown();
+            });
+        }
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        release.countDown();
+        Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(count, threads.size());
+        return threads;
+    }
+
+
+    private static WorkStealingThreadPoolExecutor create(int core, int max, int queueCapacity) {
+        return new WorkStealingThreadPoolExecutor(core, max, 60, TimeUnit.SECONDS, queueCapacity,
+                new TaskThreadFactory("test-", true, Thread.NORM_PRIORITY));
+    }
+
+
+    private static class BlockingTask implements Runnable {
+
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        BlockingTask(CountDownLatch started, CountDownLatch release) {
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public void run() {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+        }
+    }
+}
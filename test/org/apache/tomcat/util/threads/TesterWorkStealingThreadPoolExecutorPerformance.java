@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/*
+ * Compares the throughput of ThreadPoolExecutor with TaskQueue, as used by the connectors, with
+ * WorkStealingThreadPoolExecutor for short tasks. The differences are only significant on hosts with many cores. The
+ * number of threads defaults to twice the number of available processors and may be set with the system property
+ * tester.threads. The number of threads submitting tasks from outside the pool defaults to the number of available
+ * processors and may be set with tester.producers.
+ *
+ * This test is excluded from the standard test run due to the name starting Tester...
+ */
+public class TesterWorkStealingThreadPoolExecutorPerformance {
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    private static final int THREADS = Integer.getInteger("tester.threads", CORES * 2).intValue();
+    private static final int PRODUCERS = Integer.getInteger("tester.producers", CORES).intValue();
+    private static final int TASKS = 2000000;
+    private static final int ITERATIONS = 5;
+
+
+    @Test
+    public void testExternalSubmission() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            report("External, ThreadPoolExecutor", doTestExternal(createThreadPoolExecutor()));
+            report("External, WorkStealingThreadPoolExecutor", doTestExternal(createWorkStealingExecutor()));
+        }
+    }
+
+
+    @Test
+    public void testWorkerSubmission() throws Exception {
+        for (int i = 0; i < ITERATIONS; i++) {
+            report("Fan out, ThreadPoolExecutor", doTestFanOut(createThreadPoolExecutor()));
+            report("Fan out, WorkStealingThreadPoolExecutor", doTestFanOut(createWorkStealingExecutor()));
+        }
+    }
+
+
+    /*
+     * Tasks submitted by threads outside of the pool, as the poller threads of a connector do.
+     */
+    private long doTestExternal(ExecutorService executor) throws Exception {
+        int tasksPerProducer = TASKS / PRODUCERS;
+        CountDownLatch done = new CountDownLatch(tasksPerProducer * PRODUCERS);
+        Runnable task = new WorkTask(done);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int i = 0; i < PRODUCERS; i++) {
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < tasksPerProducer; j++) {
+                    executor.execute(task);
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        Assert.assertTrue(done.await(5, TimeUnit.MINUTES));
+        long duration = System.nanoTime() - start;
+        shutdown(executor);
+        return (long) tasksPerProducer * PRODUCERS * 1000000000L / duration;
+    }
+
+
+    /*
+     * Tasks submitted by tasks running in the pool, as happens with HTTP/2 streams and asynchronous dispatches.
+     */
+    private long doTestFanOut(ExecutorService executor) throws Exception {
+        int fanOut = 1000;
+        int parents = TASKS / fanOut;
+        CountDownLatch done = new CountDownLatch(parents * fanOut);
+        Runnable task = new WorkTask(done);
+        long start = System.nanoTime();
+        for (int i = 0; i < parents; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < fanOut; j++) {
+                    executor.execute(task);
+                }
+            });
+        }
+        Assert.assertTrue(done.await(5, TimeUnit.MINUTES));
+        long duration = System.nanoTime() - start;
+        shutdown(executor);
+        return (long) parents * fanOut * 1000000000L / duration;
+    }
+
+
+    private static ExecutorService createThreadPoolExecutor() {
+        TaskQueue taskQueue = new TaskQueue();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, taskQueue,
+                new TaskThreadFactory("tpe-", true, Thread.NORM_PRIORITY));
+        taskQueue.setParent(executor);
+        return executor;
+    }
+
+
+    private static ExecutorService createWorkStealingExecutor() {
+        return new WorkStealingThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+                new TaskThreadFactory("ws-", true, Thread.NORM_PRIORITY));
+    }
+
+
+    private static void shutdown(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+
+    private static void report(String name, long tasksPerSecond) {
+        System.out.println(name + ": " + THREADS + " threads, " + PRODUCERS + " producers, " + tasksPerSecond +
+                " tasks/s");
+    }
+
+
+    private static class WorkTask implements Runnable {
+
+        private final CountDownLatch done;
+
+        WorkTask(CountDownLatch done) {
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            // A small amount of work so the cost of handing over the task dominates
+            long x = 0;
+            for (int i = 0; i < 100; i++) {
+                x += i * 31L;
+            }
+            if (x == 42) {
+                System.out.println();
+            }
+            done.countDown();
+        }
+    }
+}